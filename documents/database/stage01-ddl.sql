@@ -18,7 +18,10 @@ CREATE TABLE url (
   protocol VARCHAR(5) NOT NULL,     -- The protocol / scheme of this URL.
   host_id INTEGER NOT NULL,         -- The ID of the host of this URL.
   path TEXT NOT NULL,               -- The path of this URL.
-  when_crawled TIMESTAMP,           -- When (if ever) this URL was crawled.
+  when_crawled TIMESTAMP,           -- When (if ever) this URL was crawled.  Set back to NULL when it is due to be crawled again.
+  etag TEXT,                        -- The ETag the server sent when this URL was last crawled, if any.
+  last_modified TEXT,               -- The Last-Modified date the server sent when this URL was last crawled, if any.
+  content_hash CHAR(64),            -- The SHA-256 hash (in hexadecimal) of the body of this URL when it was last crawled, if known.
   PRIMARY KEY (url_id),
   UNIQUE (protocol, host_id, path),
   FOREIGN KEY (host_id) REFERENCES host,
@@ -26,6 +29,12 @@ CREATE TABLE url (
     protocol = 'https')
 );
 
+-- Lets the crawler page through the URLs that still need to be crawled on one host without scanning the rest.
+CREATE INDEX url_uncrawled_by_host ON url (host_id, url_id) WHERE when_crawled IS NULL;
+
+-- Lets the crawler find the URLs that were crawled longest ago when scheduling a recrawl.
+CREATE INDEX url_crawled ON url (when_crawled) WHERE when_crawled IS NOT NULL;
+
 -- A web document.
 CREATE TABLE document (
   url_id INT,                       -- The ID of the URL at which this document was found.
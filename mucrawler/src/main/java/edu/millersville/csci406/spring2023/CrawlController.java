@@ -1,6 +1,7 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -16,14 +17,36 @@ public interface CrawlController {
 	public static final int DEFAULT_CRAWL_DELAY = 10000;
 		
 	/**
-	 * Gets a CrawlJob to work on, or null if there are none.
+	 * Gets a CrawlJob to work on, or null if the crawl is complete.
 	 * This will delay if necessary to avoid releasing CrawlJobs for the same host too close together.
+	 * If any host is already eligible, a CrawlJob for it is released immediately rather than waiting for another host.
+	 * If there are no CrawlJobs waiting but some are still being worked on, this will wait for them to produce new ones.
 	 * It will never release an HTML file for a protocol/host pair before releasing a robots.txt file for it.
 	 * It will interleave jobs for different hosts as much as possible.
+	 * The CrawlJob returned is leased to the caller, and must be passed to exactly one of {@link #finishRobots(CrawlJob, Set)}, {@link #finishHtml(CrawlJob, Set, String)}, {@link #finishUnchangedHtml(CrawlJob, Validators)}, {@link #cancelHtml(CrawlJob)}, {@link #finishSitemap(CrawlJob, List, Collection)} or {@link #returnJob(CrawlJob)} before the lease expires, even if that method throws an exception.
+	 * If the lease expires first, the CrawlJob is put back to be released again, and finishing it later does nothing unless it has been leased again by then.
 	 * 
-	 * @return A CrawlJob to work on, or null if there are none.
+	 * @return A CrawlJob to work on, or null if there are no CrawlJobs waiting or being worked on.
 	 */
 	public CrawlJob getJob();
+
+	/**
+	 * Gets a batch of CrawlJobs to work on, each for a different host, or an empty list if the crawl is complete.
+	 * This waits in the same way as {@link #getJob()} until at least one CrawlJob can be released, and then returns as many as can be released right away, up to the maximum.
+	 * Each CrawlJob returned is leased to the caller exactly as if it had come from {@link #getJob()}.
+	 * 
+	 * @param max The largest number of CrawlJobs to return, which must be at least 1.
+	 * @return A list of CrawlJobs to work on, which is empty only if there are no CrawlJobs waiting or being worked on.
+	 */
+	public List<CrawlJob> getJobs(int max);
+
+	/**
+	 * Gives back a leased CrawlJob that will not be worked on, so that it can be released again.
+	 * Nothing is recorded about the CrawlJob in the DataSource.
+	 * 
+	 * @param job A CrawlJob that was leased from this CrawlController.
+	 */
+	public void returnJob(CrawlJob job);
 	
 	/**
 	 * Records a set of rules from a robots.txt file, marks that file as completed, and deletes all future jobs that the rules would disallow.
@@ -34,6 +57,43 @@ public interface CrawlController {
 	 */
 	public void finishRobots(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException;
 	
+	/**
+	 * Records a set of rules from a robots.txt file, marks that file as completed, and deletes all future jobs that the rules would disallow.
+	 * Future jobs for the same host will be released no closer together than the Crawl-delay the file requested.
+	 * 
+	 * @param job The CrawlJob for the robots.txt file that was parsed.
+	 * @param newRules A set of RobotsRules generated from that file.
+	 * @param crawlDelay The number of milliseconds the file asked crawlers to wait between accesses, or 0 if it did not ask.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishRobots(CrawlJob job, Set<RobotsRule> newRules, long crawlDelay) throws DataSourceException;
+	
+	/**
+	 * Records a set of rules from a robots.txt file, marks that file as completed, and deletes all future jobs that the rules would disallow.
+	 * Future jobs for the same host will be released no closer together than the Crawl-delay the file requested.
+	 * The sitemaps the file named become future jobs for the same host, which are released like any other access to it.
+	 * 
+	 * @param job The CrawlJob for the robots.txt file that was parsed.
+	 * @param newRules A set of RobotsRules generated from that file.
+	 * @param crawlDelay The number of milliseconds the file asked crawlers to wait between accesses, or 0 if it did not ask.
+	 * @param sitemaps The URLs of the sitemaps the file named on the same host.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishRobots(CrawlJob job, Set<RobotsRule> newRules, long crawlDelay, Collection<CrawlURL> sitemaps) throws DataSourceException;
+
+	/**
+	 * Records what was read from a sitemap, and marks its CrawlJob as completed.
+	 * The URLs it listed are added as future jobs, if they are new and allowed, and pages that it says have changed since they were crawled are crawled again.
+	 * The sitemaps it named, if it was a sitemap index, become future jobs for the same host.
+	 * A sitemap is only a hint, so failing to add what it listed does not fail the CrawlJob.
+	 * 
+	 * @param job The CrawlJob for the sitemap that was read.
+	 * @param entries The URLs listed in the sitemap on the same host, which is empty if it could not be read.
+	 * @param sitemaps The URLs of the sitemaps it named on the same host.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishSitemap(CrawlJob job, List<SitemapEntry> entries, Collection<CrawlURL> sitemaps) throws DataSourceException;
+	
 	/**
 	 * Records the content of an HTML file, marks that file as completed, and considers all URLs linked to by that document as new jobs.
 	 * Note that some URLs may not become new jobs, either because they already exist as jobs or completed documents, or because some rule disallows them from being crawled.
@@ -43,7 +103,28 @@ public interface CrawlController {
 	 * @param content The complete HTML content of the document.
 	 * @throws DataSourceException If there is a problem accessing the DataSource.
 	 */
-	public void finishHtml(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException;
+	public void finishHtml(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException;
+	
+	/**
+	 * Records the content of an HTML file, marks that file as completed, and considers all URLs linked to by that document as new jobs.
+	 * The Validators are saved so that the file can be fetched conditionally when it is crawled again.
+	 * 
+	 * @param job The CrawlJob for the HTML document that was parsed.
+	 * @param newUrls A set of URLs from the links contained within the document.
+	 * @param content The complete HTML content of the document.
+	 * @param validators What was learned about the document when it was fetched, or null if nothing was.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishHtml(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) throws DataSourceException;
+	
+	/**
+	 * Marks an HTML file that was crawled again but has not changed as completed, keeping the content from the earlier crawl.
+	 * 
+	 * @param job The CrawlJob for the HTML document that was not parsed again.
+	 * @param validators What was learned about the document when it was fetched this time.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishUnchangedHtml(CrawlJob job, Validators validators) throws DataSourceException;
 	
 	/**
 	 * Cancels the processing of an HTML file and marks it as impossible.
@@ -53,4 +134,13 @@ public interface CrawlController {
 	 */
 	public void cancelHtml(CrawlJob job) throws DataSourceException;
 	
+	/**
+	 * Cancels the processing of an HTML file and marks it as impossible, saying whether that was the fault of its host.
+	 * 
+	 * @param job The CrawlJob for the HTML file that will not be parsed.
+	 * @param hostFailed Whether or not the host failed to respond usefully, because of a transport error, a timeout or a 5xx status, rather than sending something that is not an HTML file.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void cancelHtml(CrawlJob job, boolean hostFailed) throws DataSourceException;
+	
 }
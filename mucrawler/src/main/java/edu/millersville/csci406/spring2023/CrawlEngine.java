@@ -0,0 +1,170 @@
+package edu.millersville.csci406.spring2023;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a crawl by giving each CrawlJob a thread of its own, rather than sharing a fixed number of CrawlWorkerThreads.
+ *
+ * On a Java runtime with virtual threads, each CrawlJob runs on a virtual thread, so a CrawlJob waiting on a slow host ties up no operating system thread.
+ * Otherwise, platform threads are created as needed and reused.
+ * How many CrawlJobs are in progress at once is limited by the CrawlController's per-host politeness and by a global number of permits, not by a number of threads.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class CrawlEngine {
+
+	/** The largest number of CrawlJobs in progress at once by default. */
+	public static final int DEFAULT_MAX_CONCURRENT_JOBS = 256;
+
+	/** The number of times a CrawlJob may fail unexpectedly before it is given up on. */
+	public static final int MAX_ATTEMPTS = 3;
+
+	/** A Logger. */
+	private static Logger theLogger = Logger.getLogger(CrawlEngine.class.getName());
+
+	/** The CrawlController from which CrawlJobs are leased. */
+	private final CrawlController controller;
+
+	/** The processor that completes each CrawlJob and reports it to the CrawlController. */
+	private final CrawlWorkerThread processor;
+
+	/** One permit for each CrawlJob that may be in progress at once. */
+	private final Semaphore permits;
+
+	/** The number of times that each CrawlJob which has failed unexpectedly has done so, by its id. */
+	private final Map<Integer, Integer> failures;
+
+	/**
+	 * Constructs a CrawlEngine.
+	 *
+	 * @param controller The CrawlController from which CrawlJobs are leased.
+	 * @param urlReader A URLReader with which to open files, which must be safe to use from many threads at once.
+	 * @param maxConcurrentJobs The largest number of CrawlJobs in progress at once.
+	 */
+	public CrawlEngine(CrawlController controller, URLReader urlReader, int maxConcurrentJobs) {
+		if(maxConcurrentJobs < 1) {
+			throw new IllegalArgumentException("At least one CrawlJob must be allowed to be in progress.");
+		}
+		this.controller = controller;
+		this.processor = new CrawlWorkerThread(controller, urlReader);
+		this.permits = new Semaphore(maxConcurrentJobs);
+		this.failures = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Runs the crawl until it is complete.
+	 * Whenever permits are free, as many CrawlJobs as there are free permits are leased at once, and each is started on its own thread.
+	 */
+	public void run() {
+		ExecutorService executor = newPerJobExecutor();
+		try {
+			boolean crawlFinished = false;
+			while(!crawlFinished) {
+				permits.acquireUninterruptibly();
+				int held = 1 + permits.drainPermits();
+				List<CrawlJob> jobs = controller.getJobs(held);
+				// An empty batch means that nothing is waiting or in progress, so no other CrawlJob can ever be released.
+				crawlFinished = jobs.isEmpty();
+				permits.release(held - jobs.size());
+				for(CrawlJob job : jobs) {
+					executor.execute(() -> runJob(job));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+			boolean terminated = false;
+			while(!terminated) {
+				try {
+					terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+				}
+				catch(InterruptedException e) {
+					// That's OK, we will just wait again.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Completes a single CrawlJob and then gives up its permit.
+	 *
+	 * @param job The CrawlJob.
+	 */
+	private void runJob(CrawlJob job) {
+		try {
+			processor.processJob(job);
+			failures.remove(job.getId());
+		}
+		catch(DataSourceException exception) {
+			theLogger.log(Level.SEVERE, "Failed to record the results of " + job + ".", exception.getCause());
+		}
+		catch(RuntimeException exception) {
+			theLogger.log(Level.SEVERE, "Failed to process " + job + ".", exception);
+			int attempts = failures.merge(job.getId(), 1, Integer::sum);
+			if(attempts < MAX_ATTEMPTS) {
+				// Nobody else will give the job back, and its lease would otherwise have to expire first.
+				controller.returnJob(job);
+			}
+			else {
+				giveUp(job);
+				failures.remove(job.getId());
+			}
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Finishes a CrawlJob that has failed unexpectedly too many times, so that it is not leased again forever.
+	 * A robots.txt file is treated like one that could not be read, which allows everything, a sitemap like one that listed nothing, and an HTML file is cancelled.
+	 *
+	 * @param job The CrawlJob.
+	 */
+	private void giveUp(CrawlJob job) {
+		theLogger.log(Level.WARNING, "Giving up on " + job + " after " + MAX_ATTEMPTS + " failed attempts.");
+		try {
+			if(job.isRobotsTxt()) {
+				controller.finishRobots(job, Collections.singleton(new RobotsRule(job.getURL().getProtocol(), job.getURL().getHost(), "/", true)));
+			}
+			else if(job.isSitemap()) {
+				controller.finishSitemap(job, Collections.emptyList(), Collections.emptyList());
+			}
+			else {
+				controller.cancelHtml(job);
+			}
+		}
+		catch(DataSourceException exception) {
+			theLogger.log(Level.SEVERE, "Failed to record the results of " + job + ".", exception.getCause());
+		}
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task if the Java runtime supports them, or otherwise reuses platform threads that are created as needed.
+	 * The virtual thread executor is looked up reflectively so that the crawler still builds and runs on Java versions without it.
+	 *
+	 * @return An executor that runs every task at once, however many there are.
+	 */
+	private static ExecutorService newPerJobExecutor() {
+		ExecutorService returnValue;
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			returnValue = (ExecutorService)factory.invoke(null);
+		}
+		catch(ReflectiveOperationException exception) {
+			returnValue = Executors.newCachedThreadPool();
+		}
+		return returnValue;
+	}
+}
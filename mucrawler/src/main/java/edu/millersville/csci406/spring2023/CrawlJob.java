@@ -1,12 +1,12 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
-
 /**
  * A URL that needs to be crawled, with its associated ID number.
+ * A CrawlJob for a URL that has been crawled before also carries the Validators from that crawl, which do not affect equality or ordering.
+ * A CrawlJob may also be for a sitemap named by a robots.txt file, which is scheduled like any other access to its host but is not in the data source, and is given a negative ID so that it cannot be confused with one that is.
  * 
  * Its natural ordering follows the following preferences, in order:
- *   - robots.txt files come before non-robots.txt files
+ *   - robots.txt files come before sitemaps, which come before all other files
  *   - http protocols come before non-http protocols
  *   - lower id numbers come before higher id numbers
  * 
@@ -18,7 +18,18 @@ public class CrawlJob implements Comparable<CrawlJob> {
 	/** The unique ID number assigned to this CrawlJob. */
 	private final int id;
 	/** The URL that needs to be crawled. */
-	private final URL url;
+	private final CrawlURL url;
+	/** What was learned about the URL when it was last crawled, or null if it has never been crawled. */
+	private final Validators validators;
+	/** Whether or not the URL is for a robots.txt file. */
+	private final boolean robotsTxt;
+	/** Whether or not the URL is for a sitemap. */
+	private final boolean sitemap;
+	/**
+	 * A single number that orders CrawlJobs in their natural ordering, so that comparing them needs no string comparisons.
+	 * The bits above the low 32 hold the kind of file, counting robots.txt files, then sitemaps, then everything else, with http before other protocols in each, and the low 32 bits hold the ID shifted to be non-negative.
+	 */
+	private final long sortKey;
 	
 	/**
 	 * Constructs a new CrawlJob.
@@ -26,9 +37,37 @@ public class CrawlJob implements Comparable<CrawlJob> {
 	 * @param id The ID of the new CrawlJob.
 	 * @param url The URL of the new CrawlJob.
 	 */
-	public CrawlJob(int id, URL url) {
+	public CrawlJob(int id, CrawlURL url) {
+		this(id, url, null);
+	}
+	
+	/**
+	 * Constructs a new CrawlJob for a URL that may have been crawled before.
+	 * 
+	 * @param id The ID of the new CrawlJob.
+	 * @param url The URL of the new CrawlJob.
+	 * @param validators What was learned about the URL when it was last crawled, or null if it has never been crawled.
+	 */
+	public CrawlJob(int id, CrawlURL url, Validators validators) {
+		this(id, url, validators, false);
+	}
+
+	/**
+	 * Constructs a new CrawlJob that may be for a sitemap.
+	 * 
+	 * @param id The ID of the new CrawlJob, which should be negative for a sitemap.
+	 * @param url The URL of the new CrawlJob.
+	 * @param validators What was learned about the URL when it was last crawled, or null if it has never been crawled.
+	 * @param sitemap Whether or not the URL is for a sitemap rather than an HTML or robots.txt file.
+	 */
+	public CrawlJob(int id, CrawlURL url, Validators validators, boolean sitemap) {
 		this.id = id;
 		this.url = url;
+		this.validators = validators;
+		this.sitemap = sitemap;
+		robotsTxt = !sitemap && url.getFile().equalsIgnoreCase("/robots.txt");
+		long kind = (robotsTxt ? 0 : sitemap ? 2 : 4) + (url.getProtocol().equalsIgnoreCase("http") ? 0 : 1);
+		sortKey = (kind << 32) | ((long)id - Integer.MIN_VALUE);
 	}
 	
 	/**
@@ -46,38 +85,43 @@ public class CrawlJob implements Comparable<CrawlJob> {
 	 * 
 	 * @return The URL that needs to be crawled.
 	 */
-	public URL getURL() {
+	public CrawlURL getURL() {
 		return url;
 	}
+
+	/**
+	 * Gets what was learned about the URL when it was last crawled, which lets it be fetched conditionally.
+	 * 
+	 * @return The Validators from the last crawl, or null if the URL has never been crawled.
+	 */
+	public Validators getValidators() {
+		return validators;
+	}
+
+	/**
+	 * Gets whether or not this CrawlJob is for a robots.txt file.
+	 * 
+	 * @return Whether or not this CrawlJob is for a robots.txt file.
+	 */
+	public boolean isRobotsTxt() {
+		return robotsTxt;
+	}
+
+	/**
+	 * Gets whether or not this CrawlJob is for a sitemap.
+	 * 
+	 * @return Whether or not this CrawlJob is for a sitemap.
+	 */
+	public boolean isSitemap() {
+		return sitemap;
+	}
 	
 	@Override
 	public int compareTo(CrawlJob arg0) {
-		int returnValue;
 		if(arg0 == null) {
 			throw new NullPointerException();
 		}
-		else if(equals(arg0)) {
-			returnValue = 0;
-		}
-		else if(url.getFile().equalsIgnoreCase("/robots.txt") && !arg0.url.getFile().equalsIgnoreCase("/robots.txt")) {
-			returnValue = -1;
-		}
-		else if(!url.getFile().equalsIgnoreCase("/robots.txt") && arg0.url.getFile().equalsIgnoreCase("/robots.txt")) {
-			returnValue = 1;
-		}
-		else if(url.getProtocol().equalsIgnoreCase("http") && !arg0.url.getProtocol().equalsIgnoreCase("http")) {
-			returnValue = -1;
-		}
-		else if(!url.getProtocol().equalsIgnoreCase("http") && arg0.url.getProtocol().equalsIgnoreCase("http")) {
-			returnValue = 1;
-		}
-		else if(id < arg0.id){
-			returnValue = -1;
-		}
-		else {
-			returnValue = 1;
-		}
-		return returnValue;
+		return Long.compare(sortKey, arg0.sortKey);
 	}
 	
 	@Override
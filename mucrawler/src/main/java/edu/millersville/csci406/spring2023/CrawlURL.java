@@ -0,0 +1,239 @@
+package edu.millersville.csci406.spring2023;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * A URL as the crawler stores it: a protocol, a host name, and a file (a path and optional query).
+ *
+ * Unlike java.net.URL, comparing or hashing a CrawlURL never resolves the host name, so sets of them are cheap to build.
+ * The protocol and host name are kept in lower case, the file always starts with a slash, and any fragment is dropped, so two CrawlURLs for the same document are equal.
+ * Ports and user information are not part of a CrawlURL, because the database does not record them.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class CrawlURL {
+
+	/** The protocol, in lower case. */
+	private final String protocol;
+	/** The host name, in lower case. */
+	private final String host;
+	/** The path and query, starting with a slash. */
+	private final String file;
+	/** The hash code, which is computed once because CrawlURLs are mostly used as members of sets. */
+	private final int hash;
+
+	/**
+	 * Constructs a CrawlURL from its parts.
+	 *
+	 * @param protocol The protocol, such as "http".
+	 * @param host The host name.
+	 * @param file The path and query, which will be given a leading slash if it does not have one.
+	 * @throws MalformedURLException If the protocol or host name is empty or contains characters that cannot appear there.
+	 */
+	public CrawlURL(String protocol, String host, String file) throws MalformedURLException {
+		if(!isValidProtocol(protocol)) {
+			throw new MalformedURLException("Invalid protocol: " + protocol);
+		}
+		if(!isValidHost(host)) {
+			throw new MalformedURLException("Invalid host name: " + host);
+		}
+		int fragmentStart = file.indexOf('#');
+		if(fragmentStart >= 0) {
+			file = file.substring(0, fragmentStart);
+		}
+		if(!file.startsWith("/")) {
+			file = "/" + file;
+		}
+		this.protocol = protocol.toLowerCase(Locale.ROOT);
+		this.host = host.toLowerCase(Locale.ROOT);
+		this.file = file;
+		hash = (this.protocol.hashCode() * 31 + this.host.hashCode()) * 31 + this.file.hashCode();
+	}
+
+	/**
+	 * Constructs a CrawlURL by parsing an absolute URL, such as "http://example.com/index.html?page=2#top".
+	 *
+	 * @param spec The absolute URL to parse.
+	 * @throws MalformedURLException If the string is not an absolute URL with a host name, or if it specifies a port.
+	 */
+	public CrawlURL(String spec) throws MalformedURLException {
+		this(parseProtocol(spec.trim()), parseHost(spec.trim()), parseFile(spec.trim()));
+	}
+
+	/**
+	 * Gets the protocol.
+	 *
+	 * @return The protocol, in lower case.
+	 */
+	public String getProtocol() {
+		return protocol;
+	}
+
+	/**
+	 * Gets the host name.
+	 *
+	 * @return The host name, in lower case.
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * Gets the path and query.
+	 *
+	 * @return The path and query, starting with a slash.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * Converts this to a java.net.URL, for the rare places that need to open a connection.
+	 *
+	 * @return A java.net.URL for the same document.
+	 * @throws MalformedURLException If Java does not know how to handle the protocol.
+	 */
+	public URL toURL() throws MalformedURLException {
+		return new URL(toString());
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		boolean returnValue;
+		if(arg0 instanceof CrawlURL) {
+			CrawlURL other = (CrawlURL)arg0;
+			returnValue = hash == other.hash && file.equals(other.file) && host.equals(other.host) && protocol.equals(other.protocol);
+		}
+		else {
+			returnValue = false;
+		}
+		return returnValue;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return protocol + "://" + host + file;
+	}
+
+	/**
+	 * Checks whether a string is a syntactically valid protocol.
+	 *
+	 * @param protocol The string to check.
+	 * @return Whether or not it is a letter followed by letters, digits, '+', '-' and '.'.
+	 */
+	private static boolean isValidProtocol(String protocol) {
+		boolean returnValue = !protocol.isEmpty() && isAsciiLetter(protocol.charAt(0));
+		for(int index = 1; returnValue && index < protocol.length(); index++) {
+			char c = protocol.charAt(index);
+			returnValue = isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.';
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether a string could be a host name.
+	 *
+	 * @param host The string to check.
+	 * @return Whether or not it is non-empty and free of whitespace and characters that delimit other parts of a URL.
+	 */
+	private static boolean isValidHost(String host) {
+		boolean returnValue = !host.isEmpty();
+		for(int index = 0; returnValue && index < host.length(); index++) {
+			char c = host.charAt(index);
+			returnValue = c > ' ' && c != '/' && c != '?' && c != '#' && c != '@' && c != '\\';
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether a character is an ASCII letter.
+	 *
+	 * @param c The character to check.
+	 * @return Whether or not it is between 'a' and 'z' or 'A' and 'Z'.
+	 */
+	private static boolean isAsciiLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/**
+	 * Finds the index just past the "://" that ends the protocol of an absolute URL.
+	 *
+	 * @param spec An absolute URL.
+	 * @return The index at which the authority starts.
+	 * @throws MalformedURLException If the URL does not start with a protocol followed by "://".
+	 */
+	private static int authorityStart(String spec) throws MalformedURLException {
+		int colon = spec.indexOf(':');
+		if(colon <= 0 || !spec.startsWith("//", colon + 1)) {
+			throw new MalformedURLException("Not an absolute URL with a host name: " + spec);
+		}
+		return colon + 3;
+	}
+
+	/**
+	 * Finds the index at which the authority of an absolute URL ends.
+	 *
+	 * @param spec An absolute URL.
+	 * @param start The index at which the authority starts.
+	 * @return The index of the first '/', '?' or '#' after the authority starts, or the length of the URL.
+	 */
+	private static int authorityEnd(String spec, int start) {
+		int index = start;
+		while(index < spec.length() && "/?#".indexOf(spec.charAt(index)) < 0) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the protocol of an absolute URL.
+	 *
+	 * @param spec An absolute URL.
+	 * @return Its protocol.
+	 * @throws MalformedURLException If the URL does not start with a protocol followed by "://".
+	 */
+	private static String parseProtocol(String spec) throws MalformedURLException {
+		return spec.substring(0, authorityStart(spec) - 3);
+	}
+
+	/**
+	 * Gets the host name of an absolute URL, without any user information.
+	 *
+	 * @param spec An absolute URL.
+	 * @return Its host name.
+	 * @throws MalformedURLException If the URL does not start with a protocol followed by "://", or if it specifies a port.
+	 */
+	private static String parseHost(String spec) throws MalformedURLException {
+		int start = authorityStart(spec);
+		int end = authorityEnd(spec, start);
+		start = Math.max(start, spec.lastIndexOf('@', end - 1) + 1);
+		int portStart = spec.lastIndexOf(':', end - 1);
+		// The colons inside a bracketed IPv6 address are not a port separator.
+		if(portStart >= start && spec.lastIndexOf(']', end - 1) < portStart) {
+			if(portStart + 1 < end) {
+				throw new MalformedURLException("URLs with ports cannot be crawled: " + spec);
+			}
+			end = portStart;
+		}
+		return spec.substring(start, end);
+	}
+
+	/**
+	 * Gets the path and query of an absolute URL.
+	 *
+	 * @param spec An absolute URL.
+	 * @return Its path and query, which may be empty.
+	 * @throws MalformedURLException If the URL does not start with a protocol followed by "://".
+	 */
+	private static String parseFile(String spec) throws MalformedURLException {
+		return spec.substring(authorityEnd(spec, authorityStart(spec)));
+	}
+}
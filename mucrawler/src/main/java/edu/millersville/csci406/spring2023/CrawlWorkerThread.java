@@ -1,17 +1,18 @@
 package edu.millersville.csci406.spring2023;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.Scanner;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 /**
  * A thread that repeatedly gets CrawlJobs from a CrawlController and completes
  * them.
@@ -21,6 +22,9 @@ import org.jsoup.select.Elements;
  */
 public class CrawlWorkerThread implements Runnable {
 
+    /** The number of CrawlJobs requested from the CrawlController at a time by default. */
+    public static final int DEFAULT_BATCH_SIZE = 4;
+
     /** A Logger. */
     private static Logger theLogger = Logger.getLogger(CrawlWorkerThread.class.getName());
 
@@ -33,6 +37,15 @@ public class CrawlWorkerThread implements Runnable {
     /** A URLReader from which we can open the files at URLs. */
     private URLReader urlReader;
 
+    /** The number of CrawlJobs to request from the CrawlController at a time. */
+    private int batchSize;
+
+    /** A parser for the robots.txt files we read. */
+    private RobotsTxtParser robotsParser;
+
+    /** A parser for the sitemap files that robots.txt files name. */
+    private SitemapParser sitemapParser;
+
     /**
      * Constructs a new CrawlWorkerThread.
      * 
@@ -40,152 +53,187 @@ public class CrawlWorkerThread implements Runnable {
      * @param urlReader  A URLReader for the new CrawlWorkerThread.
      */
     public CrawlWorkerThread(CrawlController controller, URLReader urlReader) {
+        this(controller, urlReader, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new CrawlWorkerThread.
+     * 
+     * @param controller A CrawlController for the new CrawlWorkerThread.
+     * @param urlReader  A URLReader for the new CrawlWorkerThread.
+     * @param batchSize  The number of CrawlJobs to request from the CrawlController
+     *                   at a time.
+     */
+    public CrawlWorkerThread(CrawlController controller, URLReader urlReader, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("At least one CrawlJob must be requested at a time.");
+        }
         this.controller = controller;
         this.urlReader = urlReader;
+        this.batchSize = batchSize;
+        this.robotsParser = new RobotsTxtParser();
+        this.sitemapParser = new SitemapParser();
     }
 
     /**
-     * Processes a CrawlJob that represents a robots.txt file, extracting rules and
-     * returning them to the CrawlController.
+     * Completes a single CrawlJob leased from the CrawlController, reporting the
+     * results to it.
+     * This may be called from any thread, and from several at once, so a
+     * CrawlWorkerThread can also serve as the job processor of a
+     * {@link CrawlEngine}.
+     * 
+     * @param job The CrawlJob to process.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
+     */
+    public void processJob(CrawlJob job) throws DataSourceException {
+        theLogger.log(Level.INFO, "Processing " + job);
+        if (job.isRobotsTxt()) {
+            processRobotsTxtFile(job);
+        } else if (job.isSitemap()) {
+            processSitemapFile(job);
+        } else {
+            processHTMLFile(job);
+        }
+    }
+
+    /**
+     * Processes a CrawlJob that represents a robots.txt file, extracting rules, any
+     * requested Crawl-delay and the sitemaps it names, and returning all of them to
+     * the CrawlController, which schedules the sitemaps to be read later.
+     * Only sitemaps on the same host as the robots.txt file are used, since a host
+     * may only speak for itself.
      * 
      * @param job The CrawlJob to process, which must be for a robots.txt file.
      * @throws DataSourceException If there is a problem accessing the DataSource.
      */
     private void processRobotsTxtFile(CrawlJob job) throws DataSourceException {
         Set<RobotsRule> rules = new HashSet<>();
-        try (Scanner input = urlReader.readRobotsTxtFile(job.getURL());) {
-
+        long crawlDelay = 0;
+        List<String> sitemaps = new ArrayList<>();
+        try (Reader input = urlReader.readRobotsTxtFile(job.getURL());) {
             if (input != null) {
-                while (input.hasNextLine()) {
-                    String line = input.nextLine();
-                    if (line.equalsIgnoreCase("User-agent: *")) {
-                        parseRobotsRecord(job.getURL().getProtocol(), job.getURL().getHost(), rules, input);
-                    }
+                RobotsTxt robotsTxt = robotsParser.parse(job.getURL().getProtocol(), job.getURL().getHost(), input);
+                rules.addAll(robotsTxt.getRules());
+                crawlDelay = robotsTxt.getCrawlDelay();
+                sitemaps.addAll(robotsTxt.getSitemaps());
+                if (robotsTxt.isTruncated()) {
+                    theLogger.log(Level.INFO, "Ignoring the end of " + job.getURL() + ", which is longer than "
+                            + RobotsTxtParser.MAX_SIZE + " characters");
                 }
             }
+        } catch (IOException exception) {
+            // A file that cannot be read is treated like a missing one, since nothing will have been taken from it.
+            theLogger.log(Level.INFO, "Failed to read " + job.getURL(), exception);
         }
 
         if (rules.isEmpty()) {
             rules.add(new RobotsRule(job.getURL().getProtocol(), job.getURL().getHost(), "/", true));
         }
-        controller.finishRobots(job, rules);
+        controller.finishRobots(job, rules, crawlDelay, sameHost(job, sitemaps));
     }
 
     /**
-     * Processes a CrawlJob that represents an HTML file.
-     * If it really is an HTML file, extracts relevant links and content from it and
-     * sends them to the CrawlController.
-     * If it is not an HTML file / cannot be opened, cancels it to the
-     * CrawlController.
+     * Finds the sitemaps named by a robots.txt file that are on the same host.
      * 
-     * @param job The CrawlJob to process.
-     * @throws DataSourceException If there is a problem accessing the DataSource.
+     * @param job      The CrawlJob for the robots.txt file.
+     * @param sitemaps The URLs of the sitemaps it named.
+     * @return The URLs of the sitemaps on the same host, in the order in which they
+     *         were named.
      */
-    private void processHTMLFile(CrawlJob job) throws DataSourceException {
-        Document document = urlReader.readHTMLFile(job.getURL());
-        if (document != null) {
-            controller.finishHtml(job, extractLinks(document), document.outerHtml());
-        } else {
-            controller.cancelHtml(job);
+    private static List<CrawlURL> sameHost(CrawlJob job, List<String> sitemaps) {
+        List<CrawlURL> returnValue = new ArrayList<>();
+        for (String sitemap : sitemaps) {
+            try {
+                CrawlURL url = new CrawlURL(sitemap);
+                if (url.getHost().equals(job.getURL().getHost())) {
+                    returnValue.add(url);
+                }
+            } catch (MalformedURLException exception) {
+                // A sitemap that cannot be fetched is no different from one that is missing.
+            }
         }
+        return returnValue;
     }
 
     /**
-     * Parses an individual record from a robots.txt file.
+     * Processes a CrawlJob that represents a sitemap, returning the URLs it lists
+     * and the sitemaps it names, if it is a sitemap index, to the CrawlController.
+     * Only URLs and sitemaps on the same host as the sitemap are used, and a
+     * sitemap that cannot be read is finished with nothing in it.
      * 
-     * @param protocol Either "http" or "https".
-     * @param hostName The name of the host from which the robots.txt file
-     *                 originated.
-     * @param rules    A set in which to insert the rules that we find.
-     * @param input    A Scanner through the file, which should be positioned on the
-     *                 second row of the record.
+     * @param job The CrawlJob to process, which must be for a sitemap.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
      */
-    private void parseRobotsRecord(String protocol, String hostName, Set<RobotsRule> rules, Scanner input) {
-        boolean readEmptyLine = false;
-        while (input.hasNextLine() && !readEmptyLine) {
-            String line = input.nextLine();
-            if (line.equals("")) {
-                readEmptyLine = true;
-            } else {
-                if (line.startsWith("Disallow:")) {
-                    String prefix = line.substring(9);
-                    if (prefix.indexOf('#') != -1) {
-                        prefix = prefix.substring(0, prefix.indexOf('#')).trim();
-                    }
-                    prefix = prefix.trim();
-                    if (!prefix.isEmpty()) {
-                        rules.add(new RobotsRule(protocol, hostName, prefix, false));
-                    } else {
-                        rules.add(new RobotsRule(protocol, hostName, "/", true));
-                    }
-                } else if (line.startsWith("Allow:")) {
-                    String prefix = line.substring(6);
-                    if (prefix.indexOf('#') != -1) {
-                        prefix = prefix.substring(0, prefix.indexOf('#')).trim();
+    private void processSitemapFile(CrawlJob job) throws DataSourceException {
+        String host = job.getURL().getHost();
+        List<SitemapEntry> entries = new ArrayList<>();
+        List<CrawlURL> sitemaps = new ArrayList<>();
+        try (InputStream input = urlReader.readSitemapFile(job.getURL());) {
+            if (input != null) {
+                Sitemap sitemap = sitemapParser.parse(input);
+                for (SitemapEntry entry : sitemap.getEntries()) {
+                    if (entry.getURL().getHost().equals(host)) {
+                        entries.add(entry);
                     }
-                    prefix = prefix.trim();
-                    if (!prefix.isEmpty()) {
-                        rules.add(new RobotsRule(protocol, hostName, prefix, true));
+                }
+                for (CrawlURL child : sitemap.getSitemaps()) {
+                    if (child.getHost().equals(host)) {
+                        sitemaps.add(child);
                     }
-                } else if (line.startsWith("Crawl-delay")) {
-                    // We are ignoring this request for now, since it is nonstandard.
-                } else if (line.startsWith("Sitemap")) {
-                    // We are ignoring sitemaps for now, since they are nonstandard.
-                } else if (line.startsWith("#")) {
-                    // These are comments.
-                } else {
-                    theLogger.log(Level.INFO, "Found unparseable line \"" + line + "\" in " + protocol + "://"
-                            + hostName + "/robots.txt");
+                }
+                if (sitemap.isTruncated()) {
+                    theLogger.log(Level.INFO, "Only part of " + job.getURL() + " could be parsed");
                 }
             }
+        } catch (IOException exception) {
+            theLogger.log(Level.INFO, "Failed to read " + job.getURL(), exception);
         }
+        controller.finishSitemap(job, entries, sitemaps);
     }
 
     /**
-     * Pulls all of the links out of an HTML Document.
-     * Ignores any links with non-http/https protocols.
+     * Processes a CrawlJob that represents an HTML file.
+     * If it has been crawled before and has not changed since, tells the
+     * CrawlController so without parsing it again.
+     * If it really is an HTML file, extracts relevant links and content from it and
+     * sends them to the CrawlController.
+     * If it is not an HTML file / cannot be opened, cancels it to the
+     * CrawlController.
      * 
-     * @param document The current Document.
-     * @return A set of URLs of links found within the Document.
+     * @param job The CrawlJob to process.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
      */
-    private Set<URL> extractLinks(Document document) {
-        Set<URL> urls = new HashSet<>();
-        Elements links = document.select("a[href]");
-
-        for (Element link : links) {
-            URL newURL;
-            try {
-                newURL = new URL(link.attr("abs:href"));
-                if (newURL.getProtocol().equalsIgnoreCase("http") || newURL.getProtocol().equalsIgnoreCase("https")) {
-                    if (newURL.getPort() == -1) {
-                        if (!newURL.getFile().startsWith("/")) {
-                            newURL = new URL(newURL.getProtocol(), newURL.getHost(), "/" + newURL.getFile());
-                        }
-                        urls.add(newURL);
-                    }
-                }
-            } catch (MalformedURLException e) {
-                // Fine, we will just ignore that link.
-            }
+    private void processHTMLFile(CrawlJob job) throws DataSourceException {
+        HtmlFetch fetch = urlReader.readHTMLFile(job.getURL(), job.getValidators());
+        HtmlPage page = fetch.getPage();
+        if (fetch.isNotModified()) {
+            controller.finishUnchangedHtml(job, fetch.getValidators());
+        } else if (page != null) {
+            // The links were extracted as the file was read, and its text is stored just as it was sent.
+            controller.finishHtml(job, page.getLinkURLs(), page.getContent(), fetch.getValidators());
+        } else {
+            controller.cancelHtml(job, fetch.isHostFailure());
         }
-        return urls;
     }
 
     @Override
     public void run() {
+        Deque<CrawlJob> batch = new ArrayDeque<>();
         try {
-            CrawlJob currentJob = controller.getJob();
-            while (currentJob != null) {
-                theLogger.log(Level.INFO, "Processing " + currentJob);
-                if (currentJob.getURL().getFile().equalsIgnoreCase("/robots.txt")) {
-                    processRobotsTxtFile(currentJob);
-                } else {
-                    processHTMLFile(currentJob);
+            batch.addAll(controller.getJobs(batchSize));
+            while (!batch.isEmpty()) {
+                processJob(batch.remove());
+                if (batch.isEmpty()) {
+                    batch.addAll(controller.getJobs(batchSize));
                 }
-                currentJob = controller.getJob();
             }
         } catch (DataSourceException exception) {
             theLogger.log(Level.SEVERE, "Thread exiting due to exception.", exception.getCause());
+        } finally {
+            // Other threads can have these right away, rather than waiting for the leases to expire.
+            for (CrawlJob job : batch) {
+                controller.returnJob(job);
+            }
         }
     }
 
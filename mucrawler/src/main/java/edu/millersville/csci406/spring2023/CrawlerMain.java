@@ -1,6 +1,10 @@
 package edu.millersville.csci406.spring2023;
 
 import java.lang.Thread;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.*;
 import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
@@ -11,23 +15,70 @@ import java.time.LocalDateTime;
  * Assignment: STAGE 01: FINISHING THE CRAWLER
  * Proffessor: Chad Hogg
  * Description: On this stage of the crawler we implement URLReader and main.
- * Main initiates 10
- * CrawlWorkerThreads to crawl through our datasource.
+ * Main runs a CrawlEngine, which crawls through our datasource with a thread
+ * per job, or 10 CrawlWorkerThreads if given the argument "threads".
+ * Given the arguments "recrawl" and a number of days, it first puts every page
+ * crawled more than that many days ago back to be crawled again, conditionally.
+ * Given the arguments "robotsttl" and a number of hours, it crawls each
+ * robots.txt file again once its rules are that old, instead of after a day.
+ * When the crawl ends, it logs how many bytes were received over the wire and
+ * after decoding, in total and for the hosts that sent the most.
  */
 public class CrawlerMain {
 
+  /** The number of milliseconds in a day. */
+  private static final long MILLISECONDS_PER_DAY = 24L * 60 * 60 * 1000;
+
+  /** The number of milliseconds in an hour. */
+  private static final long MILLISECONDS_PER_HOUR = 60L * 60 * 1000;
+
+  /** The number of hosts whose transfers are logged separately when the crawl ends. */
+  private static final int TRANSFER_SUMMARY_HOSTS = 10;
+
   public static void main(String[] args) {
     try {
-      long crawlDelay = 10000;
+      long minCrawlDelay = 1000;
+      long maxCrawlDelay = CrawlController.DEFAULT_CRAWL_DELAY;
+      int maxConnectionsPerHost = PolitenessPolicy.DEFAULT_MAX_CONNECTIONS_PER_HOST;
       Logger.getLogger("").setLevel(Level.INFO);
       Logger.getLogger("").getHandlers()[0].setLevel(Level.INFO);
       DateTimeFormatter dform = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
       LocalDateTime now = LocalDateTime.now();
       Logger.getLogger("Crawl Start Time: " + dform.format(now));
-      PGCrawlingDataSource source = new PGCrawlingDataSource("localhost", "search", "search", "muuugle", "real");
-      MyCrawlController controller = new MyCrawlController(source, crawlDelay);
-      NetworkURLReader reader = new NetworkURLReader();
-      startThreads(controller, reader);
+      boolean useThreads = false;
+      long recrawlAge = -1;
+      long robotsTtl = RobotsCache.DEFAULT_TTL;
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("threads")) {
+          useThreads = true;
+        } else if (args[i].equals("recrawl") && i + 1 < args.length) {
+          recrawlAge = Long.parseLong(args[i + 1]) * MILLISECONDS_PER_DAY;
+          i++;
+        } else if (args[i].equals("robotsttl") && i + 1 < args.length) {
+          robotsTtl = Long.parseLong(args[i + 1]) * MILLISECONDS_PER_HOUR;
+          i++;
+        }
+      }
+      PGCrawlingDataSource source = new PGCrawlingDataSource("localhost", "search", "search", "muuugle", "real",
+          robotsTtl);
+      if (recrawlAge >= 0) {
+        // This must happen before the controller loads the pages waiting to be crawled.
+        int stalePages = source.scheduleRecrawl(recrawlAge);
+        Logger.getLogger(CrawlerMain.class.getName()).info("Scheduled " + stalePages + " pages to be crawled again.");
+      }
+      MyCrawlController controller = new MyCrawlController(source,
+          new PolitenessPolicy(minCrawlDelay, maxCrawlDelay, maxConnectionsPerHost));
+      controller.startWriteBehind(MyCrawlController.DEFAULT_WRITE_QUEUE_CAPACITY,
+          MyCrawlController.DEFAULT_WRITE_BATCH_SIZE);
+      HttpClientURLReader reader = new HttpClientURLReader();
+      if (useThreads) {
+        startThreads(controller, reader);
+      } else {
+        new CrawlEngine(controller, reader, CrawlEngine.DEFAULT_MAX_CONCURRENT_JOBS).run();
+        now = LocalDateTime.now();
+        Logger.getLogger("Crawl End Time: " + dform.format(now));
+      }
+      logTransferStatistics(reader);
 
     } catch (Exception e) {
       Logger.getLogger(e.toString());
@@ -35,6 +86,33 @@ public class CrawlerMain {
 
   }
 
+  /**
+   * Logs how many bytes of response bodies were received over the wire and after
+   * decoding, in total and for the hosts that sent the most over the wire, so
+   * that what compression saved can be seen.
+   * 
+   * @param reader The reader that fetched every file in the crawl.
+   */
+  private static void logTransferStatistics(HttpClientURLReader reader) {
+    Logger logger = Logger.getLogger(CrawlerMain.class.getName());
+    List<Map.Entry<String, TransferStatistics>> hosts = new ArrayList<>(reader.getTransferStatistics().entrySet());
+    long responses = 0;
+    long wireBytes = 0;
+    long decodedBytes = 0;
+    for (Map.Entry<String, TransferStatistics> host : hosts) {
+      responses += host.getValue().getResponses();
+      wireBytes += host.getValue().getWireBytes();
+      decodedBytes += host.getValue().getDecodedBytes();
+    }
+    logger.info("Received from " + hosts.size() + " hosts: " + responses + " responses, " + wireBytes
+        + " bytes over the wire, " + decodedBytes + " bytes decoded.");
+    hosts.sort(Comparator.comparingLong(
+        (Map.Entry<String, TransferStatistics> host) -> host.getValue().getWireBytes()).reversed());
+    for (int i = 0; i < hosts.size() && i < TRANSFER_SUMMARY_HOSTS; i++) {
+      logger.info("Received from " + hosts.get(i).getKey() + ": " + hosts.get(i).getValue() + ".");
+    }
+  }
+
   /**
    * 
    * @param controller The crawlcontroller that will communicate between our
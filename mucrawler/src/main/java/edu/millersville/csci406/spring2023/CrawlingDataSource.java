@@ -1,6 +1,6 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -13,11 +13,51 @@ public interface CrawlingDataSource {
 	
 	/**
 	 * Gets a set of all CrawlJobs that are waiting to be completed.
+	 * A CrawlJob for a URL that is waiting to be crawled again carries the Validators from its last crawl.
 	 * 
 	 * @return A set of all CrawlJobs that are waiting to be completed.
 	 * @throws DataSourceException If there is a problem accessing the DataSource.
 	 */
 	public Set<CrawlJob> getURLsToCrawl() throws DataSourceException;
+
+	/**
+	 * Gets one page of the CrawlJobs that are waiting to be completed, so that they can be loaded without holding all of them at once.
+	 * 
+	 * @param afterId Only CrawlJobs with IDs greater than this will be returned.
+	 * @param limit The largest number of CrawlJobs to return.
+	 * @return A set of the waiting CrawlJobs with the smallest IDs greater than afterId, which has fewer than limit elements only if there are no more.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public Set<CrawlJob> getURLsToCrawl(int afterId, int limit) throws DataSourceException;
+
+	/**
+	 * Gets the CrawlJobs for a host that should be completed next.
+	 * These are the first CrawlJobs for the host in the order defined by {@link CrawlJob#compareTo(CrawlJob)}.
+	 * 
+	 * @param hostName The name of the host.
+	 * @param limit The largest number of CrawlJobs to return.
+	 * @return A set of the first waiting CrawlJobs for the host, which has fewer than limit elements only if there are no more.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public Set<CrawlJob> getURLsToCrawl(String hostName, int limit) throws DataSourceException;
+	
+	/**
+	 * Begins a batch of changes that are saved together by {@link CrawlingDataSource#endBatch()}, so that saving many of them costs little more than saving one.
+	 * Each change made during the batch still either succeeds or fails as a whole, and one that fails does not undo the others.
+	 * 
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 * @throws IllegalStateException If a batch has already been begun and not ended.
+	 */
+	public void beginBatch() throws DataSourceException;
+
+	/**
+	 * Saves all of the changes made since {@link CrawlingDataSource#beginBatch()}.
+	 * If they cannot be saved then none of them are, and every change in the batch should be treated as having failed.
+	 * 
+	 * @throws DataSourceException If the changes cannot be saved.
+	 * @throws IllegalStateException If no batch has been begun.
+	 */
+	public void endBatch() throws DataSourceException;
 	
 	/**
 	 * Marks crawling of a robots.txt file as completed.
@@ -31,6 +71,16 @@ public interface CrawlingDataSource {
 	 */
 	public Set<CrawlJob> finishCrawlingRobotsFile(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException;
 	
+	/**
+	 * Adds URLs listed in a host's sitemaps as new CrawlJobs if they do not already exist or violate any rule.
+	 * A URL that has already been crawled is put back to be crawled again if the sitemap says that it has changed since then.
+	 * 
+	 * @param entries The URLs listed in the sitemaps, which should all be on hosts whose robots.txt files have been crawled.
+	 * @return A set of CrawlJobs for the URLs that were added or put back to be crawled again.  Also includes new robots.txt files if necessary.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public Set<CrawlJob> addSitemapUrls(Collection<SitemapEntry> entries) throws DataSourceException;
+	
 	/**
 	 * Marks crawling of an HTML file as completed.
 	 * Adds URLs linked to by that file as new CrawlJobs if they do not already exist or violate any rule.
@@ -42,7 +92,42 @@ public interface CrawlingDataSource {
 	 * @return A set of CrawlJobs from the newURLs that were not duplicates and that did not violate any rule that would disallow them.  Also includes new robots.txt files if necessary.
 	 * @throws DataSourceException If there is a problem accessing the DataSource.
 	 */
-	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException;
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException;
+
+	/**
+	 * Marks crawling of an HTML file as completed.
+	 * Adds URLs linked to by that file as new CrawlJobs if they do not already exist or violate any rule.
+	 * Saves the contents of the HTML file for later processing steps, replacing any saved by an earlier crawl.
+	 * Saves the Validators for the file, so that it can be fetched conditionally when it is crawled again.
+	 * 
+	 * @param job The CrawlJob for the HTML file that was crawled.
+	 * @param newUrls A set of URLs linked to by that file.
+	 * @param content The complete HTML contents of that file.
+	 * @param validators What was learned about the file in this crawl, or null if nothing was.
+	 * @return A set of CrawlJobs from the newURLs that were not duplicates and that did not violate any rule that would disallow them.  Also includes new robots.txt files if necessary.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) throws DataSourceException;
+
+	/**
+	 * Marks crawling again of an HTML file that has not changed since it was last crawled as completed.
+	 * The contents saved by the earlier crawl are kept, and only the Validators are updated.
+	 * 
+	 * @param job The CrawlJob for the HTML file that was crawled.
+	 * @param validators What was learned about the file in this crawl.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public void finishUnchangedHtmlFile(CrawlJob job, Validators validators) throws DataSourceException;
+
+	/**
+	 * Puts every HTML file that was crawled more than some time ago back to be crawled again.
+	 * Only files whose contents were saved are recrawled, and their Validators are kept so that they can be fetched conditionally.
+	 * 
+	 * @param maxAge The number of milliseconds after which a crawled file is stale.
+	 * @return The number of files that are now waiting to be crawled again.
+	 * @throws DataSourceException If there is a problem accessing the DataSource.
+	 */
+	public int scheduleRecrawl(long maxAge) throws DataSourceException;
 
 	/**
 	 * Marks crawling of an HTML file as impossible.
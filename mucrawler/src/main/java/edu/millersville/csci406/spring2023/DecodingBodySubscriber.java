@@ -0,0 +1,337 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A BodySubscriber that decodes a response body compressed with the gzip or deflate Content-Encoding as its pieces arrive, so the compressed body is never held in memory as a whole.
+ * A body with no Content-Encoding, or the "identity" one, is passed through unchanged.
+ * When the body is complete, the number of bytes received over the wire and after decoding is recorded.
+ * A decoded body longer than a limit is cut off at the limit and the rest is not downloaded.
+ * The first bytes of the decoded body can also be checked, so that a body that turns out to be unwanted is dropped as soon as possible.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class DecodingBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+	/** The value of an Accept-Encoding header naming every Content-Encoding this can decode. */
+	public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+	/** The flag bits in a gzip header that announce optional fields. */
+	private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+	/** The body that will be produced. */
+	private final CompletableFuture<byte[]> body;
+	/** The decoded bytes received so far. */
+	private final ByteArrayOutputStream decoded;
+	/** Where to record the size of the body once it is complete. */
+	private final TransferStatistics statistics;
+	/** Whether the body is gzip-encoded, rather than deflate-encoded or not encoded. */
+	private final boolean gzip;
+	/** The decompressor, or null if the body is not encoded. */
+	private Inflater inflater;
+	/** Bytes held back until there are enough to parse the gzip header or recognize the deflate format, or null once decompressing has begun. */
+	private ByteArrayOutputStream pending;
+	/** The number of bytes received over the wire so far. */
+	private long wireBytes;
+	/** The subscription through which the body is received. */
+	private Flow.Subscription subscription;
+	/** The largest number of decoded bytes to keep. */
+	private final long maxBodySize;
+	/** A check of the first bytes of the decoded body, which drops the body if it fails, or null once it has been made or if there is none. */
+	private Predicate<byte[]> prefixCheck;
+	/** Whether or not the decoded body has reached maxBodySize, so that nothing more is needed. */
+	private boolean full;
+
+	/**
+	 * Constructs a DecodingBodySubscriber.
+	 *
+	 * @param contentEncoding The value of the response's Content-Encoding header, or null if it has none.
+	 * @param statistics Where to record the size of the body once it is complete.
+	 * @throws ZipException If the Content-Encoding is one that this cannot decode.
+	 */
+	public DecodingBodySubscriber(String contentEncoding, TransferStatistics statistics) throws ZipException {
+		this(contentEncoding, statistics, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Constructs a DecodingBodySubscriber that limits the size of the body and checks how it starts.
+	 *
+	 * @param contentEncoding The value of the response's Content-Encoding header, or null if it has none.
+	 * @param statistics Where to record the size of the body once it is complete.
+	 * @param maxBodySize The largest number of decoded bytes to keep, after which the body is cut off.
+	 * @param prefixCheck A check of the first HtmlSniffer.SNIFF_LENGTH decoded bytes (or all of them, if there are fewer), which produces a null body if it fails, or null to keep every body.
+	 * @throws ZipException If the Content-Encoding is one that this cannot decode.
+	 */
+	public DecodingBodySubscriber(String contentEncoding, TransferStatistics statistics, long maxBodySize, Predicate<byte[]> prefixCheck) throws ZipException {
+		String encoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+		boolean encoded;
+		if(encoding.equals("gzip") || encoding.equals("x-gzip")) {
+			gzip = true;
+			encoded = true;
+		}
+		else if(encoding.equals("deflate")) {
+			gzip = false;
+			encoded = true;
+		}
+		else if(encoding.equals("identity") || encoding.isEmpty()) {
+			gzip = false;
+			encoded = false;
+		}
+		else {
+			throw new ZipException("Unsupported Content-Encoding: " + contentEncoding);
+		}
+		this.pending = encoded ? new ByteArrayOutputStream() : null;
+		this.body = new CompletableFuture<>();
+		this.decoded = new ByteArrayOutputStream();
+		this.statistics = statistics;
+		this.inflater = null;
+		this.wireBytes = 0;
+		this.maxBodySize = maxBodySize;
+		this.prefixCheck = prefixCheck;
+		this.full = false;
+	}
+
+	@Override
+	public CompletionStage<byte[]> getBody() {
+		return body;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public void onNext(List<ByteBuffer> items) {
+		// Pieces that were already on their way when the subscription was cancelled are ignored.
+		if(!body.isDone()) {
+			try {
+				for(ByteBuffer item : items) {
+					byte[] bytes = new byte[item.remaining()];
+					item.get(bytes);
+					wireBytes += bytes.length;
+					if(!full) {
+						decode(bytes);
+					}
+				}
+				if(prefixCheck != null && decoded.size() >= HtmlSniffer.SNIFF_LENGTH) {
+					checkPrefix();
+				}
+				if(body.isDone() || full) {
+					subscription.cancel();
+					finish();
+				}
+			}
+			catch(DataFormatException | ZipException exception) {
+				subscription.cancel();
+				end();
+				body.completeExceptionally(exception);
+			}
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		end();
+		body.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		// Some servers label even an empty body as compressed.
+		boolean truncated = wireBytes > 0 && (pending != null || (inflater != null && !inflater.finished()));
+		if(body.isDone()) {
+			end();
+		}
+		else if(truncated) {
+			end();
+			body.completeExceptionally(new ZipException("The compressed body ended early."));
+		}
+		else {
+			if(prefixCheck != null) {
+				checkPrefix();
+			}
+			finish();
+		}
+	}
+
+	/**
+	 * Records the size of the body and produces it, unless it has already been dropped.
+	 */
+	private void finish() {
+		end();
+		statistics.record(wireBytes, decoded.size());
+		if(!body.isDone()) {
+			body.complete(decoded.toByteArray());
+		}
+	}
+
+	/**
+	 * Checks the first decoded bytes, dropping the body if the check fails.
+	 */
+	private void checkPrefix() {
+		byte[] all = decoded.toByteArray();
+		byte[] prefix = all.length > HtmlSniffer.SNIFF_LENGTH ? Arrays.copyOf(all, HtmlSniffer.SNIFF_LENGTH) : all;
+		if(!prefixCheck.test(prefix)) {
+			body.complete(null);
+		}
+		prefixCheck = null;
+	}
+
+	/**
+	 * Keeps decoded bytes, up to maxBodySize of them.
+	 *
+	 * @param bytes The decoded bytes.
+	 * @param offset The index of the first of them to keep.
+	 * @param count The number of them to keep.
+	 */
+	private void keep(byte[] bytes, int offset, int count) {
+		long room = maxBodySize - decoded.size();
+		if(count >= room) {
+			full = true;
+		}
+		decoded.write(bytes, offset, (int)Math.min(count, room));
+	}
+
+	/**
+	 * Decodes the next piece of the body.
+	 *
+	 * @param bytes The next bytes received over the wire.
+	 * @throws DataFormatException If the compressed data is corrupt.
+	 * @throws ZipException If the gzip header is corrupt.
+	 */
+	private void decode(byte[] bytes) throws DataFormatException, ZipException {
+		if(pending == null && inflater == null) {
+			keep(bytes, 0, bytes.length);
+		}
+		else if(pending != null) {
+			pending.write(bytes, 0, bytes.length);
+			byte[] held = pending.toByteArray();
+			int start = gzip ? gzipHeaderLength(held) : startDeflate(held);
+			if(start >= 0) {
+				pending = null;
+				inflate(held, start);
+			}
+		}
+		else {
+			inflate(bytes, 0);
+		}
+	}
+
+	/**
+	 * Feeds compressed bytes to the decompressor and collects whatever it produces.
+	 * Anything after the end of the compressed data, such as the gzip trailer, is ignored.
+	 *
+	 * @param bytes Compressed bytes.
+	 * @param start The index of the first of them to use.
+	 * @throws DataFormatException If the compressed data is corrupt.
+	 */
+	private void inflate(byte[] bytes, int start) throws DataFormatException {
+		if(!inflater.finished()) {
+			inflater.setInput(bytes, start, bytes.length - start);
+			byte[] buffer = new byte[8192];
+			while(!full && !inflater.finished() && !inflater.needsInput()) {
+				if(inflater.needsDictionary()) {
+					throw new DataFormatException("The compressed body needs a preset dictionary.");
+				}
+				int count = inflater.inflate(buffer);
+				keep(buffer, 0, count);
+			}
+		}
+	}
+
+	/**
+	 * Creates the decompressor for a deflate-encoded body once its first two bytes have arrived.
+	 * The standard says that such a body is wrapped in a zlib header, but some servers send raw deflate data, so the header is looked for rather than assumed.
+	 *
+	 * @param held The bytes received so far.
+	 * @return The index at which the decompressor should start, or -1 if more bytes are needed.
+	 */
+	private int startDeflate(byte[] held) {
+		int returnValue = -1;
+		if(held.length >= 2) {
+			int first = held[0] & 0xff;
+			int second = held[1] & 0xff;
+			boolean zlib = (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+			inflater = new Inflater(!zlib);
+			returnValue = 0;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the length of the gzip header at the start of a body, creating the decompressor once it is complete.
+	 *
+	 * @param held The bytes received so far.
+	 * @return The length of the header, or -1 if more bytes are needed.
+	 * @throws ZipException If the bytes do not start with a gzip header.
+	 */
+	private int gzipHeaderLength(byte[] held) throws ZipException {
+		int returnValue = -1;
+		if(held.length >= 10) {
+			if((held[0] & 0xff) != 0x1f || (held[1] & 0xff) != 0x8b || held[2] != 8) {
+				throw new ZipException("Not in gzip format.");
+			}
+			int flags = held[3] & 0xff;
+			int index = 10;
+			if((flags & FEXTRA) != 0) {
+				index = held.length >= index + 2 ? index + 2 + ((held[index] & 0xff) | ((held[index + 1] & 0xff) << 8)) : Integer.MAX_VALUE;
+			}
+			if((flags & FNAME) != 0) {
+				index = skipZeroTerminated(held, index);
+			}
+			if((flags & FCOMMENT) != 0) {
+				index = skipZeroTerminated(held, index);
+			}
+			if((flags & FHCRC) != 0 && index != Integer.MAX_VALUE) {
+				index += 2;
+			}
+			if(index <= held.length) {
+				inflater = new Inflater(true);
+				returnValue = index;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Skips a zero-terminated field of a gzip header.
+	 *
+	 * @param held The bytes received so far.
+	 * @param index The index at which the field starts, or Integer.MAX_VALUE if an earlier field is incomplete.
+	 * @return The index just past the field, or Integer.MAX_VALUE if it is incomplete.
+	 */
+	private static int skipZeroTerminated(byte[] held, int index) {
+		int returnValue = Integer.MAX_VALUE;
+		for(int i = index; returnValue == Integer.MAX_VALUE && i < held.length; i++) {
+			if(held[i] == 0) {
+				returnValue = i + 1;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Releases the decompressor's native memory.
+	 */
+	private void end() {
+		if(inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+}
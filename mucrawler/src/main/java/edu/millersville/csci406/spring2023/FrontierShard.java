@@ -0,0 +1,499 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One partition of the crawl frontier, holding the CrawlJobs for every host whose name hashes to it.
+ * Each FrontierShard is its own lock, so threads working with hosts in different shards never wait on each other.
+ * 
+ * Only a bounded window of the first CrawlJobs for each host is kept in memory.
+ * When a host has more, the rest are said to be spilled: they are left in the data source, which already holds every waiting CrawlJob, and paged back in once the window has been worked through.
+ * 
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class FrontierShard {
+
+	/**
+	 * The CrawlJobs waiting to be processed for a single host, along with the earliest time at which the next of them may be released and what we have learned about how the host behaves.
+	 */
+	private static class HostQueue implements Comparable<HostQueue> {
+
+		/** The name of the host. */
+		private final String host;
+		/** The first of the CrawlJobs on this host that need to be processed in the future. */
+		private final TreeSet<CrawlJob> jobs;
+		/** Whether or not some CrawlJobs on this host are waiting in the data source but not in jobs. */
+		private boolean spilled;
+		/** Whether or not a thread is currently paging CrawlJobs for this host back in from the data source. */
+		private boolean refilling;
+		/** The earliest time (from System.currentTimeMillis()) at which a CrawlJob for this host may be released. */
+		private long nextAccessTime;
+		/** The time (from System.currentTimeMillis()) at which a CrawlJob for this host was last released, or -1 if none has been. */
+		private long lastAccessTime;
+		/** The order in which this HostQueue was last scheduled, used to break ties between hosts that become eligible at the same time. */
+		private long sequence;
+		/** Whether or not this HostQueue is currently in the schedule. */
+		private boolean scheduled;
+		/** The number of CrawlJobs for this host that have been released but not finished. */
+		private int inFlight;
+		/** The number of finished CrawlJobs for this host whose results have not yet been saved to the data source. */
+		private int unsaved;
+		/** Whether or not this host is kept out of the schedule because its robots.txt file has been released but not finished. */
+		private boolean robotsInFlight;
+		/** The number of milliseconds to wait between releases of CrawlJobs for this host. */
+		private long crawlDelay;
+		/** The Crawl-delay requested by this host's robots.txt file in milliseconds, or 0 if there is none. */
+		private long robotsCrawlDelay;
+		/** This host's average response time in milliseconds, or a negative number if it has not responded yet. */
+		private double averageLatency;
+		/** This host's recent rate of failed responses, between 0 and 1. */
+		private double errorRate;
+
+		/**
+		 * Constructs an empty HostQueue that is eligible immediately.
+		 * 
+		 * @param host The name of the host.
+		 * @param crawlDelay The number of milliseconds to wait between releases of CrawlJobs for this host until we learn more about it.
+		 */
+		public HostQueue(String host, long crawlDelay) {
+			this.host = host;
+			this.jobs = new TreeSet<>();
+			this.spilled = false;
+			this.refilling = false;
+			this.nextAccessTime = 0;
+			this.lastAccessTime = -1;
+			this.sequence = 0;
+			this.scheduled = false;
+			this.inFlight = 0;
+			this.unsaved = 0;
+			this.robotsInFlight = false;
+			this.crawlDelay = crawlDelay;
+			this.robotsCrawlDelay = 0;
+			this.averageLatency = -1;
+			this.errorRate = 0;
+		}
+
+		@Override
+		public int compareTo(HostQueue other) {
+			int returnValue = Long.compare(nextAccessTime, other.nextAccessTime);
+			if(returnValue == 0) {
+				returnValue = Long.compare(sequence, other.sequence);
+			}
+			return returnValue;
+		}
+	}
+
+	/**
+	 * A map of hostname to queue of CrawlJobs on that host that need to be processed in the future.
+	 * Entries are kept even when their queues are empty, so that we remember when each host was last accessed and how it has behaved.
+	 */
+	private Map<String, HostQueue> hostQueues;
+
+	/**
+	 * The hosts that have CrawlJobs waiting and may have another released, ordered by the time at which each may next be accessed.
+	 * A host is left out while its robots.txt file is in flight or while it has as many CrawlJobs in flight as the PolitenessPolicy allows.
+	 */
+	private PriorityQueue<HostQueue> schedule;
+
+	/** The number of times a HostQueue has been placed into the schedule. */
+	private long scheduleCount;
+
+	/** The number of CrawlJobs waiting in memory in this FrontierShard, whether or not their hosts are scheduled. */
+	private int jobCount;
+
+	/** The policy that decides how long to wait between releases for each host, and how many may be in flight at once. */
+	private final PolitenessPolicy policy;
+
+	/** The largest number of CrawlJobs kept in memory for any one host. */
+	private final int windowSize;
+
+	/**
+	 * A count, shared by every FrontierShard of a crawl, of the units of work that remain.
+	 * This FrontierShard adds one for each CrawlJob it holds in memory and one for each host that is spilled or being refilled, and takes them away again as they go.
+	 */
+	private final AtomicInteger unfinishedWork;
+
+	/**
+	 * Constructs an empty FrontierShard.
+	 * 
+	 * @param policy The policy that decides how long to wait between releases for each host, and how many may be in flight at once.
+	 * @param windowSize The largest number of CrawlJobs to keep in memory for any one host.
+	 * @param unfinishedWork A count, shared by every FrontierShard of a crawl, of the units of work that remain.
+	 */
+	public FrontierShard(PolitenessPolicy policy, int windowSize, AtomicInteger unfinishedWork) {
+		if(windowSize < 1) {
+			throw new IllegalArgumentException("At least one CrawlJob per host must be kept in memory.");
+		}
+		this.policy = policy;
+		this.windowSize = windowSize;
+		this.unfinishedWork = unfinishedWork;
+		hostQueues = new HashMap<>();
+		schedule = new PriorityQueue<>();
+		scheduleCount = 0;
+		jobCount = 0;
+	}
+
+	/**
+	 * Adds a CrawlJob, which must already be waiting in the data source, to the queue for its host.
+	 * If the host is spilled and the job would not be among the first in its window, it is left in the data source instead.
+	 * If the window overflows, the last CrawlJob in it is left in the data source instead and the host becomes spilled.
+	 * A CrawlJob that is already in memory is ignored.
+	 * 
+	 * @param job The new CrawlJob.
+	 * @return Whether or not the job's host was newly placed into the schedule.
+	 */
+	public synchronized boolean addJob(CrawlJob job) {
+		return addJob(job, false);
+	}
+
+	/**
+	 * Adds a CrawlJob for a sitemap to the queue for its host.
+	 * It is not in the data source, so it is kept in memory even if its host is spilled, and it sorts ahead of the host's HTML files so that a full window leaves one of those out instead.
+	 * 
+	 * @param job The new CrawlJob, which must be for a sitemap.
+	 * @return Whether or not the job's host was newly placed into the schedule.
+	 */
+	public synchronized boolean addSitemapJob(CrawlJob job) {
+		return addJob(job, true);
+	}
+
+	/**
+	 * Adds a CrawlJob to the queue for its host, as {@link #addJob(CrawlJob)} does.
+	 * 
+	 * @param job The new CrawlJob.
+	 * @param keep Whether or not to keep the job in memory even if it would not be among the first in its host's window.
+	 * @return Whether or not the job's host was newly placed into the schedule.
+	 */
+	private boolean addJob(CrawlJob job, boolean keep) {
+		HostQueue hostQueue = getHostQueue(job.getURL().getHost());
+		boolean spilledPast = !keep && hostQueue.spilled && (hostQueue.jobs.isEmpty() || job.compareTo(hostQueue.jobs.last()) > 0);
+		if(!spilledPast && hostQueue.jobs.add(job)) {
+			unfinishedWork.incrementAndGet();
+			jobCount++;
+			if(hostQueue.jobs.size() > windowSize) {
+				if(!hostQueue.spilled) {
+					hostQueue.spilled = true;
+					unfinishedWork.incrementAndGet();
+				}
+				hostQueue.jobs.pollLast();
+				jobCount--;
+				unfinishedWork.decrementAndGet();
+			}
+		}
+		return schedule(hostQueue);
+	}
+
+	/**
+	 * Starts paging CrawlJobs for a host back in from the data source, if it is spilled and has nothing left in memory, in flight, or waiting to be saved.
+	 * Waiting for those jobs to be saved as finished guarantees that none of them will be paged back in.
+	 * If this returns true, the caller must later call either {@link #finishRefill(String, Set)} or {@link #abandonRefill(String)}.
+	 * 
+	 * @param host The name of the host.
+	 * @return Whether or not the caller should page CrawlJobs for this host in from the data source.
+	 */
+	public synchronized boolean startRefill(String host) {
+		boolean returnValue = false;
+		HostQueue hostQueue = hostQueues.get(host);
+		if(hostQueue != null && hostQueue.spilled && !hostQueue.refilling && hostQueue.jobs.isEmpty() && hostQueue.inFlight == 0 && hostQueue.unsaved == 0) {
+			// The host's unit of unfinished work now stands for the refill, until it is finished or abandoned.
+			hostQueue.spilled = false;
+			hostQueue.refilling = true;
+			returnValue = true;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finishes paging CrawlJobs for a host back in from the data source.
+	 * 
+	 * @param host The name of the host.
+	 * @param page The first CrawlJobs for the host that were waiting in the data source, at most one window's worth.
+	 * @return Whether or not the host was newly placed into the schedule.
+	 */
+	public synchronized boolean finishRefill(String host, Set<CrawlJob> page) {
+		HostQueue hostQueue = getHostQueue(host);
+		boolean returnValue = false;
+		for(CrawlJob job : page) {
+			if(addJob(job)) {
+				returnValue = true;
+			}
+		}
+		if(page.size() >= windowSize && !hostQueue.spilled) {
+			hostQueue.spilled = true;
+			unfinishedWork.incrementAndGet();
+		}
+		hostQueue.refilling = false;
+		unfinishedWork.decrementAndGet();
+		return returnValue;
+	}
+
+	/**
+	 * Gives up on paging CrawlJobs for a host back in from the data source.
+	 * Whatever was left there for the host will not be crawled until the next crawl.
+	 * 
+	 * @param host The name of the host.
+	 */
+	public synchronized void abandonRefill(String host) {
+		HostQueue hostQueue = getHostQueue(host);
+		hostQueue.refilling = false;
+		unfinishedWork.decrementAndGet();
+	}
+
+	/**
+	 * Releases the next CrawlJob for the host that has been eligible the longest, if any host is eligible.
+	 * The host may not have another CrawlJob released until its crawl delay has passed, and only while fewer than the allowed number are in flight.
+	 * If the released CrawlJob is for a robots.txt file, its host is held out of the schedule until that job is finished, so that no job the rules would disallow is released in the meantime.
+	 * Every CrawlJob released must later be passed to {@link #finishJob(CrawlJob, long, long, boolean)}.
+	 * 
+	 * @param now The current time (from System.currentTimeMillis()).
+	 * @return The released CrawlJob, or null if no host is eligible yet.
+	 */
+	public synchronized CrawlJob pollJob(long now) {
+		CrawlJob returnValue = null;
+		HostQueue next = schedule.peek();
+		if(next != null && next.nextAccessTime <= now) {
+			schedule.remove();
+			next.scheduled = false;
+			returnValue = next.jobs.pollFirst();
+			jobCount--;
+			next.inFlight++;
+			next.lastAccessTime = now;
+			next.nextAccessTime = now + next.crawlDelay + 5;
+			if(returnValue.isRobotsTxt()) {
+				next.robotsInFlight = true;
+			}
+			schedule(next);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Releases the next CrawlJob for each eligible host, in the order in which they became eligible, up to a maximum.
+	 * No host has more than one CrawlJob released, since releasing one always makes its host ineligible for a while.
+	 * The time at which the next host will be eligible is found while still holding the lock, so that the caller need not take it again.
+	 * 
+	 * @param now The current time (from System.currentTimeMillis()).
+	 * @param max The largest number of CrawlJobs to release.
+	 * @param jobs A collection to which the released CrawlJobs are added.
+	 * @return What {@link #getNextAccessTime()} returns once the CrawlJobs have been released.
+	 */
+	public synchronized long pollJobs(long now, int max, Collection<CrawlJob> jobs) {
+		int released = 0;
+		CrawlJob job = null;
+		if(max > 0) {
+			job = pollJob(now);
+		}
+		while(job != null) {
+			jobs.add(job);
+			released++;
+			job = null;
+			if(released < max) {
+				job = pollJob(now);
+			}
+		}
+		return getNextAccessTime();
+	}
+
+	/**
+	 * Puts a released CrawlJob that was never worked on back into the queue for its host, without learning anything about the host from it.
+	 * The CrawlJob is kept in memory even if its host is spilled.
+	 * 
+	 * @param job A CrawlJob that was released by {@link #pollJob(long)}.
+	 * @return Whether or not the job's host was newly placed into the schedule.
+	 */
+	public synchronized boolean returnJob(CrawlJob job) {
+		HostQueue hostQueue = getHostQueue(job.getURL().getHost());
+		hostQueue.inFlight--;
+		if(job.isRobotsTxt()) {
+			hostQueue.robotsInFlight = false;
+		}
+		// It was the first CrawlJob for its host when it was released, so it still belongs at the front of the window.
+		return addJob(job, true);
+	}
+
+	/**
+	 * Records that a released CrawlJob is no longer in flight, and adapts the crawl delay for its host to how the host responded.
+	 * 
+	 * @param job A CrawlJob that was released by {@link #pollJob(long)}.
+	 * @param now The current time (from System.currentTimeMillis()).
+	 * @param latency The number of milliseconds between releasing and finishing the CrawlJob.
+	 * @param failed Whether or not the host failed to provide a usable response.
+	 * @return Whether or not the job's host is in the schedule, in which case it may now be eligible sooner than waiting threads expect.
+	 */
+	public synchronized boolean finishJob(CrawlJob job, long now, long latency, boolean failed) {
+		return finishJob(job, now, latency, failed, true);
+	}
+
+	/**
+	 * Records that a released CrawlJob is no longer in flight, as {@link #finishJob(CrawlJob, long, long, boolean)} does, but possibly before its results have been saved to the data source.
+	 * Until {@link #jobSaved(CrawlJob)} is called for an unsaved CrawlJob, no more CrawlJobs are paged in for its host, since the data source would still offer that one.
+	 * 
+	 * @param job A CrawlJob that was released by {@link #pollJob(long)}.
+	 * @param now The current time (from System.currentTimeMillis()).
+	 * @param latency The number of milliseconds between releasing and finishing the CrawlJob.
+	 * @param failed Whether or not the host failed to provide a usable response.
+	 * @param saved Whether or not the results of the CrawlJob have already been saved to the data source.
+	 * @return Whether or not the job's host is in the schedule, in which case it may now be eligible sooner than waiting threads expect.
+	 */
+	public synchronized boolean finishJob(CrawlJob job, long now, long latency, boolean failed, boolean saved) {
+		HostQueue hostQueue = getHostQueue(job.getURL().getHost());
+		hostQueue.inFlight--;
+		if(!saved) {
+			hostQueue.unsaved++;
+		}
+		if(job.isRobotsTxt()) {
+			hostQueue.robotsInFlight = false;
+		}
+		// A failed response often comes back quickly, which says nothing about how fast the host is.
+		if(!failed) {
+			hostQueue.averageLatency = policy.updateAverageLatency(hostQueue.averageLatency, latency);
+		}
+		hostQueue.errorRate = policy.updateErrorRate(hostQueue.errorRate, failed);
+		return updateCrawlDelay(hostQueue);
+	}
+
+	/**
+	 * Records that the results of a CrawlJob finished without being saved have now been saved to the data source, or have failed to be.
+	 * 
+	 * @param job A CrawlJob that was passed to {@link #finishJob(CrawlJob, long, long, boolean, boolean)} as unsaved.
+	 */
+	public synchronized void jobSaved(CrawlJob job) {
+		getHostQueue(job.getURL().getHost()).unsaved--;
+	}
+
+	/**
+	 * Records the Crawl-delay that a host's robots.txt file requested.
+	 * 
+	 * @param host The name of the host.
+	 * @param robotsCrawlDelay The requested number of milliseconds between accesses, or 0 if the file made no request.
+	 * @return Whether or not the host is in the schedule, in which case it may now be eligible sooner than waiting threads expect.
+	 */
+	public synchronized boolean setRobotsCrawlDelay(String host, long robotsCrawlDelay) {
+		HostQueue hostQueue = getHostQueue(host);
+		hostQueue.robotsCrawlDelay = robotsCrawlDelay;
+		return updateCrawlDelay(hostQueue);
+	}
+
+	/**
+	 * Gets the number of milliseconds currently being waited between releases of CrawlJobs for a host.
+	 * 
+	 * @param host The name of the host.
+	 * @return The host's current crawl delay, in milliseconds.
+	 */
+	public synchronized long getCrawlDelay(String host) {
+		HostQueue hostQueue = hostQueues.get(host);
+		long returnValue = policy.getInitialCrawlDelay();
+		if(hostQueue != null) {
+			returnValue = hostQueue.crawlDelay;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the earliest time at which some host in this FrontierShard will be eligible.
+	 * 
+	 * @return The earliest time (from System.currentTimeMillis()) at which a CrawlJob could be released, or Long.MAX_VALUE if no host may have a CrawlJob released.
+	 */
+	public synchronized long getNextAccessTime() {
+		long returnValue = Long.MAX_VALUE;
+		if(!schedule.isEmpty()) {
+			returnValue = schedule.peek().nextAccessTime;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets whether or not this FrontierShard has no CrawlJobs waiting, including those for hosts that are not scheduled.
+	 * 
+	 * @return Whether or not this FrontierShard has no CrawlJobs waiting.
+	 */
+	public synchronized boolean isEmpty() {
+		return jobCount == 0;
+	}
+
+	/**
+	 * Removes waiting CrawlJobs for a host.
+	 * Each CrawlJob that is found in memory and removed is also removed from the set.
+	 * Every CrawlJob is looked up directly in its host's window, so this takes time proportional to the number of CrawlJobs to remove rather than to the size of the window.
+	 * 
+	 * @param host The name of the host.
+	 * @param toRemove A set of CrawlJobs that should no longer be processed.
+	 */
+	public synchronized void removeJobs(String host, Set<CrawlJob> toRemove) {
+		HostQueue hostQueue = hostQueues.get(host);
+		if(hostQueue != null && !hostQueue.jobs.isEmpty()) {
+			Iterator<CrawlJob> iter = toRemove.iterator();
+			while(iter.hasNext() && !hostQueue.jobs.isEmpty()) {
+				if(hostQueue.jobs.remove(iter.next())) {
+					iter.remove();
+					jobCount--;
+					unfinishedWork.decrementAndGet();
+				}
+			}
+			if(hostQueue.jobs.isEmpty() && hostQueue.scheduled) {
+				schedule.remove(hostQueue);
+				hostQueue.scheduled = false;
+			}
+		}
+	}
+
+	/**
+	 * Gets the HostQueue for a host, creating it if necessary.
+	 * 
+	 * @param host The name of the host.
+	 * @return The HostQueue for that host.
+	 */
+	private HostQueue getHostQueue(String host) {
+		HostQueue returnValue = hostQueues.get(host);
+		if(returnValue == null) {
+			returnValue = new HostQueue(host, policy.getInitialCrawlDelay());
+			hostQueues.put(host, returnValue);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Recomputes the crawl delay for a host, moving the time at which it may next be accessed to match.
+	 * 
+	 * @param hostQueue The HostQueue for the host.
+	 * @return Whether or not the host is in the schedule, in which case it may now be eligible sooner than waiting threads expect.
+	 */
+	private boolean updateCrawlDelay(HostQueue hostQueue) {
+		if(hostQueue.scheduled) {
+			schedule.remove(hostQueue);
+			hostQueue.scheduled = false;
+		}
+		hostQueue.crawlDelay = policy.getCrawlDelay(hostQueue.averageLatency, hostQueue.errorRate, hostQueue.robotsCrawlDelay);
+		if(hostQueue.lastAccessTime >= 0) {
+			hostQueue.nextAccessTime = hostQueue.lastAccessTime + hostQueue.crawlDelay + 5;
+		}
+		schedule(hostQueue);
+		return hostQueue.scheduled;
+	}
+
+	/**
+	 * Places a HostQueue into the schedule behind any others that become eligible at the same time, if it has CrawlJobs waiting and may have another released.
+	 * 
+	 * @param hostQueue A HostQueue.
+	 * @return Whether or not the HostQueue was newly placed into the schedule.
+	 */
+	private boolean schedule(HostQueue hostQueue) {
+		boolean returnValue = false;
+		if(!hostQueue.scheduled && !hostQueue.jobs.isEmpty() && !hostQueue.robotsInFlight && hostQueue.inFlight < policy.getMaxConnectionsPerHost()) {
+			hostQueue.sequence = scheduleCount;
+			scheduleCount++;
+			schedule.add(hostQueue);
+			hostQueue.scheduled = true;
+			returnValue = true;
+		}
+		return returnValue;
+	}
+}
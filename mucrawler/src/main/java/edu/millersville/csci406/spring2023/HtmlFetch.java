@@ -0,0 +1,95 @@
+package edu.millersville.csci406.spring2023;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * The outcome of fetching an HTML file that may already have been crawled.
+ * Either the file has changed (or was never crawled) and there is a new HtmlPage, or it has not changed and there is nothing to parse, or it could not be fetched at all.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlFetch {
+
+	/** What was extracted from the file, or null if it has not changed or could not be fetched. */
+	private final HtmlPage page;
+	/** Whether or not the file is known to be unchanged since it was last crawled. */
+	private final boolean notModified;
+	/** The Validators to store for the file, or null if it could not be fetched. */
+	private final Validators validators;
+	/** Whether or not the file could not be fetched because its host failed to respond usefully. */
+	private final boolean hostFailure;
+
+	/**
+	 * Constructs an HtmlFetch.
+	 *
+	 * @param page What was extracted from the file, or null if it has not changed or could not be fetched.
+	 * @param notModified Whether or not the file is known to be unchanged since it was last crawled.
+	 * @param validators The Validators to store for the file, or null if it could not be fetched.
+	 */
+	public HtmlFetch(HtmlPage page, boolean notModified, Validators validators) {
+		this(page, notModified, validators, false);
+	}
+
+	/**
+	 * Constructs an HtmlFetch.
+	 *
+	 * @param page What was extracted from the file, or null if it has not changed or could not be fetched.
+	 * @param notModified Whether or not the file is known to be unchanged since it was last crawled.
+	 * @param validators The Validators to store for the file, or null if it could not be fetched.
+	 * @param hostFailure Whether or not the file could not be fetched because of a transport error, a timeout or a 5xx status.
+	 */
+	public HtmlFetch(HtmlPage page, boolean notModified, Validators validators, boolean hostFailure) {
+		this.page = page;
+		this.notModified = notModified;
+		this.validators = validators;
+		this.hostFailure = hostFailure;
+	}
+
+	/**
+	 * Gets what was extracted from the file.
+	 *
+	 * @return The links, title and text of the file, or null if it has not changed, could not be fetched, or is not an HTML file.
+	 */
+	public HtmlPage getPage() {
+		return page;
+	}
+
+	/**
+	 * Parses the file into a Document.
+	 * The crawl itself only needs getPage, so a DOM is only built if this is called, and a new one each time.
+	 *
+	 * @return The parsed file, or null if it has not changed, could not be fetched, or is not an HTML file.
+	 */
+	public Document getDocument() {
+		return page == null ? null : Jsoup.parse(page.getContent(), page.getURL().toString());
+	}
+
+	/**
+	 * Gets whether the file is known to be unchanged since it was last crawled.
+	 *
+	 * @return Whether or not the file is unchanged, in which case it was not parsed again.
+	 */
+	public boolean isNotModified() {
+		return notModified;
+	}
+
+	/**
+	 * Gets the Validators to store for the file, so that it can be fetched conditionally next time.
+	 *
+	 * @return The Validators, or null if the file could not be fetched.
+	 */
+	public Validators getValidators() {
+		return validators;
+	}
+
+	/**
+	 * Gets whether the file could not be fetched because its host failed to respond usefully, which should make the host be accessed less often.
+	 *
+	 * @return True if there was a transport error, a timeout or a 5xx status, or false if the file was fetched or the host sent something that is not an HTML file.
+	 */
+	public boolean isHostFailure() {
+		return hostFailure;
+	}
+}
@@ -0,0 +1,66 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Objects;
+
+/**
+ * A link found in an HTML file: the absolute URL it leads to and the text that was shown for it.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlLink {
+
+	/** The absolute URL the link leads to. */
+	private final CrawlURL url;
+	/** The text inside the link as it appears in the file, which is only decoded when it is asked for. */
+	private final String rawAnchorText;
+
+	/**
+	 * Constructs an HtmlLink.
+	 *
+	 * @param url The absolute URL the link leads to.
+	 * @param rawAnchorText The text inside the link as it appears in the file, before its character references are decoded and its whitespace collapsed.
+	 */
+	public HtmlLink(CrawlURL url, String rawAnchorText) {
+		this.url = url;
+		this.rawAnchorText = rawAnchorText;
+	}
+
+	/**
+	 * Gets the URL the link leads to.
+	 *
+	 * @return The absolute URL.
+	 */
+	public CrawlURL getURL() {
+		return url;
+	}
+
+	/**
+	 * Gets the text that was shown for the link.
+	 *
+	 * @return The text, with character references decoded and runs of whitespace collapsed to single spaces, which is empty if the link held only images or nothing at all.
+	 */
+	public String getAnchorText() {
+		return HtmlLinkExtractor.toText(rawAnchorText);
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		boolean returnValue = false;
+		if(arg0 instanceof HtmlLink) {
+			HtmlLink other = (HtmlLink)arg0;
+			returnValue = url.equals(other.url) && getAnchorText().equals(other.getAnchorText());
+		}
+		return returnValue;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(url, getAnchorText());
+	}
+
+	@Override
+	public String toString() {
+		return url + " \"" + getAnchorText() + "\"";
+	}
+}
@@ -0,0 +1,527 @@
+package edu.millersville.csci406.spring2023;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.parser.Parser;
+
+/**
+ * Extracts the links, anchor text and title of an HTML file in a single pass over its text, without building a DOM.
+ * The text is scanned for tags the way an HTML tokenizer would, skipping comments, declarations and the contents of script and style elements,
+ * but no tree is built and only the values that are kept ever become Strings.
+ * Every a element with an href is a link, which is resolved against the first base element with an href, wherever it appears, or else against the URL of the file.
+ * The text of the file is kept exactly as it was sent, so that it can be stored without serializing a DOM again.
+ * The title and the text of each link are kept as they appear in the file, and their character references are only decoded if they are asked for, since the crawl itself needs only the links.
+ * An HtmlLinkExtractor never changes after it has been constructed, so it is safe to share between threads.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlLinkExtractor {
+
+	/** The number of bytes at the start of a file that are searched for a meta element naming its charset, as in the HTML standard. */
+	public static final int CHARSET_PRESCAN_LENGTH = 1024;
+
+	/** The number of characters of a link's text that are kept, so that an a element that is never closed cannot swallow the whole file. */
+	public static final int MAX_ANCHOR_TEXT_LENGTH = 1024;
+
+	/** Matches a meta element naming a charset, either with a charset attribute or with a Content-Type in an http-equiv one. */
+	private static final Pattern META_CHARSET = Pattern.compile("<meta[^>]*?charset\\s*=\\s*[\"']?\\s*([a-zA-Z0-9_:.+-]+)", Pattern.CASE_INSENSITIVE);
+
+	/** The kinds of start tag that are treated specially. */
+	private static enum TagKind {
+		/** An a element, which may be a link. */
+		A,
+		/** A base element, which may change the URL that links are resolved against. */
+		BASE,
+		/** A title element, whose contents are text even if they look like tags. */
+		TITLE,
+		/** A script or style element, whose contents are skipped. */
+		RAW_TEXT,
+		/** Any other element. */
+		OTHER
+	}
+
+	/**
+	 * The state of extracting from one file.
+	 */
+	private static class Extraction {
+		/** The text of the file. */
+		private final String text;
+		/** The number of characters in the text. */
+		private final int length;
+		/** The index of the next character to look at. */
+		private int position;
+		/** The href of the first base element that has one, or null if there is none yet. */
+		private String baseHref;
+		/** The title, or null if there is none yet. */
+		private String title;
+		/** The hrefs of the links found so far, not yet resolved. */
+		private final List<String> hrefs;
+		/** The texts of the links found so far, in the same order as hrefs. */
+		private final List<String> anchorTexts;
+		/** The text of the link being read, or null if the position is not inside a link. */
+		private StringBuilder anchorText;
+
+		/**
+		 * Constructs an Extraction.
+		 *
+		 * @param text The text of the file.
+		 */
+		private Extraction(String text) {
+			this.text = text;
+			this.length = text.length();
+			this.position = 0;
+			this.baseHref = null;
+			this.title = null;
+			this.hrefs = new ArrayList<>();
+			this.anchorTexts = new ArrayList<>();
+			this.anchorText = null;
+		}
+
+		/**
+		 * Reads the whole file.
+		 */
+		private void run() {
+			while(position < length) {
+				int tagStart = text.indexOf('<', position);
+				if(tagStart < 0) {
+					tagStart = length;
+				}
+				appendAnchorText(position, tagStart);
+				position = tagStart;
+				if(position < length) {
+					readMarkup();
+				}
+			}
+			closeAnchor();
+		}
+
+		/**
+		 * Reads whatever starts with the '&lt;' at the position.
+		 */
+		private void readMarkup() {
+			char next = position + 1 < length ? text.charAt(position + 1) : '\0';
+			if(text.startsWith("<!--", position)) {
+				int end = text.indexOf("-->", position + 4);
+				position = end < 0 ? length : end + 3;
+			}
+			else if(next == '!' || next == '?') {
+				skipPast('>');
+			}
+			else if(next == '/' && position + 2 < length && isAsciiLetter(text.charAt(position + 2))) {
+				int nameStart = position + 2;
+				int nameEnd = findNameEnd(nameStart);
+				if(nameEnd - nameStart == 1 && (text.charAt(nameStart) == 'a' || text.charAt(nameStart) == 'A')) {
+					closeAnchor();
+				}
+				position = nameEnd;
+				skipPast('>');
+			}
+			else if(isAsciiLetter(next)) {
+				readStartTag();
+			}
+			else {
+				// A '<' that does not start a tag is just text.
+				appendAnchorText(position, position + 1);
+				position++;
+			}
+		}
+
+		/**
+		 * Reads a start tag and its attributes, and then whatever its kind of element requires.
+		 */
+		private void readStartTag() {
+			int nameStart = position + 1;
+			int nameEnd = findNameEnd(nameStart);
+			TagKind kind = getKind(nameStart, nameEnd);
+			position = nameEnd;
+			String href = null;
+			boolean done = false;
+			while(!done) {
+				while(position < length && (isSpace(text.charAt(position)) || text.charAt(position) == '/')) {
+					position++;
+				}
+				if(position >= length) {
+					done = true;
+				}
+				else if(text.charAt(position) == '>') {
+					position++;
+					done = true;
+				}
+				else {
+					int attributeStart = position;
+					// An '=' at the start of an attribute name is part of the name.
+					position++;
+					while(position < length && !isSpace(text.charAt(position)) && "/>=".indexOf(text.charAt(position)) < 0) {
+						position++;
+					}
+					int attributeEnd = position;
+					while(position < length && isSpace(text.charAt(position))) {
+						position++;
+					}
+					int valueStart = position;
+					int valueEnd = position;
+					if(position < length && text.charAt(position) == '=') {
+						position++;
+						while(position < length && isSpace(text.charAt(position))) {
+							position++;
+						}
+						if(position < length && (text.charAt(position) == '"' || text.charAt(position) == '\'')) {
+							int close = text.indexOf(text.charAt(position), position + 1);
+							valueStart = position + 1;
+							valueEnd = close < 0 ? length : close;
+							position = close < 0 ? length : close + 1;
+						}
+						else {
+							valueStart = position;
+							while(position < length && !isSpace(text.charAt(position)) && text.charAt(position) != '>') {
+								position++;
+							}
+							valueEnd = position;
+						}
+					}
+					if(href == null && (kind == TagKind.A || kind == TagKind.BASE) && attributeEnd - attributeStart == 4
+							&& text.regionMatches(true, attributeStart, "href", 0, 4)) {
+						href = unescape(text.substring(valueStart, valueEnd), true);
+					}
+				}
+			}
+
+			if(kind == TagKind.A) {
+				// An a element cannot hold another, so a new one closes the last.
+				closeAnchor();
+				if(href != null) {
+					hrefs.add(href);
+					anchorText = new StringBuilder();
+				}
+			}
+			else if(kind == TagKind.BASE) {
+				if(baseHref == null && href != null) {
+					baseHref = href;
+				}
+			}
+			else if(kind == TagKind.TITLE) {
+				int end = findEndTag(position, "title");
+				if(title == null) {
+					title = text.substring(position, end);
+				}
+				position = end;
+			}
+			else if(kind == TagKind.RAW_TEXT) {
+				position = findEndTag(position, text.substring(nameStart, nameEnd));
+			}
+		}
+
+		/**
+		 * Finishes the link being read, if there is one.
+		 */
+		private void closeAnchor() {
+			if(anchorText != null) {
+				anchorTexts.add(anchorText.toString());
+				anchorText = null;
+			}
+		}
+
+		/**
+		 * Adds some text to the text of the link being read, if there is one and it is not already long enough.
+		 *
+		 * @param start The index of the first character.
+		 * @param end The index after the last character.
+		 */
+		private void appendAnchorText(int start, int end) {
+			if(anchorText != null && anchorText.length() < MAX_ANCHOR_TEXT_LENGTH) {
+				anchorText.append(text, start, Math.min(end, start + MAX_ANCHOR_TEXT_LENGTH - anchorText.length()));
+			}
+		}
+
+		/**
+		 * Moves the position past the next occurrence of a character, or to the end if there is none.
+		 *
+		 * @param target The character.
+		 */
+		private void skipPast(char target) {
+			int index = text.indexOf(target, position);
+			position = index < 0 ? length : index + 1;
+		}
+
+		/**
+		 * Finds the end of a tag name.
+		 *
+		 * @param start The index of its first character.
+		 * @return The index after its last character.
+		 */
+		private int findNameEnd(int start) {
+			int returnValue = start;
+			while(returnValue < length && !isSpace(text.charAt(returnValue)) && text.charAt(returnValue) != '/' && text.charAt(returnValue) != '>') {
+				returnValue++;
+			}
+			return returnValue;
+		}
+
+		/**
+		 * Finds the end tag that closes an element whose contents are not markup.
+		 *
+		 * @param start The index at which the contents start.
+		 * @param name The name of the element, which is matched without regard to case.
+		 * @return The index of the '&lt;' starting the end tag, or the end of the file if there is none.
+		 */
+		private int findEndTag(int start, String name) {
+			int returnValue = -1;
+			int index = text.indexOf("</", start);
+			while(returnValue < 0 && index >= 0) {
+				int after = index + 2 + name.length();
+				if(text.regionMatches(true, index + 2, name, 0, name.length()) && (after >= length || isSpace(text.charAt(after)) || text.charAt(after) == '>' || text.charAt(after) == '/')) {
+					returnValue = index;
+				}
+				else {
+					index = text.indexOf("</", index + 2);
+				}
+			}
+			return returnValue < 0 ? length : returnValue;
+		}
+
+		/**
+		 * Works out which kind a start tag is.
+		 *
+		 * @param nameStart The index of the first character of its name.
+		 * @param nameEnd The index after the last character of its name.
+		 * @return The kind of tag.
+		 */
+		private TagKind getKind(int nameStart, int nameEnd) {
+			TagKind returnValue = TagKind.OTHER;
+			int nameLength = nameEnd - nameStart;
+			if(nameLength == 1 && (text.charAt(nameStart) == 'a' || text.charAt(nameStart) == 'A')) {
+				returnValue = TagKind.A;
+			}
+			else if(nameLength == 4 && text.regionMatches(true, nameStart, "base", 0, 4)) {
+				returnValue = TagKind.BASE;
+			}
+			else if(nameLength == 5 && text.regionMatches(true, nameStart, "title", 0, 5)) {
+				returnValue = TagKind.TITLE;
+			}
+			else if((nameLength == 6 && text.regionMatches(true, nameStart, "script", 0, 6)) || (nameLength == 5 && text.regionMatches(true, nameStart, "style", 0, 5))) {
+				returnValue = TagKind.RAW_TEXT;
+			}
+			return returnValue;
+		}
+	}
+
+	/**
+	 * Decodes the body of an HTML file and extracts from it.
+	 *
+	 * @param body The bytes of the file.
+	 * @param charsetName The charset named by the Content-Type of the response, or null if it named none.
+	 * @param url The URL of the file, against which relative links are resolved.
+	 * @return What was extracted from the file.
+	 */
+	public HtmlPage extract(byte[] body, String charsetName, CrawlURL url) {
+		int bomLength = getBomLength(body);
+		Charset charset = detectCharset(body, charsetName);
+		return extract(new String(body, bomLength, body.length - bomLength, charset), url);
+	}
+
+	/**
+	 * Extracts from the text of an HTML file.
+	 *
+	 * @param content The text of the file.
+	 * @param url The URL of the file, against which relative links are resolved.
+	 * @return What was extracted from the file.
+	 */
+	public HtmlPage extract(String content, CrawlURL url) {
+		Extraction extraction = new Extraction(content);
+		extraction.run();
+
+		URL base = null;
+		try {
+			base = url.toURL();
+			if(extraction.baseHref != null) {
+				base = resolve(base, extraction.baseHref);
+			}
+		}
+		catch(MalformedURLException exception) {
+			// Links are then resolved against the URL of the file, or not at all if even that is malformed.
+		}
+		List<HtmlLink> links = new ArrayList<>();
+		if(base != null) {
+			for(int index = 0; index < extraction.hrefs.size(); index++) {
+				try {
+					// CrawlURL rejects links that specify a port, and gives every path a leading slash.
+					CrawlURL linkUrl = new CrawlURL(resolve(base, extraction.hrefs.get(index)).toExternalForm());
+					if(linkUrl.getProtocol().equals("http") || linkUrl.getProtocol().equals("https")) {
+						links.add(new HtmlLink(linkUrl, extraction.anchorTexts.get(index)));
+					}
+				}
+				catch(MalformedURLException exception) {
+					// Fine, we will just ignore that link.
+				}
+			}
+		}
+		return new HtmlPage(url, content, extraction.title, links);
+	}
+
+	/**
+	 * Works out the charset of the body of an HTML file, the way a browser would.
+	 * A byte order mark comes first, then the charset named by the Content-Type, then one named by a meta element near the start of the file, and then UTF-8.
+	 *
+	 * @param body The bytes of the file.
+	 * @param charsetName The charset named by the Content-Type of the response, or null if it named none.
+	 * @return The charset in which to decode the file.
+	 */
+	public static Charset detectCharset(byte[] body, String charsetName) {
+		Charset returnValue = null;
+		if(body.length >= 3 && (body[0] & 0xff) == 0xef && (body[1] & 0xff) == 0xbb && (body[2] & 0xff) == 0xbf) {
+			returnValue = StandardCharsets.UTF_8;
+		}
+		else if(body.length >= 2 && (body[0] & 0xff) == 0xfe && (body[1] & 0xff) == 0xff) {
+			returnValue = StandardCharsets.UTF_16BE;
+		}
+		else if(body.length >= 2 && (body[0] & 0xff) == 0xff && (body[1] & 0xff) == 0xfe) {
+			returnValue = StandardCharsets.UTF_16LE;
+		}
+		if(returnValue == null) {
+			returnValue = forName(charsetName);
+		}
+		if(returnValue == null) {
+			Matcher matcher = META_CHARSET.matcher(new String(body, 0, Math.min(body.length, CHARSET_PRESCAN_LENGTH), StandardCharsets.ISO_8859_1));
+			if(matcher.find()) {
+				returnValue = forName(matcher.group(1));
+				// A file that could be read as ASCII to find the meta element cannot really be UTF-16.
+				if(returnValue != null && returnValue.name().startsWith("UTF-16")) {
+					returnValue = StandardCharsets.UTF_8;
+				}
+			}
+		}
+		if(returnValue == null) {
+			returnValue = StandardCharsets.UTF_8;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the number of bytes taken by a byte order mark at the start of a body.
+	 *
+	 * @param body The bytes of the body.
+	 * @return 3 for a UTF-8 byte order mark, 2 for a UTF-16 one, or 0 if there is none.
+	 */
+	private static int getBomLength(byte[] body) {
+		int returnValue = 0;
+		if(body.length >= 3 && (body[0] & 0xff) == 0xef && (body[1] & 0xff) == 0xbb && (body[2] & 0xff) == 0xbf) {
+			returnValue = 3;
+		}
+		else if(body.length >= 2 && (((body[0] & 0xff) == 0xfe && (body[1] & 0xff) == 0xff) || ((body[0] & 0xff) == 0xff && (body[1] & 0xff) == 0xfe))) {
+			returnValue = 2;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Looks up a charset by name.
+	 *
+	 * @param charsetName The name, or null.
+	 * @return The charset, or null if there is no name or Java does not support it.
+	 */
+	private static Charset forName(String charsetName) {
+		Charset returnValue = null;
+		if(charsetName != null) {
+			try {
+				if(Charset.isSupported(charsetName)) {
+					returnValue = Charset.forName(charsetName);
+				}
+			}
+			catch(IllegalArgumentException exception) {
+				returnValue = null;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Resolves a link against a base URL.
+	 *
+	 * @param base The base URL.
+	 * @param href The link, which may be relative.
+	 * @return The absolute URL.
+	 * @throws MalformedURLException If the link cannot be resolved.
+	 */
+	private static URL resolve(URL base, String href) throws MalformedURLException {
+		String spec = href;
+		// URL would replace the last segment of the base's path with a link that is only a query, rather than keeping it.
+		if(spec.startsWith("?")) {
+			spec = base.getPath() + spec;
+		}
+		return new URL(base, spec);
+	}
+
+	/**
+	 * Turns some text from an HTML file into the text that it shows, by decoding its character references and collapsing its whitespace.
+	 *
+	 * @param html The text as it appears in the file.
+	 * @return The text that it shows.
+	 */
+	static String toText(String html) {
+		return collapseWhitespace(unescape(html, false));
+	}
+
+	/**
+	 * Decodes the character references in some text, if it has any.
+	 *
+	 * @param text The text.
+	 * @param inAttribute Whether or not the text is an attribute value, in which a named reference without a ';' is not decoded if a letter, digit or '=' follows it.
+	 * @return The decoded text.
+	 */
+	private static String unescape(String text, boolean inAttribute) {
+		return text.indexOf('&') < 0 ? text : Parser.unescapeEntities(text, inAttribute);
+	}
+
+	/**
+	 * Collapses each run of whitespace in some text to a single space, and removes any from the start and end.
+	 *
+	 * @param text The text.
+	 * @return The collapsed text.
+	 */
+	private static String collapseWhitespace(String text) {
+		StringBuilder returnValue = new StringBuilder(text.length());
+		boolean pendingSpace = false;
+		for(int index = 0; index < text.length(); index++) {
+			char next = text.charAt(index);
+			if(isSpace(next)) {
+				pendingSpace = returnValue.length() > 0;
+			}
+			else {
+				if(pendingSpace) {
+					returnValue.append(' ');
+					pendingSpace = false;
+				}
+				returnValue.append(next);
+			}
+		}
+		return returnValue.toString();
+	}
+
+	/**
+	 * Determines whether or not a character is whitespace in HTML.
+	 *
+	 * @param next The character.
+	 * @return True if it is a space, tab, line feed, form feed or carriage return.
+	 */
+	private static boolean isSpace(char next) {
+		return next == ' ' || next == '\t' || next == '\n' || next == '\f' || next == '\r';
+	}
+
+	/**
+	 * Determines whether or not a character is an ASCII letter, which is all that a tag name may start with.
+	 *
+	 * @param next The character.
+	 * @return True if it is an ASCII letter.
+	 */
+	private static boolean isAsciiLetter(char next) {
+		return (next >= 'a' && next <= 'z') || (next >= 'A' && next <= 'Z');
+	}
+}
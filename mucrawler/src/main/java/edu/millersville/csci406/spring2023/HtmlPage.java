@@ -0,0 +1,88 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What was extracted from an HTML file in one pass by HtmlLinkExtractor: its text exactly as it was sent, its title, and its links.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlPage {
+
+	/** The URL of the file. */
+	private final CrawlURL url;
+	/** The decoded text of the file, unchanged. */
+	private final String content;
+	/** The text of the file's title element as it appears in the file, which is only decoded when it is asked for, or null if it has none. */
+	private final String rawTitle;
+	/** The http and https links in the file, in the order in which they appear. */
+	private final List<HtmlLink> links;
+
+	/**
+	 * Constructs an HtmlPage.
+	 *
+	 * @param url The URL of the file.
+	 * @param content The decoded text of the file, unchanged.
+	 * @param rawTitle The text of the file's title element as it appears in the file, before its character references are decoded and its whitespace collapsed, or null if it has none.
+	 * @param links The http and https links in the file, in the order in which they appear.
+	 */
+	public HtmlPage(CrawlURL url, String content, String rawTitle, List<HtmlLink> links) {
+		this.url = url;
+		this.content = content;
+		this.rawTitle = rawTitle;
+		this.links = Collections.unmodifiableList(links);
+	}
+
+	/**
+	 * Gets the URL of the file.
+	 *
+	 * @return The URL.
+	 */
+	public CrawlURL getURL() {
+		return url;
+	}
+
+	/**
+	 * Gets the text of the file exactly as it was sent, for storing.
+	 *
+	 * @return The decoded text of the file.
+	 */
+	public String getContent() {
+		return content;
+	}
+
+	/**
+	 * Gets the title of the file.
+	 *
+	 * @return The text of the first title element with character references decoded and whitespace collapsed, or null if there is none.
+	 */
+	public String getTitle() {
+		return rawTitle == null ? null : HtmlLinkExtractor.toText(rawTitle);
+	}
+
+	/**
+	 * Gets the links in the file.
+	 *
+	 * @return A read-only List of the http and https links, in the order in which they appear.
+	 */
+	public List<HtmlLink> getLinks() {
+		return links;
+	}
+
+	/**
+	 * Gets the distinct URLs that the file links to.
+	 *
+	 * @return A Set of the URLs, in the order in which they first appear.
+	 */
+	public Set<CrawlURL> getLinkURLs() {
+		Set<CrawlURL> returnValue = new LinkedHashSet<>();
+		for(HtmlLink link : links) {
+			returnValue.add(link.getURL());
+		}
+		return returnValue;
+	}
+}
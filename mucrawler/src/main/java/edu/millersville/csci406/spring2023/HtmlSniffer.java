@@ -0,0 +1,116 @@
+package edu.millersville.csci406.spring2023;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Guesses from the first bytes of a response body whether it is HTML, so that a download that is not can be dropped before the rest of it arrives.
+ * The checks follow the MIME Sniffing standard closely enough to tell HTML from the binary files that crawlers are most often sent by mistake.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlSniffer {
+
+	/** The number of bytes at the start of a body that are enough to decide. */
+	public static final int SNIFF_LENGTH = 512;
+
+	/** The bytes at the start of common binary formats: PDF, PNG, GIF, JPEG, ZIP (and Office documents), gzip, MP3, Ogg, RIFF (WAV and AVI) and old Office documents. */
+	private static final byte[][] BINARY_SIGNATURES = {
+		ascii("%PDF-"),
+		{(byte)0x89, 'P', 'N', 'G'},
+		ascii("GIF8"),
+		{(byte)0xff, (byte)0xd8, (byte)0xff},
+		{'P', 'K', 3, 4},
+		{0x1f, (byte)0x8b},
+		ascii("ID3"),
+		ascii("OggS"),
+		ascii("RIFF"),
+		{(byte)0xd0, (byte)0xcf, 0x11, (byte)0xe0},
+	};
+
+	/** The lowercase openings of tags that mark the start of an HTML file, each of which must be followed by a space or "&gt;". */
+	private static final String[] HTML_OPENINGS = {
+		"<!doctype html", "<html", "<head", "<script", "<iframe", "<h1", "<div", "<font", "<table", "<a", "<style", "<title", "<b", "<body", "<br", "<p",
+	};
+
+	/**
+	 * Prevents anyone from constructing an HtmlSniffer, since all of its methods are static.
+	 */
+	private HtmlSniffer() {
+	}
+
+	/**
+	 * Checks whether the start of a body is clearly not text, whatever its Content-Type claims.
+	 *
+	 * @param prefix The first bytes of the body, up to SNIFF_LENGTH of them.
+	 * @return Whether or not it starts like a known binary format or contains bytes that never appear in text.
+	 */
+	public static boolean looksBinary(byte[] prefix) {
+		boolean returnValue = false;
+		for(int i = 0; !returnValue && i < BINARY_SIGNATURES.length; i++) {
+			returnValue = startsWith(prefix, 0, BINARY_SIGNATURES[i]);
+		}
+		for(int i = 0; !returnValue && i < prefix.length; i++) {
+			int b = prefix[i] & 0xff;
+			returnValue = b <= 0x08 || b == 0x0b || (b >= 0x0e && b <= 0x1a) || (b >= 0x1c && b <= 0x1f);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether the start of a body that came with no useful Content-Type looks like HTML.
+	 *
+	 * @param prefix The first bytes of the body, up to SNIFF_LENGTH of them.
+	 * @return Whether or not, after any byte order mark and whitespace, it opens with a tag or comment that only HTML starts with.
+	 */
+	public static boolean looksLikeHtml(byte[] prefix) {
+		int start = startsWith(prefix, 0, new byte[] {(byte)0xef, (byte)0xbb, (byte)0xbf}) ? 3 : 0;
+		while(start < prefix.length && isWhitespace(prefix[start])) {
+			start++;
+		}
+		String opening = new String(prefix, start, Math.min(prefix.length - start, 16), StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+		boolean returnValue = opening.startsWith("<!--");
+		for(int i = 0; !returnValue && i < HTML_OPENINGS.length; i++) {
+			String tag = HTML_OPENINGS[i];
+			returnValue = opening.length() > tag.length() && opening.startsWith(tag) && (opening.charAt(tag.length()) == ' ' || opening.charAt(tag.length()) == '>');
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether bytes start with a signature.
+	 *
+	 * @param bytes The bytes.
+	 * @param start The index at which to look.
+	 * @param signature The signature.
+	 * @return Whether or not the signature appears in bytes at start.
+	 */
+	private static boolean startsWith(byte[] bytes, int start, byte[] signature) {
+		boolean returnValue = bytes.length - start >= signature.length;
+		for(int i = 0; returnValue && i < signature.length; i++) {
+			returnValue = bytes[start + i] == signature[i];
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether a byte is whitespace, as the MIME Sniffing standard defines it.
+	 *
+	 * @param b The byte.
+	 * @return Whether or not it is a tab, line feed, form feed, carriage return or space.
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == '\t' || b == '\n' || b == '\f' || b == '\r' || b == ' ';
+	}
+
+	/**
+	 * Converts a signature written as text into bytes.
+	 *
+	 * @param signature The signature, which must be ASCII.
+	 * @return Its bytes.
+	 */
+	private static byte[] ascii(String signature) {
+		return signature.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,506 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.zip.ZipException;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * A URLReader that fetches files with a single java.net.http.HttpClient shared by every thread.
+ *
+ * The client keeps connections alive and reuses them for later requests to the same host, and speaks HTTP/2 to hosts that support it, so that many requests can share one connection.
+ * Files can also be fetched asynchronously, so that a few threads can keep many fetches in flight.
+ * HTML files that have been crawled before are fetched conditionally, so an unchanged file costs a 304 response and is not parsed again.
+ * Responses may be compressed with gzip or deflate, and are decoded as they arrive; how many bytes each host sent, before and after decoding, is kept in TransferStatistics.
+ * Every fetch is abandoned if it takes longer than a total timeout, and a body is cut off once it is longer than a maximum size, so that a slow or huge response cannot hold a worker for long or fill memory.
+ * The first bytes of an HTML file are checked as they arrive, so that a file that is not really HTML is dropped early, and a file sent with no useful Content-Type is kept if it looks like HTML.
+ * Like NetworkURLReader, any failure to fetch a file is reported as null rather than as an exception.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HttpClientURLReader implements URLReader {
+
+	/** The longest time to wait for a connection to a host by default. */
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+	/** The longest time to wait for a response, from sending the request until its headers arrive, by default. */
+	public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+
+	/** The longest time to spend on a fetch, from sending the request until its whole body arrives, by default. */
+	public static final Duration DEFAULT_TOTAL_TIMEOUT = Duration.ofSeconds(60);
+
+	/** The largest number of decoded bytes of a body to keep by default. */
+	public static final long DEFAULT_MAX_BODY_SIZE = 4 * 1024 * 1024;
+
+	/** The extractor of links from the HTML files that are fetched. */
+	private static final HtmlLinkExtractor LINK_EXTRACTOR = new HtmlLinkExtractor();
+
+	/** The client through which every request is made. */
+	private final HttpClient client;
+
+	/** The longest time to wait for a response. */
+	private final Duration readTimeout;
+
+	/** The longest time to spend on a fetch. */
+	private final Duration totalTimeout;
+
+	/** The largest number of decoded bytes of a body to keep. */
+	private final long maxBodySize;
+
+	/** A map of host name to how many bytes of response bodies that host has sent. */
+	private final Map<String, TransferStatistics> transferStatistics;
+
+	/**
+	 * Constructs an HttpClientURLReader with the default timeouts and maximum body size.
+	 */
+	public HttpClientURLReader() {
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * Constructs an HttpClientURLReader with the default total timeout and maximum body size.
+	 *
+	 * @param connectTimeout The longest time to wait for a connection to a host.
+	 * @param readTimeout The longest time to wait for a response, from sending the request until its headers arrive.
+	 */
+	public HttpClientURLReader(Duration connectTimeout, Duration readTimeout) {
+		this(connectTimeout, readTimeout, DEFAULT_TOTAL_TIMEOUT, DEFAULT_MAX_BODY_SIZE);
+	}
+
+	/**
+	 * Constructs an HttpClientURLReader.
+	 *
+	 * @param connectTimeout The longest time to wait for a connection to a host.
+	 * @param readTimeout The longest time to wait for a response, from sending the request until its headers arrive.
+	 * @param totalTimeout The longest time to spend on a fetch, from sending the request until its whole body arrives.
+	 * @param maxBodySize The largest number of decoded bytes of a body to keep, after which the rest is not downloaded.
+	 */
+	public HttpClientURLReader(Duration connectTimeout, Duration readTimeout, Duration totalTimeout, long maxBodySize) {
+		if(maxBodySize < 1) {
+			throw new IllegalArgumentException("The maximum body size must be at least one byte.");
+		}
+		client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.followRedirects(HttpClient.Redirect.NORMAL)
+			.connectTimeout(connectTimeout)
+			.build();
+		this.readTimeout = readTimeout;
+		this.totalTimeout = totalTimeout;
+		this.maxBodySize = maxBodySize;
+		transferStatistics = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets how many bytes of response bodies each host has sent.
+	 *
+	 * @return A read-only map of host name to TransferStatistics for that host, which changes as more responses arrive.
+	 */
+	public Map<String, TransferStatistics> getTransferStatistics() {
+		return Collections.unmodifiableMap(transferStatistics);
+	}
+
+	/**
+	 * Gets how many bytes of response bodies a host has sent.
+	 *
+	 * @param host The name of the host.
+	 * @return The TransferStatistics for that host.
+	 */
+	public TransferStatistics getTransferStatistics(String host) {
+		return transferStatistics.computeIfAbsent(host, key -> new TransferStatistics());
+	}
+
+	@Override
+	public Reader readRobotsTxtFile(CrawlURL url) {
+		return readRobotsTxtFileAsync(url).join();
+	}
+
+	@Override
+	public InputStream readSitemapFile(CrawlURL url) {
+		return readSitemapFileAsync(url).join();
+	}
+
+	@Override
+	public Document readHTMLFile(CrawlURL url) {
+		return readHTMLFileAsync(url).join();
+	}
+
+	@Override
+	public HtmlFetch readHTMLFile(CrawlURL url, Validators validators) {
+		return readHTMLFileAsync(url, validators).join();
+	}
+
+	/**
+	 * Starts fetching the robots.txt file at a given URL.
+	 * No more of the file is downloaded than RobotsTxtParser will parse.
+	 *
+	 * @param url The URL of the robots.txt file requested.
+	 * @return A future that completes with a Reader prepared to read the file, or with null if it cannot be fetched.
+	 */
+	public CompletableFuture<Reader> readRobotsTxtFileAsync(CrawlURL url) {
+		CompletableFuture<Reader> returnValue;
+		try {
+			HttpResponse.BodyHandler<byte[]> handler = responseInfo -> {
+				HttpResponse.BodySubscriber<byte[]> subscriber;
+				if(isSuccessful(responseInfo.statusCode())) {
+					// One byte more than will be parsed is kept, so that the parser can tell that the file was cut off.
+					subscriber = newDecodingSubscriber(responseInfo, url, Math.min(maxBodySize, RobotsTxtParser.MAX_SIZE + 1), null);
+				}
+				else {
+					subscriber = HttpResponse.BodySubscribers.replacing(null);
+				}
+				return subscriber;
+			};
+			returnValue = withTotalTimeout(client.sendAsync(newRequest(url, null), handler))
+				.<Reader>thenApply(response -> response.body() == null ? null : new InputStreamReader(new ByteArrayInputStream(response.body()), getCharset(response)))
+				.exceptionally(exception -> null);
+		}
+		catch(URISyntaxException exception) {
+			returnValue = CompletableFuture.completedFuture(null);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Starts fetching the sitemap file at a given URL.
+	 * Only the Content-Encoding of the response is decoded, so a gzipped sitemap file arrives still gzipped, and no more of it than the maximum body size is downloaded.
+	 *
+	 * @param url The URL of the sitemap file requested.
+	 * @return A future that completes with an InputStream of the file, or with null if it cannot be fetched.
+	 */
+	public CompletableFuture<InputStream> readSitemapFileAsync(CrawlURL url) {
+		CompletableFuture<InputStream> returnValue;
+		try {
+			HttpResponse.BodyHandler<byte[]> handler = responseInfo -> {
+				HttpResponse.BodySubscriber<byte[]> subscriber;
+				if(isSuccessful(responseInfo.statusCode())) {
+					subscriber = newDecodingSubscriber(responseInfo, url, maxBodySize, null);
+				}
+				else {
+					subscriber = HttpResponse.BodySubscribers.replacing(null);
+				}
+				return subscriber;
+			};
+			returnValue = withTotalTimeout(client.sendAsync(newRequest(url, null), handler))
+				.<InputStream>thenApply(response -> response.body() == null ? null : new ByteArrayInputStream(response.body()))
+				.exceptionally(exception -> null);
+		}
+		catch(URISyntaxException exception) {
+			returnValue = CompletableFuture.completedFuture(null);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Starts fetching and parsing the HTML file at a given URL.
+	 * The body of the response is only downloaded if its Content-Type says that it is HTML, or it has no useful Content-Type and starts like HTML.
+	 *
+	 * @param url The URL of the HTML file requested.
+	 * @return A future that completes with a Document representing the file, or with null if it cannot be fetched or is not an HTML file.
+	 */
+	public CompletableFuture<Document> readHTMLFileAsync(CrawlURL url) {
+		return readHTMLFileAsync(url, null).thenApply(HtmlFetch::getDocument);
+	}
+
+	/**
+	 * Starts fetching an HTML file that may have been crawled before, sending the ETag and Last-Modified date from the last crawl so that the server can skip sending it if it has not changed.
+	 * A file that is sent anyway is only parsed if its hash differs from the last crawl.
+	 *
+	 * @param url The URL of the HTML file requested.
+	 * @param validators What was learned about the file when it was last crawled, or null if it has never been crawled.
+	 * @return A future that completes with the outcome of fetching the file.
+	 */
+	public CompletableFuture<HtmlFetch> readHTMLFileAsync(CrawlURL url, Validators validators) {
+		CompletableFuture<HtmlFetch> returnValue;
+		try {
+			HttpResponse.BodyHandler<byte[]> handler = responseInfo -> {
+				String contentType = responseInfo.headers().firstValue("Content-Type").orElse("").toLowerCase(Locale.ROOT);
+				HttpResponse.BodySubscriber<byte[]> subscriber;
+				if(!isSuccessful(responseInfo.statusCode())) {
+					subscriber = HttpResponse.BodySubscribers.replacing(null);
+				}
+				else if(contentType.contains("html")) {
+					subscriber = newDecodingSubscriber(responseInfo, url, maxBodySize, prefix -> !HtmlSniffer.looksBinary(prefix));
+				}
+				else if(isUnknownContentType(contentType)) {
+					subscriber = newDecodingSubscriber(responseInfo, url, maxBodySize, HtmlSniffer::looksLikeHtml);
+				}
+				else {
+					subscriber = HttpResponse.BodySubscribers.replacing(null);
+				}
+				return subscriber;
+			};
+			returnValue = withTotalTimeout(client.sendAsync(newRequest(url, validators), handler))
+				.thenApply(response -> toHtmlFetch(response, url, validators))
+				.exceptionally(exception -> new HtmlFetch(null, false, null, true));
+		}
+		catch(URISyntaxException exception) {
+			returnValue = CompletableFuture.completedFuture(new HtmlFetch(null, false, null));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Builds a GET request for a URL.
+	 *
+	 * @param url The URL.
+	 * @param validators What was learned about the file when it was last crawled, to make the request conditional, or null.
+	 * @return A request for the URL that times out after the read timeout.
+	 * @throws URISyntaxException If the URL contains characters that are not allowed in a URI.
+	 */
+	private HttpRequest newRequest(CrawlURL url, Validators validators) throws URISyntaxException {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(toURI(url))
+			.timeout(readTimeout)
+			.header("Accept-Encoding", DecodingBodySubscriber.ACCEPT_ENCODING)
+			.header("User-Agent", USER_AGENT);
+		if(validators != null && validators.getEtag() != null) {
+			builder.header("If-None-Match", validators.getEtag());
+		}
+		if(validators != null && validators.getLastModified() != null) {
+			builder.header("If-Modified-Since", validators.getLastModified());
+		}
+		return builder.GET().build();
+	}
+
+	/**
+	 * Makes a future for a fetch fail if the fetch takes longer than the total timeout, and abandons the fetch when that happens.
+	 *
+	 * @param <T> The type of the response body.
+	 * @param response A future for the response, as returned by the client.
+	 * @return A future for the same response that fails with a TimeoutException after the total timeout.
+	 */
+	private <T> CompletableFuture<HttpResponse<T>> withTotalTimeout(CompletableFuture<HttpResponse<T>> response) {
+		CompletableFuture<HttpResponse<T>> returnValue = response.copy().orTimeout(totalTimeout.toMillis(), TimeUnit.MILLISECONDS);
+		returnValue.whenComplete((result, exception) -> {
+			if(exception instanceof TimeoutException) {
+				// Cancelling the client's own future closes the connection, so the rest of the body is not downloaded.
+				response.cancel(true);
+			}
+		});
+		return returnValue;
+	}
+
+	/**
+	 * Creates a subscriber that decodes the body of a response, up to a limit, and records its size for the host it came from.
+	 *
+	 * @param responseInfo The status and headers of the response.
+	 * @param url The URL that was requested.
+	 * @param bodyLimit The largest number of decoded bytes to keep.
+	 * @param prefixCheck A check of the first decoded bytes that drops the body if it fails, or null to keep every body.
+	 * @return A subscriber producing the decoded body, or null in place of the body if its Content-Encoding cannot be decoded or it fails the check.
+	 */
+	private HttpResponse.BodySubscriber<byte[]> newDecodingSubscriber(HttpResponse.ResponseInfo responseInfo, CrawlURL url, long bodyLimit, Predicate<byte[]> prefixCheck) {
+		HttpResponse.BodySubscriber<byte[]> returnValue;
+		try {
+			String contentEncoding = responseInfo.headers().firstValue("Content-Encoding").orElse(null);
+			returnValue = new DecodingBodySubscriber(contentEncoding, getTransferStatistics(url.getHost()), bodyLimit, prefixCheck);
+		}
+		catch(ZipException exception) {
+			returnValue = HttpResponse.BodySubscribers.replacing(null);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Converts a URL into the URI that is actually requested.
+	 * Characters that real links contain but a URI may not, such as spaces and '|', are percent-encoded, as a browser would.
+	 *
+	 * @param url The URL.
+	 * @return The URI to request.
+	 * @throws URISyntaxException If the host name is not allowed in a URI.
+	 */
+	protected URI toURI(CrawlURL url) throws URISyntaxException {
+		return new URI(url.getProtocol() + "://" + url.getHost() + encodeIllegalCharacters(url.getFile()));
+	}
+
+	/**
+	 * Percent-encodes the characters of a path and query that may not appear in a URI, leaving the ones that may and any escapes that are already there.
+	 *
+	 * @param file The path and query.
+	 * @return The path and query with every illegal character replaced by the escapes of its UTF-8 bytes.
+	 */
+	static String encodeIllegalCharacters(String file) {
+		StringBuilder builder = new StringBuilder(file.length());
+		int index = 0;
+		while(index < file.length()) {
+			int codePoint = file.codePointAt(index);
+			if(isLegalInURI(codePoint) || codePoint == '%' && index + 2 < file.length() && isHexDigit(file.charAt(index + 1)) && isHexDigit(file.charAt(index + 2))) {
+				builder.append((char)codePoint);
+			}
+			else {
+				for(byte utf8Byte : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+					builder.append(String.format("%%%02X", utf8Byte & 0xFF));
+				}
+			}
+			index += Character.charCount(codePoint);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Determines whether or not a character may appear as itself in the path or query of a URI.
+	 *
+	 * @param character The character.
+	 * @return True if it is an unreserved character or one of the delimiters allowed there.
+	 */
+	private static boolean isLegalInURI(int character) {
+		return character >= 'a' && character <= 'z' || character >= 'A' && character <= 'Z' || character >= '0' && character <= '9' || "-._~!$&'()*+,;=:@/?".indexOf(character) >= 0;
+	}
+
+	/**
+	 * Determines whether or not a character is a hexadecimal digit.
+	 *
+	 * @param character The character.
+	 * @return True if it is 0-9, a-f or A-F.
+	 */
+	private static boolean isHexDigit(char character) {
+		return Character.digit(character, 16) >= 0 && character < 128;
+	}
+
+	/**
+	 * Works out the outcome of a request for an HTML file.
+	 *
+	 * @param response The response, whose body is null if it was not downloaded.
+	 * @param url The URL that was requested.
+	 * @param validators The Validators the request was made with, or null.
+	 * @return The outcome, in which the file is only parsed if it has changed.
+	 */
+	private static HtmlFetch toHtmlFetch(HttpResponse<byte[]> response, CrawlURL url, Validators validators) {
+		HtmlFetch returnValue;
+		String etag = response.headers().firstValue("ETag").orElse(null);
+		String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+		if(response.statusCode() == 304 && validators != null) {
+			returnValue = new HtmlFetch(null, true, validators.revalidated(etag, lastModified));
+		}
+		else if(response.body() == null) {
+			returnValue = new HtmlFetch(null, false, null, response.statusCode() >= 500);
+		}
+		else {
+			Validators newValidators = new Validators(etag, lastModified, Validators.hash(response.body()));
+			if(validators != null && validators.hasSameContent(newValidators)) {
+				returnValue = new HtmlFetch(null, true, newValidators);
+			}
+			else {
+				returnValue = new HtmlFetch(parse(response, finalURL(response, url)), false, newValidators);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the URL that a response finally came from, after any redirects.
+	 *
+	 * @param response The response.
+	 * @param url The URL that was requested.
+	 * @return The final URL, or the requested one if there were no redirects or the final one cannot be stored.
+	 */
+	private static CrawlURL finalURL(HttpResponse<?> response, CrawlURL url) {
+		CrawlURL returnValue = url;
+		if(response.previousResponse().isPresent()) {
+			URI uri = response.uri();
+			String file = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+			if(uri.getRawQuery() != null) {
+				file += "?" + uri.getRawQuery();
+			}
+			try {
+				returnValue = new CrawlURL(uri.getScheme(), uri.getHost(), file);
+			}
+			catch(MalformedURLException exception) {
+				// The requested URL is the best we have.
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Extracts the links and text from the body of a response to a request for an HTML file.
+	 *
+	 * @param response The response, whose body is null if it was not downloaded.
+	 * @param url The URL that the response finally came from, against which relative links are resolved.
+	 * @return What was extracted, or null if there was no body.
+	 */
+	private static HtmlPage parse(HttpResponse<byte[]> response, CrawlURL url) {
+		HtmlPage returnValue = null;
+		if(response.body() != null) {
+			// Without a known charset, the extractor looks for a byte order mark or a meta tag.
+			returnValue = LINK_EXTRACTOR.extract(response.body(), getCharsetName(response.headers().firstValue("Content-Type").orElse("")), url);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the charset of a text response.
+	 *
+	 * @param response The response.
+	 * @return The charset named in its Content-Type header, or UTF-8 if it names none that Java supports.
+	 */
+	private static Charset getCharset(HttpResponse<?> response) {
+		String charsetName = getCharsetName(response.headers().firstValue("Content-Type").orElse(""));
+		return charsetName == null ? StandardCharsets.UTF_8 : Charset.forName(charsetName);
+	}
+
+	/**
+	 * Finds the charset named in a Content-Type header.
+	 *
+	 * @param contentType The value of a Content-Type header.
+	 * @return The name of the charset, or null if the header names none that Java supports.
+	 */
+	private static String getCharsetName(String contentType) {
+		String returnValue = null;
+		int start = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+		if(start >= 0) {
+			String name = contentType.substring(start + "charset=".length()).split(";")[0].trim().replace("\"", "").replace("'", "");
+			try {
+				if(Charset.isSupported(name)) {
+					returnValue = name;
+				}
+			}
+			catch(IllegalArgumentException exception) {
+				returnValue = null;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Checks whether a Content-Type says nothing useful about what a body is, so that it should be sniffed instead.
+	 *
+	 * @param contentType The lowercased value of a Content-Type header, or the empty string if there was none.
+	 * @return Whether or not it is missing or is one of the types that servers send when they do not know.
+	 */
+	private static boolean isUnknownContentType(String contentType) {
+		String type = contentType.split(";")[0].trim();
+		return type.isEmpty() || type.equals("application/octet-stream") || type.equals("application/unknown") || type.equals("unknown/unknown") || type.equals("*/*");
+	}
+
+	/**
+	 * Checks whether a status code means success.
+	 *
+	 * @param statusCode The status code.
+	 * @return Whether or not it is in the 200s.
+	 */
+	private static boolean isSuccessful(int statusCode) {
+		return statusCode >= 200 && statusCode < 300;
+	}
+}
@@ -1,14 +1,20 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A class that controls a web crawl.
@@ -21,35 +27,214 @@ import java.util.concurrent.TimeUnit;
 public class MyCrawlController implements CrawlController {
 
     /**
-     * A map of hostname to queue of CrawlJobs on that host that need to be
-     * processed in the future.
+     * How much of a host's sitemaps have been read since its robots.txt file was
+     * last finished, which limits how many more are.
+     * It is guarded by its own lock.
      */
-    private Map<String, PriorityQueue<CrawlJob>> futureJobs;
+    private static class SitemapBudget {
+
+        /** The sitemaps that have been scheduled, so that none is read twice. */
+        private final Set<CrawlURL> scheduled;
+        /** The number of URLs from the sitemaps that have been added so far. */
+        private int entries;
+
+        /**
+         * Constructs a SitemapBudget for which nothing has been read yet.
+         */
+        public SitemapBudget() {
+            this.scheduled = new HashSet<>();
+            this.entries = 0;
+        }
+    }
+
+    /**
+     * An HTML file that has been finished but not yet written to the data source.
+     */
+    private static class FinishedPage {
+
+        /** The CrawlJob for the HTML file. */
+        private final CrawlJob job;
+        /** The URLs linked to by the HTML file. */
+        private final Set<CrawlURL> newUrls;
+        /**
+         * The complete HTML content of the file, or null if it has not changed since
+         * it was last crawled.
+         */
+        private final String content;
+        /** What was learned about the file when it was fetched, or null. */
+        private final Validators validators;
+        /** The new CrawlJobs created by writing the page, or null if it has not been written successfully. */
+        private Set<CrawlJob> newJobs;
+
+        /**
+         * Constructs a FinishedPage that has not been written yet.
+         * 
+         * @param job        The CrawlJob for the HTML file.
+         * @param newUrls    The URLs linked to by the HTML file.
+         * @param content    The complete HTML content of the file, or null if it has
+         *                   not changed since it was last crawled.
+         * @param validators What was learned about the file when it was fetched, or
+         *                   null.
+         */
+        public FinishedPage(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) {
+            this.job = job;
+            this.newUrls = newUrls;
+            this.content = content;
+            this.validators = validators;
+            this.newJobs = null;
+        }
+    }
+
+    /** A Logger. */
+    private static Logger theLogger = Logger.getLogger(MyCrawlController.class.getName());
+
+    /** The number of FrontierShards that hosts are spread across by default. */
+    public static final int DEFAULT_SHARD_COUNT = 16;
+
+    /** The largest number of CrawlJobs kept in memory for any one host by default. */
+    public static final int DEFAULT_HOST_WINDOW_SIZE = 1000;
+
+    /** The number of milliseconds for which a CrawlJob is leased by default. */
+    public static final long DEFAULT_LEASE_DURATION = 600000;
+
+    /** The number of CrawlJobs read from the data source at a time while loading. */
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    /** The number of finished HTML files that may wait to be written when writing behind, by default. */
+    public static final int DEFAULT_WRITE_QUEUE_CAPACITY = 256;
+
+    /** The largest number of finished HTML files written together when writing behind, by default. */
+    public static final int DEFAULT_WRITE_BATCH_SIZE = 32;
 
     /**
-     * A queue of CrawlJobs that should be processed next.
-     * Whenever this empties it is filled with one CrawlJob from each entry in
-     * futureJobs to spread out concurrent accesses.
+     * The largest number of sitemap files, including sitemap indexes, read for a
+     * host each time its robots.txt file is crawled.
      */
-    private Queue<CrawlJob> currentJobs;
+    public static final int MAX_SITEMAP_FILES = 10;
 
     /**
-     * A map of hostname to last time that a CrawlJob for that host was released.
+     * The number of milliseconds a thread waits for room in the write queue before
+     * checking that the writer thread is still running.
      */
-    private Map<String, Long> lastAccessTimes;
+    private static final long WRITE_QUEUE_WAIT = 1000;
+
+    /**
+     * The CrawlJobs that need to be processed in the future, partitioned by a hash
+     * of their host names.
+     * Each shard is locked independently, so jobs for hosts in different shards
+     * can be released, added and removed in parallel.
+     */
+    private FrontierShard[] shards;
+
+    /**
+     * A monitor on which threads wait in {@link #getJob()} until some host becomes
+     * eligible or the schedule changes.
+     * It never guards any frontier state.
+     */
+    private final Object scheduleMonitor;
+
+    /**
+     * The number of times a host has been newly scheduled or the crawl has
+     * finished, used to avoid missing a notification between checking the shards
+     * and waiting.
+     * Guarded by scheduleMonitor.
+     */
+    private long scheduleVersion;
+
+    /**
+     * The number of units of work that remain: CrawlJobs waiting in memory in a
+     * shard, CrawlJobs that have been released but not yet finished, and hosts
+     * with CrawlJobs spilled to the data source or being paged back in.
+     * The shards count a unit as soon as it exists, and a released CrawlJob is
+     * uncounted only after everything that finishing it adds has been counted, so
+     * it can only reach zero when the crawl is complete.
+     */
+    private final AtomicInteger unfinishedWork;
 
     /** A data source from which we will get and write documents. */
     private CrawlingDataSource dataSource;
 
+    /** The largest number of CrawlJobs kept in memory for any one host. */
+    private final int hostWindowSize;
+
     /**
-     * The minimum number of milliseconds between releases of CrawlJobs for the same
-     * host.
+     * A lock held while calling the data source, which is not required to be
+     * thread-safe.
+     * It is never held at the same time as a shard.
      */
-    private long crawlDelay;
+    private final Object dataSourceLock;
+
+    /**
+     * The time (from System.currentTimeMillis()) at which each leased CrawlJob was
+     * released, used both to measure how quickly its host responds and to notice
+     * when its lease has expired.
+     * Removing a CrawlJob from here claims it, so that exactly one of finishing it,
+     * returning it, or reclaiming it after its lease expires takes effect.
+     */
+    private final Map<CrawlJob, Long> leases;
+
+    /** The number of milliseconds for which a CrawlJob is leased. */
+    private volatile long leaseDuration;
+
+    /**
+     * The earliest time (from System.currentTimeMillis()) at which expired leases
+     * will next be looked for.
+     */
+    private final AtomicLong nextReapTime;
+
+    /**
+     * The time (from System.currentTimeMillis()) at which the current thread last
+     * finished a CrawlJob, so that time a CrawlJob spends waiting behind others in
+     * a batch is not mistaken for time its host took to respond.
+     */
+    private final ThreadLocal<Long> lastFinishTime;
+
+    /**
+     * A counter used to choose the shard at which each batch starts, so that
+     * batches do not always favor the same shards.
+     */
+    private final AtomicInteger nextBatchShard;
+
+    /**
+     * The finished HTML files waiting to be written to the data source by the
+     * writer thread, or null if they are written by the threads that finish them.
+     */
+    private volatile BlockingQueue<FinishedPage> writeQueue;
+
+    /** The largest number of finished HTML files that the writer thread writes together. */
+    private int writeBatchSize;
+
+    /**
+     * What stopped the writer thread, or null if it is running or was never
+     * started.
+     * Once it is set the crawl cannot finish, so no more CrawlJobs are released
+     * and finishing an HTML file throws a DataSourceException.
+     */
+    private volatile Throwable writerFailure;
+
+    /**
+     * The CrawlJobs whose HTML files have failed to be written once, and which are
+     * not crawled again if they fail a second time.
+     */
+    private final Set<CrawlJob> failedWrites;
+
+    /**
+     * How much of each host's sitemaps have been read, by host name, for hosts
+     * whose robots.txt files named any.
+     */
+    private final Map<String, SitemapBudget> sitemapBudgets;
+
+    /**
+     * The ID given to the last CrawlJob for a sitemap, which counts down from -1
+     * so that it never matches a CrawlJob from the data source.
+     */
+    private final AtomicInteger lastSitemapId;
 
     /**
      * Constructs a CrawlController from the DataSource that it will use.
      * This loads all work from the data source into its own data structures.
+     * Every host is given the same fixed delay, and may only have one CrawlJob in
+     * flight at a time.
      * 
      * @param dataSource A DataSource to use throughout the lifetime of the new
      *                   CrawlController.
@@ -58,114 +243,808 @@ public class MyCrawlController implements CrawlController {
      * @throws DataSourceException If there is a problem accessing the DataSource.
      */
     public MyCrawlController(CrawlingDataSource dataSource, long crawlDelay) throws DataSourceException {
+        this(dataSource, new PolitenessPolicy(crawlDelay));
+    }
+
+    /**
+     * Constructs a CrawlController from the DataSource that it will use.
+     * This loads all work from the data source into its own data structures.
+     * 
+     * @param dataSource A DataSource to use throughout the lifetime of the new
+     *                   CrawlController.
+     * @param policy     The policy that decides how long to wait between releases
+     *                   of CrawlJobs for each host, and how many may be in flight
+     *                   at once.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
+     */
+    public MyCrawlController(CrawlingDataSource dataSource, PolitenessPolicy policy) throws DataSourceException {
+        this(dataSource, policy, DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * Constructs a CrawlController from the DataSource that it will use.
+     * This loads all work from the data source into its own data structures.
+     * 
+     * @param dataSource A DataSource to use throughout the lifetime of the new
+     *                   CrawlController.
+     * @param policy     The policy that decides how long to wait between releases
+     *                   of CrawlJobs for each host, and how many may be in flight
+     *                   at once.
+     * @param shardCount The number of FrontierShards to spread hosts across.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
+     */
+    public MyCrawlController(CrawlingDataSource dataSource, PolitenessPolicy policy, int shardCount) throws DataSourceException {
+        this(dataSource, policy, shardCount, DEFAULT_HOST_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs a CrawlController from the DataSource that it will use.
+     * This loads work from the data source a page at a time, keeping at most a
+     * window of CrawlJobs for each host in memory and leaving the rest in the data
+     * source until they are needed.
+     * 
+     * @param dataSource     A DataSource to use throughout the lifetime of the new
+     *                       CrawlController.
+     * @param policy         The policy that decides how long to wait between
+     *                       releases of CrawlJobs for each host, and how many may
+     *                       be in flight at once.
+     * @param shardCount     The number of FrontierShards to spread hosts across.
+     * @param hostWindowSize The largest number of CrawlJobs to keep in memory for
+     *                       any one host.
+     * @throws DataSourceException If there is a problem accessing the DataSource.
+     */
+    public MyCrawlController(CrawlingDataSource dataSource, PolitenessPolicy policy, int shardCount, int hostWindowSize)
+            throws DataSourceException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("There must be at least one shard.");
+        }
         this.dataSource = dataSource;
-        this.crawlDelay = crawlDelay;
-        futureJobs = new HashMap<>();
-        currentJobs = new LinkedList<>();
-        lastAccessTimes = new HashMap<>();
-        Set<CrawlJob> outstandingJobs = this.dataSource.getURLsToCrawl();
-        for (CrawlJob job : outstandingJobs) {
-            addJobToFutureQueue(job);
+        this.hostWindowSize = hostWindowSize;
+        unfinishedWork = new AtomicInteger(0);
+        shards = new FrontierShard[shardCount];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new FrontierShard(policy, hostWindowSize, unfinishedWork);
         }
+        leases = new ConcurrentHashMap<>();
+        leaseDuration = DEFAULT_LEASE_DURATION;
+        nextReapTime = new AtomicLong(0);
+        lastFinishTime = ThreadLocal.withInitial(() -> 0L);
+        nextBatchShard = new AtomicInteger(0);
+        writeQueue = null;
+        writeBatchSize = 1;
+        failedWrites = ConcurrentHashMap.newKeySet();
+        sitemapBudgets = new ConcurrentHashMap<>();
+        lastSitemapId = new AtomicInteger(0);
+        scheduleMonitor = new Object();
+        scheduleVersion = 0;
+        dataSourceLock = new Object();
+        int lastId = 0;
+        Set<CrawlJob> page;
+        do {
+            page = this.dataSource.getURLsToCrawl(lastId, LOAD_PAGE_SIZE);
+            for (CrawlJob job : page) {
+                addJob(job);
+                lastId = Math.max(lastId, job.getId());
+            }
+        } while (page.size() >= LOAD_PAGE_SIZE);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Only the shard holding the chosen host is locked while a job is released.
+     * A thread that must wait for a host to become eligible, or for jobs that are
+     * in flight to produce new ones, does so without holding any lock, so other
+     * threads may take jobs for hosts that are already eligible or add new jobs in
+     * the meantime.
+     */
     @Override
-    public synchronized CrawlJob getJob() {
+    public CrawlJob getJob() {
         CrawlJob returnValue = null;
-
-        if (currentJobs.isEmpty()) {
-            Iterator<Map.Entry<String, PriorityQueue<CrawlJob>>> iter = futureJobs.entrySet().iterator();
-            while (iter.hasNext()) {
-                Map.Entry<String, PriorityQueue<CrawlJob>> entry = iter.next();
-                currentJobs.add(entry.getValue().remove());
-                if (entry.getValue().isEmpty()) {
-                    iter.remove();
+        boolean crawlFinished = false;
+        while (returnValue == null && !crawlFinished) {
+            long version;
+            synchronized (scheduleMonitor) {
+                version = scheduleVersion;
+            }
+            reapExpiredLeases(System.currentTimeMillis());
+            // Prefer the host that has been eligible the longest, to interleave hosts as much as possible.
+            FrontierShard earliestShard = null;
+            long earliestTime = Long.MAX_VALUE;
+            for (FrontierShard shard : shards) {
+                long nextAccessTime = shard.getNextAccessTime();
+                if (nextAccessTime < earliestTime) {
+                    earliestShard = shard;
+                    earliestTime = nextAccessTime;
                 }
             }
+            long now = System.currentTimeMillis();
+            if (unfinishedWork.get() == 0 || writerFailure != null) {
+                crawlFinished = true;
+            } else if (earliestTime <= now) {
+                // Another thread may have taken this host first, in which case we look again.
+                returnValue = earliestShard.pollJob(now);
+                if (returnValue != null) {
+                    leases.put(returnValue, now);
+                }
+            } else {
+                awaitSchedule(version, earliestTime, now);
+            }
         }
+        return returnValue;
+    }
 
-        if (!currentJobs.isEmpty()) {
-            returnValue = currentJobs.remove();
-            if (lastAccessTimes.containsKey(returnValue.getURL().getHost())) {
-                delay(lastAccessTimes.get(returnValue.getURL().getHost()));
+    /**
+     * {@inheritDoc}
+     * 
+     * Each shard is locked at most once per attempt, however many CrawlJobs it
+     * releases.
+     */
+    @Override
+    public List<CrawlJob> getJobs(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("At least one CrawlJob must be requested.");
+        }
+        List<CrawlJob> returnValue = new ArrayList<>();
+        boolean crawlFinished = false;
+        while (returnValue.isEmpty() && !crawlFinished) {
+            long version;
+            synchronized (scheduleMonitor) {
+                version = scheduleVersion;
+            }
+            reapExpiredLeases(System.currentTimeMillis());
+            long now = System.currentTimeMillis();
+            long earliestTime = Long.MAX_VALUE;
+            int start = Math.floorMod(nextBatchShard.getAndIncrement(), shards.length);
+            for (int i = 0; i < shards.length && returnValue.size() < max; i++) {
+                FrontierShard shard = shards[(start + i) % shards.length];
+                earliestTime = Math.min(earliestTime, shard.pollJobs(now, max - returnValue.size(), returnValue));
+            }
+            if (!returnValue.isEmpty()) {
+                for (CrawlJob job : returnValue) {
+                    leases.put(job, now);
+                }
+            } else if (unfinishedWork.get() == 0 || writerFailure != null) {
+                crawlFinished = true;
+            } else {
+                awaitSchedule(version, earliestTime, now);
             }
-            lastAccessTimes.put(returnValue.getURL().getHost(), System.currentTimeMillis());
         }
         return returnValue;
     }
 
     @Override
-    public synchronized void finishRobots(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException {
-        Set<CrawlJob> toRemove = dataSource.finishCrawlingRobotsFile(job, newRules);
-        Iterator<CrawlJob> iter = currentJobs.iterator();
-        while (iter.hasNext() && !toRemove.isEmpty()) {
-            CrawlJob possibleMatch = iter.next();
-            if (toRemove.contains(possibleMatch)) {
-                iter.remove();
-                toRemove.remove(possibleMatch);
-            }
-        }
-        PriorityQueue<CrawlJob> futureQueue = futureJobs.get(job.getURL().getHost());
-        if (futureQueue != null) {
-            iter = futureQueue.iterator();
-            while (iter.hasNext() && !toRemove.isEmpty()) {
-                CrawlJob possibleMatch = iter.next();
-                if (toRemove.contains(possibleMatch)) {
-                    iter.remove();
-                    toRemove.remove(possibleMatch);
+    public void returnJob(CrawlJob job) {
+        if (leases.remove(job) != null) {
+            putBack(job);
+        }
+    }
+
+    /**
+     * Gets the number of milliseconds currently waited between accesses to a host,
+     * as adapted to how it has responded.
+     * 
+     * @param host The name of the host.
+     * @return The host's current crawl delay, in milliseconds.
+     */
+    public long getCrawlDelay(String host) {
+        return getShard(host).getCrawlDelay(host);
+    }
+
+    /**
+     * Sets the number of milliseconds for which CrawlJobs are leased.
+     * This applies to CrawlJobs that have already been leased as well as future
+     * ones.
+     * 
+     * @param leaseDuration The number of milliseconds for which a CrawlJob is
+     *                      leased.
+     */
+    public void setLeaseDuration(long leaseDuration) {
+        if (leaseDuration < 1) {
+            throw new IllegalArgumentException("Leases must last at least one millisecond.");
+        }
+        this.leaseDuration = leaseDuration;
+        nextReapTime.set(0);
+    }
+
+    /**
+     * Starts writing finished HTML files to the data source on a separate thread,
+     * so that the threads finishing them do not wait for the data source.
+     * This should be called before any CrawlJobs are released.
+     * 
+     * @param queueCapacity The largest number of finished HTML files that may wait
+     *                      to be written before threads finishing more must wait.
+     * @param batchSize     The largest number of finished HTML files to write
+     *                      together while holding the data source.
+     */
+    public void startWriteBehind(int queueCapacity, int batchSize) {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("The write queue and its batches must hold at least one page.");
+        }
+        if (writeQueue != null) {
+            throw new IllegalStateException("Write-behind has already been started.");
+        }
+        writeBatchSize = batchSize;
+        writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        // The writer waits forever for more pages, so it must not keep the program running once the crawl is over.
+        Thread writer = new Thread(this::writePages, "Page writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void finishRobots(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException {
+        finishRobots(job, newRules, 0);
+    }
+
+    @Override
+    public void finishRobots(CrawlJob job, Set<RobotsRule> newRules, long crawlDelay) throws DataSourceException {
+        finishRobots(job, newRules, crawlDelay, Collections.emptyList());
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The job's host has been held out of the schedule since the job was released,
+     * and is returned to it once the disallowed jobs have been removed.
+     * No more than MAX_SITEMAP_FILES sitemaps are read for the host, counting
+     * those named by sitemap indexes, and no more than SitemapParser.MAX_ENTRIES
+     * URLs are taken from them in all.
+     */
+    @Override
+    public void finishRobots(CrawlJob job, Set<RobotsRule> newRules, long crawlDelay,
+            Collection<CrawlURL> sitemaps) throws DataSourceException {
+        long responseTime = System.currentTimeMillis();
+        Long releaseTime = leases.remove(job);
+        if (releaseTime == null) {
+            leaseExpired(job);
+        } else {
+            String host = job.getURL().getHost();
+            FrontierShard shard = getShard(host);
+            try {
+                Set<CrawlJob> toRemove;
+                synchronized (dataSourceLock) {
+                    toRemove = dataSource.finishCrawlingRobotsFile(job, newRules);
                 }
+                shard.removeJobs(host, toRemove);
+                shard.setRobotsCrawlDelay(host, crawlDelay);
+                // Sitemaps named by an earlier copy of the file may be read again.
+                SitemapBudget budget = new SitemapBudget();
+                sitemapBudgets.put(host, budget);
+                addSitemapJobs(host, sitemaps, budget);
+            } finally {
+                jobFinished(job, releaseTime, responseTime, false);
             }
-            if (futureQueue.isEmpty()) {
-                futureJobs.remove(job.getURL().getHost());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The sitemap URLs are only a hint, so a failure to add them is logged rather
+     * than thrown.
+     */
+    @Override
+    public void finishSitemap(CrawlJob job, List<SitemapEntry> entries, Collection<CrawlURL> sitemaps)
+            throws DataSourceException {
+        long responseTime = System.currentTimeMillis();
+        Long releaseTime = leases.remove(job);
+        if (releaseTime == null) {
+            leaseExpired(job);
+        } else {
+            String host = job.getURL().getHost();
+            try {
+                SitemapBudget budget = sitemapBudgets.get(host);
+                if (budget != null) {
+                    List<SitemapEntry> toAdd;
+                    synchronized (budget) {
+                        int count = Math.min(entries.size(), SitemapParser.MAX_ENTRIES - budget.entries);
+                        toAdd = entries.subList(0, count);
+                        budget.entries += count;
+                    }
+                    if (toAdd.size() < entries.size()) {
+                        theLogger.log(Level.INFO, "Ignoring " + (entries.size() - toAdd.size()) + " URLs from "
+                                + job.getURL() + " after taking " + SitemapParser.MAX_ENTRIES + " from the sitemaps of "
+                                + host);
+                    }
+                    if (!toAdd.isEmpty()) {
+                        Set<CrawlJob> newJobs = Collections.emptySet();
+                        synchronized (dataSourceLock) {
+                            try {
+                                newJobs = dataSource.addSitemapUrls(toAdd);
+                            } catch (DataSourceException exception) {
+                                theLogger.log(Level.WARNING, "Failed to add the sitemap URLs for " + job, exception);
+                            }
+                        }
+                        addJobs(newJobs);
+                    }
+                    addSitemapJobs(host, sitemaps, budget);
+                }
+            } finally {
+                jobFinished(job, releaseTime, responseTime, false);
+            }
+        }
+    }
+
+    /**
+     * Schedules the sitemaps of a host to be read, as CrawlJobs that wait their
+     * turn with the host's other CrawlJobs, unless they have been scheduled before
+     * or the host has had MAX_SITEMAP_FILES scheduled already.
+     * 
+     * @param host     The name of the host.
+     * @param sitemaps The URLs of the sitemaps, which must be on the host.
+     * @param budget   How much of the host's sitemaps have been read.
+     */
+    private void addSitemapJobs(String host, Collection<CrawlURL> sitemaps, SitemapBudget budget) {
+        List<CrawlJob> jobs = new ArrayList<>();
+        int skipped = 0;
+        synchronized (budget) {
+            for (CrawlURL sitemap : sitemaps) {
+                if (!budget.scheduled.contains(sitemap)) {
+                    if (budget.scheduled.size() < MAX_SITEMAP_FILES) {
+                        budget.scheduled.add(sitemap);
+                        jobs.add(new CrawlJob(lastSitemapId.decrementAndGet(), sitemap, null, true));
+                    } else {
+                        skipped++;
+                    }
+                }
             }
         }
+        if (skipped > 0) {
+            theLogger.log(Level.INFO, "Not reading " + skipped + " more sitemaps from " + host + " after "
+                    + MAX_SITEMAP_FILES);
+        }
+        FrontierShard shard = getShard(host);
+        boolean scheduledHost = false;
+        for (CrawlJob job : jobs) {
+            if (shard.addSitemapJob(job)) {
+                scheduledHost = true;
+            }
+        }
+        if (scheduledHost) {
+            scheduleChanged();
+        }
     }
 
     @Override
-    public synchronized void finishHtml(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException {
-        Set<CrawlJob> toAdd = dataSource.finishCrawlingHtmlFile(job, newUrls, content);
-        for (CrawlJob newJob : toAdd) {
-            addJobToFutureQueue(newJob);
+    public void finishHtml(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
+        finishHtml(job, newUrls, content, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * If write-behind has been started, this only waits until there is room to
+     * queue the file to be written, and only throws a DataSourceException if the
+     * writer thread has stopped.
+     * The job's host may be released again at once, and the new CrawlJobs are
+     * added once the file has been written.
+     * If writing it fails, the job is put back to be crawled again, unless it has
+     * already failed to be written once.
+     */
+    @Override
+    public void finishHtml(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators)
+            throws DataSourceException {
+        finishPage(new FinishedPage(job, newUrls, content, validators));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * This is written to the data source in the same way as
+     * {@link #finishHtml(CrawlJob, Set, String, Validators)}, including behind the
+     * crawl if write-behind has been started.
+     */
+    @Override
+    public void finishUnchangedHtml(CrawlJob job, Validators validators) throws DataSourceException {
+        finishPage(new FinishedPage(job, new HashSet<>(), null, validators));
+    }
+
+    /**
+     * Writes a finished HTML file to the data source, or queues it to be written
+     * if write-behind has been started, and finishes its CrawlJob.
+     * 
+     * @param page The finished HTML file.
+     * @throws DataSourceException If there is a problem accessing the DataSource,
+     *                             or the writer thread has stopped.
+     */
+    private void finishPage(FinishedPage page) throws DataSourceException {
+        CrawlJob job = page.job;
+        long responseTime = System.currentTimeMillis();
+        Long releaseTime = leases.remove(job);
+        if (releaseTime == null) {
+            leaseExpired(job);
+        } else {
+            BlockingQueue<FinishedPage> queue = writeQueue;
+            if (queue == null) {
+                try {
+                    synchronized (dataSourceLock) {
+                        writePage(page);
+                    }
+                    addJobs(page.newJobs);
+                } finally {
+                    jobFinished(job, releaseTime, responseTime, false);
+                }
+            } else {
+                // The job stays counted as unfinished until the writer has added its new jobs.
+                recordResponse(job, releaseTime, responseTime, false, false);
+                boolean queued = false;
+                while (!queued) {
+                    // A stopped writer would never make room, so it is checked for between waits.
+                    Throwable failure = writerFailure;
+                    if (failure != null) {
+                        throw new DataSourceException(failure);
+                    }
+                    try {
+                        queued = queue.offer(page, WRITE_QUEUE_WAIT, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        // That's OK, we will just try again.
+                    }
+                }
+                lastFinishTime.set(System.currentTimeMillis());
+            }
         }
     }
 
     @Override
-    public synchronized void cancelHtml(CrawlJob job) throws DataSourceException {
-        dataSource.cancelCrawlingHtmlFile(job);
+    public void cancelHtml(CrawlJob job) throws DataSourceException {
+        cancelHtml(job, false);
     }
 
     /**
-     * Delays until at least crawlDelay milliseconds have passed since some point in
-     * the past.
+     * {@inheritDoc}
      * 
-     * @param previousTime The time from which we should delay (from
-     *                     System.currentTimeMillis()).
+     * If the host failed, this counts as a failed response from it, which will
+     * lengthen the delay between accesses to it.
      */
-    private void delay(long previousTime) {
-        long currentTime = System.currentTimeMillis();
-        long neededDelay = crawlDelay + 5 - (currentTime - previousTime);
-        while (neededDelay > 0) {
+    @Override
+    public void cancelHtml(CrawlJob job, boolean hostFailed) throws DataSourceException {
+        long responseTime = System.currentTimeMillis();
+        Long releaseTime = leases.remove(job);
+        if (releaseTime == null) {
+            leaseExpired(job);
+        } else {
             try {
-                TimeUnit.MILLISECONDS.sleep(neededDelay);
-            } catch (InterruptedException e) {
-                // That's OK, we will just re-enter the loop if necessary.
+                synchronized (dataSourceLock) {
+                    dataSource.cancelCrawlingHtmlFile(job);
+                }
+            } finally {
+                jobFinished(job, releaseTime, responseTime, hostFailed);
+            }
+        }
+    }
+
+    /**
+     * Adds CrawlJobs to the shards for their hosts, waking any threads waiting in
+     * {@link #getJob()} if that scheduled a host.
+     * 
+     * @param jobs The new CrawlJobs.
+     */
+    private void addJobs(Set<CrawlJob> jobs) {
+        boolean scheduledHost = false;
+        for (CrawlJob job : jobs) {
+            if (addJob(job)) {
+                scheduledHost = true;
             }
-            currentTime = System.currentTimeMillis();
-            neededDelay = crawlDelay + 5 - (currentTime - previousTime);
+        }
+        if (scheduledHost) {
+            scheduleChanged();
         }
     }
 
     /**
-     * Adds a job to the complicated queue of future jobs to process.
+     * Adds a CrawlJob to the shard for its host.
      * 
-     * @param job The new job.
+     * @param job The new CrawlJob.
+     * @return Whether or not the job's host was newly placed into the schedule.
      */
-    private void addJobToFutureQueue(CrawlJob job) {
+    private boolean addJob(CrawlJob job) {
+        return getShard(job.getURL().getHost()).addJob(job);
+    }
+
+    /**
+     * Records that a CrawlJob whose lease has been claimed is no longer in flight,
+     * letting its host adapt to how long the job took, and waking any threads
+     * waiting in {@link #getJob()} if the host may now be eligible sooner or that
+     * was the last unfinished job.
+     * If that leaves the host with nothing in memory but more CrawlJobs in the
+     * data source, the next window of them is paged in.
+     * 
+     * @param job          The CrawlJob.
+     * @param releaseTime  The time (from System.currentTimeMillis()) at which the
+     *                     job was released.
+     * @param responseTime The time (from System.currentTimeMillis()) at which the
+     *                     job's results were handed back, before any time spent
+     *                     recording them.
+     * @param failed       Whether or not the job's host failed to provide a usable
+     *                     response.
+     * @throws DataSourceException If there is a problem accessing the DataSource,
+     *                             in which case the rest of the host's CrawlJobs
+     *                             are left for the next crawl.
+     */
+    private void jobFinished(CrawlJob job, long releaseTime, long responseTime, boolean failed)
+            throws DataSourceException {
+        try {
+            recordResponse(job, releaseTime, responseTime, failed, true);
+        } finally {
+            workFinished(job);
+        }
+    }
+
+    /**
+     * Records that a CrawlJob whose lease has been claimed is no longer in flight,
+     * letting its host adapt to how long the job took, and waking any threads
+     * waiting in {@link #getJob()} if the host may now be eligible sooner.
+     * The host's response time is measured only up to when the job's results were
+     * handed back, so that time spent waiting for or writing to the data source
+     * is not mistaken for time the host took to respond.
+     * 
+     * @param job          The CrawlJob.
+     * @param releaseTime  The time (from System.currentTimeMillis()) at which the
+     *                     job was released.
+     * @param responseTime The time (from System.currentTimeMillis()) at which the
+     *                     job's results were handed back.
+     * @param failed       Whether or not the job's host failed to provide a usable
+     *                     response.
+     * @param saved        Whether or not the results of the job have already been
+     *                     saved to the data source.
+     */
+    private void recordResponse(CrawlJob job, long releaseTime, long responseTime, boolean failed, boolean saved) {
+        long now = System.currentTimeMillis();
+        long startTime = Math.max(releaseTime, lastFinishTime.get());
+        lastFinishTime.set(now);
+        long latency = Math.max(0, responseTime - startTime);
+        if (getShard(job.getURL().getHost()).finishJob(job, now, latency, failed, saved)) {
+            scheduleChanged();
+        }
+    }
+
+    /**
+     * Uncounts a finished CrawlJob once everything that finishing it adds has been
+     * counted, waking any threads waiting in {@link #getJob()} if that was the last
+     * unfinished job.
+     * If that leaves the job's host with nothing in memory but more CrawlJobs in
+     * the data source, the next window of them is paged in first.
+     * 
+     * @param job The CrawlJob, which must no longer be in flight or unsaved.
+     * @throws DataSourceException If there is a problem accessing the DataSource,
+     *                             in which case the rest of the host's CrawlJobs
+     *                             are left for the next crawl.
+     */
+    private void workFinished(CrawlJob job) throws DataSourceException {
         String host = job.getURL().getHost();
-        if (!futureJobs.containsKey(host)) {
-            futureJobs.put(host, new PriorityQueue<>());
+        FrontierShard shard = getShard(host);
+        try {
+            if (shard.startRefill(host)) {
+                boolean refilled = false;
+                try {
+                    Set<CrawlJob> page;
+                    synchronized (dataSourceLock) {
+                        page = dataSource.getURLsToCrawl(host, hostWindowSize);
+                    }
+                    refilled = true;
+                    if (shard.finishRefill(host, page)) {
+                        scheduleChanged();
+                    }
+                } finally {
+                    if (!refilled) {
+                        shard.abandonRefill(host);
+                    }
+                }
+            }
+        } finally {
+            if (unfinishedWork.decrementAndGet() == 0) {
+                scheduleChanged();
+            }
+        }
+    }
+
+    /**
+     * Writes finished HTML files to the data source as they are queued, forever.
+     * Each batch is written while holding the data source once, and saved as one
+     * data source batch so that it is committed once, and the new CrawlJobs are
+     * added to the shards afterward.
+     * If anything else is thrown, such as an Error, the pages already queued can
+     * never be accounted for, so the writer stops and the crawl is failed rather
+     * than left waiting for them forever.
+     */
+    private void writePages() {
+        try {
+            writeBatches();
+        } catch (Throwable throwable) {
+            theLogger.log(Level.SEVERE, "The page writer has stopped, so the crawl cannot finish.", throwable);
+            writerFailure = throwable;
+            scheduleChanged();
+        }
+    }
+
+    /**
+     * Writes batches of finished HTML files to the data source as they are queued,
+     * forever, for {@link #writePages()}.
+     */
+    private void writeBatches() {
+        List<FinishedPage> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(writeQueue.take());
+            } catch (InterruptedException e) {
+                // That's OK, we will just wait again.
+            }
+            writeQueue.drainTo(batch, writeBatchSize - batch.size());
+            synchronized (dataSourceLock) {
+                try {
+                    dataSource.beginBatch();
+                    for (FinishedPage page : batch) {
+                        try {
+                            writePage(page);
+                        } catch (DataSourceException | RuntimeException exception) {
+                            theLogger.log(Level.WARNING, "Failed to write " + page.job, exception);
+                        }
+                    }
+                    dataSource.endBatch();
+                } catch (DataSourceException | RuntimeException exception) {
+                    // None of the batch was saved, so every page in it failed.
+                    theLogger.log(Level.WARNING, "Failed to save a batch of " + batch.size() + " pages", exception);
+                    for (FinishedPage page : batch) {
+                        page.newJobs = null;
+                    }
+                }
+            }
+            for (FinishedPage page : batch) {
+                pageWritten(page);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a finished HTML file to the data source, recording the new CrawlJobs
+     * that creates.
+     * The caller must hold dataSourceLock.
+     * 
+     * @param page The finished HTML file.
+     * @throws DataSourceException If there is a problem accessing the DataSource,
+     *                             in which case the page's new CrawlJobs are left
+     *                             null.
+     */
+    private void writePage(FinishedPage page) throws DataSourceException {
+        if (page.content == null) {
+            dataSource.finishUnchangedHtmlFile(page.job, page.validators);
+            page.newJobs = new HashSet<>();
+        } else {
+            page.newJobs = dataSource.finishCrawlingHtmlFile(page.job, page.newUrls, page.content, page.validators);
+        }
+    }
+
+    /**
+     * Adds the new CrawlJobs from an HTML file that the writer thread has tried to
+     * write, or reconciles the shard with the data source if writing it failed, and
+     * then uncounts its CrawlJob.
+     * A CrawlJob whose file failed to be written is put back to be crawled again,
+     * because the data source still considers it waiting, but only once, in case
+     * the file itself is what the data source cannot accept.
+     * 
+     * @param page The HTML file that the writer thread tried to write.
+     */
+    private void pageWritten(FinishedPage page) {
+        try {
+            if (page.newJobs != null) {
+                addJobs(page.newJobs);
+            } else if (failedWrites.add(page.job)) {
+                if (addJob(page.job)) {
+                    scheduleChanged();
+                }
+            } else {
+                theLogger.log(Level.SEVERE, "Giving up on " + page.job + " after failing to write it twice.");
+            }
+        } finally {
+            getShard(page.job.getURL().getHost()).jobSaved(page.job);
+            try {
+                workFinished(page.job);
+            } catch (DataSourceException exception) {
+                theLogger.log(Level.WARNING, "Failed to page in more jobs for " + page.job.getURL().getHost(), exception);
+            }
+        }
+    }
+
+    /**
+     * Logs that the result of a CrawlJob was handed back after its lease expired,
+     * in which case the job has already been put back to be crawled again and the
+     * result is discarded.
+     * A job that keeps appearing here is taking longer than the lease duration.
+     * 
+     * @param job The CrawlJob.
+     */
+    private void leaseExpired(CrawlJob job) {
+        theLogger.log(Level.WARNING, "Discarding the result of " + job + ", which was finished after its lease of "
+                + leaseDuration + " ms expired.");
+    }
+
+    /**
+     * Puts a CrawlJob whose lease has been claimed back into its shard to be
+     * released again.
+     * 
+     * @param job The CrawlJob.
+     */
+    private void putBack(CrawlJob job) {
+        if (getShard(job.getURL().getHost()).returnJob(job)) {
+            scheduleChanged();
+        }
+        if (unfinishedWork.decrementAndGet() == 0) {
+            scheduleChanged();
+        }
+    }
+
+    /**
+     * Puts every CrawlJob whose lease has expired back into its shard, if it is
+     * time to look for them.
+     * Looking is spread out so that it costs little, at the price of noticing an
+     * expired lease up to a quarter of the lease duration late.
+     * 
+     * @param now The current time (from System.currentTimeMillis()).
+     */
+    private void reapExpiredLeases(long now) {
+        long reapTime = nextReapTime.get();
+        long duration = leaseDuration;
+        if (now >= reapTime && nextReapTime.compareAndSet(reapTime, now + Math.max(1, duration / 4))) {
+            for (Map.Entry<CrawlJob, Long> lease : leases.entrySet()) {
+                if (lease.getValue() + duration <= now && leases.remove(lease.getKey(), lease.getValue())) {
+                    putBack(lease.getKey());
+                }
+            }
         }
-        futureJobs.get(host).add(job);
+    }
+
+    /**
+     * Waits until the schedule changes, the earliest scheduled host becomes
+     * eligible, or it is time to look for expired leases, unless the schedule has
+     * already changed.
+     * 
+     * @param version      The value of scheduleVersion when the caller last looked
+     *                     at the shards.
+     * @param earliestTime The earliest time (from System.currentTimeMillis()) at
+     *                     which some host will be eligible, or Long.MAX_VALUE if
+     *                     none is scheduled.
+     * @param now          The current time (from System.currentTimeMillis()).
+     */
+    private void awaitSchedule(long version, long earliestTime, long now) {
+        // If nothing is scheduled, we wait until a job in flight adds or releases a host.
+        long neededDelay = earliestTime == Long.MAX_VALUE ? 0 : Math.max(1, earliestTime - now);
+        if (!leases.isEmpty()) {
+            long untilReap = Math.max(1, nextReapTime.get() - now);
+            neededDelay = neededDelay == 0 ? untilReap : Math.min(neededDelay, untilReap);
+        }
+        synchronized (scheduleMonitor) {
+            if (version == scheduleVersion) {
+                try {
+                    scheduleMonitor.wait(neededDelay);
+                } catch (InterruptedException e) {
+                    // That's OK, we will just re-enter the loop if necessary.
+                }
+            }
+        }
+    }
+
+    /**
+     * Wakes any threads waiting in {@link #getJob()}, since a newly scheduled host
+     * may be eligible sooner than the one they are waiting for, or the crawl may
+     * be complete.
+     */
+    private void scheduleChanged() {
+        synchronized (scheduleMonitor) {
+            scheduleVersion++;
+            scheduleMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the FrontierShard responsible for a host.
+     * 
+     * @param host The name of the host.
+     * @return The FrontierShard that holds CrawlJobs for that host.
+     */
+    private FrontierShard getShard(String host) {
+        return shards[Math.floorMod(host.hashCode(), shards.length)];
     }
 
 }
@@ -1,10 +1,16 @@
 package edu.millersville.csci406.spring2023;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
 import java.net.URLConnection;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
@@ -12,14 +18,99 @@ import org.jsoup.nodes.Document;
 /**
  * An implementation of URLReader. Takes a URL and returns a document from said URL. If a connection
  * cannot be established to the URL null is returned.
+ * Every request has timeouts, and an HTML body is cut off once it is longer than a maximum size.
+ * The first bytes of an HTML body are checked before it is parsed, so that one that is not really
+ * HTML is dropped without downloading the rest.
  */
 public class NetworkURLReader implements URLReader {
 
+    /** The longest time in milliseconds to wait for a connection to a host by default. */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+    /** The longest time in milliseconds to wait for more of a robots.txt file by default. */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    /** The longest time in milliseconds to spend fetching an HTML file by default. */
+    public static final int DEFAULT_TOTAL_TIMEOUT = 60000;
+
+    /** The largest number of bytes of an HTML file to keep by default. */
+    public static final int DEFAULT_MAX_BODY_SIZE = 4 * 1024 * 1024;
+
+    /** The longest time in milliseconds to wait for a connection to a host. */
+    private final int connectTimeout;
+
+    /** The longest time in milliseconds to wait for more of a robots.txt file. */
+    private final int readTimeout;
+
+    /** The longest time in milliseconds to spend fetching an HTML file. */
+    private final int totalTimeout;
+
+    /** The largest number of bytes of an HTML file to keep. */
+    private final int maxBodySize;
+
+    /** The extractor of links from the HTML files that are fetched. */
+    private final HtmlLinkExtractor linkExtractor;
+
+    /**
+     * Constructs a NetworkURLReader with the default timeouts and maximum body size.
+     */
+    public NetworkURLReader() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_TOTAL_TIMEOUT, DEFAULT_MAX_BODY_SIZE);
+    }
+
+    /**
+     * Constructs a NetworkURLReader. jsoup only offers one timeout for connecting and reading
+     * a whole HTML file, so the connect and read timeouts only apply to robots.txt files.
+     * 
+     * @param connectTimeout The longest time in milliseconds to wait for a connection to a host.
+     * @param readTimeout    The longest time in milliseconds to wait for more of a robots.txt file.
+     * @param totalTimeout   The longest time in milliseconds to spend fetching an HTML file.
+     * @param maxBodySize    The largest number of bytes of an HTML file to keep, after which the
+     *                       rest is not downloaded.
+     */
+    public NetworkURLReader(int connectTimeout, int readTimeout, int totalTimeout, int maxBodySize) {
+        if (maxBodySize < 1) {
+            throw new IllegalArgumentException("The maximum body size must be at least one byte.");
+        }
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.totalTimeout = totalTimeout;
+        this.maxBodySize = maxBodySize;
+        this.linkExtractor = new HtmlLinkExtractor();
+    }
+
+    @Override
+    public Reader readRobotsTxtFile(CrawlURL url) {
+        try {
+            URLConnection connection = url.toURL().openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            // RFC 9309 says that robots.txt files are UTF-8.
+            return new InputStreamReader(new BufferedInputStream(connection.getInputStream()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Opens the sitemap file with the same timeouts as a robots.txt file. No more than the
+     * maximum body size of it is read, and SitemapParser decompresses it if it is gzipped.
+     * 
+     * @param url The url of the sitemap file.
+     * @return A stream of the file, or null if a connection could not be established.
+     */
     @Override
-    public Scanner readRobotsTxtFile(URL url) {
+    public InputStream readSitemapFile(CrawlURL url) {
         try {
-            Scanner sc = new Scanner(new BufferedInputStream(url.openStream()));
-            return sc;
+            URLConnection connection = url.toURL().openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", USER_AGENT);
+            try (InputStream body = connection.getInputStream()) {
+                return new ByteArrayInputStream(body.readNBytes(maxBodySize));
+            }
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -27,23 +118,118 @@ public class NetworkURLReader implements URLReader {
     }
 
     /**
+     * Makes a single request for the file, checks the Content-Type of the response and the
+     * first bytes of its body, and only then parses the body as it streams in.
+     * 
      * @param url The url of the HTML file we want to establish connection to.
      * @return A document made from the url, or null if the document is unreadable or a connection
      * could not be established. 
      */
     @Override
-    public Document readHTMLFile(URL url) {
+    public Document readHTMLFile(CrawlURL url) {
         try {
-            URLConnection con = url.openConnection();
-
-            if (con.getContentType() == null || !con.getContentType().contains("html")) {
+            // We check the Content-Type ourselves, since jsoup would also accept XML.
+            Connection.Response response = connect(url).execute();
+            String contentType = response.contentType();
+            if (contentType == null || !contentType.contains("html")) {
+                // Closing the unread body lets the connection go without downloading it.
+                response.bodyStream().close();
+                return null;
+            }
+            BufferedInputStream body = new BufferedInputStream(response.bodyStream());
+            body.mark(HtmlSniffer.SNIFF_LENGTH);
+            byte[] prefix = body.readNBytes(HtmlSniffer.SNIFF_LENGTH);
+            body.reset();
+            if (HtmlSniffer.looksBinary(prefix)) {
+                body.close();
                 return null;
             }
-            Document doc = Jsoup.connect(url.toString()).get();
-            return doc;
+            // Links are relative to the URL that was finally fetched, after any redirects.
+            return Jsoup.parse(body, response.charset(), response.url().toString());
         } catch (IOException e) {
             return null;
         }
 
     }
+
+    /**
+     * Sends the ETag and Last-Modified date from the last crawl with the request, so that an
+     * unchanged file costs a 304 response with no body. A file that comes back anyway is only
+     * parsed if its hash differs from the last crawl.
+     * 
+     * @param url The url of the HTML file we want to establish connection to.
+     * @param validators What was learned about the file when it was last crawled, or null.
+     * @return The outcome of fetching the file.
+     */
+    @Override
+    public HtmlFetch readHTMLFile(CrawlURL url, Validators validators) {
+        try {
+            Connection connection = connect(url);
+            if (validators != null && validators.getEtag() != null) {
+                connection.header("If-None-Match", validators.getEtag());
+            }
+            if (validators != null && validators.getLastModified() != null) {
+                connection.header("If-Modified-Since", validators.getLastModified());
+            }
+            Connection.Response response = connection.execute();
+            if (response.statusCode() == 304 && validators != null) {
+                return new HtmlFetch(null, true, validators.revalidated(response.header("ETag"), response.header("Last-Modified")));
+            }
+            String contentType = response.contentType();
+            if (response.statusCode() != 200 || contentType == null || !contentType.contains("html")) {
+                response.bodyStream().close();
+                return new HtmlFetch(null, false, null, response.statusCode() >= 500);
+            }
+            // The first bytes are checked before the rest is read, so that a binary file is dropped early.
+            byte[] body;
+            try (BufferedInputStream stream = new BufferedInputStream(response.bodyStream())) {
+                stream.mark(HtmlSniffer.SNIFF_LENGTH);
+                byte[] prefix = stream.readNBytes(HtmlSniffer.SNIFF_LENGTH);
+                stream.reset();
+                if (HtmlSniffer.looksBinary(prefix)) {
+                    return new HtmlFetch(null, false, null);
+                }
+                body = stream.readNBytes(maxBodySize);
+            }
+            Validators newValidators = new Validators(response.header("ETag"), response.header("Last-Modified"), Validators.hash(body));
+            if (validators != null && validators.hasSameContent(newValidators)) {
+                return new HtmlFetch(null, true, newValidators);
+            }
+            return new HtmlFetch(linkExtractor.extract(body, response.charset(), finalURL(response, url)), false, newValidators);
+        } catch (HttpStatusException e) {
+            return new HtmlFetch(null, false, null, e.getStatusCode() >= 500);
+        } catch (IOException e) {
+            return new HtmlFetch(null, false, null, true);
+        }
+    }
+
+    /**
+     * Finds the URL that a response finally came from, after any redirects, against which its
+     * links are resolved.
+     * 
+     * @param response The response.
+     * @param url The URL that was requested.
+     * @return The final URL, or the requested one if the final one cannot be stored.
+     */
+    private static CrawlURL finalURL(Connection.Response response, CrawlURL url) {
+        CrawlURL returnValue = url;
+        try {
+            returnValue = new CrawlURL(response.url().getProtocol(), response.url().getHost(), response.url().getFile());
+        } catch (MalformedURLException e) {
+            // The requested URL is the best we have.
+        }
+        return returnValue;
+    }
+
+    /**
+     * Prepares a request for a file with the crawler's User-Agent, the total timeout and the maximum
+     * body size.
+     * 
+     * @param url The url of the file.
+     * @return A jsoup Connection that accepts any Content-Type, so that we can check it ourselves.
+     */
+    private Connection connect(CrawlURL url) {
+        return Jsoup.connect(url.toString()).userAgent(USER_AGENT).ignoreContentType(true).timeout(totalTimeout)
+                .maxBodySize(maxBodySize);
+    }
 }
\ No newline at end of file
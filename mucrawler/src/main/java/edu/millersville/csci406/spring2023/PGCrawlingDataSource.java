@@ -1,17 +1,25 @@
 package edu.millersville.csci406.spring2023;
 
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,33 +45,53 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 	private static enum DatabaseCommand {
 
 		/** Gets a list of all URLs that have not yet been crawled. */
-		GET_URLS_TO_CRAWL("SELECT url_id, protocol, host_name, path FROM url NATURAL JOIN host WHERE when_crawled IS NULL"),
-		/** Gets the longest matching robots.txt rule for a URL. */
-		GET_LONGEST_ROBOTS_RULE("SELECT path_prefix, directive FROM robots_txt_rule NATURAL JOIN host WHERE protocol = ? AND host_name = ? AND ? LIKE path_prefix || '%' ORDER BY CHAR_LENGTH(path_prefix) DESC LIMIT 1"),
+		GET_URLS_TO_CRAWL("SELECT url_id, protocol, host_name, path, etag, last_modified, content_hash FROM url NATURAL JOIN host WHERE when_crawled IS NULL"),
+		/** Gets a page of URLs that have not yet been crawled, in order of ID. */
+		GET_URLS_TO_CRAWL_PAGE("SELECT url_id, protocol, host_name, path, etag, last_modified, content_hash FROM url NATURAL JOIN host WHERE when_crawled IS NULL AND url_id > ? ORDER BY url_id LIMIT ?"),
+		/** Gets the URLs on a host that have not yet been crawled and should be crawled first, in the same order as CrawlJob.compareTo. */
+		GET_URLS_TO_CRAWL_FOR_HOST("SELECT url_id, protocol, host_name, path, etag, last_modified, content_hash FROM url NATURAL JOIN host WHERE when_crawled IS NULL AND host_name = ? ORDER BY LOWER(path) = '/robots.txt' DESC, protocol = 'http' DESC, url_id LIMIT ?"),
+		/** Gets all of the robots.txt rules for a protocol and host. */
+		GET_ROBOTS_TXT_RULES("SELECT path_prefix, directive FROM robots_txt_rule NATURAL JOIN host WHERE protocol = ? AND host_name = ?"),
+		/** Gets the ID and crawl time (if there is one) of the robots.txt file for a protocol and host. */
+		GET_ROBOTS_TXT_URL("SELECT url_id, when_crawled FROM url NATURAL JOIN host WHERE protocol = ? AND host_name = ? AND path = '/robots.txt'"),
+		/** Deletes the rules from an earlier crawl of a robots.txt file. */
+		DELETE_ROBOTS_TXT_RULES("DELETE FROM robots_txt_rule WHERE protocol = ? AND host_id = ?"),
 		/** Adds a new rule from a robots.txt file. */
 		ADD_ROBOTS_TXT_RULE("INSERT INTO robots_txt_rule (protocol, host_id, path_prefix, directive) VALUES (?, ?, ?, ?)"),
 		/** Gets the host_id matching a host_name. */
 		GET_HOST_ID_FROM_NAME("SELECT host_id FROM host WHERE host_name = ?"),
-		/** Gets a list of all URLs that should not be crawled due to robots.txt rules. */
-		GET_DISALLOWED_URLS("SELECT url_id, path FROM url WHERE protocol = ? AND host_id = ? AND (SELECT directive FROM robots_txt_rule WHERE protocol = url.protocol AND host_id = url.host_id AND path LIKE path_prefix || '%' ORDER BY CHAR_LENGTH(path_prefix) DESC LIMIT 1) = false"),
+		/** Gets the host_id and host_name of every host. */
+		GET_ALL_HOSTS("SELECT host_id, host_name FROM host"),
+		/** Gets a list of all URLs with a protocol and host, so that they can be checked against robots.txt rules. */
+		GET_URLS_FOR_PROTOCOL_AND_HOST("SELECT url_id, path FROM url WHERE protocol = ? AND host_id = ?"),
 		/** Deletes a URL from the collection. */
 		DELETE_URL("DELETE FROM url WHERE url_id = ?"),
-		/** Adds a new URL to the collection. */
-		ADD_URL("INSERT INTO url (url_id, protocol, host_id, path, when_crawled) VALUES (DEFAULT, ?, ?, ?, NULL) RETURNING url_id"),
-		/** Gets the ID (if there is one) of a URL. */
-		GET_ID_FOR_URL("SELECT url_id FROM url NATURAL JOIN host WHERE protocol = ? AND host_name = ? AND path = ?"),
+		/** Adds those of a list of URLs, given as parallel lists of protocols, host IDs and paths, that are not already in the collection, in order, returning the ones that were added. */
+		ADD_URLS_FOR_HOSTS("INSERT INTO url (protocol, host_id, path, when_crawled) SELECT new_url.protocol, new_url.host_id, new_url.path, NULL FROM UNNEST(?::TEXT[], ?::INTEGER[], ?::TEXT[]) WITH ORDINALITY AS new_url (protocol, host_id, path, position) ORDER BY new_url.position ON CONFLICT (protocol, host_id, path) DO NOTHING RETURNING url_id, protocol, host_id, path"),
+		/** Adds those of a list of paths on a protocol and host that are not already in the collection, returning the ones that were added. */
+		ADD_URLS("INSERT INTO url (protocol, host_id, path, when_crawled) SELECT ?, ?, UNNEST(?::TEXT[]), NULL ON CONFLICT (protocol, host_id, path) DO NOTHING RETURNING url_id, path"),
+		/** Marks every URL with a document on a protocol and host that was crawled before the time paired with its path as not yet crawled, returning them. */
+		SCHEDULE_CHANGED_URLS("UPDATE url SET when_crawled = NULL FROM UNNEST(?::TEXT[], ?::TIMESTAMP[]) AS sitemap (path, last_modified) WHERE url.protocol = ? AND url.host_id = ? AND url.path = sitemap.path AND url.when_crawled < sitemap.last_modified AND url.url_id IN (SELECT url_id FROM document) RETURNING url.url_id, url.path, url.etag, url.last_modified, url.content_hash"),
+		/** Gets every URL in the collection. */
+		GET_ALL_URLS("SELECT protocol, host_name, path FROM url NATURAL JOIN host"),
 		/** Gets the set of white-listed host name suffixes. */
 		GET_HOST_WHITELIST("SELECT host_suffix FROM host_whitelist"),
 		/** Gets the set of black-listed host names. */
 		GET_HOST_BLACKLIST("SELECT host_name FROM host_blacklist"),
 		/** Gets the set of black-listed file extensions. */
 		GET_EXTENSION_BLACKLIST("SELECT extension FROM extension_blacklist"),
-		/** Creates a new document for a certain URL. */
-		CREATE_DOCUMENT("INSERT INTO document (url_id, content) VALUES (?, ?)"),
-		/** Creates a new host and returns its ID. */
-		ADD_HOST("INSERT INTO host (host_id, host_name) VALUES (DEFAULT, ?) RETURNING host_id"),
+		/** Creates a new document for a certain URL, or replaces the content of the one from an earlier crawl. */
+		CREATE_DOCUMENT("INSERT INTO document (url_id, content) VALUES (?, ?) ON CONFLICT (url_id) DO UPDATE SET content = EXCLUDED.content"),
+		/** Creates a new host and returns its ID, or returns the ID of the host if something else has already created it. */
+		ADD_HOST("INSERT INTO host (host_id, host_name) VALUES (DEFAULT, ?) ON CONFLICT (host_name) DO UPDATE SET host_name = EXCLUDED.host_name RETURNING host_id"),
 		/** Update the crawl time on a URL. */
 		SET_CRAWL_TIME("UPDATE url SET when_crawled = NOW() WHERE url_id = ?"),
+		/** Update the crawl time on a URL and the validators that were learned by crawling it. */
+		SET_CRAWL_TIME_AND_VALIDATORS("UPDATE url SET when_crawled = NOW(), etag = ?, last_modified = ?, content_hash = ? WHERE url_id = ?"),
+		/** Marks every URL with a document that was crawled before some number of milliseconds ago as not yet crawled. */
+		SCHEDULE_RECRAWL("UPDATE url SET when_crawled = NULL WHERE when_crawled < NOW() - ? * INTERVAL '1 millisecond' AND url_id IN (SELECT url_id FROM document)"),
+		/** Marks a single URL as not yet crawled. */
+		CLEAR_CRAWL_TIME("UPDATE url SET when_crawled = NULL WHERE url_id = ?"),
 		;
 		
 		/** The actual text used to create a PreparedStatement of this DatabaseCommand. */
@@ -87,6 +115,27 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 			return commandString;
 		}
 	}
+
+	/**
+	 * A URL that was added to or removed from the set of known URLs by a change that has not yet been committed, so that it can be undone if the change is rolled back.
+	 */
+	private static class KnownUrlChange {
+		/** The URL. */
+		private final CrawlURL url;
+		/** True if the URL was added, or false if it was removed. */
+		private final boolean added;
+
+		/**
+		 * Constructs a KnownUrlChange.
+		 * 
+		 * @param url The URL.
+		 * @param added True if the URL was added, or false if it was removed.
+		 */
+		private KnownUrlChange(CrawlURL url, boolean added) {
+			this.url = url;
+			this.added = added;
+		}
+	}
 	
 	/** A connection to the database. */
 	private Connection conn;
@@ -115,6 +164,47 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 	 */
 	private Set<String> extensionBlacklist;
 
+	/**
+	 * The compiled robots.txt rules of each protocol and host that links have been found to, so that each link can be checked without a database query.
+	 * The rules of a host are loaded when a link to it is first found, and replaced whenever its robots.txt file is crawled.
+	 */
+	private RobotsCache robotsCache;
+
+	/**
+	 * The fingerprints of every URL in the collection, so that links to URLs that are already there can be skipped without a database query.
+	 * This set is lazily instantiated in {@link PGCrawlingDataSource#loadKnownUrls()}, and kept up to date as URLs are added and deleted, undoing what a change did to it if the change is rolled back.
+	 * A URL that is not in it is added with ON CONFLICT DO NOTHING, in case something else has added it.
+	 * If it fills up, it stops taking new URLs, and links to those are left for ON CONFLICT DO NOTHING to skip.
+	 */
+	private URLFingerprintSet knownUrls;
+
+	/** The largest number of slots that the table of known URLs may have. */
+	private final int knownUrlCapacity;
+
+	/** Whether or not it has been logged that the known URLs are full. */
+	private boolean knownUrlsFullLogged;
+
+	/** Whether or not the known URLs were loaded during the current batch, and so may include URLs that the batch added but has not committed. */
+	private boolean knownUrlsFromBatch;
+
+	/** What the change in progress has done to the known URLs, in order. */
+	private List<KnownUrlChange> changeJournal;
+
+	/** What the finished changes of the current batch have done to the known URLs, in order, which is undone if the batch cannot be committed. */
+	private List<KnownUrlChange> batchJournal;
+
+	/**
+	 * The ID of every host, by name, so that finding a host's ID is not a database query.
+	 * This map is lazily instantiated in {@link PGCrawlingDataSource#loadHostIds()}, and a host is added to it when it is first looked up or created.
+	 */
+	private Map<String, Integer> hostIds;
+
+	/**
+	 * Whether or not a batch has been begun and not yet ended, during which changes are only committed by {@link PGCrawlingDataSource#endBatch()}.
+	 * Outside of a batch, each change is committed as it finishes.
+	 */
+	private boolean inBatch;
+
 	/**
 	 * Constructs a new DatabaseDataSource.
 	 * 
@@ -126,12 +216,55 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 	 * @throws SQLException If we cannot create a connection or set a schema.
 	 */
 	public PGCrawlingDataSource(String hostName, String database, String user, String password, String schema) throws SQLException {
+		this(hostName, database, user, password, schema, RobotsCache.DEFAULT_TTL);
+	}
+
+	/**
+	 * Constructs a new DatabaseDataSource that crawls each robots.txt file again once its rules are a certain age.
+	 * 
+	 * @param hostName The name of the host to which we should connect.
+	 * @param database The database to which we should connect.
+	 * @param user The name of the user with which we should connect.
+	 * @param password The password with which we should connect.
+	 * @param schema The database schema is which we should work.
+	 * @param robotsTtl The number of milliseconds after a robots.txt file is crawled at which its rules expire.
+	 * @throws SQLException If we cannot create a connection or set a schema.
+	 */
+	public PGCrawlingDataSource(String hostName, String database, String user, String password, String schema, long robotsTtl) throws SQLException {
+		this(hostName, database, user, password, schema, robotsTtl, URLFingerprintSet.DEFAULT_MAX_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new DatabaseDataSource that crawls each robots.txt file again once its rules are a certain age, and limits the memory used to remember which URLs are in the collection.
+	 * 
+	 * @param hostName The name of the host to which we should connect.
+	 * @param database The database to which we should connect.
+	 * @param user The name of the user with which we should connect.
+	 * @param password The password with which we should connect.
+	 * @param schema The database schema is which we should work.
+	 * @param robotsTtl The number of milliseconds after a robots.txt file is crawled at which its rules expire.
+	 * @param knownUrlCapacity The largest number of slots, of 8 bytes each, in the table of known URLs, which must be a power of two no larger than URLFingerprintSet.MAX_CAPACITY.
+	 * @throws SQLException If we cannot create a connection or set a schema.
+	 */
+	public PGCrawlingDataSource(String hostName, String database, String user, String password, String schema, long robotsTtl, int knownUrlCapacity) throws SQLException {
+		if(Integer.bitCount(knownUrlCapacity) != 1 || knownUrlCapacity > URLFingerprintSet.MAX_CAPACITY) {
+			throw new IllegalArgumentException("The capacity for known URLs must be a power of two no larger than " + URLFingerprintSet.MAX_CAPACITY + ".");
+		}
 		conn = DriverManager.getConnection("jdbc:postgresql://" + hostName + "/" + database, user, password);
 		conn.setSchema(schema);
 		statements = new HashMap<>();
 		hostWhitelist = null;
 		hostBlacklist = null;
 		extensionBlacklist = null;
+		robotsCache = new RobotsCache(robotsTtl);
+		knownUrls = null;
+		this.knownUrlCapacity = knownUrlCapacity;
+		knownUrlsFullLogged = false;
+		knownUrlsFromBatch = false;
+		changeJournal = new ArrayList<>();
+		batchJournal = new ArrayList<>();
+		hostIds = null;
+		inBatch = false;
 	}
 	
 	@Override
@@ -163,6 +296,187 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 	}
 
 
+	/**
+	 * Reads a CrawlJob from the current row of the results of one of the GET_URLS_TO_CRAWL commands.
+	 * 
+	 * @param results The results, positioned on a row.
+	 * @return The CrawlJob, with the Validators from the last crawl if its URL has been crawled before.
+	 * @throws SQLException If the row cannot be read.
+	 * @throws MalformedURLException If the row does not hold a valid URL.
+	 */
+	private static CrawlJob readCrawlJob(ResultSet results) throws SQLException, MalformedURLException {
+		CrawlURL url = new CrawlURL(results.getString(2), results.getString(3), results.getString(4));
+		String etag = results.getString(5);
+		String lastModified = results.getString(6);
+		String contentHash = results.getString(7);
+		Validators validators = null;
+		if(etag != null || lastModified != null || contentHash != null) {
+			validators = new Validators(etag, lastModified, contentHash);
+		}
+		return new CrawlJob(results.getInt(1), url, validators);
+	}
+
+	@Override
+	public void beginBatch() throws DataSourceException {
+		if(inBatch) {
+			throw new IllegalStateException("A batch has already been begun.");
+		}
+		try {
+			conn.setAutoCommit(false);
+			inBatch = true;
+		}
+		catch(SQLException exception) {
+			throw new DataSourceException(exception);
+		}
+	}
+
+	@Override
+	public void endBatch() throws DataSourceException {
+		if(!inBatch) {
+			throw new IllegalStateException("No batch has been begun.");
+		}
+		inBatch = false;
+		try {
+			conn.commit();
+			conn.setAutoCommit(true);
+			batchJournal.clear();
+			knownUrlsFromBatch = false;
+		}
+		catch(SQLException exception) {
+			rollbackChange(null);
+			throw new DataSourceException(exception);
+		}
+	}
+
+	/**
+	 * Starts a change that must be saved all at once or not at all.
+	 * Outside of a batch this begins a transaction, and inside one it sets a savepoint so that the change can be undone without undoing the rest of the batch.
+	 * 
+	 * @return The savepoint, or null if a transaction was begun.
+	 * @throws SQLException If the transaction or savepoint cannot be begun.
+	 */
+	private Savepoint beginChange() throws SQLException {
+		Savepoint returnValue = null;
+		changeJournal.clear();
+		if(inBatch) {
+			returnValue = conn.setSavepoint();
+		}
+		else {
+			conn.setAutoCommit(false);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finishes a change begun by {@link PGCrawlingDataSource#beginChange()}.
+	 * Outside of a batch this commits it, and inside one it is only committed with the rest of the batch.
+	 * 
+	 * @param savepoint The savepoint that was set for the change, or null if it has its own transaction.
+	 * @throws SQLException If the change cannot be committed.
+	 */
+	private void commitChange(Savepoint savepoint) throws SQLException {
+		if(inBatch) {
+			conn.releaseSavepoint(savepoint);
+			batchJournal.addAll(changeJournal);
+		}
+		else {
+			conn.commit();
+			conn.setAutoCommit(true);
+		}
+		changeJournal.clear();
+	}
+
+	/**
+	 * Undoes a change that failed, along with whatever it did to the known URLs, and forgets the cached hosts and robots.txt rules, because some of them may have been learned from it.
+	 * They will be loaded again from the database when they are next needed.
+	 * If this is not in a batch, whatever the last batch did to the known URLs is undone as well, since this is also how a batch that could not be committed is undone.
+	 * 
+	 * @param savepoint The savepoint that was set for the change, or null if it has its own transaction or none was set.
+	 */
+	private void rollbackChange(Savepoint savepoint) {
+		try {
+			if(inBatch) {
+				// If no savepoint could be set, the batch cannot be saved anyway.
+				if(savepoint != null) {
+					conn.rollback(savepoint);
+				}
+			}
+			else {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+		}
+		catch(SQLException exception) {
+			theLogger.log(Level.WARNING, "Failed to roll back a change", exception);
+		}
+		undo(changeJournal);
+		if(!inBatch) {
+			undo(batchJournal);
+			// URLs loaded from the database during the batch may include some that it added.
+			if(knownUrlsFromBatch) {
+				knownUrls = null;
+				knownUrlsFromBatch = false;
+			}
+		}
+		hostIds = null;
+		robotsCache.clear();
+	}
+
+	/**
+	 * Undoes what some changes did to the known URLs, latest first, and empties the journal.
+	 * 
+	 * @param journal What the changes did, in order.
+	 */
+	private void undo(List<KnownUrlChange> journal) {
+		if(knownUrls != null) {
+			for(int index = journal.size() - 1; index >= 0; index--) {
+				KnownUrlChange change = journal.get(index);
+				if(change.added) {
+					knownUrls.remove(change.url);
+				}
+				else {
+					knownUrls.add(change.url);
+				}
+			}
+		}
+		journal.clear();
+	}
+
+	/**
+	 * Adds a URL to the known URLs, which must have been loaded, recording it so that it can be undone.
+	 * 
+	 * @param url The URL, which is in the collection or will be once the change in progress is committed.
+	 */
+	private void addKnownUrl(CrawlURL url) {
+		if(knownUrls.add(url)) {
+			changeJournal.add(new KnownUrlChange(url, true));
+		}
+		else {
+			logIfKnownUrlsFull();
+		}
+	}
+
+	/**
+	 * Logs that the known URLs are full, the first time that they are found to be.
+	 */
+	private void logIfKnownUrlsFull() {
+		if(!knownUrlsFullLogged && knownUrls.isFull()) {
+			knownUrlsFullLogged = true;
+			theLogger.log(Level.WARNING, "The known URLs are full at " + knownUrls.size() + " URLs, so links to any others will be checked by the database");
+		}
+	}
+
+	/**
+	 * Removes a URL from the known URLs, if they have been loaded, recording it so that it can be undone.
+	 * 
+	 * @param url The URL, which has been deleted from the collection by the change in progress.
+	 */
+	private void removeKnownUrl(CrawlURL url) {
+		if(knownUrls != null && knownUrls.remove(url)) {
+			changeJournal.add(new KnownUrlChange(url, false));
+		}
+	}
+
 	@Override
 	public Set<CrawlJob> getURLsToCrawl() throws DataSourceException {
 		Set<CrawlJob> urls = new HashSet<>();
@@ -170,7 +484,7 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 			PreparedStatement stmt = getStatement(DatabaseCommand.GET_URLS_TO_CRAWL);
 			try (ResultSet results = stmt.executeQuery();) {
 				while(results.next()) {
-					urls.add(new CrawlJob(results.getInt(1), new URL(results.getString(2), results.getString(3), results.getString(4))));
+					urls.add(readCrawlJob(results));
 				}
 			}
 		}
@@ -181,6 +495,44 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 		return urls;
 	}
 
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(int afterId, int limit) throws DataSourceException {
+		Set<CrawlJob> urls = new HashSet<>();
+		try {
+			PreparedStatement stmt = getStatement(DatabaseCommand.GET_URLS_TO_CRAWL_PAGE);
+			stmt.setInt(1, afterId);
+			stmt.setInt(2, limit);
+			try (ResultSet results = stmt.executeQuery();) {
+				while(results.next()) {
+					urls.add(readCrawlJob(results));
+				}
+			}
+		}
+		catch(SQLException | MalformedURLException exception) {
+			throw new DataSourceException(exception);
+		}
+		return urls;
+	}
+
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(String hostName, int limit) throws DataSourceException {
+		Set<CrawlJob> urls = new HashSet<>();
+		try {
+			PreparedStatement stmt = getStatement(DatabaseCommand.GET_URLS_TO_CRAWL_FOR_HOST);
+			stmt.setString(1, hostName);
+			stmt.setInt(2, limit);
+			try (ResultSet results = stmt.executeQuery();) {
+				while(results.next()) {
+					urls.add(readCrawlJob(results));
+				}
+			}
+		}
+		catch(SQLException | MalformedURLException exception) {
+			throw new DataSourceException(exception);
+		}
+		return urls;
+	}
+
 	@Override
 	public Set<CrawlJob> finishCrawlingRobotsFile(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException {
 		Set<CrawlJob> deletedJobs = new HashSet<>();
@@ -200,15 +552,28 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 			newRules.add(new RobotsRule(protocol, hostName, "/", true));
 		}
 		
+		Savepoint savepoint = null;
+		boolean saved = false;
 		try {
+			savepoint = beginChange();
 			// First, just get the ID of the affected host, since many other tables will use it.
-			PreparedStatement stmtGetHostId = getStatement(DatabaseCommand.GET_HOST_ID_FROM_NAME);
-			stmtGetHostId.setString(1, hostName);
-			int hostId;
-			try (ResultSet resultsGetHostId = stmtGetHostId.executeQuery();) {
-				resultsGetHostId.next();
-				hostId = resultsGetHostId.getInt(1);
+			// The host must already exist, because its robots.txt file does, so it is never created here.
+			loadHostIds();
+			Integer hostId = hostIds.get(hostName);
+			if(hostId == null) {
+				PreparedStatement stmtGetHostId = getStatement(DatabaseCommand.GET_HOST_ID_FROM_NAME);
+				stmtGetHostId.setString(1, hostName);
+				try (ResultSet resultsGetHostId = stmtGetHostId.executeQuery();) {
+					resultsGetHostId.next();
+					hostId = resultsGetHostId.getInt(1);
+				}
+				hostIds.put(hostName, hostId);
 			}
+			// Forget the rules from any earlier crawl of this robots.txt file.
+			PreparedStatement stmtDeleteRules = getStatement(DatabaseCommand.DELETE_ROBOTS_TXT_RULES);
+			stmtDeleteRules.setString(1, protocol);
+			stmtDeleteRules.setInt(2, hostId);
+			stmtDeleteRules.executeUpdate();
 			// Now go through and add all of the new robots.txt rules to the database.
 			PreparedStatement stmtAddRule = getStatement(DatabaseCommand.ADD_ROBOTS_TXT_RULE);
 			for(RobotsRule newRule : newRules) {
@@ -219,71 +584,67 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 				stmtAddRule.executeUpdate();
 			}
 			// Now record and delete every existing URL that is disallowed by the new rules we just added.
-			PreparedStatement stmtGetDisallowedUrls = getStatement(DatabaseCommand.GET_DISALLOWED_URLS);
-			stmtGetDisallowedUrls.setString(1, protocol);
-			stmtGetDisallowedUrls.setInt(2, hostId);
+			RobotsRuleSet ruleSet = new RobotsRuleSet(newRules);
+			PreparedStatement stmtGetUrls = getStatement(DatabaseCommand.GET_URLS_FOR_PROTOCOL_AND_HOST);
+			stmtGetUrls.setString(1, protocol);
+			stmtGetUrls.setInt(2, hostId);
 			PreparedStatement stmtDeleteUrl = getStatement(DatabaseCommand.DELETE_URL);
-			try (ResultSet resultsGetDisallowedUrls = stmtGetDisallowedUrls.executeQuery();) {
-				while(resultsGetDisallowedUrls.next()) {
-					deletedJobs.add(new CrawlJob(resultsGetDisallowedUrls.getInt(1), new URL(protocol, hostName, resultsGetDisallowedUrls.getString(2))));
-					stmtDeleteUrl.setInt(1, resultsGetDisallowedUrls.getInt(1));
-					stmtDeleteUrl.executeUpdate();
+			try (ResultSet resultsGetUrls = stmtGetUrls.executeQuery();) {
+				while(resultsGetUrls.next()) {
+					String path = resultsGetUrls.getString(2);
+					// The robots.txt file itself is kept even if it is disallowed, so that it can be crawled again when its rules expire.
+					if(!path.equals("/robots.txt") && !ruleSet.isAllowed(path)) {
+						CrawlURL deletedUrl = new CrawlURL(protocol, hostName, path);
+						deletedJobs.add(new CrawlJob(resultsGetUrls.getInt(1), deletedUrl));
+						stmtDeleteUrl.setInt(1, resultsGetUrls.getInt(1));
+						stmtDeleteUrl.executeUpdate();
+						// It may be linked to again once the rules change, so it must not be skipped as known.
+						removeKnownUrl(deletedUrl);
+					}
 				}
 			}
 			// Now update the crawl time for the robots.txt file itself.
 			PreparedStatement stmtSetCrawlTime = getStatement(DatabaseCommand.SET_CRAWL_TIME);
 			stmtSetCrawlTime.setInt(1, job.getId());
 			stmtSetCrawlTime.executeUpdate();
+			commitChange(savepoint);
+			saved = true;
+			robotsCache.put(protocol, hostName, ruleSet, System.currentTimeMillis());
 		}
 		catch(SQLException | MalformedURLException exception) {
 			throw new DataSourceException(exception);
 		}
+		finally {
+			if(!saved) {
+				rollbackChange(savepoint);
+			}
+		}
 		return deletedJobs;
 	}
 
 	@Override
-	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException {
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
+		return finishCrawlingHtmlFile(job, newUrls, content, null);
+	}
+
+	@Override
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) throws DataSourceException {
 		Set<CrawlJob> newJobs = new HashSet<>();
+		Savepoint savepoint = null;
+		boolean saved = false;
 		try {
-			// We just want to get the whitelist once, to save time.
-			if(hostWhitelist == null) {
-				PreparedStatement stmtGetHostWhitelist = getStatement(DatabaseCommand.GET_HOST_WHITELIST);
-				hostWhitelist = new HashSet<>();
-				try(ResultSet resultsGetHostWhitelist = stmtGetHostWhitelist.executeQuery();) {
-					while(resultsGetHostWhitelist.next()) {
-						hostWhitelist.add(resultsGetHostWhitelist.getString(1));
-					}
-				}				
-			}
-			if(hostBlacklist == null) {
-				PreparedStatement stmtGetHostBlacklist = getStatement(DatabaseCommand.GET_HOST_BLACKLIST);
-				hostBlacklist = new HashSet<>();
-				try(ResultSet resultsGetHostBlacklist = stmtGetHostBlacklist.executeQuery();) {
-					while(resultsGetHostBlacklist.next()) {
-						hostBlacklist.add(resultsGetHostBlacklist.getString(1));
-					}
-				}
-			}
-			if(extensionBlacklist == null) {
-				PreparedStatement stmtGetExtensionBlacklist = getStatement(DatabaseCommand.GET_EXTENSION_BLACKLIST);
-				extensionBlacklist = new HashSet<>();
-				try(ResultSet resultsGetExtensionBlacklist = stmtGetExtensionBlacklist.executeQuery();) {
-					while(resultsGetExtensionBlacklist.next()) {
-						extensionBlacklist.add(resultsGetExtensionBlacklist.getString(1));
-					}
-				}
-			}
+			// Everything about this page is saved together, or not at all.
+			savepoint = beginChange();
+			loadFilterLists();
+			loadKnownUrls();
 			
-			PreparedStatement stmtGetLongestRobotsRule = getStatement(DatabaseCommand.GET_LONGEST_ROBOTS_RULE);
-			PreparedStatement stmtAddUrl = getStatement(DatabaseCommand.ADD_URL);
-			PreparedStatement stmtGetIdForUrl = getStatement(DatabaseCommand.GET_ID_FOR_URL);
 			PreparedStatement stmtCreateDocument = getStatement(DatabaseCommand.CREATE_DOCUMENT);
-			PreparedStatement stmtGetHostIdFromName = getStatement(DatabaseCommand.GET_HOST_ID_FROM_NAME);
-			PreparedStatement stmtAddHost = getStatement(DatabaseCommand.ADD_HOST);
-			PreparedStatement stmtSetCrawlTime = getStatement(DatabaseCommand.SET_CRAWL_TIME);
 			
-			for(URL newUrl : newUrls) {
-				boolean addUrl = true;
+			// The URLs to add are collected in the order in which they are found, so that they are numbered as if they were added one at a time.
+			Set<CrawlURL> urlsToAdd = new LinkedHashSet<>();
+			for(CrawlURL newUrl : newUrls) {
+				// Most links are to URLs that are already in the collection, which are skipped without asking the database.
+				boolean addUrl = !knownUrls.contains(newUrl);
 				boolean addRobots = false;
 				
 				// We only allow URLs whose protocols are "http" or "https".
@@ -291,119 +652,44 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 //					addUrl = false;
 //				}
 
-				// We are only interested in adding this URL if it does not already exist.
+				// We will only add this URL if its host is whitelisted and neither it nor its extension is blacklisted.
 				if(addUrl) {
-					stmtGetIdForUrl.setString(1, newUrl.getProtocol());
-					stmtGetIdForUrl.setString(2, newUrl.getHost());
-					stmtGetIdForUrl.setString(3, newUrl.getFile());
-					try(ResultSet resultsGetIdForUrl = stmtGetIdForUrl.executeQuery();) {
-						if(resultsGetIdForUrl.isBeforeFirst()) {
-							addUrl = false;
-						}
-					}
-				}
-				
-				// We will only add this URL if its host appears on the whitelist.
-				if(addUrl) {
-					boolean foundAMatch = false;
-					Iterator<String> iter = hostWhitelist.iterator();
-					while(!foundAMatch && iter.hasNext()) {
-						String hostSuffix = iter.next();
-						if(newUrl.getHost().equals(hostSuffix) || newUrl.getHost().endsWith("." + hostSuffix)) {
-							foundAMatch = true;
-						}
-					}
-					addUrl = foundAMatch;
-				}
-				
-				// We will only add this URL if its host does not appear on the blacklist.
-				if(addUrl) {
-					if(hostBlacklist.contains(newUrl.getHost())) {
-						addUrl = false;
-					}
-				}
-				
-				// We will only add this URL if its extension does not appear on the blacklist.
-				if(addUrl) {
-					boolean foundAMatch = false;
-					Iterator<String> iter = extensionBlacklist.iterator();
-					while(!foundAMatch && iter.hasNext()) {
-						String extension = iter.next();
-						if(newUrl.getFile().toLowerCase().endsWith(extension)) {
-							foundAMatch = true;
-						}
-					}
-					addUrl = !foundAMatch;
+					addUrl = passesFilters(newUrl);
 				}
 
 				// We will only add this URL if the longest matching robots.txt rule allows it or there are no robots.txt rules yet.
 				if(addUrl) {
-					stmtGetLongestRobotsRule.setString(1, newUrl.getProtocol());
-					stmtGetLongestRobotsRule.setString(2, newUrl.getHost());
-					stmtGetLongestRobotsRule.setString(3, newUrl.getFile());
-					try(ResultSet resultsGetLongestRobotsRule = stmtGetLongestRobotsRule.executeQuery();) {
-						if(resultsGetLongestRobotsRule.isBeforeFirst()) {
-							resultsGetLongestRobotsRule.next();
-							if(!resultsGetLongestRobotsRule.getBoolean(2)) {
-								addUrl = false;
-								theLogger.log(Level.INFO, "Disallowing " + newUrl + " because the longest matching rule was " + resultsGetLongestRobotsRule.getString(1));
-							}
-							else {
-								theLogger.log(Level.INFO, "Adding " + newUrl + " because the longest matching rule was " + resultsGetLongestRobotsRule.getString(1));
-							}
+					RobotsRule longestRule = getRobotsRuleSet(newUrl.getProtocol(), newUrl.getHost(), newJobs).getLongestMatch(newUrl.getFile());
+					if(longestRule != null) {
+						if(!longestRule.isAllowed()) {
+							addUrl = false;
+							theLogger.log(Level.INFO, "Disallowing " + newUrl + " because the longest matching rule was " + longestRule.getPathPrefix());
 						}
 						else {
-							// If there are no rules and no URL for the robots.txt file, we need to add one.
-							stmtGetIdForUrl.setString(1, newUrl.getProtocol());
-							stmtGetIdForUrl.setString(2, newUrl.getHost());
-							stmtGetIdForUrl.setString(3, "/robots.txt");
-							try(ResultSet resultsGetIdForUrl = stmtGetIdForUrl.executeQuery();) {
-								if(!resultsGetIdForUrl.isBeforeFirst()) {
-									addRobots = true;
-									theLogger.log(Level.INFO, "Adding a robots.txt file because there was no longest matching rule for " + newUrl);
-								}
-							}
+							theLogger.log(Level.INFO, "Adding " + newUrl + " because the longest matching rule was " + longestRule.getPathPrefix());
+						}
+					}
+					else {
+						// If there are no rules and no URL for the robots.txt file, we need to add one.
+						CrawlURL robotsUrl = new CrawlURL(newUrl.getProtocol(), newUrl.getHost(), "/robots.txt");
+						if(!knownUrls.contains(robotsUrl) && !urlsToAdd.contains(robotsUrl)) {
+							addRobots = true;
+							theLogger.log(Level.INFO, "Adding a robots.txt file because there was no longest matching rule for " + newUrl);
 						}
 					}
 				}
 
-				// Actually add the URL.
 				if(addUrl) {
-					int hostId;
-					stmtGetHostIdFromName.setString(1, newUrl.getHost());
-					try(ResultSet resultsGetHostIdFromName = stmtGetHostIdFromName.executeQuery();) {
-						if(resultsGetHostIdFromName.next()) {
-							hostId = resultsGetHostIdFromName.getInt(1);
-						}
-						else {
-							stmtAddHost.setString(1, newUrl.getHost());
-							try(ResultSet resultsAddHost = stmtAddHost.executeQuery();) {
-								resultsAddHost.next();
-								hostId = resultsAddHost.getInt(1);
-							}
-						}
-					}
-					stmtAddUrl.setString(1, newUrl.getProtocol());
-					stmtAddUrl.setInt(2, hostId);
-					stmtAddUrl.setString(3, newUrl.getFile());
-					try(ResultSet resultsAddUrl = stmtAddUrl.executeQuery();) {
-						resultsAddUrl.next();
-						newJobs.add(new CrawlJob(resultsAddUrl.getInt(1), newUrl));
-					}
-					
-					// Actually add the robots.txt file.
+					urlsToAdd.add(newUrl);
 					if(addRobots) {
-						stmtAddUrl.setString(1, newUrl.getProtocol());
-						stmtAddUrl.setInt(2, hostId);
-						stmtAddUrl.setString(3, "/robots.txt");
-						try(ResultSet resultsAddUrl = stmtAddUrl.executeQuery();) {
-							resultsAddUrl.next();
-							newJobs.add(new CrawlJob(resultsAddUrl.getInt(1), new URL(newUrl.getProtocol(), newUrl.getHost(), "/robots.txt")));
-						}
+						urlsToAdd.add(new CrawlURL(newUrl.getProtocol(), newUrl.getHost(), "/robots.txt"));
 					}
 				}
 			}
 
+			// Actually add the URLs, all in one statement.
+			addUrls(urlsToAdd, newJobs);
+
 			// PostgreSQL gets very angry about malformed strings containing the NUL character.
 			String revisedContent = content;
 			if(content.indexOf('\0') >= 0) {
@@ -418,15 +704,403 @@ public class PGCrawlingDataSource implements CrawlingDataSource, AutoCloseable {
 			}
 			
 			// Mark this document as completed.
-			stmtSetCrawlTime.setInt(1, job.getId());
-			stmtSetCrawlTime.executeUpdate();
+			setCrawlTimeAndValidators(job, validators);
+			commitChange(savepoint);
+			saved = true;
+		}
+		catch(SQLException | MalformedURLException exception) {
+			throw new DataSourceException(exception);
+		}
+		finally {
+			if(!saved) {
+				rollbackChange(savepoint);
+			}
+		}
+		return newJobs;
+	}
+
+	@Override
+	public Set<CrawlJob> addSitemapUrls(Collection<SitemapEntry> entries) throws DataSourceException {
+		Set<CrawlJob> newJobs = new HashSet<>();
+		Savepoint savepoint = null;
+		boolean saved = false;
+		try {
+			savepoint = beginChange();
+			loadFilterLists();
+			loadKnownUrls();
+			
+			// A sitemap usually lists a single host, but may mix its protocols, and each protocol has its own rules.
+			Map<String, Map<String, Instant>> pathsByOrigin = new HashMap<>();
+			for(SitemapEntry entry : entries) {
+				CrawlURL url = entry.getURL();
+				if(passesFilters(url)) {
+					Map<String, Instant> paths = pathsByOrigin.computeIfAbsent(url.getProtocol() + "://" + url.getHost(), origin -> new LinkedHashMap<>());
+					// A path listed twice keeps the later of its two times.
+					paths.merge(url.getFile(), entry.getLastModified() == null ? Instant.MIN : entry.getLastModified(), (first, second) -> first.isAfter(second) ? first : second);
+				}
+			}
+			
+			PreparedStatement stmtScheduleChangedUrls = getStatement(DatabaseCommand.SCHEDULE_CHANGED_URLS);
+			PreparedStatement stmtAddUrls = getStatement(DatabaseCommand.ADD_URLS);
+			for(Map.Entry<String, Map<String, Instant>> origin : pathsByOrigin.entrySet()) {
+				int separator = origin.getKey().indexOf("://");
+				String protocol = origin.getKey().substring(0, separator);
+				String hostName = origin.getKey().substring(separator + 3);
+				RobotsRuleSet ruleSet = getRobotsRuleSet(protocol, hostName, newJobs);
+				List<String> paths = new ArrayList<>();
+				List<String> changedPaths = new ArrayList<>();
+				List<String> changedTimes = new ArrayList<>();
+				for(Map.Entry<String, Instant> path : origin.getValue().entrySet()) {
+					if(ruleSet.isAllowed(path.getKey())) {
+						// Paths that are already in the collection are only sent to be scheduled again.
+						if(!knownUrls.contains(new CrawlURL(protocol, hostName, path.getKey()))) {
+							paths.add(path.getKey());
+						}
+						if(!path.getValue().equals(Instant.MIN)) {
+							changedPaths.add(path.getKey());
+							changedTimes.add(Timestamp.from(path.getValue()).toString());
+						}
+					}
+				}
+				if(ruleSet.isEmpty() && !knownUrls.contains(new CrawlURL(protocol, hostName, "/robots.txt"))) {
+					// There are no rules for this protocol yet, so its robots.txt file must be crawled first if it is not waiting already.
+					paths.add("/robots.txt");
+				}
+				int hostId = getHostId(hostName);
+				
+				// Pages that have changed since they were crawled are crawled again, with the Validators they had.
+				if(!changedPaths.isEmpty()) {
+					stmtScheduleChangedUrls.setArray(1, conn.createArrayOf("text", changedPaths.toArray()));
+					stmtScheduleChangedUrls.setArray(2, conn.createArrayOf("text", changedTimes.toArray()));
+					stmtScheduleChangedUrls.setString(3, protocol);
+					stmtScheduleChangedUrls.setInt(4, hostId);
+					try(ResultSet resultsScheduleChangedUrls = stmtScheduleChangedUrls.executeQuery();) {
+						while(resultsScheduleChangedUrls.next()) {
+							String etag = resultsScheduleChangedUrls.getString(3);
+							String lastModified = resultsScheduleChangedUrls.getString(4);
+							String contentHash = resultsScheduleChangedUrls.getString(5);
+							Validators validators = null;
+							if(etag != null || lastModified != null || contentHash != null) {
+								validators = new Validators(etag, lastModified, contentHash);
+							}
+							newJobs.add(new CrawlJob(resultsScheduleChangedUrls.getInt(1), new CrawlURL(protocol, hostName, resultsScheduleChangedUrls.getString(2)), validators));
+						}
+					}
+				}
+				
+				// All of the new paths are added in one statement, which skips the ones that are already there.
+				int added = 0;
+				if(!paths.isEmpty()) {
+					stmtAddUrls.setString(1, protocol);
+					stmtAddUrls.setInt(2, hostId);
+					stmtAddUrls.setArray(3, conn.createArrayOf("text", paths.toArray()));
+					try(ResultSet resultsAddUrls = stmtAddUrls.executeQuery();) {
+						while(resultsAddUrls.next()) {
+							newJobs.add(new CrawlJob(resultsAddUrls.getInt(1), new CrawlURL(protocol, hostName, resultsAddUrls.getString(2))));
+							added++;
+						}
+					}
+					// Whether they were added now or were there already, every one of these is in the collection.
+					for(String path : paths) {
+						addKnownUrl(new CrawlURL(protocol, hostName, path));
+					}
+				}
+				theLogger.log(Level.INFO, "Added " + added + " of " + origin.getValue().size() + " URLs from the sitemaps of " + origin.getKey());
+			}
+			commitChange(savepoint);
+			saved = true;
 		}
 		catch(SQLException | MalformedURLException exception) {
 			throw new DataSourceException(exception);
 		}
+		finally {
+			if(!saved) {
+				rollbackChange(savepoint);
+			}
+		}
 		return newJobs;
 	}
 
+	@Override
+	public void finishUnchangedHtmlFile(CrawlJob job, Validators validators) throws DataSourceException {
+		// This is a single statement, but in a batch it needs its own savepoint so that its failure does not spoil the others.
+		Savepoint savepoint = null;
+		boolean saved = false;
+		try {
+			savepoint = beginChange();
+			setCrawlTimeAndValidators(job, validators);
+			commitChange(savepoint);
+			saved = true;
+		}
+		catch(SQLException exception) {
+			throw new DataSourceException(exception);
+		}
+		finally {
+			if(!saved) {
+				rollbackChange(savepoint);
+			}
+		}
+	}
+
+	@Override
+	public int scheduleRecrawl(long maxAge) throws DataSourceException {
+		int returnValue;
+		try {
+			PreparedStatement stmtScheduleRecrawl = getStatement(DatabaseCommand.SCHEDULE_RECRAWL);
+			stmtScheduleRecrawl.setLong(1, maxAge);
+			returnValue = stmtScheduleRecrawl.executeUpdate();
+		}
+		catch(SQLException exception) {
+			throw new DataSourceException(exception);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the compiled robots.txt rules of a protocol and host, loading them from the database if they are not cached or have expired.
+	 * If the robots.txt file was crawled longer ago than the rules live, it is marked as not yet crawled and a CrawlJob for it is added to newJobs.
+	 * The old rules are then used until it has been crawled again.
+	 * 
+	 * @param protocol The protocol.
+	 * @param hostName The host name.
+	 * @param newJobs The CrawlJobs created so far, to which one for the robots.txt file may be added.
+	 * @return The compiled rules, which are empty if the robots.txt file has not been crawled yet.
+	 * @throws SQLException If the rules cannot be loaded.
+	 * @throws MalformedURLException If the URL of the robots.txt file is malformed.
+	 */
+	private RobotsRuleSet getRobotsRuleSet(String protocol, String hostName, Set<CrawlJob> newJobs) throws SQLException, MalformedURLException {
+		long now = System.currentTimeMillis();
+		RobotsRuleSet returnValue = robotsCache.get(protocol, hostName, now);
+		if(returnValue == null) {
+			Set<RobotsRule> rules = new HashSet<>();
+			PreparedStatement stmtGetRules = getStatement(DatabaseCommand.GET_ROBOTS_TXT_RULES);
+			stmtGetRules.setString(1, protocol);
+			stmtGetRules.setString(2, hostName);
+			try(ResultSet resultsGetRules = stmtGetRules.executeQuery();) {
+				while(resultsGetRules.next()) {
+					rules.add(new RobotsRule(protocol, hostName, resultsGetRules.getString(1), resultsGetRules.getBoolean(2)));
+				}
+			}
+			returnValue = new RobotsRuleSet(rules);
+			
+			PreparedStatement stmtGetRobotsUrl = getStatement(DatabaseCommand.GET_ROBOTS_TXT_URL);
+			stmtGetRobotsUrl.setString(1, protocol);
+			stmtGetRobotsUrl.setString(2, hostName);
+			try(ResultSet resultsGetRobotsUrl = stmtGetRobotsUrl.executeQuery();) {
+				Timestamp crawled = null;
+				int robotsId = 0;
+				if(resultsGetRobotsUrl.next()) {
+					robotsId = resultsGetRobotsUrl.getInt(1);
+					crawled = resultsGetRobotsUrl.getTimestamp(2);
+				}
+				if(crawled == null || returnValue.isEmpty()) {
+					// The robots.txt file is waiting to be crawled, or has not been found yet, so these rules stand until it is crawled.
+					robotsCache.putUntilReplaced(protocol, hostName, returnValue);
+				}
+				else if(now - crawled.getTime() < robotsCache.getTtl()) {
+					robotsCache.put(protocol, hostName, returnValue, crawled.getTime());
+				}
+				else {
+					PreparedStatement stmtClearCrawlTime = getStatement(DatabaseCommand.CLEAR_CRAWL_TIME);
+					stmtClearCrawlTime.setInt(1, robotsId);
+					stmtClearCrawlTime.executeUpdate();
+					newJobs.add(new CrawlJob(robotsId, new CrawlURL(protocol, hostName, "/robots.txt")));
+					robotsCache.putUntilReplaced(protocol, hostName, returnValue);
+					theLogger.log(Level.INFO, "Crawling " + protocol + "://" + hostName + "/robots.txt again because its rules have expired");
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Loads the host whitelist, host blacklist and extension blacklist, if they have not been loaded already.
+	 * 
+	 * @throws SQLException If the lists cannot be loaded.
+	 */
+	private void loadFilterLists() throws SQLException {
+		// We just want to get the whitelist once, to save time.
+		if(hostWhitelist == null) {
+			PreparedStatement stmtGetHostWhitelist = getStatement(DatabaseCommand.GET_HOST_WHITELIST);
+			hostWhitelist = new HashSet<>();
+			try(ResultSet resultsGetHostWhitelist = stmtGetHostWhitelist.executeQuery();) {
+				while(resultsGetHostWhitelist.next()) {
+					hostWhitelist.add(resultsGetHostWhitelist.getString(1));
+				}
+			}				
+		}
+		if(hostBlacklist == null) {
+			PreparedStatement stmtGetHostBlacklist = getStatement(DatabaseCommand.GET_HOST_BLACKLIST);
+			hostBlacklist = new HashSet<>();
+			try(ResultSet resultsGetHostBlacklist = stmtGetHostBlacklist.executeQuery();) {
+				while(resultsGetHostBlacklist.next()) {
+					hostBlacklist.add(resultsGetHostBlacklist.getString(1));
+				}
+			}
+		}
+		if(extensionBlacklist == null) {
+			PreparedStatement stmtGetExtensionBlacklist = getStatement(DatabaseCommand.GET_EXTENSION_BLACKLIST);
+			extensionBlacklist = new HashSet<>();
+			try(ResultSet resultsGetExtensionBlacklist = stmtGetExtensionBlacklist.executeQuery();) {
+				while(resultsGetExtensionBlacklist.next()) {
+					extensionBlacklist.add(resultsGetExtensionBlacklist.getString(1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds URLs to the collection in a single statement, skipping any that something else has already added.
+	 * 
+	 * @param urls The URLs to add, which should not already be known, in the order in which they should be numbered.
+	 * @param newJobs The CrawlJobs created so far, to which one for each URL that is added will be added.
+	 * @throws SQLException If the URLs cannot be added.
+	 * @throws MalformedURLException If a URL that was added is malformed.
+	 */
+	private void addUrls(Collection<CrawlURL> urls, Set<CrawlJob> newJobs) throws SQLException, MalformedURLException {
+		if(!urls.isEmpty()) {
+			List<String> protocols = new ArrayList<>();
+			List<Integer> hostIdList = new ArrayList<>();
+			List<String> paths = new ArrayList<>();
+			Map<Integer, String> hostNames = new HashMap<>();
+			for(CrawlURL url : urls) {
+				int hostId = getHostId(url.getHost());
+				protocols.add(url.getProtocol());
+				hostIdList.add(hostId);
+				paths.add(url.getFile());
+				hostNames.put(hostId, url.getHost());
+			}
+			PreparedStatement stmtAddUrlsForHosts = getStatement(DatabaseCommand.ADD_URLS_FOR_HOSTS);
+			stmtAddUrlsForHosts.setArray(1, conn.createArrayOf("text", protocols.toArray()));
+			stmtAddUrlsForHosts.setArray(2, conn.createArrayOf("integer", hostIdList.toArray()));
+			stmtAddUrlsForHosts.setArray(3, conn.createArrayOf("text", paths.toArray()));
+			try(ResultSet resultsAddUrls = stmtAddUrlsForHosts.executeQuery();) {
+				while(resultsAddUrls.next()) {
+					CrawlURL url = new CrawlURL(resultsAddUrls.getString(2), hostNames.get(resultsAddUrls.getInt(3)), resultsAddUrls.getString(4));
+					newJobs.add(new CrawlJob(resultsAddUrls.getInt(1), url));
+				}
+			}
+			// Whether they were added now or were there already, every one of these is in the collection.
+			for(CrawlURL url : urls) {
+				addKnownUrl(url);
+			}
+		}
+	}
+
+	/**
+	 * Loads the fingerprints of every URL in the collection, if they have not been loaded already.
+	 * 
+	 * @throws SQLException If the URLs cannot be loaded.
+	 * @throws MalformedURLException If a URL in the collection is malformed.
+	 */
+	private void loadKnownUrls() throws SQLException, MalformedURLException {
+		if(knownUrls == null) {
+			PreparedStatement stmtGetAllUrls = getStatement(DatabaseCommand.GET_ALL_URLS);
+			URLFingerprintSet urls = new URLFingerprintSet(knownUrlCapacity);
+			try(ResultSet resultsGetAllUrls = stmtGetAllUrls.executeQuery();) {
+				while(resultsGetAllUrls.next()) {
+					urls.add(new CrawlURL(resultsGetAllUrls.getString(1), resultsGetAllUrls.getString(2), resultsGetAllUrls.getString(3)));
+				}
+			}
+			knownUrls = urls;
+			knownUrlsFromBatch = inBatch;
+			theLogger.log(Level.INFO, "Loaded the fingerprints of " + knownUrls.size() + " URLs");
+			logIfKnownUrlsFull();
+		}
+	}
+
+	/**
+	 * Determines whether or not a URL's host is whitelisted and neither its host nor its extension is blacklisted.
+	 * The lists must already have been loaded.
+	 * 
+	 * @param url The URL.
+	 * @return True if the URL may be added, or false if it may not.
+	 */
+	private boolean passesFilters(CrawlURL url) {
+		boolean returnValue = false;
+		Iterator<String> iter = hostWhitelist.iterator();
+		while(!returnValue && iter.hasNext()) {
+			String hostSuffix = iter.next();
+			if(url.getHost().equals(hostSuffix) || url.getHost().endsWith("." + hostSuffix)) {
+				returnValue = true;
+			}
+		}
+		
+		if(returnValue) {
+			if(hostBlacklist.contains(url.getHost())) {
+				returnValue = false;
+			}
+		}
+		
+		if(returnValue) {
+			String file = url.getFile().toLowerCase();
+			iter = extensionBlacklist.iterator();
+			while(returnValue && iter.hasNext()) {
+				if(file.endsWith(iter.next())) {
+					returnValue = false;
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Loads the ID of every host, if they have not been loaded already.
+	 * 
+	 * @throws SQLException If the hosts cannot be loaded.
+	 */
+	private void loadHostIds() throws SQLException {
+		if(hostIds == null) {
+			PreparedStatement stmtGetAllHosts = getStatement(DatabaseCommand.GET_ALL_HOSTS);
+			Map<String, Integer> ids = new ConcurrentHashMap<>();
+			try(ResultSet resultsGetAllHosts = stmtGetAllHosts.executeQuery();) {
+				while(resultsGetAllHosts.next()) {
+					ids.put(resultsGetAllHosts.getString(2), resultsGetAllHosts.getInt(1));
+				}
+			}
+			hostIds = ids;
+		}
+	}
+
+	/**
+	 * Gets the ID of a host, adding the host if it is not there yet.
+	 * 
+	 * @param hostName The host name.
+	 * @return The host's ID.
+	 * @throws SQLException If the host cannot be found or added.
+	 */
+	private int getHostId(String hostName) throws SQLException {
+		loadHostIds();
+		Integer returnValue = hostIds.get(hostName);
+		if(returnValue == null) {
+			// Inserting and reading back in one statement means that two crawlers adding the same host at once both get its one ID.
+			PreparedStatement stmtAddHost = getStatement(DatabaseCommand.ADD_HOST);
+			stmtAddHost.setString(1, hostName);
+			try(ResultSet resultsAddHost = stmtAddHost.executeQuery();) {
+				resultsAddHost.next();
+				returnValue = resultsAddHost.getInt(1);
+			}
+			hostIds.put(hostName, returnValue);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Marks a URL as crawled now and saves what was learned about it.
+	 * 
+	 * @param job The CrawlJob for the URL that was crawled.
+	 * @param validators What was learned about the URL, or null if nothing was.
+	 * @throws SQLException If the URL cannot be updated.
+	 */
+	private void setCrawlTimeAndValidators(CrawlJob job, Validators validators) throws SQLException {
+		PreparedStatement stmtSetCrawlTime = getStatement(DatabaseCommand.SET_CRAWL_TIME_AND_VALIDATORS);
+		stmtSetCrawlTime.setString(1, validators == null ? null : validators.getEtag());
+		stmtSetCrawlTime.setString(2, validators == null ? null : validators.getLastModified());
+		stmtSetCrawlTime.setString(3, validators == null ? null : validators.getContentHash());
+		stmtSetCrawlTime.setInt(4, job.getId());
+		stmtSetCrawlTime.executeUpdate();
+	}
+
 	@Override
 	public void cancelCrawlingHtmlFile(CrawlJob job) throws DataSourceException {
 		try {
@@ -0,0 +1,154 @@
+package edu.millersville.csci406.spring2023;
+
+/**
+ * A policy that decides how long to wait between accesses to the same host, and how many accesses to a host may be in progress at once.
+ *
+ * The delay for a host adapts to how that host behaves.
+ * It starts at the maximum delay, and then follows the host's average response time, so that a host that answers quickly is crawled quickly and one that slows down is backed off automatically.
+ * Failed responses make the delay longer, in proportion to the recent rate of failures.
+ * The delay always stays between the minimum and maximum delays, except that a Crawl-delay requested by the host's robots.txt file is honored even when it is longer.
+ * A policy whose minimum and maximum delays are equal always uses that delay, as older versions of the crawler did.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class PolitenessPolicy {
+
+	/** By default, only one access to a host may be in progress at a time. */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 1;
+
+	/** The longest Crawl-delay from a robots.txt file that we are willing to honor, in milliseconds. */
+	public static final long MAX_ROBOTS_CRAWL_DELAY = 60000;
+
+	/** How much weight the newest response time is given in a host's average response time. */
+	private static final double LATENCY_WEIGHT = 0.3;
+
+	/** How much weight the newest response is given in a host's failure rate. */
+	private static final double ERROR_WEIGHT = 0.2;
+
+	/** How many times longer the delay becomes for a host whose every recent response has failed. */
+	private static final double ERROR_PENALTY = 10.0;
+
+	/** The shortest delay between accesses to the same host, in milliseconds. */
+	private final long minCrawlDelay;
+
+	/** The longest delay between accesses to the same host that we will choose ourselves, in milliseconds. */
+	private final long maxCrawlDelay;
+
+	/** The largest number of accesses to the same host that may be in progress at once. */
+	private final int maxConnectionsPerHost;
+
+	/**
+	 * Constructs a PolitenessPolicy that always uses the same delay and allows one access to each host at a time.
+	 *
+	 * @param crawlDelay The number of milliseconds between accesses to the same host.
+	 */
+	public PolitenessPolicy(long crawlDelay) {
+		this(crawlDelay, crawlDelay, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+	}
+
+	/**
+	 * Constructs a PolitenessPolicy that adapts each host's delay to how that host behaves.
+	 *
+	 * @param minCrawlDelay The shortest delay between accesses to the same host, in milliseconds.
+	 * @param maxCrawlDelay The longest delay between accesses to the same host that we will choose ourselves, in milliseconds.
+	 * @param maxConnectionsPerHost The largest number of accesses to the same host that may be in progress at once.
+	 */
+	public PolitenessPolicy(long minCrawlDelay, long maxCrawlDelay, int maxConnectionsPerHost) {
+		if(minCrawlDelay < 0 || maxCrawlDelay < minCrawlDelay) {
+			throw new IllegalArgumentException("The crawl delays must satisfy 0 <= minimum <= maximum.");
+		}
+		if(maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException("At least one connection per host must be allowed.");
+		}
+		this.minCrawlDelay = minCrawlDelay;
+		this.maxCrawlDelay = maxCrawlDelay;
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the shortest delay between accesses to the same host.
+	 *
+	 * @return The shortest delay between accesses to the same host, in milliseconds.
+	 */
+	public long getMinCrawlDelay() {
+		return minCrawlDelay;
+	}
+
+	/**
+	 * Gets the longest delay between accesses to the same host that we will choose ourselves.
+	 *
+	 * @return The longest delay between accesses to the same host that we will choose ourselves, in milliseconds.
+	 */
+	public long getMaxCrawlDelay() {
+		return maxCrawlDelay;
+	}
+
+	/**
+	 * Gets the largest number of accesses to the same host that may be in progress at once.
+	 *
+	 * @return The largest number of accesses to the same host that may be in progress at once.
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the delay to use for a host that we know nothing about yet.
+	 *
+	 * @return The delay to use for a new host, in milliseconds.
+	 */
+	public long getInitialCrawlDelay() {
+		return maxCrawlDelay;
+	}
+
+	/**
+	 * Folds a new response time into a host's average response time.
+	 *
+	 * @param averageLatency The host's current average response time in milliseconds, or a negative number if it has none yet.
+	 * @param latency The number of milliseconds the newest response took.
+	 * @return The host's new average response time, in milliseconds.
+	 */
+	public double updateAverageLatency(double averageLatency, long latency) {
+		double returnValue;
+		if(averageLatency < 0) {
+			returnValue = latency;
+		}
+		else {
+			returnValue = averageLatency + LATENCY_WEIGHT * (latency - averageLatency);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Folds a new response into a host's rate of failed responses.
+	 *
+	 * @param errorRate The host's current failure rate, between 0 and 1.
+	 * @param failed Whether or not the newest response failed.
+	 * @return The host's new failure rate, between 0 and 1.
+	 */
+	public double updateErrorRate(double errorRate, boolean failed) {
+		return errorRate + ERROR_WEIGHT * ((failed ? 1.0 : 0.0) - errorRate);
+	}
+
+	/**
+	 * Chooses the delay between accesses to a host.
+	 *
+	 * @param averageLatency The host's average response time in milliseconds, or a negative number if it has none yet.
+	 * @param errorRate The host's rate of failed responses, between 0 and 1.
+	 * @param robotsCrawlDelay The Crawl-delay requested by the host's robots.txt file in milliseconds, or 0 if there is none.
+	 * @return The number of milliseconds to wait between accesses to the host.
+	 */
+	public long getCrawlDelay(double averageLatency, double errorRate, long robotsCrawlDelay) {
+		long returnValue;
+		if(averageLatency < 0) {
+			returnValue = getInitialCrawlDelay();
+		}
+		else {
+			// With n connections allowed, waiting 1/n of a response time keeps about n accesses in progress.
+			double target = averageLatency * (1.0 + (ERROR_PENALTY - 1.0) * errorRate) / maxConnectionsPerHost;
+			returnValue = Math.max(minCrawlDelay, Math.min(maxCrawlDelay, Math.round(target)));
+		}
+		return Math.max(returnValue, Math.min(robotsCrawlDelay, MAX_ROBOTS_CRAWL_DELAY));
+	}
+}
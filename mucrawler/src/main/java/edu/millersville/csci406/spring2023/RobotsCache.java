@@ -0,0 +1,135 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory cache of the compiled robots.txt rules of each protocol and host.
+ * An entry expires a fixed time to live after its robots.txt file was crawled, after which it should be crawled again.
+ * An entry can also be kept until it is replaced, for a host whose robots.txt file is waiting to be crawled again.
+ * It is safe to use from many threads at once.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class RobotsCache {
+
+	/** The default number of milliseconds for which robots.txt rules are used, which is the longest that RFC 9309 recommends. */
+	public static final long DEFAULT_TTL = 24L * 60 * 60 * 1000;
+
+	/**
+	 * The rules of one protocol and host, and when they expire.
+	 */
+	private static class Entry {
+		/** The compiled rules. */
+		private final RobotsRuleSet ruleSet;
+		/** The time in milliseconds since the epoch at which the rules expire. */
+		private final long expiresAt;
+
+		/**
+		 * Constructs an Entry.
+		 *
+		 * @param ruleSet The compiled rules.
+		 * @param expiresAt The time in milliseconds since the epoch at which the rules expire.
+		 */
+		private Entry(RobotsRuleSet ruleSet, long expiresAt) {
+			this.ruleSet = ruleSet;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/** The number of milliseconds after a robots.txt file is crawled at which its rules expire. */
+	private final long ttl;
+	/** The entries, by protocol and host. */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Constructs an empty RobotsCache.
+	 *
+	 * @param ttl The number of milliseconds after a robots.txt file is crawled at which its rules expire.
+	 */
+	public RobotsCache(long ttl) {
+		if(ttl <= 0) {
+			throw new IllegalArgumentException("The time to live must be positive.");
+		}
+		this.ttl = ttl;
+		this.entries = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets the number of milliseconds after a robots.txt file is crawled at which its rules expire.
+	 *
+	 * @return The time to live of an entry.
+	 */
+	public long getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * Gets the rules of a protocol and host, if they are cached and have not expired.
+	 *
+	 * @param protocol The protocol.
+	 * @param hostName The host name.
+	 * @param now The current time in milliseconds since the epoch.
+	 * @return The compiled rules, or null if there are none or they have expired.
+	 */
+	public RobotsRuleSet get(String protocol, String hostName, long now) {
+		RobotsRuleSet returnValue = null;
+		Entry entry = entries.get(key(protocol, hostName));
+		if(entry != null && now < entry.expiresAt) {
+			returnValue = entry.ruleSet;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Caches the rules of a protocol and host, replacing any that were there.
+	 *
+	 * @param protocol The protocol.
+	 * @param hostName The host name.
+	 * @param ruleSet The compiled rules.
+	 * @param crawledAt The time in milliseconds since the epoch at which the robots.txt file was crawled.
+	 */
+	public void put(String protocol, String hostName, RobotsRuleSet ruleSet, long crawledAt) {
+		long expiresAt = crawledAt > Long.MAX_VALUE - ttl ? Long.MAX_VALUE : crawledAt + ttl;
+		entries.put(key(protocol, hostName), new Entry(ruleSet, expiresAt));
+	}
+
+	/**
+	 * Caches the rules of a protocol and host until they are replaced, such as while the robots.txt file is waiting to be crawled again.
+	 *
+	 * @param protocol The protocol.
+	 * @param hostName The host name.
+	 * @param ruleSet The compiled rules.
+	 */
+	public void putUntilReplaced(String protocol, String hostName, RobotsRuleSet ruleSet) {
+		entries.put(key(protocol, hostName), new Entry(ruleSet, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Forgets the rules of every protocol and host.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Gets the number of protocols and hosts whose rules are cached, whether or not they have expired.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the key under which the rules of a protocol and host are cached.
+	 *
+	 * @param protocol The protocol.
+	 * @param hostName The host name.
+	 * @return The key.
+	 */
+	private static String key(String protocol, String hostName) {
+		return protocol + "://" + hostName;
+	}
+}
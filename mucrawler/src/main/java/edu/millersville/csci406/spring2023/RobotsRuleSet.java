@@ -0,0 +1,323 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The robots.txt rules for one protocol and host, compiled into a character trie so that the rule matching a path can be found without a database query.
+ * As in RFC 9309, a '*' in a rule's path matches any sequence of characters, and a '$' at its end means that the path must end there.
+ * Of all the rules that match a path, the one with the longest path wins, and if an Allow and a Disallow rule are equally long, the Allow rule wins.
+ * Matching a path walks the trie one character at a time without allocating anything when no rule has a wildcard, so it takes time proportional to the length of the path.
+ * When some rule has a wildcard, every node of the trie that the path so far could have reached is followed at once, so the time is at most proportional to the length of the path times the size of the trie, however many wildcards there are.
+ * A RobotsRuleSet never changes after it has been constructed, so it is safe to share between threads.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class RobotsRuleSet {
+
+	/**
+	 * A node of the trie, which is reached by following the characters of some rule paths.
+	 */
+	private static class Node {
+		/** The characters that lead to children, in increasing order. */
+		private char[] keys;
+		/** The children, in the same order as keys. */
+		private Node[] children;
+		/** The child reached by a '*', or null if there is none. */
+		private Node star;
+		/** Whether or not this node was reached by a '*', so that it may also be reached by any character from itself. */
+		private boolean afterStar;
+		/** The number of this node, which is unique within its trie. */
+		private int id;
+		/** The best rule whose path ends here, and which matches any path that continues past here. */
+		private RobotsRule prefixRule;
+		/** The best rule whose path ends here with a '$', and which matches only a path that ends here too. */
+		private RobotsRule endRule;
+
+		/**
+		 * Constructs a Node with no children or rules.
+		 */
+		private Node() {
+			keys = new char[0];
+			children = new Node[0];
+			star = null;
+			afterStar = false;
+			id = 0;
+			prefixRule = null;
+			endRule = null;
+		}
+
+		/**
+		 * Gets the child reached by a character, creating it if necessary.
+		 *
+		 * @param key The character.
+		 * @param newId The number to give the child if it is created.
+		 * @return The child.
+		 */
+		private Node getOrAddChild(char key, int newId) {
+			int index = Arrays.binarySearch(keys, key);
+			if(index < 0) {
+				index = -index - 1;
+				char[] newKeys = new char[keys.length + 1];
+				Node[] newChildren = new Node[children.length + 1];
+				System.arraycopy(keys, 0, newKeys, 0, index);
+				System.arraycopy(children, 0, newChildren, 0, index);
+				newKeys[index] = key;
+				newChildren[index] = new Node();
+				newChildren[index].id = newId;
+				System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+				System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+				keys = newKeys;
+				children = newChildren;
+			}
+			return children[index];
+		}
+
+		/**
+		 * Gets the child reached by a character.
+		 *
+		 * @param key The character.
+		 * @return The child, or null if there is none.
+		 */
+		private Node getChild(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			return index < 0 ? null : children[index];
+		}
+	}
+
+	/** The root of the trie, reached by the empty path. */
+	private final Node root;
+	/** The number of rules in the trie. */
+	private int size;
+	/** The number of nodes in the trie. */
+	private int nodeCount;
+	/** Whether or not any rule has a '*' before its end. */
+	private boolean hasStars;
+
+	/**
+	 * Constructs a RobotsRuleSet.
+	 * If two rules have the same path, the one that allows is kept, since it is the less restrictive.
+	 *
+	 * @param rules The rules for a single protocol and host.
+	 */
+	public RobotsRuleSet(Collection<RobotsRule> rules) {
+		root = new Node();
+		size = 0;
+		nodeCount = 1;
+		hasStars = false;
+		for(RobotsRule rule : rules) {
+			add(rule);
+		}
+	}
+
+	/**
+	 * Adds a rule to the trie.
+	 *
+	 * @param rule The rule.
+	 */
+	private void add(RobotsRule rule) {
+		String path = rule.getPathPrefix();
+		boolean anchored = path.endsWith("$");
+		int end = anchored ? path.length() - 1 : path.length();
+		// A trailing '*' matches everything after it, just as the end of an unanchored path does.
+		while(end > 0 && path.charAt(end - 1) == '*') {
+			end--;
+			anchored = false;
+		}
+		Node node = root;
+		for(int index = 0; index < end; index++) {
+			char next = path.charAt(index);
+			if(next == '*') {
+				// Consecutive '*'s match no more than a single one.
+				if(index == 0 || path.charAt(index - 1) != '*') {
+					if(node.star == null) {
+						node.star = new Node();
+						node.star.afterStar = true;
+						node.star.id = nodeCount++;
+						hasStars = true;
+					}
+					node = node.star;
+				}
+			}
+			else {
+				node = node.getOrAddChild(next, nodeCount);
+				if(node.id == nodeCount) {
+					nodeCount++;
+				}
+			}
+		}
+		if(anchored) {
+			if(node.endRule == null) {
+				size++;
+			}
+			node.endRule = better(node.endRule, rule);
+		}
+		else {
+			if(node.prefixRule == null) {
+				size++;
+			}
+			node.prefixRule = better(node.prefixRule, rule);
+		}
+	}
+
+	/**
+	 * Finds the rule that decides whether a path may be crawled.
+	 *
+	 * @param path The path of a URL, including any query.
+	 * @return The matching rule with the longest path, or null if no rule matches.
+	 */
+	public RobotsRule getLongestMatch(String path) {
+		RobotsRule returnValue;
+		if(hasStars) {
+			returnValue = matchWithStars(path);
+		}
+		else {
+			returnValue = match(path);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Determines whether or not a path may be crawled.
+	 * A path that no rule matches is allowed.
+	 *
+	 * @param path The path of a URL, including any query.
+	 * @return True if the longest matching rule allows the path or there is none, or false if it disallows it.
+	 */
+	public boolean isAllowed(String path) {
+		RobotsRule longest = getLongestMatch(path);
+		return longest == null || longest.isAllowed();
+	}
+
+	/**
+	 * Determines whether or not there are any rules, which there will not be before the robots.txt file has been crawled.
+	 *
+	 * @return True if there are no rules, or false if there are some.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the number of rules.
+	 *
+	 * @return The number of rules, counting only one of any rules that match exactly the same paths.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the best rule matching a path when no rule has a '*', by walking the trie one character at a time.
+	 *
+	 * @param path The path.
+	 * @return The best rule found, or null if there is none.
+	 */
+	private RobotsRule match(String path) {
+		RobotsRule returnValue = null;
+		Node node = root;
+		int index = 0;
+		while(node != null) {
+			returnValue = better(returnValue, node.prefixRule);
+			if(index == path.length()) {
+				returnValue = better(returnValue, node.endRule);
+				node = null;
+			}
+			else {
+				node = node.getChild(path.charAt(index));
+				index++;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Finds the best rule matching a path when some rule has a '*'.
+	 * The set of nodes that the characters so far could have reached is followed one character at a time, as in a nondeterministic automaton, so no node is visited more than once per character.
+	 * A node reached by a '*' stays in the set for every later character, since the '*' may match it.
+	 *
+	 * @param path The path.
+	 * @return The best rule found, or null if there is none.
+	 */
+	private RobotsRule matchWithStars(String path) {
+		RobotsRule returnValue = null;
+		Node[] current = new Node[nodeCount];
+		Node[] next = new Node[nodeCount];
+		// The number of characters matched plus one when each node was last added to a set, so that none is added twice.
+		int[] addedAt = new int[nodeCount];
+		int currentSize = addWithStars(root, current, 0, addedAt, 1);
+		int index = 0;
+		while(index < path.length() && currentSize > 0) {
+			char character = path.charAt(index);
+			int nextSize = 0;
+			for(int position = 0; position < currentSize; position++) {
+				Node node = current[position];
+				returnValue = better(returnValue, node.prefixRule);
+				Node child = node.getChild(character);
+				if(child != null) {
+					nextSize = addWithStars(child, next, nextSize, addedAt, index + 2);
+				}
+				if(node.afterStar) {
+					nextSize = addWithStars(node, next, nextSize, addedAt, index + 2);
+				}
+			}
+			Node[] swap = current;
+			current = next;
+			next = swap;
+			currentSize = nextSize;
+			index++;
+		}
+		for(int position = 0; position < currentSize; position++) {
+			returnValue = better(returnValue, current[position].prefixRule);
+			returnValue = better(returnValue, current[position].endRule);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Adds a node to a set of nodes, along with the nodes reached from it by '*'s, since a '*' may match nothing.
+	 *
+	 * @param node The node.
+	 * @param nodes The set, as an array with room for every node.
+	 * @param size The number of nodes in the set.
+	 * @param addedAt The stamp of the set that each node was last added to.
+	 * @param stamp The stamp of this set.
+	 * @return The new number of nodes in the set.
+	 */
+	private static int addWithStars(Node node, Node[] nodes, int size, int[] addedAt, int stamp) {
+		int returnValue = size;
+		Node added = node;
+		while(added != null && addedAt[added.id] != stamp) {
+			addedAt[added.id] = stamp;
+			nodes[returnValue] = added;
+			returnValue++;
+			added = added.star;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Chooses the rule that should win when two both match a path.
+	 *
+	 * @param first A rule, or null.
+	 * @param second Another rule, or null.
+	 * @return The rule with the longer path, or the one that allows if they are equally long, or null if both are null.
+	 */
+	private static RobotsRule better(RobotsRule first, RobotsRule second) {
+		RobotsRule returnValue;
+		if(first == null) {
+			returnValue = second;
+		}
+		else if(second == null) {
+			returnValue = first;
+		}
+		else if(first.getPathPrefix().length() != second.getPathPrefix().length()) {
+			returnValue = first.getPathPrefix().length() > second.getPathPrefix().length() ? first : second;
+		}
+		else {
+			returnValue = second.isAllowed() ? second : first;
+		}
+		return returnValue;
+	}
+}
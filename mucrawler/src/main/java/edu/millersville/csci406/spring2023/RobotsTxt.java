@@ -0,0 +1,86 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What a parsed robots.txt file says to this crawler: the rules of the groups that apply to it, how long it should wait between requests, and where the host's sitemaps are.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class RobotsTxt {
+
+	/** The rules that apply to this crawler. */
+	private final Set<RobotsRule> rules;
+	/** The same rules, compiled. */
+	private final RobotsRuleSet ruleSet;
+	/** The number of milliseconds to wait between requests, or 0 if the file does not ask. */
+	private final long crawlDelay;
+	/** The URLs of the sitemaps listed in the file, in the order in which they appear. */
+	private final List<String> sitemaps;
+	/** Whether or not the file was longer than RobotsTxtParser.MAX_SIZE, so that the rest of it was ignored. */
+	private final boolean truncated;
+
+	/**
+	 * Constructs a RobotsTxt.
+	 *
+	 * @param rules The rules that apply to this crawler.
+	 * @param crawlDelay The number of milliseconds to wait between requests, or 0 if the file does not ask.
+	 * @param sitemaps The URLs of the sitemaps listed in the file, in the order in which they appear.
+	 * @param truncated Whether or not the file was too long, so that the rest of it was ignored.
+	 */
+	public RobotsTxt(Set<RobotsRule> rules, long crawlDelay, List<String> sitemaps, boolean truncated) {
+		this.rules = Collections.unmodifiableSet(rules);
+		this.ruleSet = new RobotsRuleSet(rules);
+		this.crawlDelay = crawlDelay;
+		this.sitemaps = Collections.unmodifiableList(sitemaps);
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Gets the rules that apply to this crawler.
+	 *
+	 * @return A read-only Set of the rules, which is empty if everything is allowed.
+	 */
+	public Set<RobotsRule> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Gets the rules that apply to this crawler, compiled so that paths can be checked against them.
+	 *
+	 * @return The compiled rules.
+	 */
+	public RobotsRuleSet getRuleSet() {
+		return ruleSet;
+	}
+
+	/**
+	 * Gets how long this crawler should wait between requests.
+	 *
+	 * @return The number of milliseconds to wait, or 0 if the file does not ask.
+	 */
+	public long getCrawlDelay() {
+		return crawlDelay;
+	}
+
+	/**
+	 * Gets the URLs of the sitemaps listed in the file, whichever groups they appear in.
+	 *
+	 * @return A read-only List of the URLs, in the order in which they appear.
+	 */
+	public List<String> getSitemaps() {
+		return sitemaps;
+	}
+
+	/**
+	 * Determines whether or not the file was longer than RobotsTxtParser.MAX_SIZE, so that the rest of it was ignored.
+	 *
+	 * @return True if the file was cut off, or false if all of it was parsed.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,385 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A parser of robots.txt files, following RFC 9309.
+ * A file is read as a stream of characters, one line at a time, into a buffer that is reused for every line.
+ * Field names are compared in place and without regard to case, so only the values that are kept ever become Strings.
+ * <p>
+ * A group starts with one or more User-agent lines and continues with the rules after them, whether or not there are blank lines between.
+ * The groups naming this crawler's product token are merged, and only if there are none are the groups naming "*" merged instead.
+ * Sitemap lines are collected wherever they appear, and the nonstandard Crawl-delay line is taken from the same groups as the rules.
+ * Only the first MAX_SIZE characters are parsed, and a line cut off at that point is ignored.
+ * A RobotsTxtParser never changes after it has been constructed, so it is safe to share between threads.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class RobotsTxtParser {
+
+	/** The number of characters of a robots.txt file that are parsed, which is the least that RFC 9309 requires. */
+	public static final int MAX_SIZE = 500 * 1024;
+
+	/** The product token by which this crawler recognizes the groups meant for it by default. */
+	public static final String DEFAULT_PRODUCT_TOKEN = "mucrawler";
+
+	/** The number of characters read from a file at a time. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The product token by which this crawler recognizes the groups meant for it. */
+	private final String productToken;
+
+	/**
+	 * Constructs a RobotsTxtParser that looks for groups meant for DEFAULT_PRODUCT_TOKEN.
+	 */
+	public RobotsTxtParser() {
+		this(DEFAULT_PRODUCT_TOKEN);
+	}
+
+	/**
+	 * Constructs a RobotsTxtParser.
+	 *
+	 * @param productToken The product token by which this crawler recognizes the groups meant for it.
+	 * @throws IllegalArgumentException If the product token is empty or has characters other than letters, '_' and '-'.
+	 */
+	public RobotsTxtParser(String productToken) {
+		boolean valid = !productToken.isEmpty();
+		for(int index = 0; valid && index < productToken.length(); index++) {
+			valid = isTokenCharacter(productToken.charAt(index));
+		}
+		if(!valid) {
+			throw new IllegalArgumentException("A product token may only have letters, '_' and '-'.");
+		}
+		this.productToken = productToken;
+	}
+
+	/**
+	 * Gets the product token by which this crawler recognizes the groups meant for it.
+	 *
+	 * @return The product token.
+	 */
+	public String getProductToken() {
+		return productToken;
+	}
+
+	/**
+	 * Parses a robots.txt file.
+	 *
+	 * @param protocol The protocol of the host from which the file came.
+	 * @param hostName The name of the host from which the file came.
+	 * @param input The contents of the file, which is read up to MAX_SIZE characters and one more, but not closed.
+	 * @return What the file says to this crawler.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public RobotsTxt parse(String protocol, String hostName, Reader input) throws IOException {
+		Parse parse = new Parse(protocol, hostName);
+		char[] buffer = new char[BUFFER_SIZE];
+		int total = 0;
+		boolean ended = false;
+		while(!ended && total < MAX_SIZE) {
+			int count = input.read(buffer, 0, Math.min(buffer.length, MAX_SIZE - total));
+			if(count < 0) {
+				ended = true;
+			}
+			else {
+				for(int index = 0; index < count; index++) {
+					parse.accept(buffer[index]);
+				}
+				total += count;
+			}
+		}
+		boolean truncated = !ended && input.read() >= 0;
+		if(!truncated) {
+			// The last line need not end with a line break.
+			parse.endLine();
+		}
+		return parse.finish(truncated);
+	}
+
+	/**
+	 * Determines whether or not a character may appear in a product token.
+	 *
+	 * @param character The character.
+	 * @return True if it is a letter, '_' or '-', or false otherwise.
+	 */
+	private static boolean isTokenCharacter(char character) {
+		return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z') || character == '_' || character == '-';
+	}
+
+	/**
+	 * Determines whether or not a character is whitespace within a line of a robots.txt file.
+	 *
+	 * @param character The character.
+	 * @return True if it is a space or a tab, or false otherwise.
+	 */
+	private static boolean isWhitespace(char character) {
+		return character == ' ' || character == '\t';
+	}
+
+	/**
+	 * The state of parsing a single file.
+	 */
+	private class Parse {
+		/** The protocol of the host from which the file came. */
+		private final String protocol;
+		/** The name of the host from which the file came. */
+		private final String hostName;
+		/** The characters of the current line so far. */
+		private char[] line;
+		/** The number of characters of the current line so far. */
+		private int length;
+		/** Whether or not any character of the file has been seen, so that a byte order mark can be skipped. */
+		private boolean started;
+		/** Whether or not the last record was a User-agent line, so that another one adds to the same group. */
+		private boolean inUserAgents;
+		/** Whether or not the current group names this crawler's product token. */
+		private boolean groupIsOurs;
+		/** Whether or not the current group names "*". */
+		private boolean groupIsAny;
+		/** Whether or not any group names this crawler's product token. */
+		private boolean foundOurGroup;
+		/** The rules of the groups that name this crawler's product token. */
+		private final Set<RobotsRule> ourRules;
+		/** The rules of the groups that name "*". */
+		private final Set<RobotsRule> anyRules;
+		/** The longest crawl delay in milliseconds of the groups that name this crawler's product token. */
+		private long ourCrawlDelay;
+		/** The longest crawl delay in milliseconds of the groups that name "*". */
+		private long anyCrawlDelay;
+		/** The URLs of the sitemaps found so far. */
+		private final List<String> sitemaps;
+
+		/**
+		 * Constructs a Parse that has not seen any of the file.
+		 *
+		 * @param protocol The protocol of the host from which the file came.
+		 * @param hostName The name of the host from which the file came.
+		 */
+		private Parse(String protocol, String hostName) {
+			this.protocol = protocol;
+			this.hostName = hostName;
+			line = new char[128];
+			length = 0;
+			started = false;
+			inUserAgents = false;
+			groupIsOurs = false;
+			groupIsAny = false;
+			foundOurGroup = false;
+			ourRules = new HashSet<>();
+			anyRules = new HashSet<>();
+			ourCrawlDelay = 0;
+			anyCrawlDelay = 0;
+			sitemaps = new ArrayList<>();
+		}
+
+		/**
+		 * Takes the next character of the file.
+		 *
+		 * @param character The character.
+		 */
+		private void accept(char character) {
+			if(character == '\n' || character == '\r') {
+				endLine();
+			}
+			else if(started || character != '\uFEFF') {
+				if(length == line.length) {
+					line = Arrays.copyOf(line, length * 2);
+				}
+				line[length] = character;
+				length++;
+			}
+			started = true;
+		}
+
+		/**
+		 * Handles the line that has just ended, and starts a new one.
+		 */
+		private void endLine() {
+			int end = 0;
+			while(end < length && line[end] != '#') {
+				end++;
+			}
+			while(end > 0 && isWhitespace(line[end - 1])) {
+				end--;
+			}
+			int start = 0;
+			while(start < end && isWhitespace(line[start])) {
+				start++;
+			}
+			int colon = start;
+			while(colon < end && line[colon] != ':') {
+				colon++;
+			}
+			// A line without a colon is not a record, and is ignored.
+			if(colon < end) {
+				int nameEnd = colon;
+				while(nameEnd > start && isWhitespace(line[nameEnd - 1])) {
+					nameEnd--;
+				}
+				int valueStart = colon + 1;
+				while(valueStart < end && isWhitespace(line[valueStart])) {
+					valueStart++;
+				}
+				if(nameIs(start, nameEnd, "user-agent")) {
+					userAgent(valueStart, end);
+				}
+				else if(nameIs(start, nameEnd, "allow")) {
+					rule(valueStart, end, true);
+				}
+				else if(nameIs(start, nameEnd, "disallow")) {
+					rule(valueStart, end, false);
+				}
+				else if(nameIs(start, nameEnd, "crawl-delay")) {
+					crawlDelay(valueStart, end);
+				}
+				else if(nameIs(start, nameEnd, "sitemap")) {
+					if(valueStart < end) {
+						sitemaps.add(new String(line, valueStart, end - valueStart));
+					}
+				}
+			}
+			length = 0;
+		}
+
+		/**
+		 * Determines whether or not part of the current line is a certain field name.
+		 *
+		 * @param start The index of the first character of the part.
+		 * @param end The index just past the last character of the part.
+		 * @param name The field name, in lowercase.
+		 * @return True if the part is the field name in any case, or false otherwise.
+		 */
+		private boolean nameIs(int start, int end, String name) {
+			boolean returnValue = end - start == name.length();
+			for(int index = start; returnValue && index < end; index++) {
+				returnValue = Character.toLowerCase(line[index]) == name.charAt(index - start);
+			}
+			return returnValue;
+		}
+
+		/**
+		 * Handles a User-agent line, which either starts a new group or adds to the current one.
+		 * Only the product token at the start of the value matters, so "MuCrawler/1.0" names "mucrawler".
+		 *
+		 * @param start The index of the first character of the value.
+		 * @param end The index just past the last character of the value.
+		 */
+		private void userAgent(int start, int end) {
+			if(!inUserAgents) {
+				groupIsOurs = false;
+				groupIsAny = false;
+				inUserAgents = true;
+			}
+			if(end - start == 1 && line[start] == '*') {
+				groupIsAny = true;
+			}
+			else {
+				int tokenEnd = start;
+				while(tokenEnd < end && isTokenCharacter(line[tokenEnd])) {
+					tokenEnd++;
+				}
+				boolean matches = tokenEnd - start == productToken.length();
+				for(int index = start; matches && index < tokenEnd; index++) {
+					matches = Character.toLowerCase(line[index]) == Character.toLowerCase(productToken.charAt(index - start));
+				}
+				if(matches) {
+					groupIsOurs = true;
+					foundOurGroup = true;
+				}
+			}
+		}
+
+		/**
+		 * Handles an Allow or Disallow line.
+		 * One with an empty value allows or disallows nothing, and so is ignored.
+		 *
+		 * @param start The index of the first character of the value.
+		 * @param end The index just past the last character of the value.
+		 * @param allowed Whether the line is an Allow line, rather than a Disallow line.
+		 */
+		private void rule(int start, int end, boolean allowed) {
+			inUserAgents = false;
+			if((groupIsOurs || groupIsAny) && start < end) {
+				String path = new String(line, start, end - start);
+				if(path.charAt(0) != '/' && path.charAt(0) != '*') {
+					path = "/" + path;
+				}
+				RobotsRule rule = new RobotsRule(protocol, hostName, path, allowed);
+				if(groupIsOurs) {
+					addRule(ourRules, rule);
+				}
+				if(groupIsAny) {
+					addRule(anyRules, rule);
+				}
+			}
+		}
+
+		/**
+		 * Adds a rule to a set, unless there is already one with the same path that allows, since that would win anyway.
+		 *
+		 * @param rules The set.
+		 * @param rule The rule.
+		 */
+		private void addRule(Set<RobotsRule> rules, RobotsRule rule) {
+			if(rule.isAllowed()) {
+				rules.remove(new RobotsRule(protocol, hostName, rule.getPathPrefix(), false));
+				rules.add(rule);
+			}
+			else if(!rules.contains(new RobotsRule(protocol, hostName, rule.getPathPrefix(), true))) {
+				rules.add(rule);
+			}
+		}
+
+		/**
+		 * Handles a Crawl-delay line, whose value is a number of seconds.
+		 * One whose value is not a positive number is ignored.
+		 *
+		 * @param start The index of the first character of the value.
+		 * @param end The index just past the last character of the value.
+		 */
+		private void crawlDelay(int start, int end) {
+			inUserAgents = false;
+			if(groupIsOurs || groupIsAny) {
+				try {
+					double seconds = Double.parseDouble(new String(line, start, end - start));
+					if(seconds > 0) {
+						long delay = (long)Math.min(seconds * 1000, Long.MAX_VALUE);
+						if(groupIsOurs) {
+							ourCrawlDelay = Math.max(ourCrawlDelay, delay);
+						}
+						if(groupIsAny) {
+							anyCrawlDelay = Math.max(anyCrawlDelay, delay);
+						}
+					}
+				}
+				catch(NumberFormatException exception) {
+					// Then there is no crawl delay in this line.
+				}
+			}
+		}
+
+		/**
+		 * Collects what the file says to this crawler.
+		 *
+		 * @param truncated Whether or not the file was too long, so that the rest of it was ignored.
+		 * @return What the file says to this crawler.
+		 */
+		private RobotsTxt finish(boolean truncated) {
+			RobotsTxt returnValue;
+			if(foundOurGroup) {
+				returnValue = new RobotsTxt(ourRules, ourCrawlDelay, sitemaps, truncated);
+			}
+			else {
+				returnValue = new RobotsTxt(anyRules, anyCrawlDelay, sitemaps, truncated);
+			}
+			return returnValue;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a parsed sitemap file lists: the URLs of pages if it is a urlset, or the URLs of further sitemaps if it is a sitemap index.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class Sitemap {
+
+	/** The pages listed, in the order in which they appear. */
+	private final List<SitemapEntry> entries;
+	/** The further sitemaps listed, in the order in which they appear. */
+	private final List<CrawlURL> sitemaps;
+	/** Whether or not the file could not be parsed to its end, so that only what came before the problem was kept. */
+	private final boolean truncated;
+
+	/**
+	 * Constructs a Sitemap.
+	 *
+	 * @param entries The pages listed, in the order in which they appear.
+	 * @param sitemaps The further sitemaps listed, in the order in which they appear.
+	 * @param truncated Whether or not the file could not be parsed to its end.
+	 */
+	public Sitemap(List<SitemapEntry> entries, List<CrawlURL> sitemaps, boolean truncated) {
+		this.entries = Collections.unmodifiableList(entries);
+		this.sitemaps = Collections.unmodifiableList(sitemaps);
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Gets the pages listed in a urlset.
+	 *
+	 * @return A read-only List of the pages, which is empty for a sitemap index.
+	 */
+	public List<SitemapEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the further sitemaps listed in a sitemap index.
+	 *
+	 * @return A read-only List of their URLs, which is empty for a urlset.
+	 */
+	public List<CrawlURL> getSitemaps() {
+		return sitemaps;
+	}
+
+	/**
+	 * Determines whether or not the file was cut off, was not well-formed, or listed more than SitemapParser.MAX_ENTRIES URLs.
+	 *
+	 * @return True if only part of the file was parsed, or false if all of it was.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
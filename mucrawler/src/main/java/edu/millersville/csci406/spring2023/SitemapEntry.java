@@ -0,0 +1,67 @@
+package edu.millersville.csci406.spring2023;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A URL listed in a sitemap, with the time at which the sitemap says that it last changed.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class SitemapEntry {
+
+	/** The URL. */
+	private final CrawlURL url;
+	/** When the file at the URL last changed, or null if the sitemap does not say. */
+	private final Instant lastModified;
+
+	/**
+	 * Constructs a SitemapEntry.
+	 *
+	 * @param url The URL.
+	 * @param lastModified When the file at the URL last changed, or null if the sitemap does not say.
+	 */
+	public SitemapEntry(CrawlURL url, Instant lastModified) {
+		this.url = url;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Gets the URL.
+	 *
+	 * @return The URL.
+	 */
+	public CrawlURL getURL() {
+		return url;
+	}
+
+	/**
+	 * Gets when the file at the URL last changed.
+	 *
+	 * @return The time from the sitemap's lastmod element, or null if it has none.
+	 */
+	public Instant getLastModified() {
+		return lastModified;
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		boolean returnValue = false;
+		if(arg0 instanceof SitemapEntry) {
+			SitemapEntry other = (SitemapEntry)arg0;
+			returnValue = url.equals(other.url) && Objects.equals(lastModified, other.lastModified);
+		}
+		return returnValue;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(url, lastModified);
+	}
+
+	@Override
+	public String toString() {
+		return url + (lastModified == null ? "" : " (" + lastModified + ")");
+	}
+}
@@ -0,0 +1,300 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A parser of sitemap files, following the sitemaps.org protocol.
+ * A file is read as a stream of XML events, so only the URLs it lists are ever kept in memory, and never the whole document.
+ * A file that starts with the gzip magic number is decompressed as it is read, which is how .xml.gz sitemaps are served.
+ * <p>
+ * A urlset lists pages in url elements, each with a loc and an optional lastmod, and a sitemapindex lists further sitemaps in sitemap elements, each with a loc.
+ * Elements are recognized by their local names alone, since many sitemaps get the namespace wrong, and any other elements are skipped.
+ * No more than MAX_ENTRIES URLs and MAX_SIZE decompressed bytes are read, as the protocol allows no more than that in one file.
+ * A file that is cut off or is not well-formed still yields what was parsed before the problem.
+ * DTDs and external entities are never processed, so a file cannot make the parser fetch anything or expand without bound.
+ * A SitemapParser never changes after it has been constructed, so it is safe to share between threads.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class SitemapParser {
+
+	/** The number of URLs of a sitemap file that are kept, which is the most that the protocol allows in one file. */
+	public static final int MAX_ENTRIES = 50000;
+
+	/** The number of decompressed bytes of a sitemap file that are parsed, which is the most that the protocol allows in one file. */
+	public static final long MAX_SIZE = 50L * 1024 * 1024;
+
+	/** The number of characters of a loc or lastmod that are kept, beyond which the value is ignored as it cannot be a useful URL. */
+	private static final int MAX_VALUE_LENGTH = 2048;
+
+	/** The first byte of every gzip stream. */
+	private static final int GZIP_MAGIC_1 = 0x1f;
+
+	/** The second byte of every gzip stream. */
+	private static final int GZIP_MAGIC_2 = 0x8b;
+
+	/**
+	 * An InputStream that ends after a fixed number of bytes of another, whether or not that one has more.
+	 */
+	private static class LimitedInputStream extends FilterInputStream {
+		/** The number of bytes that may still be read. */
+		private long remaining;
+
+		/**
+		 * Constructs a LimitedInputStream.
+		 *
+		 * @param in The stream to read.
+		 * @param limit The number of bytes after which to end.
+		 */
+		private LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			remaining = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int returnValue = -1;
+			if(remaining > 0) {
+				returnValue = super.read();
+				if(returnValue != -1) {
+					remaining--;
+				}
+			}
+			return returnValue;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int returnValue = -1;
+			if(remaining > 0) {
+				returnValue = super.read(buffer, offset, (int)Math.min(length, remaining));
+				if(returnValue > 0) {
+					remaining -= returnValue;
+				}
+			}
+			return returnValue;
+		}
+
+		@Override
+		public long skip(long count) throws IOException {
+			long returnValue = super.skip(Math.min(count, remaining));
+			remaining -= returnValue;
+			return returnValue;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int)Math.min(super.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * Parses a sitemap file or sitemap index, which may be gzipped.
+	 *
+	 * @param input The bytes of the file, which are read up to MAX_SIZE after decompressing, but not closed.
+	 * @return The pages or further sitemaps that the file lists.
+	 * @throws IOException If the file cannot be read, or says that it is gzipped but is not.
+	 */
+	public Sitemap parse(InputStream input) throws IOException {
+		List<SitemapEntry> entries = new ArrayList<>();
+		List<CrawlURL> sitemaps = new ArrayList<>();
+		boolean truncated = false;
+		XMLStreamReader reader = null;
+		try {
+			reader = newInputFactory().createXMLStreamReader(new LimitedInputStream(decompress(input), MAX_SIZE));
+			StringBuilder text = new StringBuilder();
+			String collecting = null;
+			String loc = null;
+			String lastmod = null;
+			int depth = 0;
+			int entryDepth = -1;
+			while(reader.hasNext() && !truncated) {
+				switch(reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					String startName = reader.getLocalName();
+					if(startName.equals("url") || startName.equals("sitemap")) {
+						entryDepth = depth;
+						loc = null;
+						lastmod = null;
+					}
+					else if(depth == entryDepth + 1 && (startName.equals("loc") || startName.equals("lastmod"))) {
+						// Only a loc directly inside a url counts, and not one in an extension such as an image.
+						collecting = startName;
+						text.setLength(0);
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					if(collecting != null && text.length() <= MAX_VALUE_LENGTH) {
+						text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					String endName = reader.getLocalName();
+					if(endName.equals(collecting)) {
+						String value = text.length() <= MAX_VALUE_LENGTH ? text.toString().trim() : null;
+						if(collecting.equals("loc")) {
+							loc = value;
+						}
+						else {
+							lastmod = value;
+						}
+						collecting = null;
+					}
+					else if(depth + 1 == entryDepth) {
+						entryDepth = -1;
+						CrawlURL url = toURL(loc);
+						if(url != null) {
+							if(entries.size() + sitemaps.size() == MAX_ENTRIES) {
+								truncated = true;
+							}
+							else if(endName.equals("url")) {
+								entries.add(new SitemapEntry(url, parseLastModified(lastmod)));
+							}
+							else {
+								sitemaps.add(url);
+							}
+						}
+					}
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		catch(XMLStreamException exception) {
+			// The file was cut off, probably by a body size limit, or was never well-formed, so whatever came before is kept.
+			truncated = true;
+		}
+		finally {
+			if(reader != null) {
+				try {
+					reader.close();
+				}
+				catch(XMLStreamException exception) {
+					// Closing the reader does not close the input, so there is nothing that can fail.
+				}
+			}
+		}
+		return new Sitemap(entries, sitemaps, truncated);
+	}
+
+	/**
+	 * Parses the value of a lastmod element, which is a W3C Datetime.
+	 * A date alone, or only a year and month or a year, is taken to be the start of that day, month or year in UTC, and so is a date and time with no time zone.
+	 *
+	 * @param text The value, or null.
+	 * @return The time that it gives, or null if there is none or it cannot be parsed.
+	 */
+	public static Instant parseLastModified(String text) {
+		Instant returnValue = null;
+		if(text != null) {
+			try {
+				if(text.indexOf('T') >= 0) {
+					if(text.endsWith("Z") || text.lastIndexOf('+') > 0 || text.lastIndexOf('-') > text.indexOf('T')) {
+						returnValue = OffsetDateTime.parse(text).toInstant();
+					}
+					else {
+						returnValue = LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+					}
+				}
+				else if(text.length() == 10) {
+					returnValue = LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant();
+				}
+				else if(text.length() == 7) {
+					returnValue = YearMonth.parse(text).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+				}
+				else if(text.length() == 4) {
+					returnValue = Year.parse(text).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+				}
+			}
+			catch(DateTimeParseException exception) {
+				// A lastmod is only a hint, so one that cannot be parsed is ignored.
+				returnValue = null;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Creates a factory for XML readers that will not process DTDs or entities.
+	 * A new one is created for each file, since a factory is not promised to be safe to share between threads.
+	 *
+	 * @return The factory.
+	 */
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory returnValue = XMLInputFactory.newDefaultFactory();
+		returnValue.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		returnValue.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		returnValue.setProperty(XMLInputFactory.IS_COALESCING, false);
+		return returnValue;
+	}
+
+	/**
+	 * Decompresses a stream if it starts with the gzip magic number, whether or not the URL it came from ended with .gz.
+	 *
+	 * @param input The stream.
+	 * @return A stream of the decompressed bytes, or of the original bytes if they were not gzipped.
+	 * @throws IOException If the stream cannot be read, or has the magic number but is not gzipped.
+	 */
+	private static InputStream decompress(InputStream input) throws IOException {
+		InputStream returnValue = new BufferedInputStream(input);
+		returnValue.mark(2);
+		boolean gzipped = returnValue.read() == GZIP_MAGIC_1 && returnValue.read() == GZIP_MAGIC_2;
+		returnValue.reset();
+		if(gzipped) {
+			returnValue = new GZIPInputStream(returnValue);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Turns the value of a loc element into a CrawlURL.
+	 *
+	 * @param loc The value, or null.
+	 * @return The URL, or null if there is none, it is not absolute, or it is not http or https.
+	 */
+	private static CrawlURL toURL(String loc) {
+		CrawlURL returnValue = null;
+		if(loc != null && !loc.isEmpty()) {
+			try {
+				CrawlURL url = new CrawlURL(loc);
+				if(url.getProtocol().equals("http") || url.getProtocol().equals("https")) {
+					returnValue = url;
+				}
+			}
+			catch(MalformedURLException exception) {
+				returnValue = null;
+			}
+		}
+		return returnValue;
+	}
+}
@@ -0,0 +1,73 @@
+package edu.millersville.csci406.spring2023;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of how many bytes of response bodies have been received from a host, both as they came over the wire and after decoding any Content-Encoding.
+ * It is safe to update and read from many threads at once.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TransferStatistics {
+
+	/** The number of response bodies received. */
+	private final AtomicLong responses;
+	/** The number of bytes received over the wire, possibly compressed. */
+	private final AtomicLong wireBytes;
+	/** The number of bytes after decoding. */
+	private final AtomicLong decodedBytes;
+
+	/**
+	 * Constructs TransferStatistics for which nothing has been received yet.
+	 */
+	public TransferStatistics() {
+		responses = new AtomicLong(0);
+		wireBytes = new AtomicLong(0);
+		decodedBytes = new AtomicLong(0);
+	}
+
+	/**
+	 * Records a response body that has been received.
+	 *
+	 * @param wire The number of bytes that came over the wire.
+	 * @param decoded The number of bytes after decoding.
+	 */
+	public void record(long wire, long decoded) {
+		responses.incrementAndGet();
+		wireBytes.addAndGet(wire);
+		decodedBytes.addAndGet(decoded);
+	}
+
+	/**
+	 * Gets the number of response bodies received.
+	 *
+	 * @return The number of response bodies received.
+	 */
+	public long getResponses() {
+		return responses.get();
+	}
+
+	/**
+	 * Gets the number of bytes received over the wire.
+	 *
+	 * @return The number of bytes received over the wire, possibly compressed.
+	 */
+	public long getWireBytes() {
+		return wireBytes.get();
+	}
+
+	/**
+	 * Gets the number of bytes received after decoding.
+	 *
+	 * @return The number of bytes after decoding.
+	 */
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	@Override
+	public String toString() {
+		return getResponses() + " responses, " + getWireBytes() + " bytes over the wire, " + getDecodedBytes() + " bytes decoded";
+	}
+}
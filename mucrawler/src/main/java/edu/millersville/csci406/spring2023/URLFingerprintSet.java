@@ -0,0 +1,248 @@
+package edu.millersville.csci406.spring2023;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A compact set of the URLs in the collection, kept as 64-bit fingerprints in an open-addressing hash table outside the Java heap.
+ * Each URL costs 16 to 32 bytes however long it is, since the table is kept between a quarter and a half full, so that every URL of a large crawl can be held in memory.
+ * The table stops growing at a maximum number of slots, after which it is filled to three quarters and then is full.
+ * By default the table may take up to a quarter of the largest heap, which is also the default limit on memory outside the heap, and at most MAX_CAPACITY slots, which hold about 100 million URLs in 1 GiB.
+ * If memory outside the heap runs out first, the table stops growing where it is.
+ * A full set does not fail: it refuses new URLs, so that the crawler treats them as unknown and leaves the database to skip any that it already has, while the URLs it holds are still found.
+ * Two different URLs have the same fingerprint with a probability of about one in 2^64 per pair, which is small enough to ignore; unlike a Bloom filter, URLs can also be removed.
+ * It is safe to use from many threads at once.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class URLFingerprintSet {
+
+	/** The number of slots in a new, empty table. */
+	private static final int INITIAL_CAPACITY = 1 << 16;
+	/** The largest number of slots that a table may ever have, which take 1 GiB. */
+	public static final int MAX_CAPACITY = 1 << 27;
+	/** The largest number of slots that a table may have by default, which take no more than a quarter of the largest heap. */
+	public static final int DEFAULT_MAX_CAPACITY = defaultMaxCapacity();
+	/** The fingerprint stored in a slot that is empty, which no URL is given. */
+	private static final long EMPTY = 0L;
+
+	/** The slots of the table, whose number is a power of two, in memory allocated outside the heap. */
+	private LongBuffer table;
+	/** One less than the number of slots, for finding a fingerprint's first slot. */
+	private int mask;
+	/** The number of fingerprints in the table. */
+	private int size;
+	/** The largest number of slots that the table may have, which is lowered to its current number if there is no memory for more. */
+	private int maxCapacity;
+
+	/**
+	 * Constructs an empty URLFingerprintSet whose table may grow to DEFAULT_MAX_CAPACITY slots.
+	 */
+	public URLFingerprintSet() {
+		this(DEFAULT_MAX_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty URLFingerprintSet whose table may grow to a particular number of slots.
+	 *
+	 * @param maxCapacity The largest number of slots that the table may have, which must be a power of two no larger than MAX_CAPACITY; the set is full at three quarters of this many URLs.
+	 */
+	public URLFingerprintSet(int maxCapacity) {
+		this(Math.min(INITIAL_CAPACITY, maxCapacity), maxCapacity);
+	}
+
+	/**
+	 * Constructs an empty URLFingerprintSet with a particular size of table, which is only useful for testing.
+	 *
+	 * @param initialCapacity The number of slots in the table at first, which must be a power of two.
+	 * @param maxCapacity The largest number of slots that the table may have, which must be a power of two no smaller than initialCapacity and no larger than MAX_CAPACITY.
+	 */
+	URLFingerprintSet(int initialCapacity, int maxCapacity) {
+		if(Integer.bitCount(initialCapacity) != 1 || Integer.bitCount(maxCapacity) != 1 || initialCapacity > maxCapacity || maxCapacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("The capacities must be powers of two, in order, and no larger than " + MAX_CAPACITY + ".");
+		}
+		this.maxCapacity = maxCapacity;
+		allocate(initialCapacity);
+		size = 0;
+	}
+
+	/**
+	 * Finds the largest number of slots, up to MAX_CAPACITY, that take no more than a quarter of the largest heap.
+	 *
+	 * @return The number of slots, which is a power of two.
+	 */
+	private static int defaultMaxCapacity() {
+		long budget = Runtime.getRuntime().maxMemory() / 4;
+		int returnValue = INITIAL_CAPACITY;
+		while(returnValue < MAX_CAPACITY && (long)returnValue * 2 * Long.BYTES <= budget) {
+			returnValue *= 2;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Computes the 64-bit fingerprint of a URL, which is FNV-1a over its characters followed by MurmurHash3's finalizer so that every bit depends on every character.
+	 *
+	 * @param url The URL.
+	 * @return Its fingerprint, which is never zero.
+	 */
+	public static long fingerprint(CrawlURL url) {
+		long hash = 0xcbf29ce484222325L;
+		hash = addCharacters(hash, url.getProtocol());
+		hash = addCharacters(hash, "://");
+		hash = addCharacters(hash, url.getHost());
+		hash = addCharacters(hash, url.getFile());
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash == EMPTY ? 1L : hash;
+	}
+
+	/**
+	 * Adds the characters of a String to an FNV-1a hash.
+	 *
+	 * @param hash The hash so far.
+	 * @param text The characters to add.
+	 * @return The new hash.
+	 */
+	private static long addCharacters(long hash, String text) {
+		for(int index = 0; index < text.length(); index++) {
+			hash ^= text.charAt(index);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Determines whether or not a URL is in the set.
+	 *
+	 * @param url The URL.
+	 * @return True if it is in the set, or false if it is not.
+	 */
+	public synchronized boolean contains(CrawlURL url) {
+		return table.get(findSlot(fingerprint(url))) != EMPTY;
+	}
+
+	/**
+	 * Adds a URL to the set, unless the set is full.
+	 *
+	 * @param url The URL.
+	 * @return True if it was added, or false if it was in the set already or the set is full, in which case it is left out.
+	 */
+	public synchronized boolean add(CrawlURL url) {
+		boolean returnValue = false;
+		long fingerprint = fingerprint(url);
+		int slot = findSlot(fingerprint);
+		// A full table is not filled further, since a table with no empty slots could not be searched.
+		if(table.get(slot) == EMPTY && !isFull()) {
+			table.put(slot, fingerprint);
+			size++;
+			returnValue = true;
+			// The table is kept at most half full so that slots are found in a probe or two.
+			if(size > table.capacity() / 2 && table.capacity() < maxCapacity) {
+				try {
+					resize(table.capacity() * 2);
+				}
+				catch(OutOfMemoryError error) {
+					// There is no more memory outside the heap, so the table fills up where it is instead.
+					maxCapacity = table.capacity();
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Determines whether or not the set is full, so that it refuses new URLs.
+	 *
+	 * @return True if the table has grown as large as it may and is three quarters full, or false if it is not.
+	 */
+	public synchronized boolean isFull() {
+		return table.capacity() >= maxCapacity && size >= maxCapacity / 4 * 3;
+	}
+
+	/**
+	 * Removes a URL from the set.
+	 *
+	 * @param url The URL.
+	 * @return True if it was removed, or false if it was not in the set.
+	 */
+	public synchronized boolean remove(CrawlURL url) {
+		boolean returnValue = false;
+		int slot = findSlot(fingerprint(url));
+		if(table.get(slot) != EMPTY) {
+			// Later fingerprints in the same run are moved back, so that none is cut off from its first slot by the new gap.
+			int gap = slot;
+			int next = (gap + 1) & mask;
+			while(table.get(next) != EMPTY) {
+				long moving = table.get(next);
+				int home = (int)moving & mask;
+				if(((next - home) & mask) >= ((next - gap) & mask)) {
+					table.put(gap, moving);
+					gap = next;
+				}
+				next = (next + 1) & mask;
+			}
+			table.put(gap, EMPTY);
+			size--;
+			returnValue = true;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Gets the number of URLs in the set.
+	 *
+	 * @return The number of URLs.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the slot that holds a fingerprint, or the empty slot where it would be put.
+	 *
+	 * @param fingerprint The fingerprint.
+	 * @return The index of the slot.
+	 */
+	private int findSlot(long fingerprint) {
+		int slot = (int)fingerprint & mask;
+		long current = table.get(slot);
+		while(current != EMPTY && current != fingerprint) {
+			slot = (slot + 1) & mask;
+			current = table.get(slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Replaces the table with an empty one.
+	 *
+	 * @param capacity The number of slots, which must be a power of two.
+	 * @throws OutOfMemoryError If there is no memory for the new table, in which case the old one is kept.
+	 */
+	private void allocate(int capacity) {
+		table = ByteBuffer.allocateDirect(Math.toIntExact((long)capacity * Long.BYTES)).asLongBuffer();
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Moves every fingerprint into a new table of a different size.
+	 *
+	 * @param capacity The number of slots in the new table, which must be a power of two.
+	 * @throws OutOfMemoryError If there is no memory for the new table, in which case the old one is kept.
+	 */
+	private void resize(int capacity) {
+		LongBuffer oldTable = table;
+		allocate(capacity);
+		for(int index = 0; index < oldTable.capacity(); index++) {
+			long fingerprint = oldTable.get(index);
+			if(fingerprint != EMPTY) {
+				table.put(findSlot(fingerprint), fingerprint);
+			}
+		}
+	}
+}
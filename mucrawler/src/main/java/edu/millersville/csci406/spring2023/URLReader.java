@@ -1,7 +1,7 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.Reader;
 
 import org.jsoup.nodes.Document;
 
@@ -14,12 +14,26 @@ import org.jsoup.nodes.Document;
 public interface URLReader {
 
 	/**
-	 * Gets a Scanner that is prepared to read the robots.txt file at a given URL.
+	 * The User-Agent sent with every request.
+	 * It begins with the product token whose robots.txt groups RobotsTxtParser obeys by default, so that site operators can write rules for the crawler they actually see.
+	 */
+	public static final String USER_AGENT = RobotsTxtParser.DEFAULT_PRODUCT_TOKEN + "/1.0 (Millersville University CSCI 406 search engine)";
+
+	/**
+	 * Gets a Reader that is prepared to read the robots.txt file at a given URL.
 	 * 
 	 * @param url The URL of the robots.txt file requested.
-	 * @return A Scanner that is prepared to read the robots.txt file requested, or null if it cannot be opened.
+	 * @return A Reader that is prepared to read the robots.txt file requested, or null if it cannot be opened.
+	 */
+	public Reader readRobotsTxtFile(CrawlURL url);
+
+	/**
+	 * Gets an InputStream of the bytes of a sitemap file at a given URL, which SitemapParser will decompress if they are gzipped.
+	 * 
+	 * @param url The URL of the sitemap file requested.
+	 * @return An InputStream that is prepared to read the sitemap file requested, or null if it cannot be opened.
 	 */
-	public Scanner readRobotsTxtFile(URL url);
+	public InputStream readSitemapFile(CrawlURL url);
 
 	/**
 	 * Gets a parsed Document representing an HTML file at a given URL.
@@ -28,5 +42,15 @@ public interface URLReader {
 	 * @param url The URL of the HTML file requested.
 	 * @return A Document representing the HTML file, or null.
 	 */
-	public Document readHTMLFile(URL url);
+	public Document readHTMLFile(CrawlURL url);
+
+	/**
+	 * Fetches an HTML file that may have been crawled before, asking the server to skip sending it if it has not changed since then.
+	 * If the file is sent anyway but is identical to the last crawl, it is not parsed again.
+	 * 
+	 * @param url The URL of the HTML file requested.
+	 * @param validators What was learned about the file when it was last crawled, or null if it has never been crawled.
+	 * @return The outcome of fetching the file, whose Document is null if the file has not changed, does not exist, or is not an HTML file.
+	 */
+	public HtmlFetch readHTMLFile(CrawlURL url, Validators validators);
 }
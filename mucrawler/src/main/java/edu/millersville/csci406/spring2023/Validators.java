@@ -0,0 +1,131 @@
+package edu.millersville.csci406.spring2023;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * What was learned about a file the last time it was fetched that lets a later fetch tell whether it has changed.
+ * The ETag and Last-Modified values are sent back to the server in a conditional request, so that an unchanged file costs a 304 response with no body.
+ * The content hash catches unchanged files from servers that ignore conditional requests.
+ * Any of the three may be null if it is not known.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class Validators {
+
+	/** The ETag header the server sent with the file, or null if it sent none. */
+	private final String etag;
+	/** The Last-Modified header the server sent with the file, or null if it sent none. */
+	private final String lastModified;
+	/** A hash of the decoded body of the file, or null if it is not known. */
+	private final String contentHash;
+
+	/**
+	 * Constructs Validators.
+	 *
+	 * @param etag The ETag header the server sent with the file, or null if it sent none.
+	 * @param lastModified The Last-Modified header the server sent with the file, or null if it sent none.
+	 * @param contentHash A hash of the decoded body of the file, as produced by {@link #hash(byte[])}, or null if it is not known.
+	 */
+	public Validators(String etag, String lastModified, String contentHash) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Gets the ETag header the server sent with the file.
+	 *
+	 * @return The ETag, or null if the server sent none.
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * Gets the Last-Modified header the server sent with the file.
+	 *
+	 * @return The Last-Modified date as the server wrote it, or null if the server sent none.
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Gets the hash of the decoded body of the file.
+	 *
+	 * @return The hash, or null if it is not known.
+	 */
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * Updates these Validators from a 304 response, which may carry a new ETag or Last-Modified date.
+	 *
+	 * @param newEtag The ETag header of the response, or null if it had none.
+	 * @param newLastModified The Last-Modified header of the response, or null if it had none.
+	 * @return Validators with whichever values the response carried in place of these, and the same content hash.
+	 */
+	public Validators revalidated(String newEtag, String newLastModified) {
+		return new Validators(newEtag == null ? etag : newEtag, newLastModified == null ? lastModified : newLastModified, contentHash);
+	}
+
+	/**
+	 * Checks whether the body these Validators were made from is the same as another.
+	 *
+	 * @param other Validators made from another fetch of the same file.
+	 * @return Whether or not both content hashes are known and equal.
+	 */
+	public boolean hasSameContent(Validators other) {
+		return contentHash != null && contentHash.equals(other.contentHash);
+	}
+
+	/**
+	 * Hashes the decoded body of a file.
+	 *
+	 * @param body The decoded body.
+	 * @return The SHA-256 hash of the body, as 64 lowercase hexadecimal digits.
+	 */
+	public static String hash(byte[] body) {
+		byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(body);
+		}
+		catch(NoSuchAlgorithmException exception) {
+			// Every Java implementation is required to support SHA-256.
+			throw new IllegalStateException(exception);
+		}
+		StringBuilder str = new StringBuilder(digest.length * 2);
+		for(byte b : digest) {
+			str.append(Character.forDigit((b >> 4) & 0xf, 16));
+			str.append(Character.forDigit(b & 0xf, 16));
+		}
+		return str.toString();
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		boolean returnValue;
+		if(arg0 instanceof Validators) {
+			Validators other = (Validators)arg0;
+			returnValue = Objects.equals(etag, other.etag) && Objects.equals(lastModified, other.lastModified) && Objects.equals(contentHash, other.contentHash);
+		}
+		else {
+			returnValue = false;
+		}
+		return returnValue;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(etag, lastModified, contentHash);
+	}
+
+	@Override
+	public String toString() {
+		return "ETag " + etag + ", Last-Modified " + lastModified + ", hash " + contentHash;
+	}
+}
@@ -1,7 +1,10 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
@@ -18,13 +21,62 @@ public class AbstractCrawlingDataSourceMock implements CrawlingDataSource {
 		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
 	}
 
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(int afterId, int limit) throws DataSourceException {
+		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
+	}
+
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(String hostName, int limit) throws DataSourceException {
+		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A mock saves every change as it is made, so this does nothing.
+	 */
+	@Override
+	public void beginBatch() throws DataSourceException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A mock saves every change as it is made, so this does nothing.
+	 */
+	@Override
+	public void endBatch() throws DataSourceException {
+	}
+
 	@Override
 	public Set<CrawlJob> finishCrawlingRobotsFile(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException {
 		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
 	}
 
 	@Override
-	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException {
+	public Set<CrawlJob> addSitemapUrls(Collection<SitemapEntry> entries) throws DataSourceException {
+		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
+	}
+
+	@Override
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
+		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
+	}
+
+	/**
+	 * Ignores the Validators and calls {@link #finishCrawlingHtmlFile(CrawlJob, Set, String)}, so that mocks that do not care about them need only override that.
+	 */
+	@Override
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) throws DataSourceException {
+		return finishCrawlingHtmlFile(job, newUrls, content);
+	}
+
+	@Override
+	public void finishUnchangedHtmlFile(CrawlJob job, Validators validators) throws DataSourceException {
+		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
+	}
+
+	@Override
+	public int scheduleRecrawl(long maxAge) throws DataSourceException {
 		throw new UnsupportedOperationException("You must override this method if you intend to use it.");
 	}
 
@@ -33,4 +85,28 @@ public class AbstractCrawlingDataSourceMock implements CrawlingDataSource {
 		throw new UnsupportedOperationException("You must override this method if you intend to use it.");		
 	}
 
+	/**
+	 * Gets one page of a set of CrawlJobs, as {@link CrawlingDataSource#getURLsToCrawl(int, int)} should.
+	 * 
+	 * @param jobs The CrawlJobs that are waiting to be completed.
+	 * @param afterId Only CrawlJobs with IDs greater than this will be returned.
+	 * @param limit The largest number of CrawlJobs to return.
+	 * @return The CrawlJobs with the smallest IDs greater than afterId.
+	 */
+	protected static Set<CrawlJob> getPage(Set<CrawlJob> jobs, int afterId, int limit) {
+		return jobs.stream().filter(job -> job.getId() > afterId).sorted(Comparator.comparingInt(CrawlJob::getId)).limit(limit).collect(Collectors.toCollection(HashSet::new));
+	}
+
+	/**
+	 * Gets the first CrawlJobs for a host from a set of CrawlJobs, as {@link CrawlingDataSource#getURLsToCrawl(String, int)} should.
+	 * 
+	 * @param jobs The CrawlJobs that are waiting to be completed.
+	 * @param hostName The name of the host.
+	 * @param limit The largest number of CrawlJobs to return.
+	 * @return The first CrawlJobs for the host.
+	 */
+	protected static Set<CrawlJob> getPage(Set<CrawlJob> jobs, String hostName, int limit) {
+		return jobs.stream().filter(job -> job.getURL().getHost().equals(hostName)).sorted().limit(limit).collect(Collectors.toCollection(HashSet::new));
+	}
+
 }
@@ -1,9 +1,11 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,9 +29,9 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 	/** A mapping from each CrawlJob to the Set of CrawlJobs that should be disallowed because of it.  (No entry for non-robots.txt jobs.) */
 	private Map<CrawlJob, Set<CrawlJob>> disallowedJobs;
 	/** A mapping from each CrawlJob to the Set of URLs that we expect to receive for it.  (No entry for robots.txt jobs.) */
-	private Map<CrawlJob, Set<URL>> expectedUrls;
+	private Map<CrawlJob, Set<CrawlURL>> expectedUrls;
 	/** A mapping from each CrawlJob to the Set of URLs that we actually did receive for it.  (No entry if we did not receive a Set of URLs for it. */
-	private Map<CrawlJob, Set<URL>> receivedUrls;
+	private Map<CrawlJob, Set<CrawlURL>> receivedUrls;
 	/** A mapping from each CrawlJob to the String of content that we expect to receive for it.  (No entry for robots.txt jobs.) */
 	private Map<CrawlJob, String> expectedContent;
 	/** A mapping from each CrawlJob to the String of content that we actually did receive for it.  (No entry if we did not receive a String of content for it. */
@@ -40,6 +42,12 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 	private Set<CrawlJob> expectedCancellations;
 	/** A set of CrawlJobs that were canceled. */
 	private Set<CrawlJob> receivedCancellations;
+	/** A set of CrawlJobs for HTML files that were crawled again and had not changed. */
+	private Set<CrawlJob> receivedUnchanged;
+	/** A mapping from each CrawlJob to the Validators that we received for it.  (No entry if we did not receive any.) */
+	private Map<CrawlJob, Validators> receivedValidators;
+	/** The URLs from sitemaps that we received, in the order in which we received them. */
+	private List<SitemapEntry> receivedSitemapEntries;
 	
 	/**
 	 * Constructs a CrawlControllerDataSourceMock from all of the information that it should provide to the CrawlController and expect to receive from the CrawlController.
@@ -52,7 +60,7 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 	 * @param newJobs A mapping from CrawlJob to Set of CrawlJobs generated from it.
 	 * @param expectedCancellations A set of CrawlJobs that should be canceled.
 	 */
-	public CrawlControllerDataSourceMock(Set<CrawlJob> initialJobs, Map<CrawlJob, Set<RobotsRule>> expectedRules, Map<CrawlJob, Set<CrawlJob>> disallowedJobs, Map<CrawlJob, Set<URL>> expectedURLs, Map<CrawlJob, String> expectedContent, Map<CrawlJob, Set<CrawlJob>> newJobs, Set<CrawlJob> expectedCancellations) {
+	public CrawlControllerDataSourceMock(Set<CrawlJob> initialJobs, Map<CrawlJob, Set<RobotsRule>> expectedRules, Map<CrawlJob, Set<CrawlJob>> disallowedJobs, Map<CrawlJob, Set<CrawlURL>> expectedURLs, Map<CrawlJob, String> expectedContent, Map<CrawlJob, Set<CrawlJob>> newJobs, Set<CrawlJob> expectedCancellations) {
 		this.outstandingJobs = initialJobs;
 		this.expectedRules = expectedRules;
 		this.receivedRules = new HashMap<>();
@@ -64,6 +72,9 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 		this.newJobs = newJobs;
 		this.expectedCancellations = expectedCancellations;
 		this.receivedCancellations = new HashSet<>();
+		this.receivedUnchanged = new HashSet<>();
+		this.receivedValidators = new HashMap<>();
+		this.receivedSitemapEntries = new ArrayList<>();
 	}
 
 	@Override
@@ -72,6 +83,16 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 		return returnValue;
 	}
 
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(int afterId, int limit) throws DataSourceException {
+		return getPage(outstandingJobs, afterId, limit);
+	}
+
+	@Override
+	public Set<CrawlJob> getURLsToCrawl(String hostName, int limit) throws DataSourceException {
+		return getPage(outstandingJobs, hostName, limit);
+	}
+
 	@Override
 	public Set<CrawlJob> finishCrawlingRobotsFile(CrawlJob job, Set<RobotsRule> newRules) throws DataSourceException {
 		outstandingJobs.remove(job);
@@ -81,7 +102,7 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 	}
 
 	@Override
-	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException {
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
 		outstandingJobs.remove(job);
 		receivedUrls.put(job, newUrls);
 		receivedContent.put(job, content);
@@ -103,12 +124,60 @@ public class CrawlControllerDataSourceMock extends AbstractCrawlingDataSourceMoc
 		return returnValue;
 	}
 	
+	@Override
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content, Validators validators) throws DataSourceException {
+		if(validators != null) {
+			receivedValidators.put(job, validators);
+		}
+		return finishCrawlingHtmlFile(job, newUrls, content);
+	}
+
+	@Override
+	public void finishUnchangedHtmlFile(CrawlJob job, Validators validators) throws DataSourceException {
+		outstandingJobs.remove(job);
+		receivedUnchanged.add(job);
+		receivedValidators.put(job, validators);
+	}
+	
+	@Override
+	public Set<CrawlJob> addSitemapUrls(Collection<SitemapEntry> entries) throws DataSourceException {
+		receivedSitemapEntries.addAll(entries);
+		return new HashSet<>();
+	}
+	
 	@Override
 	public void cancelCrawlingHtmlFile(CrawlJob job) throws DataSourceException {
 		receivedCancellations.add(job);
 		outstandingJobs.remove(job);
 	}
 
+	/**
+	 * Gets the CrawlJobs for HTML files that were crawled again and had not changed.
+	 * 
+	 * @return The set of unchanged CrawlJobs.
+	 */
+	public Set<CrawlJob> getReceivedUnchanged() {
+		return receivedUnchanged;
+	}
+
+	/**
+	 * Gets the Validators that were received for each CrawlJob.
+	 * 
+	 * @return A mapping from CrawlJob to the Validators received for it.
+	 */
+	public Map<CrawlJob, Validators> getReceivedValidators() {
+		return receivedValidators;
+	}
+
+	/**
+	 * Gets the URLs from sitemaps that were received.
+	 * 
+	 * @return A list of the SitemapEntries, in the order in which they were received.
+	 */
+	public List<SitemapEntry> getReceivedSitemapEntries() {
+		return receivedSitemapEntries;
+	}
+
 	/**
 	 * Checks that the results of a run through the CrawlController were correct.
 	 */
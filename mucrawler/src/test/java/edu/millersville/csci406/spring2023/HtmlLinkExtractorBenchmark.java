@@ -0,0 +1,139 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+/**
+ * A benchmark of HtmlLinkExtractor on a typical large HTML file, compared with parsing the same bytes into a jsoup Document, selecting its links and serializing it again, as CrawlWorkerThread used to.
+ * It is not a unit test, and is run by hand:
+ * <pre>java edu.millersville.csci406.spring2023.HtmlLinkExtractorBenchmark [iterations]</pre>
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class HtmlLinkExtractorBenchmark {
+
+	/** The number of times each approach is run before timing begins. */
+	private static final int WARMUP_ITERATIONS = 50;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optionally, the number of timed iterations of each approach.
+	 * @throws IOException Should be impossible.
+	 */
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		byte[] body = makeFile().getBytes(StandardCharsets.UTF_8);
+		CrawlURL url = new CrawlURL("http://example.com/news/index.html");
+		HtmlLinkExtractor extractor = new HtmlLinkExtractor();
+		long work = 0;
+		for(int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+			work += extract(extractor, body, url);
+			work += parseWithJsoup(body, url);
+		}
+
+		long start = System.nanoTime();
+		for(int iteration = 0; iteration < iterations; iteration++) {
+			work += extract(extractor, body, url);
+		}
+		long extractorNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int iteration = 0; iteration < iterations; iteration++) {
+			work += parseWithJsoup(body, url);
+		}
+		long jsoupNanos = System.nanoTime() - start;
+
+		System.out.println("File: " + body.length + " bytes, " + extractor.extract(body, "UTF-8", url).getLinkURLs().size() + " distinct links");
+		report("HtmlLinkExtractor", extractorNanos, iterations, body.length);
+		report("jsoup DOM and outerHtml", jsoupNanos, iterations, body.length);
+		// Printing this keeps the work from being optimized away.
+		System.out.println("(" + work + ")");
+	}
+
+	/**
+	 * Makes an HTML file like the front page of a news site, with navigation, scripts, styles and many links with text.
+	 *
+	 * @return The contents of the file.
+	 */
+	private static String makeFile() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"utf-8\">\n<title>Example News &amp; Views</title>\n");
+		builder.append("<style>\nbody { font-family: sans-serif; }\n.story a { color: #333; }\n</style>\n");
+		builder.append("<script>window.dataLayer = [];\nfunction track(a) { if (a < 10) { dataLayer.push('<a href=\"x\">'); } }</script>\n</head>\n<body>\n");
+		builder.append("<nav><ul>\n");
+		for(int section = 0; section < 40; section++) {
+			builder.append("<li class=\"nav-item\"><a class=\"nav-link\" href=\"/section").append(section).append("/\">Section ").append(section).append("</a></li>\n");
+		}
+		builder.append("</ul></nav>\n<main>\n");
+		for(int story = 0; story < 600; story++) {
+			builder.append("<div class=\"story\" data-id=\"").append(story).append("\">\n<!-- story ").append(story).append(" -->\n");
+			builder.append("<h2><a href=\"/news/2026/10/story-").append(story).append(".html?ref=home&amp;pos=").append(story).append("\">A headline about thing ").append(story).append("</a></h2>\n");
+			builder.append("<p>Some summary text with <em>emphasis</em>, a <a href=\"https://other.example.org/ref/").append(story).append("\" rel=\"nofollow\">reference</a> and more words to read.</p>\n");
+			builder.append("<img src=\"/img/").append(story).append(".jpg\" alt=\"Picture ").append(story).append("\" width=\"300\" height=\"200\">\n</div>\n");
+		}
+		builder.append("</main>\n<footer><p>&copy; 2026 Example</p></footer>\n</body>\n</html>\n");
+		return builder.toString();
+	}
+
+	/**
+	 * Extracts from a file the way CrawlWorkerThread does now.
+	 *
+	 * @param extractor The extractor.
+	 * @param body The bytes of the file.
+	 * @param url The URL of the file.
+	 * @return A number that depends on the result.
+	 */
+	private static long extract(HtmlLinkExtractor extractor, byte[] body, CrawlURL url) {
+		HtmlPage page = extractor.extract(body, "UTF-8", url);
+		return page.getLinkURLs().size() + page.getContent().length();
+	}
+
+	/**
+	 * Parses a file and finds its links the way CrawlWorkerThread used to, to compare against.
+	 *
+	 * @param body The bytes of the file.
+	 * @param url The URL of the file.
+	 * @return A number that depends on the result.
+	 * @throws IOException Should be impossible.
+	 */
+	private static long parseWithJsoup(byte[] body, CrawlURL url) throws IOException {
+		Document document = Jsoup.parse(new ByteArrayInputStream(body), "UTF-8", url.toString());
+		Set<CrawlURL> urls = new HashSet<>();
+		for(Element link : document.select("a[href]")) {
+			try {
+				CrawlURL newURL = new CrawlURL(link.attr("abs:href"));
+				if(newURL.getProtocol().equals("http") || newURL.getProtocol().equals("https")) {
+					urls.add(newURL);
+				}
+			}
+			catch(MalformedURLException exception) {
+				// Ignored, as it was then.
+			}
+		}
+		return urls.size() + document.outerHtml().length();
+	}
+
+	/**
+	 * Prints how long an approach took.
+	 *
+	 * @param name The name of the approach.
+	 * @param nanos The total number of nanoseconds it took.
+	 * @param iterations The number of times it was run.
+	 * @param bytes The number of bytes in the file.
+	 */
+	private static void report(String name, long nanos, int iterations, int bytes) {
+		double millisPerParse = nanos / 1e6 / iterations;
+		double megabytesPerSecond = (double)bytes * iterations / (1 << 20) / (nanos / 1e9);
+		System.out.printf("%-24s %8.3f ms per file, %8.1f MiB/s%n", name, millisPerParse, megabytesPerSecond);
+	}
+}
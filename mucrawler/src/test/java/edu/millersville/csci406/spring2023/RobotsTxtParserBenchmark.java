@@ -0,0 +1,124 @@
+package edu.millersville.csci406.spring2023;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * A benchmark of RobotsTxtParser on a robots.txt file as large as it will parse, compared with reading the same file line by line with a Scanner and cutting each line up with substring, as CrawlWorkerThread used to.
+ * It is not a unit test, and is run by hand:
+ * <pre>java edu.millersville.csci406.spring2023.RobotsTxtParserBenchmark [iterations]</pre>
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class RobotsTxtParserBenchmark {
+
+	/** The number of times each approach is run before timing begins. */
+	private static final int WARMUP_ITERATIONS = 20;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optionally, the number of timed iterations of each approach.
+	 * @throws IOException Should be impossible.
+	 */
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		String contents = makeFile();
+		RobotsTxtParser parser = new RobotsTxtParser();
+		int rules = 0;
+		for(int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+			rules += parser.parse("http", "example.com", new StringReader(contents)).getRules().size();
+			rules += parseWithScanner(contents).size();
+		}
+
+		long start = System.nanoTime();
+		for(int iteration = 0; iteration < iterations; iteration++) {
+			rules += parser.parse("http", "example.com", new StringReader(contents)).getRules().size();
+		}
+		long parserNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for(int iteration = 0; iteration < iterations; iteration++) {
+			rules += parseWithScanner(contents).size();
+		}
+		long scannerNanos = System.nanoTime() - start;
+
+		System.out.println("File: " + contents.length() + " characters, " + parser.parse("http", "example.com", new StringReader(contents)).getRules().size() + " rules for us");
+		report("RobotsTxtParser", parserNanos, iterations, contents.length());
+		report("Scanner and substring", scannerNanos, iterations, contents.length());
+		// Printing this keeps the work from being optimized away.
+		System.out.println("(" + rules + ")");
+	}
+
+	/**
+	 * Makes a robots.txt file of just under RobotsTxtParser.MAX_SIZE characters, with many groups for other crawlers and one large group for everyone.
+	 *
+	 * @return The contents of the file.
+	 */
+	private static String makeFile() {
+		StringBuilder builder = new StringBuilder();
+		int group = 0;
+		while(builder.length() < RobotsTxtParser.MAX_SIZE - 1000) {
+			if(group % 4 == 0) {
+				builder.append("User-agent: *\n");
+			}
+			else {
+				builder.append("User-agent: bot").append(group).append("\nUser-Agent: other-bot").append(group).append('\n');
+			}
+			for(int rule = 0; rule < 50; rule++) {
+				builder.append(rule % 3 == 0 ? "Allow: " : "Disallow: ").append("/section").append(group).append("/page").append(rule).append("/*.php$ # Generated.\n");
+			}
+			builder.append("Crawl-delay: 1\nSitemap: http://example.com/sitemap").append(group).append(".xml\n\n");
+			group++;
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Finds the rules for "*" in a robots.txt file the way CrawlWorkerThread used to, to compare against.
+	 *
+	 * @param contents The contents of the file.
+	 * @return The rules found.
+	 */
+	private static Set<RobotsRule> parseWithScanner(String contents) {
+		Set<RobotsRule> rules = new HashSet<>();
+		boolean inGroup = false;
+		try (Scanner input = new Scanner(contents);) {
+			while(input.hasNextLine()) {
+				String line = input.nextLine();
+				if(line.toLowerCase(Locale.ROOT).startsWith("user-agent:")) {
+					inGroup = line.substring(11).trim().equals("*");
+				}
+				else if(inGroup) {
+					String withoutComment = line.indexOf('#') >= 0 ? line.substring(0, line.indexOf('#')) : line;
+					if(withoutComment.startsWith("Disallow:")) {
+						rules.add(new RobotsRule("http", "example.com", withoutComment.substring(9).trim(), false));
+					}
+					else if(withoutComment.startsWith("Allow:")) {
+						rules.add(new RobotsRule("http", "example.com", withoutComment.substring(6).trim(), true));
+					}
+				}
+			}
+		}
+		return rules;
+	}
+
+	/**
+	 * Prints how long an approach took.
+	 *
+	 * @param name The name of the approach.
+	 * @param nanos The total number of nanoseconds it took.
+	 * @param iterations The number of times it was run.
+	 * @param characters The number of characters in the file.
+	 */
+	private static void report(String name, long nanos, int iterations, int characters) {
+		double millisPerParse = nanos / 1e6 / iterations;
+		double megabytesPerSecond = (double)characters * iterations / (1 << 20) / (nanos / 1e9);
+		System.out.printf("%-22s %8.3f ms per file, %8.1f MiB/s%n", name, millisPerParse, megabytesPerSecond);
+	}
+}
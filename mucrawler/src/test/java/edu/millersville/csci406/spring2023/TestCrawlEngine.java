@@ -0,0 +1,168 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for CrawlEngine.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestCrawlEngine {
+
+	/** The initial set of CrawlJobs to be completed. */
+	private Set<CrawlJob> initialJobs;
+	/** A Map of CrawlJob (robots.txt) to Set of RobotsRules that should be received for that CrawlJob. */
+	private Map<CrawlJob, Set<RobotsRule>> expectedRules;
+	/** A Map of CrawlJob (robots.txt) to Set of CrawlJobs that should be disallowed by that CrawlJob. */
+	private Map<CrawlJob, Set<CrawlJob>> disallowedJobs;
+	/** A Map of CrawlJob (HTML) to Set of URLs that should be received for that CrawlJob. */
+	private Map<CrawlJob, Set<CrawlURL>> expectedUrls;
+	/** A Map of CrawlJob (HTML) to String of content that should be received for that CrawlJob. */
+	private Map<CrawlJob, String> expectedContent;
+	/** A Map of CrawlJob (HTML) to Set of CrawlJobs that should be created for that CrawlJob. */
+	private Map<CrawlJob, Set<CrawlJob>> newJobs;
+	/** A Set of CrawlJobs that should be cancelled. */
+	private Set<CrawlJob> expectedCancellations;
+	/** A Map of URLs to their contents. */
+	private Map<CrawlURL, String> fileContents;
+	/** A LogCapturer. */
+	private LogCapturer logCapturer;
+
+	/**
+	 * Constructs a new TestCrawlEngine.
+	 */
+	public TestCrawlEngine() {
+		logCapturer = new LogCapturer();
+	}
+
+	/**
+	 * Creates collections needed for any test and starts capturing log output.
+	 */
+	@Before
+	public void setup() {
+		logCapturer.startCapture();
+		initialJobs = new HashSet<>();
+		expectedRules = new HashMap<>();
+		disallowedJobs = new HashMap<>();
+		expectedUrls = new HashMap<>();
+		expectedContent = new HashMap<>();
+		newJobs = new HashMap<>();
+		expectedCancellations = new HashSet<>();
+		fileContents = new HashMap<>();
+	}
+
+	/**
+	 * Ends capturing log output.
+	 */
+	@After
+	public void tearDown() {
+		logCapturer.endCapture();
+	}
+
+	/**
+	 * Tests that a crawl over several hosts, in which finished jobs create new ones, runs to completion.
+	 *
+	 * @throws DataSourceException Should be impossible.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 */
+	@Test
+	public void testCrawl() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/missing.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.wilkes.edu/robots.txt"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.wilkes.edu/index.html"));
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		initialJobs.add(job3);
+
+		fileContents.put(job2.getURL(), "<html> <head> <title>A</title> </head> <body> <a href=\"http://example.wilkes.edu/index.html\">B</a> </body> </html>");
+		fileContents.put(job5.getURL(), "<html> <head> <title>C</title> </head> <body> <p>D</p> </body> </html>");
+
+		expectedRules.put(job1, new HashSet<>());
+		expectedRules.get(job1).add(new RobotsRule("http", "example.kings.edu", "/", true));
+		expectedRules.put(job4, new HashSet<>());
+		expectedRules.get(job4).add(new RobotsRule("http", "example.wilkes.edu", "/", true));
+		disallowedJobs.put(job1, new HashSet<>());
+		disallowedJobs.put(job4, new HashSet<>());
+
+		expectedUrls.put(job2, new HashSet<>());
+		expectedUrls.get(job2).add(job5.getURL());
+		expectedUrls.put(job5, new HashSet<>());
+		expectedContent.put(job2, fileContents.get(job2.getURL()));
+		expectedContent.put(job5, fileContents.get(job5.getURL()));
+		newJobs.put(job2, new HashSet<>());
+		newJobs.get(job2).add(job4);
+		newJobs.get(job2).add(job5);
+		newJobs.put(job5, new HashSet<>());
+
+		expectedCancellations.add(job3);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		CrawlEngine engine = new CrawlEngine(controller, new URLReaderMock(fileContents), 3);
+		engine.run();
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that a CrawlJob whose results cannot be recorded is logged, and does not stop the crawl.
+	 *
+	 * @throws DataSourceException Should be impossible.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 */
+	@Test
+	public void testThrowing() throws DataSourceException, MalformedURLException {
+		CrawlJob job = new CrawlJob(1, new CrawlURL("http://example.com/"));
+		initialJobs.add(job);
+		fileContents.put(job.getURL(), "<html> <head> <title>A</title> </head> <body> <p>B</p> </body> </html>");
+		MyCrawlController controller = new MyCrawlController(new ThrowingDataSourceMock(initialJobs), 0);
+		CrawlEngine engine = new CrawlEngine(controller, new URLReaderMock(fileContents), CrawlEngine.DEFAULT_MAX_CONCURRENT_JOBS);
+		engine.run();
+		assertTrue(logCapturer.getMessages().contains("Failed to record the results of " + job + "."));
+	}
+
+	/**
+	 * Tests that a CrawlJob which fails unexpectedly every time it is processed is cancelled after a few attempts, rather than being leased again forever.
+	 *
+	 * @throws DataSourceException Should be impossible.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 */
+	@Test(timeout = 10000)
+	public void testAlwaysFailing() throws DataSourceException, MalformedURLException {
+		CrawlJob job = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		initialJobs.add(job);
+		expectedCancellations.add(job);
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		URLReader urlReader = new URLReaderMock(fileContents) {
+			@Override
+			public HtmlFetch readHTMLFile(CrawlURL url, Validators validators) {
+				throw new IllegalStateException("Always fails.");
+			}
+		};
+		CrawlEngine engine = new CrawlEngine(controller, urlReader, 3);
+		engine.run();
+		dataSource.checkResults();
+		assertTrue(logCapturer.getMessages().contains("Giving up on " + job + " after " + CrawlEngine.MAX_ATTEMPTS + " failed attempts."));
+	}
+
+	/**
+	 * Tests that an engine must allow at least one CrawlJob to be in progress.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoPermits() {
+		new CrawlEngine(null, null, 0);
+	}
+}
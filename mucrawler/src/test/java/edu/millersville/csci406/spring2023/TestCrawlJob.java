@@ -5,7 +5,6 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.net.MalformedURLException;
-import java.net.URL;
 
 import org.junit.Test;
 
@@ -27,11 +26,11 @@ public class TestCrawlJob {
 	@SuppressWarnings("unlikely-arg-type")
 	public void testNormalConditions() throws MalformedURLException {
 		CrawlJob[] jobs = new CrawlJob[5];
-		jobs[0] = new CrawlJob(1, new URL("http://example.kings.edu/index.html"));
-		jobs[1] = new CrawlJob(2, new URL("http://example.kings.edu/robots.txt"));
-		jobs[2] = new CrawlJob(3, new URL("https://example.kings.edu/robots.txt"));
-		jobs[3] = new CrawlJob(4, new URL("https://example.kings.edu/index.html"));
-		jobs[4] = new CrawlJob(5, new URL("http://example.kings.edu/foo.html"));
+		jobs[0] = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		jobs[1] = new CrawlJob(2, new CrawlURL("http://example.kings.edu/robots.txt"));
+		jobs[2] = new CrawlJob(3, new CrawlURL("https://example.kings.edu/robots.txt"));
+		jobs[3] = new CrawlJob(4, new CrawlURL("https://example.kings.edu/index.html"));
+		jobs[4] = new CrawlJob(5, new CrawlURL("http://example.kings.edu/foo.html"));
 		
 		assertEquals(jobs[0].getId(), 1);
 		assertEquals(jobs[0].getURL().getProtocol(), "http");
@@ -74,6 +73,50 @@ public class TestCrawlJob {
 		assertEquals(jobs[4].compareTo(jobs[0]), 1);
 	}
 	
+	/**
+	 * Tests that robots.txt files are recognized regardless of case, and that IDs at the extremes of the int range are still ordered correctly.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testExtremes() throws MalformedURLException {
+		CrawlJob robots = new CrawlJob(Integer.MAX_VALUE, new CrawlURL("https://example.kings.edu/ROBOTS.TXT"));
+		CrawlJob lowest = new CrawlJob(Integer.MIN_VALUE, new CrawlURL("https://example.kings.edu/index.html"));
+		CrawlJob negative = new CrawlJob(-1, new CrawlURL("https://example.kings.edu/index.html"));
+		CrawlJob highest = new CrawlJob(Integer.MAX_VALUE - 1, new CrawlURL("https://example.kings.edu/index.html"));
+		CrawlJob http = new CrawlJob(Integer.MAX_VALUE, new CrawlURL("http://example.kings.edu/index.html"));
+
+		assertTrue(robots.isRobotsTxt());
+		assertFalse(lowest.isRobotsTxt());
+		assertEquals(robots.compareTo(http), -1);
+		assertEquals(http.compareTo(lowest), -1);
+		assertEquals(lowest.compareTo(negative), -1);
+		assertEquals(negative.compareTo(highest), -1);
+		assertEquals(highest.compareTo(lowest), 1);
+	}
+
+	/**
+	 * Tests that a CrawlJob for a sitemap is never taken for a robots.txt file, and that sitemaps come after robots.txt files and before everything else.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testSitemaps() throws MalformedURLException {
+		CrawlJob robots = new CrawlJob(Integer.MAX_VALUE, new CrawlURL("https://example.kings.edu/robots.txt"));
+		CrawlJob sitemap = new CrawlJob(-1, new CrawlURL("https://example.kings.edu/sitemap.xml"), null, true);
+		CrawlJob oddSitemap = new CrawlJob(-2, new CrawlURL("https://example.kings.edu/robots.txt"), null, true);
+		CrawlJob page = new CrawlJob(Integer.MIN_VALUE, new CrawlURL("http://example.kings.edu/index.html"));
+
+		assertTrue(sitemap.isSitemap());
+		assertFalse(sitemap.isRobotsTxt());
+		assertFalse(oddSitemap.isRobotsTxt());
+		assertFalse(robots.isSitemap());
+		assertFalse(page.isSitemap());
+		assertEquals(robots.compareTo(sitemap), -1);
+		assertEquals(sitemap.compareTo(page), -1);
+		assertEquals(oddSitemap.compareTo(sitemap), -1);
+	}
+
 	/**
 	 * Tests that {@link CrawlJob#compareTo(CrawlJob)} throws a NullPointerException when it should.
 	 * 
@@ -81,7 +124,7 @@ public class TestCrawlJob {
 	 */
 	@Test(expected = NullPointerException.class)
 	public void testCompareToNull() throws MalformedURLException {
-		CrawlJob job = new CrawlJob(1, new URL("http://example.kings.edu/"));
+		CrawlJob job = new CrawlJob(1, new CrawlURL("http://example.kings.edu/"));
 		job.compareTo(null);
 	}
 }
@@ -0,0 +1,86 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for the CrawlURL class.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestCrawlURL {
+
+	/**
+	 * Tests that URLs are parsed into their parts and normalized.
+	 *
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testParse() throws MalformedURLException {
+		CrawlURL url = new CrawlURL(" HTTP://user@Example.Kings.EDU/Admissions/index.html?page=2#top ");
+		assertEquals(url.getProtocol(), "http");
+		assertEquals(url.getHost(), "example.kings.edu");
+		assertEquals(url.getFile(), "/Admissions/index.html?page=2");
+		assertEquals(url.toString(), "http://example.kings.edu/Admissions/index.html?page=2");
+		assertEquals(new CrawlURL("https://example.kings.edu").getFile(), "/");
+		assertEquals(new CrawlURL("https://example.kings.edu:").getFile(), "/");
+		assertEquals(new CrawlURL("https://example.kings.edu?q=1").getFile(), "/?q=1");
+		assertEquals(new CrawlURL("http://[::1]/").getHost(), "[::1]");
+	}
+
+	/**
+	 * Tests that equal URLs are equal however they were written, and that unequal ones are not.
+	 *
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testEquality() throws MalformedURLException {
+		CrawlURL url1 = new CrawlURL("http://example.kings.edu/index.html#top");
+		CrawlURL url2 = new CrawlURL("HTTP", "EXAMPLE.kings.edu", "index.html");
+		CrawlURL url3 = new CrawlURL("https", "example.kings.edu", "/index.html");
+		CrawlURL url4 = new CrawlURL("http", "example.kings.edu", "/INDEX.html");
+		assertTrue(url1.equals(url2));
+		assertEquals(url1.hashCode(), url2.hashCode());
+		assertFalse(url1.equals(url3));
+		assertFalse(url1.equals(url4));
+		assertFalse(url1.equals(null));
+		assertFalse(url1.equals(url1.toString()));
+		assertEquals(url1.toURL().toString(), "http://example.kings.edu/index.html");
+	}
+
+	/**
+	 * Tests that a URL with a port is rejected.
+	 *
+	 * @throws MalformedURLException Always.
+	 */
+	@Test(expected = MalformedURLException.class)
+	public void testPort() throws MalformedURLException {
+		new CrawlURL("http://example.kings.edu:8080/");
+	}
+
+	/**
+	 * Tests that a URL without a host name is rejected.
+	 *
+	 * @throws MalformedURLException Always.
+	 */
+	@Test(expected = MalformedURLException.class)
+	public void testNoHost() throws MalformedURLException {
+		new CrawlURL("mailto:someone@example.kings.edu");
+	}
+
+	/**
+	 * Tests that a URL with an invalid protocol is rejected.
+	 *
+	 * @throws MalformedURLException Always.
+	 */
+	@Test(expected = MalformedURLException.class)
+	public void testInvalidProtocol() throws MalformedURLException {
+		new CrawlURL("ht tp", "example.kings.edu", "/");
+	}
+}
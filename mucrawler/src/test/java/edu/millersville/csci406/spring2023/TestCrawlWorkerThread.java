@@ -1,9 +1,13 @@
 package edu.millersville.csci406.spring2023;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -28,7 +32,7 @@ public class TestCrawlWorkerThread {
 	/** A Map of CrawlJob (robots.txt) to Set of CrawlJobs that should be disallowed by that CrawlJob. */
 	private Map<CrawlJob, Set<CrawlJob>> disallowedJobs;
 	/** A Map of CrawlJob (HTML) to Set of URLs that should be received for that CrawlJob. */
-	private Map<CrawlJob, Set<URL>> expectedUrls;
+	private Map<CrawlJob, Set<CrawlURL>> expectedUrls;
 	/** A Map of CrawlJob (HTML) to String of content that should be received for that CrawlJob. */
 	private Map<CrawlJob, String> expectedContent;
 	/** A Map of CrawlJob (HTML) to Set of CrawlJobs that should be created for that CrawlJob. */
@@ -36,7 +40,7 @@ public class TestCrawlWorkerThread {
 	/** A Set of CrawlJobs that should be cancelled. */
 	private Set<CrawlJob> expectedCancellations;
 	/** A Map of URLs to their contents. */
-	private Map<URL, String> fileContents;
+	private Map<CrawlURL, String> fileContents;
 	/** A LogCapturer. */
 	private LogCapturer logCapturer;
 	
@@ -101,7 +105,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test01NoRobotsTxtFile() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://nosuchfile.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://nosuchfile.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		expectedRules.put(onlyJob, new HashSet<>());
 		expectedRules.get(onlyJob).add(new RobotsRule("http", "nosuchfile.com", "/", true));
@@ -126,7 +130,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test02NoRulesForUs() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://noneforus.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://noneforus.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("User-Agent: googlebot\n");
@@ -156,7 +160,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test03EmptyDisallow() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://nothingdisallowed.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://nothingdisallowed.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("User-Agent: *\n");
@@ -185,7 +189,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test04SeveralRules() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://severalrules.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://severalrules.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("User-Agent: *\n");
@@ -218,7 +222,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test05CommentsEtc() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://severalrules.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://severalrules.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("# This is a comment.\n");
@@ -255,7 +259,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test06CommentsOnLine() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://severalrules.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://severalrules.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("# This is a comment.\n");
@@ -292,7 +296,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test07MultipleRecords() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://multipledirectives.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://multipledirectives.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("User-Agent: googlebot\n");
@@ -331,7 +335,7 @@ public class TestCrawlWorkerThread {
 	@Test
 	public void test08MalformedRobots() throws DataSourceException, InterruptedException, MalformedURLException {
 		StringBuilder builder = new StringBuilder();
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://badfile.com/robots.txt"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://badfile.com/robots.txt"));
 		initialJobs.add(onlyJob);
 		builder.delete(0, builder.length());
 		builder.append("What is this?\n");
@@ -366,7 +370,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test09NoHtmlFile() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://nosuchfile.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://nosuchfile.com/"));
 		initialJobs.add(onlyJob);
 		expectedCancellations.add(onlyJob);
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
@@ -388,7 +392,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test10NoLinks() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://nolinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://nolinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -423,7 +427,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test11SimpleLinks() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://haslinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://haslinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -441,9 +445,9 @@ public class TestCrawlWorkerThread {
 		expectedContent.put(onlyJob, builder.toString());
 		fileContents.put(onlyJob.getURL(), builder.toString());
 		expectedUrls.put(onlyJob, new HashSet<>());
-		expectedUrls.get(onlyJob).add(new URL("http://www.example.com/"));
-		expectedUrls.get(onlyJob).add(new URL("http://www.example.com/foo"));
-		expectedUrls.get(onlyJob).add(new URL("http://www.example.com/bar.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://www.example.com/"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://www.example.com/foo"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://www.example.com/bar.html"));
 		newJobs.put(onlyJob, new HashSet<>());
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -464,7 +468,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test12RelativeLinks() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://haslinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://haslinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -480,7 +484,7 @@ public class TestCrawlWorkerThread {
 		expectedContent.put(onlyJob, builder.toString());
 		fileContents.put(onlyJob.getURL(), builder.toString());
 		expectedUrls.put(onlyJob, new HashSet<>());
-		expectedUrls.get(onlyJob).add(new URL("http://haslinks.com/store.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://haslinks.com/store.html"));
 		newJobs.put(onlyJob, new HashSet<>());
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -501,7 +505,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test13WrongSchemeLinks() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://haslinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://haslinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -519,8 +523,8 @@ public class TestCrawlWorkerThread {
 		expectedContent.put(onlyJob, builder.toString());
 		fileContents.put(onlyJob.getURL(), builder.toString());
 		expectedUrls.put(onlyJob, new HashSet<>());
-		expectedUrls.get(onlyJob).add(new URL("http://haslinks.com/foo.html"));
-		expectedUrls.get(onlyJob).add(new URL("https://haslinks.com/baz.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://haslinks.com/foo.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("https://haslinks.com/baz.html"));
 		newJobs.put(onlyJob, new HashSet<>());
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -541,7 +545,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test14LinkWithNoPath() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://haslinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://haslinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -557,7 +561,7 @@ public class TestCrawlWorkerThread {
 		expectedContent.put(onlyJob, builder.toString());
 		fileContents.put(onlyJob.getURL(), builder.toString());
 		expectedUrls.put(onlyJob, new HashSet<>());
-		expectedUrls.get(onlyJob).add(new URL("http://www.other.com/"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://www.other.com/"));
 		newJobs.put(onlyJob, new HashSet<>());
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -578,7 +582,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test15LinksWithPorts() throws DataSourceException, InterruptedException, MalformedURLException {
-		CrawlJob onlyJob = new CrawlJob(1, new URL("http://haslinks.com/"));
+		CrawlJob onlyJob = new CrawlJob(1, new CrawlURL("http://haslinks.com/"));
 		initialJobs.add(onlyJob);
 		StringBuilder builder = new StringBuilder();
 		builder.append("<html>\n");
@@ -596,8 +600,8 @@ public class TestCrawlWorkerThread {
 		expectedContent.put(onlyJob, builder.toString());
 		fileContents.put(onlyJob.getURL(), builder.toString());
 		expectedUrls.put(onlyJob, new HashSet<>());
-		expectedUrls.get(onlyJob).add(new URL("http://haslinks.com/foo.html"));
-		expectedUrls.get(onlyJob).add(new URL("https://haslinks.com/baz.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("http://haslinks.com/foo.html"));
+		expectedUrls.get(onlyJob).add(new CrawlURL("https://haslinks.com/baz.html"));
 		newJobs.put(onlyJob, new HashSet<>());
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -622,12 +626,12 @@ public class TestCrawlWorkerThread {
 	public void test16ManyJobs() throws MalformedURLException, DataSourceException, InterruptedException {
 		StringBuilder builder = new StringBuilder();
 		
-		CrawlJob job1 = new CrawlJob(1, new URL("http://example.kings.edu/"));
-		CrawlJob job2 = new CrawlJob(2, new URL("http://example.kings.edu/robots.txt"));
-		CrawlJob job3 = new CrawlJob(3, new URL("http://asdfasdfasdfasdf.com/"));
-		CrawlJob job4 = new CrawlJob(4, new URL("http://asdfasdfasdfasdf.com/robots.txt"));
-		CrawlJob job5 = new CrawlJob(5, new URL("http://example.wilkes.edu/robots.txt"));
-		CrawlJob job6 = new CrawlJob(6, new URL("http://example.misericordia.edu/robots.txt"));
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://asdfasdfasdfasdf.com/"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://asdfasdfasdfasdf.com/robots.txt"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.wilkes.edu/robots.txt"));
+		CrawlJob job6 = new CrawlJob(6, new CrawlURL("http://example.misericordia.edu/robots.txt"));
 		
 		initialJobs.add(job1);
 		initialJobs.add(job2);
@@ -684,7 +688,6 @@ public class TestCrawlWorkerThread {
 		
 		Set<RobotsRule> rules2 = new HashSet<>();
 		rules2.add(new RobotsRule("http", "example.kings.edu", "/scripts/", false));
-		rules2.add(new RobotsRule("http", "example.kings.edu", "/", true));
 		rules2.add(new RobotsRule("http", "example.kings.edu", "/examples/", true));
 		rules2.add(new RobotsRule("http", "example.kings.edu", "/personal", false));
 		rules2.add(new RobotsRule("http", "example.kings.edu", "/free", true));
@@ -704,9 +707,9 @@ public class TestCrawlWorkerThread {
 		disallowedJobs.put(job4, new HashSet<>());
 		disallowedJobs.put(job6, new HashSet<>());
 		
-		Set<URL> urls1 = new HashSet<>();
-		urls1.add(new URL("http://example.kings.edu/foo.html"));
-		urls1.add(new URL("https://example.kings.edu/"));
+		Set<CrawlURL> urls1 = new HashSet<>();
+		urls1.add(new CrawlURL("http://example.kings.edu/foo.html"));
+		urls1.add(new CrawlURL("https://example.kings.edu/"));
 		expectedUrls.put(job1, urls1);
 		
 		expectedContent.put(job1, fileContents.get(job1.getURL()));
@@ -733,11 +736,11 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test17Throwing() throws DataSourceException, MalformedURLException {
-		CrawlJob job = new CrawlJob(1, new URL("http://example.com/"));
+		CrawlJob job = new CrawlJob(1, new CrawlURL("http://example.com/"));
 		Set<CrawlJob> jobs = new HashSet<>();
 		jobs.add(job);
 		ThrowingDataSourceMock dataSource = new ThrowingDataSourceMock(jobs);
-		Map<URL, String> fileContents = new HashMap<>();
+		Map<CrawlURL, String> fileContents = new HashMap<>();
 		fileContents.put(job.getURL(), "<html> <head> <title>A</title> </head> <body> <p>B</p> </body> </html>");
 		URLReaderMock urlReader = new URLReaderMock(fileContents);
 		MyCrawlController controller = new MyCrawlController(dataSource, 0);
@@ -756,7 +759,7 @@ public class TestCrawlWorkerThread {
 	 */
 	@Test
 	public void test18MultipleRecords() throws DataSourceException, MalformedURLException, InterruptedException {
-		CrawlJob job = new CrawlJob(1, new URL("http://example.com/robots.txt"));
+		CrawlJob job = new CrawlJob(1, new CrawlURL("http://example.com/robots.txt"));
 		initialJobs.add(job);
 		StringBuilder builder = new StringBuilder();
 		builder.append("User-agent: *\n");
@@ -791,4 +794,129 @@ public class TestCrawlWorkerThread {
 		thread.join();
 		dataSource.checkResults();
 	}
+
+	/**
+	 * Tests that an HTML file crawled again is only parsed and saved if it has changed, and that its Validators are passed along either way.
+	 * 
+	 * @throws DataSourceException Should be impossible.
+	 * @throws MalformedURLException If there is a problem in the test itself.
+	 * @throws InterruptedException If the thread gets interrupted.
+	 */
+	@Test
+	public void test19Recrawl() throws DataSourceException, MalformedURLException, InterruptedException {
+		String unchangedContent = "<html> <head> <title>A</title> </head> <body> <a href=\"http://example.com/b.html\">B</a> </body> </html>";
+		String changedContent = "<html> <head> <title>C</title> </head> <body> <p>D</p> </body> </html>";
+		Validators unchangedValidators = new Validators("\"1\"", null, Validators.hash(unchangedContent.getBytes(StandardCharsets.UTF_8)));
+		Validators changedValidators = new Validators("\"2\"", null, Validators.hash("<html></html>".getBytes(StandardCharsets.UTF_8)));
+		CrawlJob unchangedJob = new CrawlJob(1, new CrawlURL("http://example.com/a.html"), unchangedValidators);
+		CrawlJob changedJob = new CrawlJob(2, new CrawlURL("http://example.com/c.html"), changedValidators);
+		initialJobs.add(unchangedJob);
+		initialJobs.add(changedJob);
+		fileContents.put(unchangedJob.getURL(), unchangedContent);
+		fileContents.put(changedJob.getURL(), changedContent);
+		expectedContent.put(changedJob, changedContent);
+		expectedUrls.put(changedJob, new HashSet<>());
+		newJobs.put(changedJob, new HashSet<>());
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		URLReaderMock urlReader = new URLReaderMock(fileContents);
+		CrawlWorkerThread worker = new CrawlWorkerThread(controller, urlReader);
+		Thread thread = new Thread(worker);
+		thread.start();
+		thread.join();
+		dataSource.checkResults();
+		assertEquals(dataSource.getReceivedUnchanged(), Collections.singleton(unchangedJob));
+		assertEquals(dataSource.getReceivedValidators().get(unchangedJob).getContentHash(), unchangedValidators.getContentHash());
+		assertEquals(dataSource.getReceivedValidators().get(changedJob).getContentHash(), Validators.hash(changedContent.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Tests that the sitemaps named by a robots.txt file are read, following a sitemap index, and that only the URLs on the same host are passed on.
+	 * 
+	 * @throws DataSourceException If there is a problem accessing the DataSource (should not happen).
+	 * @throws MalformedURLException If a URL is malformed (should not happen).
+	 * @throws InterruptedException If the thread is interrupted (should not happen).
+	 */
+	@Test
+	public void test20Sitemaps() throws DataSourceException, MalformedURLException, InterruptedException {
+		CrawlJob robotsJob = new CrawlJob(1, new CrawlURL("http://example.com/robots.txt"));
+		initialJobs.add(robotsJob);
+		StringBuilder builder = new StringBuilder();
+		builder.append("User-agent: *\n");
+		builder.append("Disallow: /private/\n");
+		builder.append("Sitemap: http://example.com/sitemap_index.xml\n");
+		builder.append("Sitemap: http://elsewhere.com/sitemap.xml\n");
+		builder.append("Sitemap: http://example.com/missing.xml\n");
+		fileContents.put(robotsJob.getURL(), builder.toString());
+		
+		builder.delete(0, builder.length());
+		builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		builder.append("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+		builder.append("  <sitemap><loc>http://example.com/sitemap1.xml</loc></sitemap>\n");
+		builder.append("  <sitemap><loc>http://example.com/sitemap_index.xml</loc></sitemap>\n");
+		builder.append("  <sitemap><loc>http://elsewhere.com/sitemap2.xml</loc></sitemap>\n");
+		builder.append("</sitemapindex>\n");
+		fileContents.put(new CrawlURL("http://example.com/sitemap_index.xml"), builder.toString());
+		
+		builder.delete(0, builder.length());
+		builder.append("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+		builder.append("  <url><loc>http://example.com/a.html</loc><lastmod>2026-10-01</lastmod></url>\n");
+		builder.append("  <url><loc>http://elsewhere.com/b.html</loc></url>\n");
+		builder.append("  <url><loc>https://example.com/c.html</loc></url>\n");
+		builder.append("</urlset>\n");
+		fileContents.put(new CrawlURL("http://example.com/sitemap1.xml"), builder.toString());
+		fileContents.put(new CrawlURL("http://elsewhere.com/sitemap.xml"), builder.toString());
+		fileContents.put(new CrawlURL("http://elsewhere.com/sitemap2.xml"), builder.toString());
+		
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.com", "/private/", false));
+		expectedRules.put(robotsJob, rules);
+		disallowedJobs.put(robotsJob, new HashSet<>());
+		
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		URLReaderMock urlReader = new URLReaderMock(fileContents);
+		CrawlWorkerThread worker = new CrawlWorkerThread(controller, urlReader);
+		Thread thread = new Thread(worker);
+		thread.start();
+		thread.join();
+		dataSource.checkResults();
+		assertEquals(Arrays.asList(new SitemapEntry(new CrawlURL("http://example.com/a.html"), Instant.parse("2026-10-01T00:00:00Z")),
+				new SitemapEntry(new CrawlURL("https://example.com/c.html"), null)), dataSource.getReceivedSitemapEntries());
+	}
+
+	/**
+	 * Tests that the host's crawl delay is waited before each sitemap is read, as it would be between any other accesses to the host.
+	 * 
+	 * @throws DataSourceException If there is a problem accessing the DataSource (should not happen).
+	 * @throws MalformedURLException If a URL is malformed (should not happen).
+	 * @throws InterruptedException If the thread is interrupted (should not happen).
+	 */
+	@Test
+	public void test21SitemapsCrawlDelay() throws DataSourceException, MalformedURLException, InterruptedException {
+		CrawlJob robotsJob = new CrawlJob(1, new CrawlURL("http://example.com/robots.txt"));
+		initialJobs.add(robotsJob);
+		fileContents.put(robotsJob.getURL(), "Sitemap: http://example.com/sitemap1.xml\nSitemap: http://example.com/sitemap2.xml\n");
+		fileContents.put(new CrawlURL("http://example.com/sitemap1.xml"), "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n  <url><loc>http://example.com/a.html</loc></url>\n</urlset>\n");
+		fileContents.put(new CrawlURL("http://example.com/sitemap2.xml"), "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n  <url><loc>http://example.com/b.html</loc></url>\n</urlset>\n");
+		
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.com", "/", true));
+		expectedRules.put(robotsJob, rules);
+		disallowedJobs.put(robotsJob, new HashSet<>());
+		
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 200);
+		URLReaderMock urlReader = new URLReaderMock(fileContents);
+		CrawlWorkerThread worker = new CrawlWorkerThread(controller, urlReader);
+		long start = System.currentTimeMillis();
+		Thread thread = new Thread(worker);
+		thread.start();
+		thread.join();
+		long elapsed = System.currentTimeMillis() - start;
+		dataSource.checkResults();
+		assertEquals(dataSource.getReceivedSitemapEntries().size(), 2);
+		assertTrue("Two sitemaps were read in " + elapsed + " ms.", elapsed >= 400);
+	}
 }
@@ -0,0 +1,290 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for the FrontierShard class.
+ * 
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestFrontierShard {
+
+	/**
+	 * Tests that CrawlJobs are released in priority order within a host, and that hosts alternate and respect the delay.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testReleaseOrder() throws MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/foo.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/index.html"));
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(100), 100, new AtomicInteger());
+		assertTrue(shard.isEmpty());
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		assertNull(shard.pollJob(1000));
+
+		assertTrue(shard.addJob(job2));
+		assertFalse(shard.addJob(job1));
+		assertTrue(shard.addJob(job3));
+		assertFalse(shard.isEmpty());
+		assertEquals(shard.getNextAccessTime(), 0);
+
+		assertEquals(shard.pollJob(1000), job1);
+		assertEquals(shard.pollJob(1000), job3);
+		assertTrue(shard.finishJob(job1, 1050, 50, false));
+		assertNull(shard.pollJob(1104));
+		assertEquals(shard.getNextAccessTime(), 1105);
+		assertEquals(shard.pollJob(1105), job2);
+		assertTrue(shard.isEmpty());
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		assertFalse(shard.finishJob(job2, 1150, 45, false));
+		assertFalse(shard.finishJob(job3, 1150, 150, false));
+
+		// The host remembers when it was last accessed even after its queue empties.
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.kings.edu/bar.html"));
+		assertTrue(shard.addJob(job4));
+		assertEquals(shard.getNextAccessTime(), 1210);
+	}
+
+	/**
+	 * Tests that a host is held while its robots.txt file is being processed, and that disallowed jobs can be removed.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testHeldHost() throws MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/bad.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.kings.edu/other.html"));
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(0, 0, 2), 100, new AtomicInteger());
+		shard.addJob(job2);
+		shard.addJob(job1);
+		shard.addJob(job3);
+
+		assertEquals(shard.pollJob(0), job1);
+		assertNull(shard.pollJob(1000));
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		assertFalse(shard.isEmpty());
+		assertFalse(shard.addJob(job4));
+
+		Set<CrawlJob> toRemove = new HashSet<>();
+		toRemove.add(job3);
+		shard.removeJobs("example.kings.edu", toRemove);
+		assertTrue(toRemove.isEmpty());
+		assertTrue(shard.finishJob(job1, 1000, 1000, false));
+
+		assertEquals(shard.pollJob(1000), job2);
+		assertEquals(shard.pollJob(2000), job4);
+		assertNull(shard.pollJob(3000));
+		assertTrue(shard.isEmpty());
+	}
+
+	/**
+	 * Tests that a host with as many CrawlJobs in flight as the policy allows is left out of the schedule until one finishes.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testConnectionCap() throws MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/a.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/b.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/c.html"));
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(0, 0, 2), 100, new AtomicInteger());
+		shard.addJob(job1);
+		shard.addJob(job2);
+		shard.addJob(job3);
+
+		assertEquals(shard.pollJob(0), job1);
+		assertEquals(shard.pollJob(10), job2);
+		assertNull(shard.pollJob(20));
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		assertTrue(shard.finishJob(job2, 30, 20, false));
+		assertEquals(shard.pollJob(30), job3);
+		assertTrue(shard.isEmpty());
+	}
+
+	/**
+	 * Tests that a host's delay follows its response times and failures, and honors its robots.txt file.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testAdaptiveDelay() throws MalformedURLException {
+		String host = "example.kings.edu";
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/a.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/b.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/c.html"));
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(100, 10000, 1), 100, new AtomicInteger());
+		shard.addJob(job1);
+		shard.addJob(job2);
+		shard.addJob(job3);
+		assertEquals(shard.getCrawlDelay(host), 10000);
+
+		assertEquals(shard.pollJob(0), job1);
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		assertTrue(shard.finishJob(job1, 300, 300, false));
+		assertEquals(shard.getCrawlDelay(host), 300);
+		assertEquals(shard.getNextAccessTime(), 305);
+
+		assertEquals(shard.pollJob(305), job2);
+		assertTrue(shard.finishJob(job2, 310, 5, true));
+		assertEquals(shard.getCrawlDelay(host), 840);
+		assertEquals(shard.getNextAccessTime(), 1150);
+
+		assertTrue(shard.setRobotsCrawlDelay(host, 2000));
+		assertEquals(shard.getCrawlDelay(host), 2000);
+		assertEquals(shard.getNextAccessTime(), 2310);
+		assertNull(shard.pollJob(2309));
+		assertEquals(shard.pollJob(2310), job3);
+	}
+
+	/**
+	 * Tests that only a window of CrawlJobs is kept for each host, and that the rest are paged back in once the window has been worked through.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testSpill() throws MalformedURLException {
+		String host = "example.kings.edu";
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/a.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/b.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.kings.edu/c.html"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.kings.edu/d.html"));
+		AtomicInteger unfinishedWork = new AtomicInteger();
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(0), 2, unfinishedWork);
+		shard.addJob(job3);
+		shard.addJob(job2);
+		assertEquals(unfinishedWork.get(), 2);
+		// The robots.txt file pushes job3 out of the window, and job4 would come after everything in it.
+		shard.addJob(job1);
+		assertEquals(unfinishedWork.get(), 3);
+		shard.addJob(job4);
+		assertEquals(unfinishedWork.get(), 3);
+		assertFalse(shard.startRefill(host));
+
+		assertEquals(shard.pollJob(0), job1);
+		shard.finishJob(job1, 10, 10, false);
+		assertFalse(shard.startRefill(host));
+		assertEquals(shard.pollJob(10), job2);
+		assertNull(shard.pollJob(20));
+		assertFalse(shard.startRefill(host));
+		shard.finishJob(job2, 20, 10, false, false);
+		// Released jobs stay counted until the caller uncounts them, and the spilled host counts once.
+		assertEquals(unfinishedWork.get(), 3);
+		// The data source would still offer job2 until it has been saved.
+		assertFalse(shard.startRefill(host));
+		shard.jobSaved(job2);
+
+		assertTrue(shard.startRefill(host));
+		assertFalse(shard.startRefill(host));
+		// A job added during the refill is kept, even if the page also contains it.
+		shard.addJob(job5);
+		Set<CrawlJob> page = new HashSet<>();
+		page.add(job3);
+		page.add(job4);
+		assertFalse(shard.finishRefill(host, page));
+		assertEquals(unfinishedWork.get(), 5);
+		assertEquals(shard.pollJob(20), job3);
+		shard.finishJob(job3, 30, 10, false);
+		assertEquals(shard.pollJob(30), job4);
+		shard.finishJob(job4, 40, 10, false);
+		assertTrue(shard.startRefill(host));
+		page.clear();
+		page.add(job5);
+		assertTrue(shard.finishRefill(host, page));
+		assertEquals(shard.pollJob(40), job5);
+		shard.finishJob(job5, 50, 10, false);
+		assertFalse(shard.startRefill(host));
+		assertTrue(shard.isEmpty());
+		assertEquals(unfinishedWork.get(), 5);
+	}
+
+	/**
+	 * Tests that a batch takes one CrawlJob from each eligible host, and that a CrawlJob given back is released again.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testPollJobs() throws MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/other.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.scranton.edu/index.html"));
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(0, 0, 2), 100, new AtomicInteger());
+		shard.addJob(job1);
+		shard.addJob(job2);
+		shard.addJob(job3);
+		shard.addJob(job4);
+
+		List<CrawlJob> batch = new ArrayList<>();
+		assertTrue(shard.pollJobs(0, 0, batch) <= 0);
+		assertEquals(batch.size(), 0);
+		assertTrue(shard.pollJobs(0, 2, batch) <= 0);
+		assertEquals(batch.size(), 2);
+		// Only example.kings.edu has a CrawlJob left, and it waits out the delay from releasing the first.
+		assertEquals(shard.pollJobs(0, 5, batch), 5L);
+		assertEquals(batch.size(), 3);
+		assertTrue(batch.contains(job1));
+		assertTrue(batch.contains(job3));
+		assertTrue(batch.contains(job4));
+		assertEquals(shard.pollJobs(0, 5, batch), 5L);
+		assertEquals(batch.size(), 3);
+
+		// A host given back a CrawlJob still waits out the delay from when it was released.
+		assertTrue(shard.returnJob(job3));
+		assertNull(shard.pollJob(4));
+		assertEquals(shard.pollJob(5), job2);
+		assertEquals(shard.pollJob(5), job3);
+	}
+
+	/**
+	 * Tests that removing CrawlJobs only removes those in memory, leaves the rest in the set, and unschedules a host left with nothing.
+	 * 
+	 * @throws MalformedURLException Only if I wrote the test incorrectly.
+	 */
+	@Test
+	public void testRemoveJobs() throws MalformedURLException {
+		String host = "example.kings.edu";
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/a.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/b.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/c.html"));
+		AtomicInteger unfinishedWork = new AtomicInteger();
+		FrontierShard shard = new FrontierShard(new PolitenessPolicy(0), 2, unfinishedWork);
+		shard.addJob(job1);
+		shard.addJob(job2);
+		shard.addJob(job3);
+		assertEquals(unfinishedWork.get(), 3);
+
+		Set<CrawlJob> toRemove = new HashSet<>();
+		toRemove.add(job2);
+		toRemove.add(job3);
+		shard.removeJobs(host, toRemove);
+		assertEquals(toRemove.size(), 1);
+		assertTrue(toRemove.contains(job3));
+		assertEquals(unfinishedWork.get(), 2);
+		assertEquals(shard.getNextAccessTime(), 0);
+
+		toRemove.add(job1);
+		shard.removeJobs(host, toRemove);
+		assertTrue(shard.isEmpty());
+		assertEquals(shard.getNextAccessTime(), Long.MAX_VALUE);
+		// The host still counts once, since job3 was spilled rather than removed.
+		assertEquals(unfinishedWork.get(), 1);
+	}
+}
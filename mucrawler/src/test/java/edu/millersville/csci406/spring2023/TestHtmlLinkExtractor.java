@@ -0,0 +1,155 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for HtmlLinkExtractor.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestHtmlLinkExtractor {
+
+	/**
+	 * Extracts from an HTML file at http://example.com/dir/page.html.
+	 *
+	 * @param content The text of the file.
+	 * @return What was extracted.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	private static HtmlPage extract(String content) throws MalformedURLException {
+		return new HtmlLinkExtractor().extract(content, new CrawlURL("http://example.com/dir/page.html"));
+	}
+
+	/**
+	 * Tests that links are resolved against the URL of the file and keep their text, and that the title is found.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testLinksAndTitle() throws MalformedURLException {
+		String content = "<!DOCTYPE html>\n<HTML><Head><TITLE> A  &amp;\n B </TITLE></Head>\n"
+				+ "<body><p>Go <A HREF=\"other.html\">to the <b>other</b>\n page</A> or <a href='/top.html#part'>the top</a>"
+				+ " or <a href=https://example.org/x?a=1&amp;b=2 class=ext>elsewhere</a>.</p></body></HTML>";
+		HtmlPage page = extract(content);
+		assertEquals(page.getTitle(), "A & B");
+		assertEquals(page.getContent(), content);
+		assertEquals(page.getLinks(), Arrays.asList(new HtmlLink(new CrawlURL("http://example.com/dir/other.html"), "to the other page"),
+				new HtmlLink(new CrawlURL("http://example.com/top.html"), "the top"),
+				new HtmlLink(new CrawlURL("https://example.org/x?a=1&b=2"), "elsewhere")));
+	}
+
+	/**
+	 * Tests that links are resolved against the first base element with an href, even one that comes after them.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testBase() throws MalformedURLException {
+		HtmlPage page = extract("<a href=\"a.html\">A</a><base target=\"_blank\"><base href=\"http://example.net/sub/\"><base href=\"http://example.edu/\"><a href=\"b.html\">B</a>");
+		assertEquals(page.getLinkURLs(), new HashSet<>(Arrays.asList(new CrawlURL("http://example.net/sub/a.html"), new CrawlURL("http://example.net/sub/b.html"))));
+	}
+
+	/**
+	 * Tests that comments, declarations, scripts and styles are skipped, and that a title's contents are never tags.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testSkippedMarkup() throws MalformedURLException {
+		HtmlPage page = extract("<title>x <a href=\"title.html\">y</a></title><!-- <a href=\"comment.html\">c</a> -->"
+				+ "<script>document.write('<a href=\"script.html\">s</a>');</SCRIPT >"
+				+ "<style>a[href=\"style.html\"] { }</style><?php echo '<a href=\"php.html\">'; ?>"
+				+ "<a href=\"real.html\">1 < 2</a>");
+		assertEquals(page.getTitle(), "x <a href=\"title.html\">y</a>");
+		assertEquals(page.getLinks(), Arrays.asList(new HtmlLink(new CrawlURL("http://example.com/dir/real.html"), "1 < 2")));
+	}
+
+	/**
+	 * Tests that links that are not http or https, or that cannot be resolved, are ignored, and that an a element without an href is not a link.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testIgnoredLinks() throws MalformedURLException {
+		HtmlPage page = extract("<a name=\"anchor\">no href</a><a href=\"mailto:a@example.com\">mail</a><a href=\"javascript:void(0)\">js</a>"
+				+ "<a href=\"ftp://example.com/\">ftp</a><a href=\"http://example.com:8080/\">port</a><a href=\"\">self</a>");
+		assertEquals(page.getLinks(), Arrays.asList(new HtmlLink(new CrawlURL("http://example.com/dir/page.html"), "self")));
+	}
+
+	/**
+	 * Tests that an a element closes one that was left open, and that the text of one that is never closed is limited.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testUnclosedLinks() throws MalformedURLException {
+		StringBuilder builder = new StringBuilder("<a href=\"1.html\">one<a href=\"2.html\">two");
+		for(int index = 0; index < HtmlLinkExtractor.MAX_ANCHOR_TEXT_LENGTH; index++) {
+			builder.append("xy");
+		}
+		HtmlPage page = extract(builder.toString());
+		assertEquals(page.getLinks().size(), 2);
+		assertEquals(page.getLinks().get(0).getAnchorText(), "one");
+		assertEquals(page.getLinks().get(1).getAnchorText().length(), HtmlLinkExtractor.MAX_ANCHOR_TEXT_LENGTH);
+		assertNull(page.getTitle());
+	}
+
+	/**
+	 * Tests that the charset is taken from a byte order mark, then the Content-Type, then a meta element, and then defaults to UTF-8.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testCharsets() throws MalformedURLException {
+		CrawlURL url = new CrawlURL("http://example.com/");
+		HtmlLinkExtractor extractor = new HtmlLinkExtractor();
+		byte[] latin1 = "<meta charset=\"iso-8859-1\"><title>Caf\u00e9</title>".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(extractor.extract(latin1, null, url).getTitle(), "Caf\u00e9");
+		byte[] httpEquiv = "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"><title>Caf\u00e9</title>".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(extractor.extract(httpEquiv, null, url).getTitle(), "Caf\u00e9");
+		byte[] utf8 = "<meta charset=\"iso-8859-1\"><title>Caf\u00e9</title>".getBytes(StandardCharsets.UTF_8);
+		assertEquals(extractor.extract(utf8, "UTF-8", url).getTitle(), "Caf\u00e9");
+		byte[] bom = ("\uFEFF<title>Caf\u00e9</title>").getBytes(StandardCharsets.UTF_8);
+		HtmlPage page = extractor.extract(bom, "iso-8859-1", url);
+		assertEquals(page.getTitle(), "Caf\u00e9");
+		assertTrue(page.getContent().startsWith("<title>"));
+		assertEquals(extractor.extract("<title>Caf\u00e9</title>".getBytes(StandardCharsets.UTF_8), "no-such-charset", url).getTitle(), "Caf\u00e9");
+		assertEquals(HtmlLinkExtractor.detectCharset(new byte[0], null), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Tests that the same URLs are found as by parsing the file with jsoup and selecting a[href].
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testSameAsJsoup() throws MalformedURLException {
+		String content = "<html><head><base href=\"/base/\"><title>T</title><style>p { }</style></head><body>"
+				+ "<ul><li><a href=\"a.html\">A</a><li><a href=\"../b.html?q=1&amp;r=2\">B</a><li><a href=\"?page=2\">2</a>"
+				+ "<li><a href=\"//example.org/c\">C</a><li><a href=\" d.html \">D</a><li><A hReF=e.html>E</A></ul>"
+				+ "<table><tr><td><a href=\"#top\">top</a></td></tr></table><img src=\"i.png\"><p>a <br> b</p></body></html>";
+		HtmlPage page = extract(content);
+		Document document = Jsoup.parse(content, "http://example.com/dir/page.html");
+		Set<CrawlURL> expected = new HashSet<>();
+		for(Element link : document.select("a[href]")) {
+			expected.add(new CrawlURL(link.attr("abs:href")));
+		}
+		assertEquals(page.getLinkURLs(), expected);
+		assertEquals(page.getLinks().size(), 7);
+		assertEquals(page.getTitle(), document.title());
+	}
+}
@@ -0,0 +1,57 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for HtmlSniffer.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestHtmlSniffer {
+
+	/**
+	 * Tests recognizing the starts of HTML files.
+	 */
+	@Test
+	public void testLooksLikeHtml() {
+		assertTrue(HtmlSniffer.looksLikeHtml(bytes("<!DOCTYPE html><html>")));
+		assertTrue(HtmlSniffer.looksLikeHtml(bytes("\r\n  <HTML lang=\"en\">")));
+		assertTrue(HtmlSniffer.looksLikeHtml(bytes("\u00ef\u00bb\u00bf<head>")));
+		assertTrue(HtmlSniffer.looksLikeHtml(bytes("<!-- A comment -->")));
+		assertTrue(HtmlSniffer.looksLikeHtml(bytes("<p>Text</p>")));
+		assertFalse(HtmlSniffer.looksLikeHtml(bytes("<pre>Text</pre>")));
+		assertFalse(HtmlSniffer.looksLikeHtml(bytes("<?xml version=\"1.0\"?>")));
+		assertFalse(HtmlSniffer.looksLikeHtml(bytes("Just some text.")));
+		assertFalse(HtmlSniffer.looksLikeHtml(bytes("<html")));
+		assertFalse(HtmlSniffer.looksLikeHtml(new byte[0]));
+	}
+
+	/**
+	 * Tests recognizing the starts of binary files.
+	 */
+	@Test
+	public void testLooksBinary() {
+		assertTrue(HtmlSniffer.looksBinary(bytes("%PDF-1.4")));
+		assertTrue(HtmlSniffer.looksBinary(new byte[] {(byte)0x89, 'P', 'N', 'G', '\r', '\n'}));
+		assertTrue(HtmlSniffer.looksBinary(new byte[] {(byte)0xff, (byte)0xd8, (byte)0xff, (byte)0xe0}));
+		assertTrue(HtmlSniffer.looksBinary(bytes("<html>\u0000</html>")));
+		assertFalse(HtmlSniffer.looksBinary(bytes("<html>\n\t<body>Caf\u00c3\u00a9</body>\f</html>")));
+		assertFalse(HtmlSniffer.looksBinary(new byte[0]));
+	}
+
+	/**
+	 * Converts text to bytes one character per byte, so that tests can spell out exact bytes.
+	 *
+	 * @param text The text, which must only contain characters below 256.
+	 * @return Its bytes.
+	 */
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,413 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jsoup.nodes.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A collection of unit tests for the HttpClientURLReader class, which fetch files from a server on this machine.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestHttpClientURLReader {
+
+	/** A server that provides the files to be read. */
+	private HttpServer server;
+
+	/** A reader that sends requests for example.kings.edu to the server instead. */
+	private HttpClientURLReader urlReader;
+
+	/**
+	 * Starts a server with a robots.txt file, an HTML file, a file that is not HTML, compressed versions of the first two, and files that test the limits on bodies.
+	 *
+	 * @throws IOException If the server cannot be started.
+	 */
+	@Before
+	public void setup() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		serve("/robots.txt", "text/plain", "User-agent: *\nDisallow: /private/\n");
+		serve("/index.html", "text/html; charset=UTF-8", "<html><head><title>Caf\u00e9</title></head><body><a href=\"/other.html\">Other</a></body></html>");
+		serve("/data.json", "application/json", "{}");
+		serve("/gzip/robots.txt", "text/plain", "User-agent: *\nDisallow: /private/\n", "gzip");
+		serve("/gzip/index.html", "text/html", "<html><head><title>Gzip</title></head><body>" + "<p>Repeated</p>".repeat(200) + "</body></html>", "gzip");
+		serve("/deflate/index.html", "text/html", "<html><head><title>Deflate</title></head><body>" + "<p>Repeated</p>".repeat(200) + "</body></html>", "deflate");
+		serve("/brotli/index.html", "text/html", "<html><head><title>Brotli</title></head></html>", "br");
+		server.createContext("/conditional.html", exchange -> {
+			byte[] body = "<html><head><title>Conditional</title></head></html>".getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("ETag", "\"v1\"");
+			if("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+			}
+			else {
+				exchange.getResponseHeaders().set("Content-Type", "text/html");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream output = exchange.getResponseBody();) {
+					output.write(body);
+				}
+			}
+		});
+		serve("/big/robots.txt", "text/plain", "User-agent: *\n" + "Disallow: /private/\n".repeat(50000));
+		serve("/big.html", "text/html", "<html><head><title>Big</title></head><body>" + "<p>Repeated</p>".repeat(200) + "</body></html>");
+		serve("/binary.html", "text/html", "%PDF-1.4\n%\u00e2\u00e3\n1 0 obj\n");
+		serve("/unlabeled", "application/octet-stream", "\n<!DOCTYPE html><html><head><title>Unlabeled</title></head></html>");
+		serve("/unlabeled.bin", "application/octet-stream", "Just some text.");
+		server.createContext("/slow.html", exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "text/html");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream output = exchange.getResponseBody();) {
+				output.write("<html><head>".getBytes(StandardCharsets.UTF_8));
+				output.flush();
+				Thread.sleep(2000);
+				output.write("</head></html>".getBytes(StandardCharsets.UTF_8));
+			}
+			catch(InterruptedException | IOException exception) {
+				// That's OK, the client is expected to give up first.
+			}
+		});
+		serve("/new/page.html", "text/html", "<html><body><a href=\"other.html\">Other</a></body></html>");
+		server.createContext("/old/page.html", exchange -> {
+			exchange.getResponseHeaders().set("Location", "/new/page.html");
+			exchange.sendResponseHeaders(301, -1);
+			exchange.close();
+		});
+		server.createContext("/agent.html", exchange -> {
+			// The page's title is the User-Agent it was requested with.
+			byte[] body = ("<html><head><title>" + exchange.getRequestHeaders().getFirst("User-Agent") + "</title></head></html>").getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/html");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody();) {
+				output.write(body);
+			}
+		});
+		server.createContext("/unavailable.html", exchange -> {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		urlReader = newReader(HttpClientURLReader.DEFAULT_TOTAL_TIMEOUT, HttpClientURLReader.DEFAULT_MAX_BODY_SIZE);
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	/**
+	 * Tests reading a robots.txt file.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testReadRobotsTxtFile() throws MalformedURLException {
+		try (Scanner input = new Scanner(urlReader.readRobotsTxtFile(url("/robots.txt")));) {
+			assertEquals(input.nextLine(), "User-agent: *");
+			assertEquals(input.nextLine(), "Disallow: /private/");
+		}
+	}
+
+	/**
+	 * Tests reading and parsing an HTML file, asynchronously.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testReadHTMLFile() throws MalformedURLException {
+		CompletableFuture<Document> future = urlReader.readHTMLFileAsync(url("/index.html"));
+		Document document = future.join();
+		assertNotNull(document);
+		assertEquals(document.title(), "Caf\u00e9");
+		assertTrue(document.select("a[href]").first().attr("abs:href").endsWith("/other.html"));
+	}
+
+	/**
+	 * Tests that the links in a file reached through a redirect are resolved against the URL it was redirected to.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testRedirect() throws MalformedURLException {
+		HtmlFetch fetch = urlReader.readHTMLFile(url("/old/page.html"), null);
+		assertNotNull(fetch.getPage());
+		// The test reader sends its requests to this machine, so that is where the redirect leads.
+		assertEquals(fetch.getPage().getLinkURLs(), Collections.singleton(new CrawlURL("http", "127.0.0.1", "/new/other.html")));
+	}
+
+	/**
+	 * Tests that characters that links contain but URIs may not are percent-encoded rather than rejected.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 * @throws URISyntaxException If the characters were not encoded.
+	 */
+	@Test
+	public void testIllegalCharacters() throws MalformedURLException, URISyntaxException {
+		assertEquals(HttpClientURLReader.encodeIllegalCharacters("/a b|c{d}^e.html?x=1 2&y=%41"), "/a%20b%7Cc%7Bd%7D%5Ee.html?x=1%202&y=%41");
+		assertEquals(HttpClientURLReader.encodeIllegalCharacters("/100%/caf\u00e9"), "/100%25/caf%C3%A9");
+		URI uri = new HttpClientURLReader().toURI(new CrawlURL("http", "example.kings.edu", "/my page.html?q=a|b"));
+		assertEquals(uri.toString(), "http://example.kings.edu/my%20page.html?q=a%7Cb");
+	}
+
+	/**
+	 * Tests that files that are missing or are not HTML are reported as null.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testMissingAndNonHtmlFiles() throws MalformedURLException {
+		assertNull(urlReader.readHTMLFile(url("/data.json")));
+		assertNull(urlReader.readHTMLFile(url("/missing.html")));
+		assertNull(urlReader.readRobotsTxtFile(url("/missing.txt")));
+	}
+
+	/**
+	 * Tests reading files sent with gzip and deflate Content-Encodings, and that the bytes saved are counted.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testCompressedFiles() throws MalformedURLException {
+		try (Scanner input = new Scanner(urlReader.readRobotsTxtFile(url("/gzip/robots.txt")));) {
+			assertEquals(input.nextLine(), "User-agent: *");
+			assertEquals(input.nextLine(), "Disallow: /private/");
+		}
+		Document document = urlReader.readHTMLFile(url("/gzip/index.html"));
+		assertEquals(document.title(), "Gzip");
+		assertEquals(document.select("p").size(), 200);
+		document = urlReader.readHTMLFile(url("/deflate/index.html"));
+		assertEquals(document.title(), "Deflate");
+		assertEquals(document.select("p").size(), 200);
+		TransferStatistics statistics = urlReader.getTransferStatistics("example.kings.edu");
+		assertEquals(statistics.getResponses(), 3);
+		assertTrue(statistics.getWireBytes() < statistics.getDecodedBytes());
+	}
+
+	/**
+	 * Tests that a file sent with a Content-Encoding that was not asked for is reported as null.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testUnsupportedEncoding() throws MalformedURLException {
+		assertNull(urlReader.readHTMLFile(url("/brotli/index.html")));
+	}
+
+	/**
+	 * Tests that a file is not parsed again if the server says it has not changed, or if it sends the same content anyway.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testConditionalFetch() throws MalformedURLException {
+		HtmlFetch first = urlReader.readHTMLFile(url("/conditional.html"), null);
+		assertEquals(first.getDocument().title(), "Conditional");
+		assertFalse(first.isNotModified());
+		assertEquals(first.getValidators().getEtag(), "\"v1\"");
+
+		HtmlFetch second = urlReader.readHTMLFile(url("/conditional.html"), first.getValidators());
+		assertTrue(second.isNotModified());
+		assertNull(second.getDocument());
+		assertEquals(second.getValidators(), first.getValidators());
+
+		// This server ignores conditional requests, so only the hash shows that the file is unchanged.
+		HtmlFetch third = urlReader.readHTMLFile(url("/index.html"), null);
+		HtmlFetch fourth = urlReader.readHTMLFile(url("/index.html"), third.getValidators());
+		assertTrue(fourth.isNotModified());
+		assertNull(fourth.getDocument());
+		HtmlFetch fifth = urlReader.readHTMLFile(url("/index.html"), new Validators(null, null, Validators.hash(new byte[0])));
+		assertFalse(fifth.isNotModified());
+		assertEquals(fifth.getDocument().title(), "Caf\u00e9");
+	}
+
+	/**
+	 * Tests that a body longer than the maximum size is cut off, and the part that arrived is still parsed.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testBodyLimit() throws MalformedURLException {
+		HttpClientURLReader limitedReader = newReader(HttpClientURLReader.DEFAULT_TOTAL_TIMEOUT, 1000);
+		Document document = limitedReader.readHTMLFile(url("/big.html"));
+		assertEquals(document.title(), "Big");
+		assertTrue(document.select("p").size() < 200);
+		assertEquals(limitedReader.getTransferStatistics("example.kings.edu").getDecodedBytes(), 1000);
+	}
+
+	/**
+	 * Tests that no more of a robots.txt file is downloaded than can be parsed, and that the parser can tell that it was cut off.
+	 *
+	 * @throws IOException If the file cannot be parsed.
+	 */
+	@Test
+	public void testRobotsTxtLimit() throws IOException {
+		try (Reader input = urlReader.readRobotsTxtFile(url("/big/robots.txt"));) {
+			RobotsTxt robotsTxt = new RobotsTxtParser().parse("http", "example.kings.edu", input);
+			assertTrue(robotsTxt.isTruncated());
+			assertEquals(robotsTxt.getRules().size(), 1);
+		}
+		assertEquals(urlReader.getTransferStatistics("example.kings.edu").getDecodedBytes(), RobotsTxtParser.MAX_SIZE + 1);
+	}
+
+	/**
+	 * Tests that a body labeled as HTML that starts like a binary file is dropped, and that a body with no useful Content-Type is kept only if it starts like HTML.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testSniffing() throws MalformedURLException {
+		assertNull(urlReader.readHTMLFile(url("/binary.html")));
+		assertEquals(urlReader.readHTMLFile(url("/unlabeled")).title(), "Unlabeled");
+		assertNull(urlReader.readHTMLFile(url("/unlabeled.bin")));
+	}
+
+	/**
+	 * Tests that a fetch whose body arrives too slowly is abandoned after the total timeout.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testTotalTimeout() throws MalformedURLException {
+		HttpClientURLReader impatientReader = newReader(Duration.ofMillis(200), HttpClientURLReader.DEFAULT_MAX_BODY_SIZE);
+		long start = System.currentTimeMillis();
+		assertNull(impatientReader.readHTMLFile(url("/slow.html")));
+		assertTrue(System.currentTimeMillis() - start < 1500);
+	}
+
+	/**
+	 * Tests that only a transport error, a timeout or a 5xx status counts as a failure of the host, and not a missing file or one that is not HTML.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testHostFailures() throws MalformedURLException {
+		assertFalse(urlReader.readHTMLFile(url("/index.html"), null).isHostFailure());
+		assertFalse(urlReader.readHTMLFile(url("/missing.html"), null).isHostFailure());
+		assertFalse(urlReader.readHTMLFile(url("/data.json"), null).isHostFailure());
+		assertTrue(urlReader.readHTMLFile(url("/unavailable.html"), null).isHostFailure());
+		HttpClientURLReader impatientReader = newReader(Duration.ofMillis(200), HttpClientURLReader.DEFAULT_MAX_BODY_SIZE);
+		assertTrue(impatientReader.readHTMLFile(url("/slow.html"), null).isHostFailure());
+	}
+
+	/**
+	 * Tests that requests are sent with the crawler's User-Agent, which names the product token whose robots.txt groups it obeys.
+	 *
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testUserAgent() throws MalformedURLException {
+		HtmlPage page = urlReader.readHTMLFile(url("/agent.html"), null).getPage();
+		assertEquals(page.getTitle(), URLReader.USER_AGENT);
+		assertTrue(page.getTitle().startsWith(RobotsTxtParser.DEFAULT_PRODUCT_TOKEN + "/"));
+	}
+
+	/**
+	 * Creates a reader that sends requests for example.kings.edu to the server instead.
+	 *
+	 * @param totalTimeout The longest time to spend on a fetch.
+	 * @param maxBodySize The largest number of decoded bytes of a body to keep.
+	 * @return The reader.
+	 */
+	private HttpClientURLReader newReader(Duration totalTimeout, long maxBodySize) {
+		int port = server.getAddress().getPort();
+		return new HttpClientURLReader(HttpClientURLReader.DEFAULT_CONNECT_TIMEOUT, HttpClientURLReader.DEFAULT_READ_TIMEOUT, totalTimeout, maxBodySize) {
+			@Override
+			protected URI toURI(CrawlURL url) throws URISyntaxException {
+				return new URI("http", null, "127.0.0.1", port, url.getFile(), null, null);
+			}
+		};
+	}
+
+	/**
+	 * Makes the server respond to requests for a path with some content.
+	 *
+	 * @param path The path.
+	 * @param contentType The Content-Type of the response.
+	 * @param content The body of the response.
+	 */
+	private void serve(String path, String contentType, String content) {
+		serve(path, contentType, content, null);
+	}
+
+	/**
+	 * Makes the server respond to requests for a path with some content, compressed with a Content-Encoding.
+	 *
+	 * @param path The path.
+	 * @param contentType The Content-Type of the response.
+	 * @param content The body of the response, before it is compressed.
+	 * @param contentEncoding "gzip" or "deflate" to compress the body that way, any other name to send it uncompressed but labeled with that name, or null to send it uncompressed.
+	 */
+	private void serve(String path, String contentType, String content, String contentEncoding) {
+		server.createContext(path, exchange -> {
+			byte[] body = encode(content.getBytes(StandardCharsets.UTF_8), contentEncoding);
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			if(contentEncoding != null) {
+				exchange.getResponseHeaders().set("Content-Encoding", contentEncoding);
+			}
+			exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals(path) ? 200 : 404, body.length);
+			try (OutputStream output = exchange.getResponseBody();) {
+				output.write(body);
+			}
+		});
+	}
+
+	/**
+	 * Compresses a body with a Content-Encoding.
+	 *
+	 * @param body The body.
+	 * @param contentEncoding "gzip" or "deflate", or anything else to leave the body as it is.
+	 * @return The compressed body.
+	 * @throws IOException Should be impossible.
+	 */
+	private static byte[] encode(byte[] body, String contentEncoding) throws IOException {
+		byte[] returnValue = body;
+		if("gzip".equals(contentEncoding) || "deflate".equals(contentEncoding)) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (OutputStream output = "gzip".equals(contentEncoding) ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes);) {
+				output.write(body);
+			}
+			returnValue = bytes.toByteArray();
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Builds a URL for a file that the reader will fetch from the server.
+	 *
+	 * @param path The path of the file.
+	 * @return The URL of the file.
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	private CrawlURL url(String path) throws MalformedURLException {
+		return new CrawlURL("http", "example.kings.edu", path);
+	}
+}
@@ -1,13 +1,15 @@
 package edu.millersville.csci406.spring2023;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,7 +43,7 @@ public class TestMyCrawlController {
 	 * A Map of CrawlJob (HTML) to Set of URLs that should be received for that
 	 * CrawlJob.
 	 */
-	private Map<CrawlJob, Set<URL>> expectedUrls;
+	private Map<CrawlJob, Set<CrawlURL>> expectedUrls;
 	/**
 	 * A Map of CrawlJob (HTML) to String of content that should be received for
 	 * that CrawlJob.
@@ -93,15 +95,15 @@ public class TestMyCrawlController {
 	 */
 	@Test
 	public void testManyJobs() throws DataSourceException, MalformedURLException {
-		CrawlJob job1 = new CrawlJob(1, new URL("http://example.kings.edu/robots.txt"));
-		CrawlJob job2 = new CrawlJob(2, new URL("http://example.kings.edu/index.html"));
-		CrawlJob job3 = new CrawlJob(3, new URL("http://example.wilkes.edu/index.html"));
-		CrawlJob job4 = new CrawlJob(4, new URL("http://example.wilkes.edu/robots.txt"));
-		CrawlJob job5 = new CrawlJob(5, new URL("http://example.kings.edu/good.html"));
-		CrawlJob job6 = new CrawlJob(6, new URL("http://example.kings.edu/bad.html"));
-		CrawlJob job7 = new CrawlJob(7, new URL("http://example.misericordia.edu/index.html"));
-		CrawlJob job8 = new CrawlJob(8, new URL("http://example.misericordia.edu/robots.txt"));
-		CrawlJob job9 = new CrawlJob(9, new URL("http://example.scranton.edu"));
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.wilkes.edu/robots.txt"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.kings.edu/good.html"));
+		CrawlJob job6 = new CrawlJob(6, new CrawlURL("http://example.kings.edu/bad.html"));
+		CrawlJob job7 = new CrawlJob(7, new CrawlURL("http://example.misericordia.edu/index.html"));
+		CrawlJob job8 = new CrawlJob(8, new CrawlURL("http://example.misericordia.edu/robots.txt"));
+		CrawlJob job9 = new CrawlJob(9, new CrawlURL("http://example.scranton.edu"));
 
 		initialJobs.add(job1);
 		initialJobs.add(job2);
@@ -129,15 +131,15 @@ public class TestMyCrawlController {
 		Set<CrawlJob> disallowed8 = new HashSet<>();
 		disallowedJobs.put(job8, disallowed8);
 
-		Set<URL> urls2 = new HashSet<>();
+		Set<CrawlURL> urls2 = new HashSet<>();
 		urls2.add(job5.getURL());
 		urls2.add(job6.getURL());
 		urls2.add(job7.getURL());
 		expectedUrls.put(job2, urls2);
-		Set<URL> urls5 = new HashSet<>();
+		Set<CrawlURL> urls5 = new HashSet<>();
 		urls5.add(job7.getURL());
 		expectedUrls.put(job5, urls5);
-		Set<URL> urls7 = new HashSet<>();
+		Set<CrawlURL> urls7 = new HashSet<>();
 		expectedUrls.put(job7, urls7);
 
 		expectedContent.put(job2, "ABC");
@@ -201,16 +203,17 @@ public class TestMyCrawlController {
 	 * 
 	 * @throws DataSourceException   If there is a problem accessing the DataSource.
 	 * @throws MalformedURLException If I typed an invalid URL.
+	 * @throws InterruptedException  If the tester itself somehow gets interrupted.
 	 */
 	@Test
-	public void testDeleteJobsInCurrentQueue() throws DataSourceException, MalformedURLException {
-		CrawlJob job1 = new CrawlJob(1, new URL("http://example.kings.edu/robots.txt"));
-		CrawlJob job2 = new CrawlJob(2, new URL("http://example.wilkes.edu/robots.txt"));
-		CrawlJob job3 = new CrawlJob(3, new URL("http://example.misericordia.edu/robots.txt"));
-		CrawlJob job4 = new CrawlJob(4, new URL("http://example.kings.edu/index.html"));
-		CrawlJob job5 = new CrawlJob(5, new URL("http://example.wilkes.edu/index.html"));
-		CrawlJob job6 = new CrawlJob(6, new URL("http://example.misericordia.edu/index.html"));
-		CrawlJob job7 = new CrawlJob(7, new URL("http://example.kings.edu/foo.html"));
+	public void testDeleteJobsInCurrentQueue() throws DataSourceException, MalformedURLException, InterruptedException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.wilkes.edu/robots.txt"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.misericordia.edu/robots.txt"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job6 = new CrawlJob(6, new CrawlURL("http://example.misericordia.edu/index.html"));
+		CrawlJob job7 = new CrawlJob(7, new CrawlURL("http://example.kings.edu/foo.html"));
 
 		initialJobs.add(job1);
 		initialJobs.add(job2);
@@ -242,24 +245,35 @@ public class TestMyCrawlController {
 		newJobs.put(job6, new HashSet<>());
 		newJobs.put(job7, new HashSet<>());
 
-		List<CrawlJob> finishedJobs = new ArrayList<>();
+		List<CrawlJob> finishedJobs = Collections.synchronizedList(new ArrayList<>());
 
 		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
 				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
 		MyCrawlController controller = new MyCrawlController(dataSource, 2);
 
-		CrawlJob currentJob = controller.getJob();
-		CrawlJob nextJob = controller.getJob();
-		while (currentJob != null) {
-			if (currentJob.getURL().getFile().equals("/robots.txt")) {
-				controller.finishRobots(currentJob, expectedRules.get(currentJob));
-			} else {
-				controller.finishHtml(currentJob, expectedUrls.get(currentJob), expectedContent.get(currentJob));
+		// Two threads work at once, so that jobs are waiting in the frontier while robots.txt files are finished.
+		Runnable worker = () -> {
+			try {
+				CrawlJob currentJob = controller.getJob();
+				while (currentJob != null) {
+					if (currentJob.getURL().getFile().equals("/robots.txt")) {
+						controller.finishRobots(currentJob, expectedRules.get(currentJob));
+					} else {
+						controller.finishHtml(currentJob, expectedUrls.get(currentJob), expectedContent.get(currentJob));
+					}
+					finishedJobs.add(currentJob);
+					currentJob = controller.getJob();
+				}
+			} catch (DataSourceException exception) {
+				fail("This shouldn't be possible.");
 			}
-			finishedJobs.add(currentJob);
-			currentJob = nextJob;
-			nextJob = controller.getJob();
-		}
+		};
+		Thread thread1 = new Thread(worker);
+		Thread thread2 = new Thread(worker);
+		thread1.start();
+		thread2.start();
+		thread1.join();
+		thread2.join();
 
 		dataSource.checkResults();
 		assertTrue(finishedJobs.contains(job1));
@@ -303,15 +317,15 @@ public class TestMyCrawlController {
 			@Override
 			public void run() {
 				try {
-					initialJobs.add(new CrawlJob(1, new URL("http://example.kings.edu/foo.html")));
-					initialJobs.add(new CrawlJob(2, new URL("http://example.kings.edu/bar.html")));
-					initialJobs.add(new CrawlJob(3, new URL("http://example.kings.edu/baz.html")));
-					initialJobs.add(new CrawlJob(4, new URL("http://example.wilkes.edu/foo.html")));
-					initialJobs.add(new CrawlJob(5, new URL("http://example.wilkes.edu/bar.html")));
-					initialJobs.add(new CrawlJob(6, new URL("http://example.wilkes.edu/baz.html")));
-					initialJobs.add(new CrawlJob(7, new URL("http://example.misericordia.edu/foo.html")));
-					initialJobs.add(new CrawlJob(8, new URL("http://example.misericordia.edu/bar.html")));
-					initialJobs.add(new CrawlJob(9, new URL("http://example.misericordia.edu/baz.html")));
+					initialJobs.add(new CrawlJob(1, new CrawlURL("http://example.kings.edu/foo.html")));
+					initialJobs.add(new CrawlJob(2, new CrawlURL("http://example.kings.edu/bar.html")));
+					initialJobs.add(new CrawlJob(3, new CrawlURL("http://example.kings.edu/baz.html")));
+					initialJobs.add(new CrawlJob(4, new CrawlURL("http://example.wilkes.edu/foo.html")));
+					initialJobs.add(new CrawlJob(5, new CrawlURL("http://example.wilkes.edu/bar.html")));
+					initialJobs.add(new CrawlJob(6, new CrawlURL("http://example.wilkes.edu/baz.html")));
+					initialJobs.add(new CrawlJob(7, new CrawlURL("http://example.misericordia.edu/foo.html")));
+					initialJobs.add(new CrawlJob(8, new CrawlURL("http://example.misericordia.edu/bar.html")));
+					initialJobs.add(new CrawlJob(9, new CrawlURL("http://example.misericordia.edu/baz.html")));
 					CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs,
 							expectedRules, disallowedJobs, expectedUrls, expectedContent, newJobs,
 							expectedCancellations);
@@ -323,6 +337,7 @@ public class TestMyCrawlController {
 							finishTimes.put(currentJob.getURL().getHost(), new ArrayList<>());
 						}
 						finishTimes.get(currentJob.getURL().getHost()).add(System.currentTimeMillis());
+						controller.cancelHtml(currentJob);
 						currentJob = controller.getJob();
 					}
 				} catch (MalformedURLException exception) {
@@ -377,4 +392,539 @@ public class TestMyCrawlController {
 		assertTrue("It looks like you are delaying more often than you should be.", latest <= earliest + DELAY * 3);
 	}
 
+	/**
+	 * Tests that a thread waiting for one host to become eligible does not prevent
+	 * other threads from getting jobs for hosts that are already eligible.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 * @throws InterruptedException  If the tester itself somehow gets interrupted.
+	 */
+	@Test
+	public void testWaitingDoesNotBlockOtherHosts() throws DataSourceException, MalformedURLException, InterruptedException {
+		final int DELAY = 1000;
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/foo.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/bar.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/foo.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+
+		Set<CrawlURL> urls1 = new HashSet<>();
+		urls1.add(job3.getURL());
+		expectedUrls.put(job1, urls1);
+		expectedContent.put(job1, "ABC");
+		Set<CrawlJob> newJobs1 = new HashSet<>();
+		newJobs1.add(job3);
+		newJobs.put(job1, newJobs1);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, DELAY);
+		assertTrue(controller.getJob().equals(job1));
+
+		Map<CrawlJob, Long> releaseTimes = new HashMap<>();
+		Thread waiter = new Thread(() -> {
+			CrawlJob job = controller.getJob();
+			synchronized (releaseTimes) {
+				releaseTimes.put(job, System.currentTimeMillis());
+			}
+		});
+		waiter.start();
+		Thread.sleep(DELAY / 10);
+
+		long start = System.currentTimeMillis();
+		controller.finishHtml(job1, urls1, "ABC");
+		CrawlJob job = controller.getJob();
+		synchronized (releaseTimes) {
+			releaseTimes.put(job, System.currentTimeMillis());
+		}
+		waiter.join();
+
+		assertTrue(releaseTimes.containsKey(job2));
+		assertTrue(releaseTimes.containsKey(job3));
+		assertTrue("Waiting for one host should not delay another.", releaseTimes.get(job3) - start < DELAY / 2);
+	}
+
+
+	/**
+	 * Tests that a thread asking for a job while the only work is in flight waits
+	 * for that work to produce new jobs, and that every thread is told when the
+	 * crawl is complete.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 * @throws InterruptedException  If the tester itself somehow gets interrupted.
+	 */
+	@Test
+	public void testIdleThreadWaitsForJobsInFlight() throws DataSourceException, MalformedURLException, InterruptedException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.wilkes.edu/index.html"));
+
+		initialJobs.add(job1);
+
+		Set<CrawlURL> urls1 = new HashSet<>();
+		urls1.add(job2.getURL());
+		expectedUrls.put(job1, urls1);
+		expectedContent.put(job1, "ABC");
+		Set<CrawlJob> newJobs1 = new HashSet<>();
+		newJobs1.add(job2);
+		newJobs.put(job1, newJobs1);
+		expectedCancellations.add(job2);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		assertTrue(controller.getJob().equals(job1));
+
+		List<CrawlJob> idleThreadJobs = Collections.synchronizedList(new ArrayList<>());
+		Thread idleThread = new Thread(() -> {
+			try {
+				CrawlJob job = controller.getJob();
+				idleThreadJobs.add(job);
+				controller.cancelHtml(job);
+				idleThreadJobs.add(controller.getJob());
+			} catch (DataSourceException exception) {
+				fail("This shouldn't be possible.");
+			}
+		});
+		idleThread.start();
+		Thread.sleep(100);
+		assertTrue("The thread should be waiting rather than finished.", idleThread.isAlive());
+		assertTrue(idleThreadJobs.isEmpty());
+
+		controller.finishHtml(job1, urls1, "ABC");
+		idleThread.join();
+		assertTrue(idleThreadJobs.size() == 2);
+		assertTrue(idleThreadJobs.get(0).equals(job2));
+		assertNull(idleThreadJobs.get(1));
+		assertNull(controller.getJob());
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that a Crawl-delay requested by a robots.txt file is honored even when
+	 * it is longer than the controller's own delay.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testRobotsCrawlDelay() throws DataSourceException, MalformedURLException {
+		final long ROBOTS_DELAY = 300;
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/index.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+
+		Set<RobotsRule> rules1 = new HashSet<>();
+		rules1.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		expectedRules.put(job1, rules1);
+		disallowedJobs.put(job1, new HashSet<>());
+		expectedCancellations.add(job2);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		long start = System.currentTimeMillis();
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishRobots(job1, rules1, ROBOTS_DELAY);
+		assertTrue(controller.getJob().equals(job2));
+		assertTrue(System.currentTimeMillis() - start >= ROBOTS_DELAY);
+		controller.cancelHtml(job2);
+		assertNull(controller.getJob());
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that the sitemaps named by a robots.txt file, and by a sitemap index,
+	 * become CrawlJobs of their own that are released like any other, that no
+	 * sitemap is scheduled twice or more than MAX_SITEMAP_FILES in all, and that
+	 * the URLs they list are passed to the data source.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testSitemapJobs() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlURL index = new CrawlURL("http://example.kings.edu/sitemap_index.xml");
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+
+		Set<RobotsRule> rules1 = new HashSet<>();
+		rules1.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		expectedRules.put(job1, rules1);
+		disallowedJobs.put(job1, new HashSet<>());
+		expectedCancellations.add(job2);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishRobots(job1, rules1, 0, Arrays.asList(index, index));
+
+		CrawlJob indexJob = controller.getJob();
+		assertTrue(indexJob.isSitemap());
+		assertEquals(indexJob.getURL(), index);
+		List<CrawlURL> children = new ArrayList<>();
+		children.add(index);
+		for (int i = 0; i < MyCrawlController.MAX_SITEMAP_FILES + 2; i++) {
+			children.add(new CrawlURL("http://example.kings.edu/sitemap" + i + ".xml"));
+		}
+		SitemapEntry entry = new SitemapEntry(new CrawlURL("http://example.kings.edu/a.html"), null);
+		controller.finishSitemap(indexJob, Arrays.asList(entry), children);
+
+		int sitemapsRead = 1;
+		CrawlJob currentJob = controller.getJob();
+		while (currentJob != null) {
+			if (currentJob.isSitemap()) {
+				assertFalse(currentJob.getURL().equals(index));
+				sitemapsRead++;
+				controller.finishSitemap(currentJob, Collections.emptyList(), Collections.emptyList());
+			} else {
+				assertTrue(currentJob.equals(job2));
+				controller.cancelHtml(currentJob);
+			}
+			currentJob = controller.getJob();
+		}
+		assertEquals(sitemapsRead, MyCrawlController.MAX_SITEMAP_FILES);
+		assertEquals(dataSource.getReceivedSitemapEntries(), Arrays.asList(entry));
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that when only a small window of CrawlJobs per host is kept in memory,
+	 * the rest are paged back in from the data source and every CrawlJob is still
+	 * released exactly once.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testSmallWindow() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/robots.txt"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/a.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.kings.edu/b.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.kings.edu/c.html"));
+		CrawlJob job5 = new CrawlJob(5, new CrawlURL("http://example.kings.edu/d.html"));
+		CrawlJob job6 = new CrawlJob(6, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job7 = new CrawlJob(7, new CrawlURL("http://example.kings.edu/e.html"));
+		CrawlJob job8 = new CrawlJob(8, new CrawlURL("http://example.kings.edu/f.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		initialJobs.add(job3);
+		initialJobs.add(job4);
+		initialJobs.add(job5);
+		initialJobs.add(job6);
+
+		Set<RobotsRule> rules1 = new HashSet<>();
+		rules1.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		expectedRules.put(job1, rules1);
+		disallowedJobs.put(job1, new HashSet<>());
+
+		Set<CrawlURL> urls2 = new HashSet<>();
+		urls2.add(job7.getURL());
+		urls2.add(job8.getURL());
+		expectedUrls.put(job2, urls2);
+		expectedContent.put(job2, "ABC");
+		Set<CrawlJob> newJobs2 = new HashSet<>();
+		newJobs2.add(job7);
+		newJobs2.add(job8);
+		newJobs.put(job2, newJobs2);
+
+		expectedCancellations.add(job3);
+		expectedCancellations.add(job4);
+		expectedCancellations.add(job5);
+		expectedCancellations.add(job6);
+		expectedCancellations.add(job7);
+		expectedCancellations.add(job8);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, new PolitenessPolicy(0), 1, 2);
+
+		List<CrawlJob> releasedJobs = new ArrayList<>();
+		CrawlJob currentJob = controller.getJob();
+		while (currentJob != null) {
+			assertFalse(releasedJobs.contains(currentJob));
+			releasedJobs.add(currentJob);
+			if (currentJob.equals(job1)) {
+				controller.finishRobots(currentJob, rules1);
+			} else if (currentJob.equals(job2)) {
+				controller.finishHtml(currentJob, urls2, "ABC");
+			} else {
+				controller.cancelHtml(currentJob);
+			}
+			currentJob = controller.getJob();
+		}
+		assertTrue(releasedJobs.size() == 8);
+		assertTrue(releasedJobs.indexOf(job1) < releasedJobs.indexOf(job2));
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that a batch contains one CrawlJob from each eligible host, and that an
+	 * empty batch means the crawl is complete.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testGetJobs() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/other.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job4 = new CrawlJob(4, new CrawlURL("http://example.scranton.edu/index.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		initialJobs.add(job3);
+		initialJobs.add(job4);
+		expectedCancellations.addAll(initialJobs);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		List<CrawlJob> batch = controller.getJobs(2);
+		assertTrue(batch.size() == 2);
+		assertFalse(batch.get(0).getURL().getHost().equals(batch.get(1).getURL().getHost()));
+		List<CrawlJob> released = new ArrayList<>(batch);
+		batch = controller.getJobs(10);
+		assertTrue(batch.size() == 1);
+		released.addAll(batch);
+		assertTrue(released.contains(job1));
+		assertTrue(released.contains(job3));
+		assertTrue(released.contains(job4));
+		for (CrawlJob job : released) {
+			controller.cancelHtml(job);
+		}
+		batch = controller.getJobs(10);
+		assertTrue(batch.size() == 1 && batch.get(0).equals(job2));
+		controller.cancelHtml(job2);
+		assertTrue(controller.getJobs(10).isEmpty());
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that the time spent recording a CrawlJob in the data source is not
+	 * counted as time its host took to respond, and so does not lengthen the delay
+	 * between accesses to the host.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testLatencyExcludesDataSource() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/other.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		expectedCancellations.addAll(initialJobs);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations) {
+			@Override
+			public void cancelCrawlingHtmlFile(CrawlJob job) throws DataSourceException {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					// That's OK, it was slow enough.
+				}
+				super.cancelCrawlingHtmlFile(job);
+			}
+		};
+		MyCrawlController controller = new MyCrawlController(dataSource, new PolitenessPolicy(0, 10000, 1));
+		CrawlJob first = controller.getJob();
+		controller.cancelHtml(first);
+		long delay = controller.getCrawlDelay("example.kings.edu");
+		assertTrue("The delay was " + delay + " ms.", delay < 300);
+		controller.cancelHtml(controller.getJob());
+		assertNull(controller.getJob());
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that a CrawlJob that is given back, or whose lease expires, is released
+	 * again, and that finishing it after its lease expired does nothing.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testLeases() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.wilkes.edu/index.html"));
+
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		expectedCancellations.add(job1);
+		expectedCancellations.add(job2);
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		controller.setLeaseDuration(100);
+		CrawlJob first = controller.getJob();
+		controller.returnJob(first);
+		controller.returnJob(first);
+		CrawlJob second = controller.getJob();
+		CrawlJob third = controller.getJob();
+		assertTrue(first.equals(second) || first.equals(third));
+		assertFalse(second.equals(third));
+		controller.cancelHtml(second);
+
+		// The lease on the third job expires, so it is released again.
+		assertTrue(controller.getJob().equals(third));
+		controller.cancelHtml(third);
+		assertNull(controller.getJob());
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that HTML files finished while writing behind are all written, and
+	 * that the CrawlJobs they create are still released before the crawl ends.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testWriteBehind() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.kings.edu/other.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.wilkes.edu/index.html"));
+
+		initialJobs.add(job1);
+
+		Set<CrawlURL> urls1 = new HashSet<>();
+		urls1.add(job2.getURL());
+		urls1.add(job3.getURL());
+		expectedUrls.put(job1, urls1);
+		expectedUrls.put(job2, new HashSet<>());
+		expectedUrls.put(job3, new HashSet<>());
+
+		expectedContent.put(job1, "ABC");
+		expectedContent.put(job2, "DEF");
+		expectedContent.put(job3, "GHI");
+
+		Set<CrawlJob> newJobs1 = new HashSet<>();
+		newJobs1.add(job2);
+		newJobs1.add(job3);
+		newJobs.put(job1, newJobs1);
+		newJobs.put(job2, new HashSet<>());
+		newJobs.put(job3, new HashSet<>());
+
+		CrawlControllerDataSourceMock dataSource = new CrawlControllerDataSourceMock(initialJobs, expectedRules,
+				disallowedJobs, expectedUrls, expectedContent, newJobs, expectedCancellations);
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		controller.startWriteBehind(1, 2);
+		List<CrawlJob> releasedJobs = new ArrayList<>();
+		CrawlJob currentJob = controller.getJob();
+		while (currentJob != null) {
+			releasedJobs.add(currentJob);
+			controller.finishHtml(currentJob, expectedUrls.get(currentJob), expectedContent.get(currentJob));
+			currentJob = controller.getJob();
+		}
+		assertTrue(releasedJobs.size() == 3);
+		dataSource.checkResults();
+	}
+
+	/**
+	 * Tests that a CrawlJob whose HTML file fails to be written behind is crawled
+	 * again once, and then given up on.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testWriteBehindFailure() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		initialJobs.add(job1);
+
+		MyCrawlController controller = new MyCrawlController(new ThrowingDataSourceMock(initialJobs), 0);
+		controller.startWriteBehind(MyCrawlController.DEFAULT_WRITE_QUEUE_CAPACITY,
+				MyCrawlController.DEFAULT_WRITE_BATCH_SIZE);
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishHtml(job1, new HashSet<>(), "ABC");
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishHtml(job1, new HashSet<>(), "ABC");
+		assertNull(controller.getJob());
+	}
+
+	/**
+	 * Tests that when a batch of HTML files written behind cannot be saved, its
+	 * CrawlJobs are treated as failed even though each file was written.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test
+	public void testWriteBehindBatchFailure() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		initialJobs.add(job1);
+
+		CrawlingDataSource dataSource = new ThrowingDataSourceMock(initialJobs) {
+			@Override
+			public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
+				return new HashSet<>();
+			}
+
+			@Override
+			public void endBatch() throws DataSourceException {
+				throw new DataSourceException(new UnsupportedOperationException());
+			}
+		};
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		controller.startWriteBehind(MyCrawlController.DEFAULT_WRITE_QUEUE_CAPACITY,
+				MyCrawlController.DEFAULT_WRITE_BATCH_SIZE);
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishHtml(job1, new HashSet<>(), "ABC");
+		assertTrue(controller.getJob().equals(job1));
+		controller.finishHtml(job1, new HashSet<>(), "ABC");
+		assertNull(controller.getJob());
+	}
+
+	/**
+	 * Tests that when the writer thread is stopped by an Error, no more CrawlJobs
+	 * are released and finishing another HTML file fails rather than waiting
+	 * forever for room in the queue.
+	 * 
+	 * @throws DataSourceException   If there is a problem accessing the DataSource.
+	 * @throws MalformedURLException If I typed an invalid URL.
+	 */
+	@Test(timeout = 10000)
+	public void testWriterError() throws DataSourceException, MalformedURLException {
+		CrawlJob job1 = new CrawlJob(1, new CrawlURL("http://example.kings.edu/index.html"));
+		CrawlJob job2 = new CrawlJob(2, new CrawlURL("http://example.wilkes.edu/index.html"));
+		CrawlJob job3 = new CrawlJob(3, new CrawlURL("http://example.misericordia.edu/index.html"));
+		initialJobs.add(job1);
+		initialJobs.add(job2);
+		initialJobs.add(job3);
+
+		CrawlingDataSource dataSource = new ThrowingDataSourceMock(initialJobs) {
+			@Override
+			public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
+				throw new Error("The writer is broken.");
+			}
+		};
+		MyCrawlController controller = new MyCrawlController(dataSource, 0);
+		controller.startWriteBehind(1, 1);
+		List<CrawlJob> released = controller.getJobs(3);
+		assertTrue(released.size() == 3);
+		controller.finishHtml(released.get(0), new HashSet<>(), "ABC");
+		assertNull(controller.getJob());
+		try {
+			controller.finishHtml(released.get(1), new HashSet<>(), "DEF");
+			controller.finishHtml(released.get(2), new HashSet<>(), "GHI");
+			fail("Finishing HTML files succeeded after the writer stopped.");
+		} catch (DataSourceException exception) {
+			// Expected.
+		}
+	}
+
 }
@@ -5,8 +5,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.io.Reader;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Scanner;
 
 import org.jsoup.nodes.Document;
@@ -29,7 +29,7 @@ public class TestNetworkURLReader {
 	@Test
 	public void testReadRobotsTxtFile() throws MalformedURLException {
 		URLReader urlReader = new NetworkURLReader();
-		try (Scanner input = urlReader.readRobotsTxtFile(new URL("http://www.chadhogg.name/examplerobots.txt"));) {
+		try (Scanner input = new Scanner(urlReader.readRobotsTxtFile(new CrawlURL("http://www.chadhogg.name/examplerobots.txt")));) {
 			String line = input.nextLine();
 			assertEquals(line, "User-agent: *");
 			line = input.nextLine();
@@ -71,7 +71,7 @@ public class TestNetworkURLReader {
 	@Test
 	public void testReadHTMLFile() throws MalformedURLException {
 		URLReader urlReader = new NetworkURLReader();
-		Document document = urlReader.readHTMLFile(new URL("http://example.com/"));
+		Document document = urlReader.readHTMLFile(new CrawlURL("http://example.com/"));
 		assertNotNull(document);
 		assertEquals(document.title(), "Example Domain");
 		assertEquals(document.body().getElementsByTag("h1").size(), 1);
@@ -87,9 +87,9 @@ public class TestNetworkURLReader {
 	@Test
 	public void testUnknownHost() throws MalformedURLException {
 		URLReader urlReader = new NetworkURLReader();
-		Document document = urlReader.readHTMLFile(new URL("http://asdladflasdfasdf.com/adsdlfkiuhfapiusudhfaf.html"));
+		Document document = urlReader.readHTMLFile(new CrawlURL("http://asdladflasdfasdf.com/adsdlfkiuhfapiusudhfaf.html"));
 		assertNull(document);
-		Scanner input = urlReader.readRobotsTxtFile(new URL("http://asdfdkahsdfiauhsdfia.com/robots.txt"));
+		Reader input = urlReader.readRobotsTxtFile(new CrawlURL("http://asdfdkahsdfiauhsdfia.com/robots.txt"));
 		assertNull(input);
 	}
 	
@@ -101,7 +101,7 @@ public class TestNetworkURLReader {
 	@Test
 	public void testNonHtmlFile() throws MalformedURLException {
 		URLReader urlReader = new NetworkURLReader();
-		Document document = urlReader.readHTMLFile(new URL("http://www.robotstxt.org/robots.txt"));
+		Document document = urlReader.readHTMLFile(new CrawlURL("http://www.robotstxt.org/robots.txt"));
 		assertNull(document);
 	}
 }
@@ -1,13 +1,20 @@
 package edu.millersville.csci406.spring2023;
 
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.After;
@@ -16,7 +23,9 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * A collection of unit tests for the PGCrawlingDataSource class.
@@ -122,8 +131,60 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO document VALUES (1, NULL, 'asdf')");
 			Set<CrawlJob> jobs = dataSource.getURLsToCrawl();
 			assertTrue(jobs.size() == 2);
-			assertTrue(jobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
-			assertTrue(jobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/academics/"))));
+			assertTrue(jobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(jobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/academics/"))));
+		}
+	}
+
+	/**
+	 * Tests that {@link PGCrawlingDataSource#getURLsToCrawl(int, int)} pages through uncrawled URLs in order of ID.
+	 * 
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 * @throws SQLException  If there is a problem interacting with the database.
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testGetUrlsToCrawlPaged() throws SQLException, DataSourceException, MalformedURLException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.wilkes.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/', NOW())");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/admissions/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 2, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/academics/')");
+			stmt.executeUpdate("INSERT INTO document VALUES (1, NULL, 'asdf')");
+			Set<CrawlJob> jobs = dataSource.getURLsToCrawl(0, 2);
+			assertTrue(jobs.size() == 2);
+			assertTrue(jobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(jobs.contains(new CrawlJob(3, new CrawlURL("http", "example.wilkes.edu", "/"))));
+			jobs = dataSource.getURLsToCrawl(3, 2);
+			assertTrue(jobs.size() == 1);
+			assertTrue(jobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/academics/"))));
+		}
+	}
+
+	/**
+	 * Tests that {@link PGCrawlingDataSource#getURLsToCrawl(String, int)} returns the first uncrawled URLs on a host, robots.txt files first.
+	 * 
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 * @throws SQLException  If there is a problem interacting with the database.
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 */
+	@Test
+	public void testGetUrlsToCrawlForHost() throws SQLException, DataSourceException, MalformedURLException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.wilkes.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'https', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/admissions/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 2, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/academics/')");
+			Set<CrawlJob> jobs = dataSource.getURLsToCrawl("example.kings.edu", 3);
+			assertTrue(jobs.size() == 3);
+			assertTrue(jobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/robots.txt"))));
+			assertTrue(jobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(jobs.contains(new CrawlJob(5, new CrawlURL("http", "example.kings.edu", "/academics/"))));
 		}
 	}
 
@@ -135,7 +196,7 @@ public class TestPGCrawlingDataSource {
 	 */
 	@Test(expected = DataSourceException.class)
 	public void testFinishRobotsBadId() throws MalformedURLException, DataSourceException {
-		dataSource.finishCrawlingRobotsFile(new CrawlJob(1, new URL("http", "example.kings.edu", "/robots.txt")), new HashSet<>());
+		dataSource.finishCrawlingRobotsFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/robots.txt")), new HashSet<>());
 	}
 	
 	/**
@@ -155,14 +216,14 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt')");
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/foo/')");
 			stmt.executeUpdate("INSERT INTO document VALUES (1, NULL, 'asdf')");
-			CrawlJob robotsJob = new CrawlJob(4, new URL("http", "example.kings.edu", "/robots.txt"));
+			CrawlJob robotsJob = new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/robots.txt"));
 			Set<RobotsRule> rules = new HashSet<>();
 			rules.add(new RobotsRule("http", "example.kings.edu", "/", true));
 			rules.add(new RobotsRule("http", "example.kings.edu", "/a", false));
 			Set<CrawlJob> deletedJobs = dataSource.finishCrawlingRobotsFile(robotsJob, rules);
 			assertTrue(deletedJobs.size() == 2);
-			assertTrue(deletedJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
-			assertTrue(deletedJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/academics/"))));
+			assertTrue(deletedJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(deletedJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/academics/"))));
 			Set<RobotsRule> rulesInDatabase = new HashSet<>();
 			try(ResultSet resultsRules = stmt.executeQuery("SELECT protocol, host_id, path_prefix, directive FROM robots_txt_rule");) {
 				while(resultsRules.next()) {
@@ -173,12 +234,52 @@ public class TestPGCrawlingDataSource {
 			Set<CrawlJob> jobsInDatabase = new HashSet<>();
 			try(ResultSet resultsUrls = stmt.executeQuery("SELECT url_id, protocol, host_id, path FROM url WHERE when_crawled IS NULL");) {
 				while(resultsUrls.next()) {
-					jobsInDatabase.add(new CrawlJob(resultsUrls.getInt(1), new URL(resultsUrls.getString(2), "example.kings.edu", resultsUrls.getString(4))));
+					jobsInDatabase.add(new CrawlJob(resultsUrls.getInt(1), new CrawlURL(resultsUrls.getString(2), "example.kings.edu", resultsUrls.getString(4))));
 				}
 			}
 			assertTrue(jobsInDatabase.size() == 2);
-			assertTrue(jobsInDatabase.contains(new CrawlJob(1, new URL("http", "example.kings.edu", "/"))));
-			assertTrue(jobsInDatabase.contains(new CrawlJob(5, new URL("http", "example.kings.edu", "/foo/"))));
+			assertTrue(jobsInDatabase.contains(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"))));
+			assertTrue(jobsInDatabase.contains(new CrawlJob(5, new CrawlURL("http", "example.kings.edu", "/foo/"))));
+		}
+	}
+	
+	/**
+	 * Tests that {@link PGCrawlingDataSource#finishCrawlingRobotsFile(CrawlJob, Set)} applies wildcard rules to existing URLs, and keeps the robots.txt file even when everything is disallowed.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testFinishRobotsWildcards() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/index.php')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/index.php?a=b')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/100%_done.html')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/public/index.php')");
+			CrawlJob robotsJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/robots.txt"));
+			Set<RobotsRule> rules = new HashSet<>();
+			rules.add(new RobotsRule("http", "example.kings.edu", "/*.php$", false));
+			rules.add(new RobotsRule("http", "example.kings.edu", "/public/", true));
+			rules.add(new RobotsRule("http", "example.kings.edu", "/100%", false));
+			Set<CrawlJob> deletedJobs = dataSource.finishCrawlingRobotsFile(robotsJob, rules);
+			assertEquals(deletedJobs.size(), 2);
+			assertTrue(deletedJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/index.php"))));
+			assertTrue(deletedJobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/100%_done.html"))));
+			
+			rules.clear();
+			rules.add(new RobotsRule("http", "example.kings.edu", "/", false));
+			deletedJobs = dataSource.finishCrawlingRobotsFile(robotsJob, rules);
+			assertEquals(deletedJobs.size(), 2);
+			assertTrue(deletedJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/index.php?a=b"))));
+			assertTrue(deletedJobs.contains(new CrawlJob(5, new CrawlURL("http", "example.kings.edu", "/public/index.php"))));
+			try(ResultSet results = stmt.executeQuery("SELECT path FROM url");) {
+				assertTrue(results.next());
+				assertEquals(results.getString(1), "/robots.txt");
+				assertFalse(results.next());
+			}
 		}
 	}
 	
@@ -190,7 +291,7 @@ public class TestPGCrawlingDataSource {
 	 */
 	@Test(expected = DataSourceException.class)
 	public void testFinishCrawlingHtmlFileException() throws MalformedURLException, DataSourceException {
-		dataSource.finishCrawlingHtmlFile(new CrawlJob(1, new URL("http", "example.kings.edu", "/")), new HashSet<URL>(), "asdf");
+		dataSource.finishCrawlingHtmlFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")), new HashSet<CrawlURL>(), "asdf");
 	}
 	
 	/**
@@ -213,19 +314,19 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
 			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('wilkes.edu')");
 			
-			CrawlJob oldJob = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
-			newUrls.add(new URL("http", "example.kings.edu", "/admissions/"));
-			newUrls.add(new URL("http", "example.kings.edu", "/bar/"));
-			newUrls.add(new URL("http", "example.wilkes.edu", "/"));
+			CrawlJob oldJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			// Ordered, so that the ids given to the new URLs and their robots.txt files are known.
+			Set<CrawlURL> newUrls = new LinkedHashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/admissions/"));
+			newUrls.add(new CrawlURL("http", "example.wilkes.edu", "/"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/bar/"));
 			
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(oldJob, newUrls, "This is some content.");
 			
 			assertEquals(newJobs.size(), 3);
-			// This is a brittle test, because the numbers could be in a different order without being wrong.
-			assertTrue(newJobs.contains(new CrawlJob(8, new URL("http", "example.kings.edu", "/bar/"))));
-			assertTrue(newJobs.contains(new CrawlJob(6, new URL("http", "example.wilkes.edu", "/"))));
-			assertTrue(newJobs.contains(new CrawlJob(7, new URL("http", "example.wilkes.edu", "/robots.txt"))));
+			assertTrue(newJobs.contains(new CrawlJob(8, new CrawlURL("http", "example.kings.edu", "/bar/"))));
+			assertTrue(newJobs.contains(new CrawlJob(6, new CrawlURL("http", "example.wilkes.edu", "/"))));
+			assertTrue(newJobs.contains(new CrawlJob(7, new CrawlURL("http", "example.wilkes.edu", "/robots.txt"))));
 			
 			try(ResultSet resultsContent = stmt.executeQuery("SELECT content FROM document WHERE url_id = 1");) {
 				assertTrue(resultsContent.next());
@@ -235,17 +336,17 @@ public class TestPGCrawlingDataSource {
 			Set<CrawlJob> allJobs = new HashSet<>();
 			try(ResultSet resultsAllJobs = stmt.executeQuery("SELECT url_id, protocol, host_name, path FROM url NATURAL JOIN host WHERE url_id NOT IN (SELECT url_id FROM document)");) {
 				while(resultsAllJobs.next()) {
-					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new URL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
+					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new CrawlURL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
 				}
 			}
 			assertEquals(allJobs.size(), 7);
-			assertTrue(allJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
-			assertTrue(allJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/academics/"))));
-			assertTrue(allJobs.contains(new CrawlJob(4, new URL("http", "example.kings.edu", "/robots.txt"))));
-			assertTrue(allJobs.contains(new CrawlJob(5, new URL("http", "example.kings.edu", "/foo/"))));
-			assertTrue(allJobs.contains(new CrawlJob(8, new URL("http", "example.kings.edu", "/bar/"))));
-			assertTrue(allJobs.contains(new CrawlJob(6, new URL("http", "example.wilkes.edu", "/"))));
-			assertTrue(allJobs.contains(new CrawlJob(7, new URL("http", "example.wilkes.edu", "/robots.txt"))));			
+			assertTrue(allJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(allJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/academics/"))));
+			assertTrue(allJobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/robots.txt"))));
+			assertTrue(allJobs.contains(new CrawlJob(5, new CrawlURL("http", "example.kings.edu", "/foo/"))));
+			assertTrue(allJobs.contains(new CrawlJob(8, new CrawlURL("http", "example.kings.edu", "/bar/"))));
+			assertTrue(allJobs.contains(new CrawlJob(6, new CrawlURL("http", "example.wilkes.edu", "/"))));
+			assertTrue(allJobs.contains(new CrawlJob(7, new CrawlURL("http", "example.wilkes.edu", "/robots.txt"))));			
 		}
 	}
 	
@@ -267,38 +368,39 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO extension_blacklist VALUES ('.jpg')");
 			stmt.executeUpdate("INSERT INTO extension_blacklist VALUES ('.css')");
 			
-			CrawlJob oldJob = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
+			CrawlJob oldJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			// Ordered, so that the ids given to the new URLs and their robots.txt files are known.
+			Set<CrawlURL> newUrls = new LinkedHashSet<>();
 			// Should actually be added.
-			newUrls.add(new URL("http", "example.kings.edu", "/admissions/"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/admissions/"));
 			// Should be removed because it is not on the host whitelist.
-			newUrls.add(new URL("http", "example.misericordia.edu", "/bar/"));
+			newUrls.add(new CrawlURL("http", "example.misericordia.edu", "/bar/"));
 			// Should be removed because it is an exact match on the host blacklist.
-			newUrls.add(new URL("http", "private.kings.edu", "/"));
+			newUrls.add(new CrawlURL("http", "private.kings.edu", "/"));
 			// Should be removed because it ends with something on the extension blacklist.
-			newUrls.add(new URL("http", "example.kings.edu", "/logo.jpg"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/logo.jpg"));
 			// Should actually be added.
-			newUrls.add(new URL("https", "kings.edu", "/foo.html"));
+			newUrls.add(new CrawlURL("https", "kings.edu", "/foo.html"));
 			
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(oldJob, newUrls, "This is some content.");
 			
 			assertEquals(newJobs.size(), 4);
-			assertTrue(newJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
-			assertTrue(newJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/robots.txt"))));
-			assertTrue(newJobs.contains(new CrawlJob(4, new URL("https", "kings.edu", "/foo.html"))));
-			assertTrue(newJobs.contains(new CrawlJob(5, new URL("https", "kings.edu", "/robots.txt"))));
+			assertTrue(newJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(newJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/robots.txt"))));
+			assertTrue(newJobs.contains(new CrawlJob(4, new CrawlURL("https", "kings.edu", "/foo.html"))));
+			assertTrue(newJobs.contains(new CrawlJob(5, new CrawlURL("https", "kings.edu", "/robots.txt"))));
 			
 			Set<CrawlJob> allJobs = new HashSet<>();
 			try(ResultSet resultsAllJobs = stmt.executeQuery("SELECT url_id, protocol, host_name, path FROM url NATURAL JOIN host WHERE url_id NOT IN (SELECT url_id FROM document)");) {
 				while(resultsAllJobs.next()) {
-					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new URL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
+					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new CrawlURL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
 				}
 			}
 			assertEquals(allJobs.size(), 4);
-			assertTrue(allJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
-			assertTrue(allJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/robots.txt"))));
-			assertTrue(allJobs.contains(new CrawlJob(4, new URL("https", "kings.edu", "/foo.html"))));
-			assertTrue(allJobs.contains(new CrawlJob(5, new URL("https", "kings.edu", "/robots.txt"))));
+			assertTrue(allJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(allJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/robots.txt"))));
+			assertTrue(allJobs.contains(new CrawlJob(4, new CrawlURL("https", "kings.edu", "/foo.html"))));
+			assertTrue(allJobs.contains(new CrawlJob(5, new CrawlURL("https", "kings.edu", "/robots.txt"))));
 		}
 	}
 
@@ -323,36 +425,89 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 2, '/scripts/public/f', false)");
 			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('https', 1, '/f', false)");
 			
-			CrawlJob oldJob = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
+			CrawlJob oldJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			// Ordered, so that the ids given to the new URLs are known.
+			Set<CrawlURL> newUrls = new LinkedHashSet<>();
 			// Should actually be added.
-			newUrls.add(new URL("http", "example.kings.edu", "/foo.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/foo.html"));
 			// Should be skipped.
-			newUrls.add(new URL("http", "example.kings.edu", "/scripts/"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/"));
 			// Should be skipped.
-			newUrls.add(new URL("http", "example.kings.edu", "/scripts/foo.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/foo.html"));
 			// Should actually be added.
-			newUrls.add(new URL("http", "example.kings.edu", "/scripts/public/"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/public/"));
 			// Should actually be added.
-			newUrls.add(new URL("http", "example.kings.edu", "/scripts/public/foo.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/public/foo.html"));
 			
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(oldJob, newUrls, "This is some content.");
 			
 			assertEquals(newJobs.size(), 3);
-			assertTrue(newJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/foo.html"))));
-			assertTrue(newJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/scripts/public/"))));
-			assertTrue(newJobs.contains(new CrawlJob(4, new URL("http", "example.kings.edu", "/scripts/public/foo.html"))));
+			assertTrue(newJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/foo.html"))));
+			assertTrue(newJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/scripts/public/"))));
+			assertTrue(newJobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/scripts/public/foo.html"))));
 			
 			Set<CrawlJob> allJobs = new HashSet<>();
 			try(ResultSet resultsAllJobs = stmt.executeQuery("SELECT url_id, protocol, host_name, path FROM url NATURAL JOIN host WHERE when_crawled IS NULL");) {
 				while(resultsAllJobs.next()) {
-					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new URL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
+					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new CrawlURL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
 				}
 			}
 			assertEquals(allJobs.size(), 3);
-			assertTrue(allJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/foo.html"))));
-			assertTrue(allJobs.contains(new CrawlJob(3, new URL("http", "example.kings.edu", "/scripts/public/"))));
-			assertTrue(allJobs.contains(new CrawlJob(4, new URL("http", "example.kings.edu", "/scripts/public/foo.html"))));
+			assertTrue(allJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/foo.html"))));
+			assertTrue(allJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/scripts/public/"))));
+			assertTrue(allJobs.contains(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/scripts/public/foo.html"))));
+		}
+	}
+	
+	/**
+	 * Tests that robots.txt rules older than their time to live cause the robots.txt file to be crawled again, and that crawling it replaces the old rules.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException Only if there is an error in the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testExpiredRobots() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (10000, 'http', 1, '/robots.txt', NOW() - INTERVAL '2 days')");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/scripts/', false)");
+			
+			CrawlJob robotsJob = new CrawlJob(10000, new CrawlURL("http", "example.kings.edu", "/robots.txt"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/foo.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/foo.html"));
+			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")), newUrls, "This is some content.");
+			
+			// The old rules are still used, but the robots.txt file will be crawled again.
+			assertEquals(newJobs.size(), 2);
+			assertTrue(newJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/foo.html"))));
+			assertTrue(newJobs.contains(robotsJob));
+			try(ResultSet results = stmt.executeQuery("SELECT when_crawled FROM url WHERE url_id = 10000");) {
+				assertTrue(results.next());
+				assertNull(results.getTimestamp(1));
+			}
+			
+			Set<RobotsRule> newRules = new HashSet<>();
+			newRules.add(new RobotsRule("http", "example.kings.edu", "/foo", false));
+			Set<CrawlJob> deletedJobs = dataSource.finishCrawlingRobotsFile(robotsJob, newRules);
+			assertEquals(deletedJobs.size(), 1);
+			assertTrue(deletedJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/foo.html"))));
+			
+			// The new rules replace the old ones.
+			newUrls.clear();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/foo2.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/scripts/foo.html"));
+			newJobs = dataSource.finishCrawlingHtmlFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")), newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 1);
+			assertEquals(newJobs.iterator().next().getURL(), new CrawlURL("http", "example.kings.edu", "/scripts/foo.html"));
+			try(ResultSet results = stmt.executeQuery("SELECT COUNT(*) FROM robots_txt_rule");) {
+				assertTrue(results.next());
+				assertEquals(results.getInt(1), 2);
+			}
 		}
 	}
 	
@@ -370,18 +525,18 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/admissions/')");
 			
-			CrawlJob oldJob = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
+			CrawlJob oldJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
 			
 			dataSource.cancelCrawlingHtmlFile(oldJob);
 			
 			Set<CrawlJob> allJobs = new HashSet<>();
 			try(ResultSet resultsAllJobs = stmt.executeQuery("SELECT url_id, protocol, host_name, path FROM url NATURAL JOIN host WHERE when_crawled IS NULL");) {
 				while(resultsAllJobs.next()) {
-					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new URL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
+					allJobs.add(new CrawlJob(resultsAllJobs.getInt(1), new CrawlURL(resultsAllJobs.getString(2), resultsAllJobs.getString(3), resultsAllJobs.getString(4))));
 				}
 			}
 			assertEquals(allJobs.size(), 1);
-			assertTrue(allJobs.contains(new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"))));
+			assertTrue(allJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"))));
 		}
 	}
 
@@ -399,16 +554,245 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/admissions/')");
 			
-			CrawlJob firstJob = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
+			CrawlJob firstJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlURL> newUrls = new HashSet<>();
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(firstJob, newUrls, "This is some content.");
 			assertEquals(newJobs.size(), 0);
-			CrawlJob secondJob = new CrawlJob(2, new URL("http", "example.kings.edu", "/admissions/"));
+			CrawlJob secondJob = new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/admissions/"));
 			newJobs = dataSource.finishCrawlingHtmlFile(secondJob, newUrls, "More content.");
 			assertEquals(newJobs.size(), 0);
 		}		
 	}
 	
+	/**
+	 * Tests that links to URLs that are already known are skipped, and that a URL deleted because of robots.txt rules is no longer known.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is a problem with the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testFinishCrawlingHtmlFileKnownUrls() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (10000, 'http', 1, '/robots.txt', NOW())");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			
+			CrawlJob rootJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			CrawlJob robotsJob = new CrawlJob(10000, new CrawlURL("http", "example.kings.edu", "/robots.txt"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/a.html"));
+			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 1);
+			assertTrue(newJobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/a.html"))));
+			newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 0);
+			
+			Set<RobotsRule> rules = new HashSet<>();
+			rules.add(new RobotsRule("http", "example.kings.edu", "/a", false));
+			assertEquals(dataSource.finishCrawlingRobotsFile(robotsJob, rules).size(), 1);
+			newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 0);
+			
+			dataSource.finishCrawlingRobotsFile(robotsJob, new HashSet<>());
+			newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 1);
+			assertTrue(newJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/a.html"))));
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 3);
+			}
+		}
+	}
+	
+	/**
+	 * Tests that the new links on a page are added together and numbered in order, and that one added by something else after the URLs were loaded is skipped.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is a problem with the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testFinishCrawlingHtmlFileAddedElsewhere() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW())");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			
+			CrawlJob rootJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 0);
+			
+			stmt.executeUpdate("INSERT INTO url VALUES (10000, 'http', 1, '/b.html')");
+			List<CrawlURL> links = new ArrayList<>();
+			links.add(new CrawlURL("http", "example.kings.edu", "/a.html"));
+			links.add(new CrawlURL("http", "example.kings.edu", "/b.html"));
+			links.add(new CrawlURL("http", "example.kings.edu", "/c.html"));
+			newUrls = new LinkedHashSet<>(links);
+			newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 2);
+			assertTrue(newJobs.contains(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/a.html"))));
+			assertFalse(newJobs.contains(new CrawlJob(10000, new CrawlURL("http", "example.kings.edu", "/b.html"))));
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url WHERE path = '/b.html'");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 1);
+			}
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url WHERE path = '/c.html' AND url_id > 3");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 1);
+			}
+		}
+	}
+	
+	/**
+	 * Tests that a host is created for a link to a new host, and that a host created by something else after the hosts were loaded is used rather than created again.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is a problem with the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testFinishCrawlingHtmlFileNewHosts() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('wilkes.edu')");
+			
+			CrawlJob rootJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "www.kings.edu", "/"));
+			dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			
+			stmt.executeUpdate("INSERT INTO host VALUES (10000, 'example.wilkes.edu')");
+			newUrls.clear();
+			newUrls.add(new CrawlURL("http", "example.wilkes.edu", "/"));
+			dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			
+			Map<String, Integer> hosts = new HashMap<>();
+			try(ResultSet resultsHosts = stmt.executeQuery("SELECT host_name, host_id FROM host");) {
+				while(resultsHosts.next()) {
+					hosts.put(resultsHosts.getString(1), resultsHosts.getInt(2));
+				}
+			}
+			assertEquals(hosts.size(), 3);
+			assertEquals(hosts.get("example.wilkes.edu"), Integer.valueOf(10000));
+			try(ResultSet resultsUrls = stmt.executeQuery("SELECT COUNT(*) FROM url WHERE host_id = 10000");) {
+				resultsUrls.next();
+				// The page and the robots.txt file of the new host.
+				assertEquals(resultsUrls.getInt(1), 2);
+			}
+		}
+	}
+	
+	/**
+	 * Tests that a page whose document cannot be saved leaves none of its links behind.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is a problem with the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testFinishCrawlingHtmlFileAtomic() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW())");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			
+			// There is no URL with this ID, so its document cannot be created.
+			CrawlJob badJob = new CrawlJob(10000, new CrawlURL("http", "example.kings.edu", "/missing.html"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/a.html"));
+			try {
+				dataSource.finishCrawlingHtmlFile(badJob, newUrls, "This is some content.");
+				fail("The document should not have been created.");
+			}
+			catch(DataSourceException exception) {
+				// Expected.
+			}
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 2);
+			}
+			
+			// The data source is still usable, and has not remembered the link that was undone.
+			CrawlJob rootJob = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(rootJob, newUrls, "This is some content.");
+			assertEquals(newJobs.size(), 1);
+		}
+	}
+	
+	/**
+	 * Tests that the pages in a batch are not seen until the batch ends, and that a page that fails in a batch does not undo the others.
+	 * 
+	 * @throws SQLException If there is a problem communicating with the database.
+	 * @throws MalformedURLException If there is a problem with the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the PGCrawlingDataSource.
+	 */
+	@Test
+	public void testBatch() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW())");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/other.html')");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			
+			dataSource.beginBatch();
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/a.html"));
+			dataSource.finishCrawlingHtmlFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")), newUrls, "Root content.");
+			newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/b.html"));
+			try {
+				dataSource.finishCrawlingHtmlFile(new CrawlJob(10000, new CrawlURL("http", "example.kings.edu", "/missing.html")), newUrls, "Missing content.");
+				fail("The document should not have been created.");
+			}
+			catch(DataSourceException exception) {
+				// Expected.
+			}
+			dataSource.finishUnchangedHtmlFile(new CrawlJob(3, new CrawlURL("http", "example.kings.edu", "/other.html")), new Validators("\"x\"", null, null));
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url WHERE when_crawled IS NOT NULL");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 1);
+			}
+			dataSource.endBatch();
+			
+			Set<String> paths = new HashSet<>();
+			try(ResultSet resultsPaths = stmt.executeQuery("SELECT path FROM url");) {
+				while(resultsPaths.next()) {
+					paths.add(resultsPaths.getString(1));
+				}
+			}
+			assertEquals(paths, new HashSet<>(Arrays.asList("/", "/robots.txt", "/other.html", "/a.html")));
+			try(ResultSet resultsCount = stmt.executeQuery("SELECT COUNT(*) FROM url WHERE when_crawled IS NOT NULL");) {
+				resultsCount.next();
+				assertEquals(resultsCount.getInt(1), 3);
+			}
+			try(ResultSet resultsContent = stmt.executeQuery("SELECT content FROM document WHERE url_id = 1");) {
+				assertTrue(resultsContent.next());
+				assertEquals(resultsContent.getString(1), "Root content.");
+			}
+			
+			// The link from the page that failed was forgotten, but the one from the page that was saved was not.
+			newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/a.html"));
+			newUrls.add(new CrawlURL("http", "example.kings.edu", "/b.html"));
+			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(new CrawlJob(4, new CrawlURL("http", "example.kings.edu", "/a.html")), newUrls, "A content.");
+			assertEquals(newJobs.size(), 1);
+			assertEquals(newJobs.iterator().next().getURL(), new CrawlURL("http", "example.kings.edu", "/b.html"));
+		}
+	}
+	
 	/**
 	 * Tests that {@link PGCrawlingDataSource#finishCrawlingHtmlFile(CrawlJob, Set, String)} handles malformed document contents correctly.
 	 * 
@@ -422,8 +806,8 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
 			
-			CrawlJob job = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
+			CrawlJob job = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlURL> newUrls = new HashSet<>();
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(job, newUrls, "Hello \0 World!");
 			assertEquals(newJobs.size(), 0);
 			try(ResultSet resultsGetContent = stmt.executeQuery("SELECT content FROM document");) {
@@ -449,14 +833,120 @@ public class TestPGCrawlingDataSource {
 			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW())");
 			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
 			
-			CrawlJob job = new CrawlJob(1, new URL("http", "example.kings.edu", "/"));
-			Set<URL> newUrls = new HashSet<>();
-			newUrls.add(new URL("http://example.kings.edu/picture.JPG"));
-			newUrls.add(new URL("http://example.kings.edu/image.jpg"));
-			newUrls.add(new URL("http://example.kings.edu/document.html"));
+			CrawlJob job = new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/"));
+			Set<CrawlURL> newUrls = new HashSet<>();
+			newUrls.add(new CrawlURL("http://example.kings.edu/picture.JPG"));
+			newUrls.add(new CrawlURL("http://example.kings.edu/image.jpg"));
+			newUrls.add(new CrawlURL("http://example.kings.edu/document.html"));
 			Set<CrawlJob> newJobs = dataSource.finishCrawlingHtmlFile(job, newUrls, "<html></html>");
 			assertEquals(1, newJobs.size());
-			assertTrue(newJobs.contains(new CrawlJob(3, new URL("http://example.kings.edu/document.html"))));
+			assertTrue(newJobs.contains(new CrawlJob(3, new CrawlURL("http://example.kings.edu/document.html"))));
+		}
+	}
+
+	/**
+	 * Tests that {@link PGCrawlingDataSource#scheduleRecrawl(long)} only puts stale documents back to be crawled, and that they come back with their Validators.
+	 * 
+	 * @throws SQLException If there is a problem interacting with the database.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the DataSource.
+	 */
+	@Test
+	public void testScheduleRecrawl() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/', NOW() - INTERVAL '10 days', '\"abc\"', NULL, NULL)");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/admissions/', NOW())");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW() - INTERVAL '10 days')");
+			stmt.executeUpdate("INSERT INTO document VALUES (1, NULL, 'asdf')");
+			stmt.executeUpdate("INSERT INTO document VALUES (2, NULL, 'qwer')");
+			
+			assertEquals(dataSource.scheduleRecrawl(24L * 60 * 60 * 1000), 1);
+			Set<CrawlJob> jobs = dataSource.getURLsToCrawl();
+			assertEquals(jobs.size(), 1);
+			CrawlJob job = jobs.iterator().next();
+			assertEquals(job, new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")));
+			assertEquals(job.getValidators(), new Validators("\"abc\"", null, null));
+		}
+	}
+
+	/**
+	 * Tests that {@link PGCrawlingDataSource#finishUnchangedHtmlFile(CrawlJob, Validators)} marks a document as crawled without touching its content.
+	 * 
+	 * @throws SQLException If there is a problem interacting with the database.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the DataSource.
+	 */
+	@Test
+	public void testFinishUnchangedHtmlFile() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/')");
+			stmt.executeUpdate("INSERT INTO document VALUES (1, NULL, 'asdf')");
+			
+			dataSource.finishUnchangedHtmlFile(new CrawlJob(1, new CrawlURL("http", "example.kings.edu", "/")), new Validators("\"abc\"", "Sat, 17 Oct 2026 00:00:00 GMT", null));
+			assertTrue(dataSource.getURLsToCrawl().isEmpty());
+			try(ResultSet results = stmt.executeQuery("SELECT etag, last_modified, content FROM url NATURAL JOIN document WHERE url_id = 1");) {
+				assertTrue(results.next());
+				assertEquals(results.getString(1), "\"abc\"");
+				assertEquals(results.getString(2), "Sat, 17 Oct 2026 00:00:00 GMT");
+				assertEquals(results.getString(3), "asdf");
+			}
+		}
+	}
+
+	/**
+	 * Tests that {@link PGCrawlingDataSource#addSitemapUrls(java.util.Collection)} adds new URLs, crawls changed ones again, and skips those that are disallowed or unchanged.
+	 * 
+	 * @throws SQLException If there is a problem interacting with the database.
+	 * @throws MalformedURLException If there is an error in the test itself.
+	 * @throws DataSourceException If there is a problem interacting with the DataSource.
+	 */
+	@Test
+	public void testAddSitemapUrls() throws SQLException, MalformedURLException, DataSourceException {
+		try(Statement stmt = connection.createStatement();) {
+			stmt.executeUpdate("INSERT INTO host VALUES (DEFAULT, 'example.kings.edu')");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/robots.txt', NOW())");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/old.html', NOW() - INTERVAL '10 days', '\"abc\"', NULL, NULL)");
+			stmt.executeUpdate("INSERT INTO url VALUES (DEFAULT, 'http', 1, '/fresh.html', NOW())");
+			stmt.executeUpdate("INSERT INTO document VALUES (2, NULL, 'asdf')");
+			stmt.executeUpdate("INSERT INTO document VALUES (3, NULL, 'qwer')");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/', true)");
+			stmt.executeUpdate("INSERT INTO robots_txt_rule VALUES ('http', 1, '/private/', false)");
+			stmt.executeUpdate("INSERT INTO host_whitelist VALUES ('kings.edu')");
+			
+			Instant now = Instant.now();
+			List<SitemapEntry> entries = new ArrayList<>();
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.kings.edu", "/old.html"), now.minus(1, ChronoUnit.DAYS)));
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.kings.edu", "/fresh.html"), now.minus(5, ChronoUnit.DAYS)));
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.kings.edu", "/new.html"), null));
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.kings.edu", "/new.html"), null));
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.kings.edu", "/private/secret.html"), null));
+			entries.add(new SitemapEntry(new CrawlURL("http", "example.wilkes.edu", "/"), null));
+			entries.add(new SitemapEntry(new CrawlURL("https", "example.kings.edu", "/secure.html"), null));
+			Set<CrawlJob> jobs = dataSource.addSitemapUrls(entries);
+			
+			Set<CrawlURL> urls = new HashSet<>();
+			for(CrawlJob job : jobs) {
+				urls.add(job.getURL());
+			}
+			Set<CrawlURL> expectedUrls = new HashSet<>();
+			expectedUrls.add(new CrawlURL("http", "example.kings.edu", "/old.html"));
+			expectedUrls.add(new CrawlURL("http", "example.kings.edu", "/new.html"));
+			expectedUrls.add(new CrawlURL("https", "example.kings.edu", "/secure.html"));
+			expectedUrls.add(new CrawlURL("https", "example.kings.edu", "/robots.txt"));
+			assertEquals(urls, expectedUrls);
+			assertEquals(jobs.size(), 4);
+			assertTrue(jobs.contains(new CrawlJob(2, new CrawlURL("http", "example.kings.edu", "/old.html"))));
+			for(CrawlJob job : jobs) {
+				if(job.getId() == 2) {
+					assertEquals(job.getValidators(), new Validators("\"abc\"", null, null));
+				}
+			}
+			assertEquals(dataSource.getURLsToCrawl(), jobs);
+			
+			// Adding the same URLs again finds nothing new.
+			assertTrue(dataSource.addSitemapUrls(entries).isEmpty());
 		}
 	}
 }
@@ -0,0 +1,71 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for the PolitenessPolicy class.
+ * 
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestPolitenessPolicy {
+
+	/**
+	 * Tests that a policy with equal minimum and maximum delays always uses that delay.
+	 */
+	@Test
+	public void testFixedDelay() {
+		PolitenessPolicy policy = new PolitenessPolicy(500);
+		assertEquals(policy.getMaxConnectionsPerHost(), PolitenessPolicy.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		assertEquals(policy.getInitialCrawlDelay(), 500);
+		assertEquals(policy.getCrawlDelay(-1, 0, 0), 500);
+		assertEquals(policy.getCrawlDelay(10, 0, 0), 500);
+		assertEquals(policy.getCrawlDelay(90000, 1, 0), 500);
+		assertEquals(policy.getCrawlDelay(10, 0, 3000), 3000);
+	}
+
+	/**
+	 * Tests that the delay follows the response time, within the minimum and maximum.
+	 */
+	@Test
+	public void testAdaptiveDelay() {
+		PolitenessPolicy policy = new PolitenessPolicy(100, 10000, 2);
+		assertEquals(policy.getCrawlDelay(-1, 0, 0), 10000);
+		assertEquals(policy.getCrawlDelay(1000, 0, 0), 500);
+		assertEquals(policy.getCrawlDelay(50, 0, 0), 100);
+		assertEquals(policy.getCrawlDelay(60000, 0, 0), 10000);
+		assertEquals(policy.getCrawlDelay(1000, 1, 0), 5000);
+		assertEquals(policy.getCrawlDelay(1000, 0, 20000), 20000);
+		assertEquals(policy.getCrawlDelay(1000, 0, 3600000), PolitenessPolicy.MAX_ROBOTS_CRAWL_DELAY);
+	}
+
+	/**
+	 * Tests that response times and failures are averaged with more weight on recent ones.
+	 */
+	@Test
+	public void testAverages() {
+		PolitenessPolicy policy = new PolitenessPolicy(0, 1000, 1);
+		assertEquals(policy.updateAverageLatency(-1, 200), 200, 0.001);
+		assertEquals(policy.updateAverageLatency(200, 1200), 500, 0.001);
+		assertEquals(policy.updateErrorRate(0, true), 0.2, 0.001);
+		assertEquals(policy.updateErrorRate(0.2, false), 0.16, 0.001);
+	}
+
+	/**
+	 * Tests that a maximum delay below the minimum is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDelays() {
+		new PolitenessPolicy(1000, 500, 1);
+	}
+
+	/**
+	 * Tests that a policy allowing no connections is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConnections() {
+		new PolitenessPolicy(0, 500, 0);
+	}
+}
@@ -0,0 +1,75 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for RobotsCache.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestRobotsCache {
+
+	/**
+	 * Tests that cached rules are found by protocol and host until their time to live has passed.
+	 */
+	@Test
+	public void testExpiry() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		RobotsCache cache = new RobotsCache(1000);
+		assertEquals(cache.getTtl(), 1000);
+		assertNull(cache.get("http", "example.kings.edu", 0));
+		cache.put("http", "example.kings.edu", ruleSet, 5000);
+		assertEquals(cache.size(), 1);
+		assertSame(cache.get("http", "example.kings.edu", 5000), ruleSet);
+		assertSame(cache.get("http", "example.kings.edu", 5999), ruleSet);
+		assertNull(cache.get("http", "example.kings.edu", 6000));
+		assertNull(cache.get("https", "example.kings.edu", 5000));
+		assertNull(cache.get("http", "example.wilkes.edu", 5000));
+	}
+
+	/**
+	 * Tests that rules cached until they are replaced never expire, and are replaced by newer ones.
+	 */
+	@Test
+	public void testUntilReplaced() {
+		RobotsRuleSet oldRules = new RobotsRuleSet(new HashSet<>());
+		RobotsRuleSet newRules = new RobotsRuleSet(new HashSet<>());
+		RobotsCache cache = new RobotsCache(RobotsCache.DEFAULT_TTL);
+		cache.putUntilReplaced("http", "example.kings.edu", oldRules);
+		assertSame(cache.get("http", "example.kings.edu", Long.MAX_VALUE - 1), oldRules);
+		cache.put("http", "example.kings.edu", newRules, Long.MAX_VALUE - 1);
+		assertEquals(cache.size(), 1);
+		assertSame(cache.get("http", "example.kings.edu", Long.MAX_VALUE - 1), newRules);
+	}
+
+	/**
+	 * Tests that clearing a cache forgets every entry.
+	 */
+	@Test
+	public void testClear() {
+		RobotsCache cache = new RobotsCache(RobotsCache.DEFAULT_TTL);
+		cache.putUntilReplaced("http", "example.kings.edu", new RobotsRuleSet(new HashSet<>()));
+		cache.put("https", "example.kings.edu", new RobotsRuleSet(new HashSet<>()), 0);
+		cache.clear();
+		assertEquals(cache.size(), 0);
+		assertNull(cache.get("http", "example.kings.edu", 0));
+	}
+
+	/**
+	 * Tests that a cache must have a positive time to live.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadTtl() {
+		new RobotsCache(0);
+	}
+}
@@ -0,0 +1,166 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for RobotsRuleSet.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestRobotsRuleSet {
+
+	/**
+	 * Tests that the longest matching rule decides whether a path is allowed.
+	 */
+	@Test
+	public void testLongestMatch() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/scripts/", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/scripts/public/", true));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/private", false));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertFalse(ruleSet.isEmpty());
+		assertEquals(ruleSet.size(), 4);
+		assertTrue(ruleSet.isAllowed("/foo.html"));
+		assertFalse(ruleSet.isAllowed("/scripts/"));
+		assertFalse(ruleSet.isAllowed("/scripts/foo.html"));
+		assertTrue(ruleSet.isAllowed("/scripts/public/"));
+		assertTrue(ruleSet.isAllowed("/scripts/public/foo.html"));
+		assertTrue(ruleSet.isAllowed("/scripts"));
+		assertFalse(ruleSet.isAllowed("/private"));
+		assertFalse(ruleSet.isAllowed("/private.html?a=b"));
+		assertEquals(ruleSet.getLongestMatch("/scripts/public/foo.html").getPathPrefix(), "/scripts/public/");
+		assertEquals(ruleSet.getLongestMatch("/index.html").getPathPrefix(), "/");
+	}
+
+	/**
+	 * Tests that a path that no rule matches is allowed.
+	 */
+	@Test
+	public void testNoMatch() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/scripts/", false));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertNull(ruleSet.getLongestMatch("/index.html"));
+		assertTrue(ruleSet.isAllowed("/index.html"));
+		assertTrue(ruleSet.isAllowed(""));
+
+		RobotsRuleSet empty = new RobotsRuleSet(new HashSet<>());
+		assertTrue(empty.isEmpty());
+		assertEquals(empty.size(), 0);
+		assertNull(empty.getLongestMatch("/"));
+		assertTrue(empty.isAllowed("/"));
+	}
+
+	/**
+	 * Tests that '*' matches any sequence of characters and that '$' anchors a rule to the end of the path.
+	 */
+	@Test
+	public void testWildcards() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/*.php$", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/fish*", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/*/private/*.html", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/exact$", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/public/*.php$", true));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertFalse(ruleSet.isAllowed("/index.php"));
+		assertFalse(ruleSet.isAllowed("/a/b/index.php"));
+		assertTrue(ruleSet.isAllowed("/index.php?a=b"));
+		assertTrue(ruleSet.isAllowed("/index.php5"));
+		assertFalse(ruleSet.isAllowed("/fish"));
+		assertFalse(ruleSet.isAllowed("/fish.html"));
+		assertFalse(ruleSet.isAllowed("/fishheads/yummy.html"));
+		assertTrue(ruleSet.isAllowed("/Fish.asp"));
+		assertTrue(ruleSet.isAllowed("/catfish"));
+		assertFalse(ruleSet.isAllowed("/a/private/b.html"));
+		assertFalse(ruleSet.isAllowed("/a/b/private/c/d.html?x"));
+		assertTrue(ruleSet.isAllowed("/private/b.html"));
+		assertTrue(ruleSet.isAllowed("/a/private/b.htm"));
+		assertFalse(ruleSet.isAllowed("/exact"));
+		assertTrue(ruleSet.isAllowed("/exact/"));
+		assertTrue(ruleSet.isAllowed("/exactly"));
+		// The Allow rule is longer than the Disallow rule, so it wins.
+		assertTrue(ruleSet.isAllowed("/public/index.php"));
+		assertEquals(ruleSet.getLongestMatch("/public/index.php").getPathPrefix(), "/public/*.php$");
+		assertEquals(ruleSet.getLongestMatch("/a/private/b.html").getPathPrefix(), "/*/private/*.html");
+	}
+
+	/**
+	 * Tests that characters that are special in SQL patterns are matched literally.
+	 */
+	@Test
+	public void testLiteralCharacters() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/100%", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/a_b", false));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertFalse(ruleSet.isAllowed("/100%25"));
+		assertTrue(ruleSet.isAllowed("/1000"));
+		assertFalse(ruleSet.isAllowed("/a_b.html"));
+		assertTrue(ruleSet.isAllowed("/axb.html"));
+	}
+
+	/**
+	 * Tests that trailing and repeated '*'s change nothing about which paths a rule matches.
+	 */
+	@Test
+	public void testRedundantStars() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/a**b*", false));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertFalse(ruleSet.isAllowed("/ab"));
+		assertFalse(ruleSet.isAllowed("/axxbyy"));
+		assertTrue(ruleSet.isAllowed("/ba"));
+
+		rules.clear();
+		rules.add(new RobotsRule("http", "example.kings.edu", "*", false));
+		ruleSet = new RobotsRuleSet(rules);
+		assertFalse(ruleSet.isAllowed(""));
+		assertFalse(ruleSet.isAllowed("/anything"));
+	}
+
+	/**
+	 * Tests that a rule with many '*'s is matched quickly against a long path, whether or not it matches.
+	 */
+	@Test(timeout = 5000)
+	public void testManyStars() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/", true));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/*a*a*a*a*a*b", false));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		StringBuilder path = new StringBuilder("/");
+		for(int index = 0; index < 200; index++) {
+			path.append('a');
+		}
+		assertTrue(ruleSet.isAllowed(path.toString()));
+		path.append('b');
+		assertFalse(ruleSet.isAllowed(path.toString()));
+		assertTrue(ruleSet.isAllowed("/aaaab"));
+		assertFalse(ruleSet.isAllowed("/xaxaxaxaxab"));
+	}
+
+	/**
+	 * Tests that when an Allow and a Disallow rule have the same path prefix, the Allow rule wins.
+	 */
+	@Test
+	public void testConflict() {
+		Set<RobotsRule> rules = new HashSet<>();
+		rules.add(new RobotsRule("http", "example.kings.edu", "/page", false));
+		rules.add(new RobotsRule("http", "example.kings.edu", "/page", true));
+		RobotsRuleSet ruleSet = new RobotsRuleSet(rules);
+		assertEquals(ruleSet.size(), 1);
+		assertTrue(ruleSet.isAllowed("/page.html"));
+	}
+}
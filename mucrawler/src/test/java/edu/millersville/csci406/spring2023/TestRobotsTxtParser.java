@@ -0,0 +1,166 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for RobotsTxtParser.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestRobotsTxtParser {
+
+	/**
+	 * Parses a robots.txt file from example.com with the default product token.
+	 *
+	 * @param contents The contents of the file.
+	 * @return What the file says to this crawler.
+	 * @throws IOException Should be impossible.
+	 */
+	private static RobotsTxt parse(String contents) throws IOException {
+		return new RobotsTxtParser().parse("http", "example.com", new StringReader(contents));
+	}
+
+	/**
+	 * Makes a Set of rules for example.com.
+	 *
+	 * @param pathsAndDirectives Alternating paths and whether they are allowed.
+	 * @return The Set of rules.
+	 */
+	private static Set<RobotsRule> rules(Object... pathsAndDirectives) {
+		Set<RobotsRule> returnValue = new HashSet<>();
+		for(int index = 0; index < pathsAndDirectives.length; index += 2) {
+			returnValue.add(new RobotsRule("http", "example.com", (String)pathsAndDirectives[index], (Boolean)pathsAndDirectives[index + 1]));
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Tests that several User-agent lines form one group, and that blank lines do not end a group.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testGroupedUserAgents() throws IOException {
+		RobotsTxt robotsTxt = parse("User-agent: googlebot\nUser-agent: *\n\nDisallow: /private/\n\nAllow: /private/public/\nUser-agent: bingbot\nDisallow: /nobing/\n");
+		assertEquals(robotsTxt.getRules(), rules("/private/", false, "/private/public/", true));
+		assertFalse(robotsTxt.getRuleSet().isAllowed("/private/a.html"));
+		assertTrue(robotsTxt.getRuleSet().isAllowed("/private/public/a.html"));
+		assertFalse(robotsTxt.isTruncated());
+	}
+
+	/**
+	 * Tests that the groups naming this crawler are merged, and are used instead of the groups naming "*".
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testOurGroups() throws IOException {
+		RobotsTxt robotsTxt = parse("User-agent: *\nDisallow: /\n\nUser-agent: MuCrawler/1.0\nDisallow: /a/\n\nUser-agent: other\nDisallow: /b/\n\nuser-agent: MUCRAWLER\nDisallow: /c/\n");
+		assertEquals(robotsTxt.getRules(), rules("/a/", false, "/c/", false));
+		robotsTxt = new RobotsTxtParser("otherbot").parse("http", "example.com", new StringReader("User-agent: *\nDisallow: /\n\nUser-agent: otherbot-news\nDisallow: /x/\n"));
+		assertEquals(robotsTxt.getRules(), rules("/", false));
+	}
+
+	/**
+	 * Tests that a group naming this crawler with no rules allows everything, even when a group naming "*" does not.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testEmptyOurGroup() throws IOException {
+		RobotsTxt robotsTxt = parse("User-agent: *\nDisallow: /\n\nUser-agent: mucrawler\nDisallow:\n");
+		assertTrue(robotsTxt.getRules().isEmpty());
+		assertTrue(robotsTxt.getRuleSet().isAllowed("/anything"));
+	}
+
+	/**
+	 * Tests that field names are matched in any case and that whitespace, comments and line breaks of every kind are handled.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testWhitespaceAndCase() throws IOException {
+		RobotsTxt robotsTxt = parse("\uFEFF# A comment.\r\n  USER-AGENT:*\r\n\tdisallow\t:\t/a/ # Why not?\rALLOW: /a/b/#Because.\nDisAllow:/c\nDisallow: d\nAllow:\nDisallow: /e/");
+		assertEquals(robotsTxt.getRules(), rules("/a/", false, "/a/b/", true, "/c", false, "/d", false, "/e/", false));
+	}
+
+	/**
+	 * Tests that rules outside of any group, unknown fields and nonsense lines are ignored.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testIgnoredLines() throws IOException {
+		RobotsTxt robotsTxt = parse("Disallow: /before/\nWhat is this?\nUser-agent: *\nHost: parasite\nDisallow: /a/\nDis\nNoindex: /b/\n");
+		assertEquals(robotsTxt.getRules(), rules("/a/", false));
+		assertTrue(parse("").getRules().isEmpty());
+	}
+
+	/**
+	 * Tests that an Allow rule and a Disallow rule with the same path become just the Allow rule.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testConflictingRules() throws IOException {
+		assertEquals(parse("User-agent: *\nDisallow: /a\nAllow: /a\n").getRules(), rules("/a", true));
+		assertEquals(parse("User-agent: *\nAllow: /a\nDisallow: /a\n").getRules(), rules("/a", true));
+	}
+
+	/**
+	 * Tests that crawl delays are taken from the groups that apply, and sitemaps from anywhere.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testCrawlDelayAndSitemaps() throws IOException {
+		RobotsTxt robotsTxt = parse("Sitemap: http://example.com/first.xml\nUser-agent: other\nCrawl-delay: 60\nSitemap: http://example.com/second.xml\n\nUser-agent: *\nCrawl-delay: 2.5\nCrawl-delay: 8000 years\nDisallow: /a/\nsitemap:http://example.com/third.xml.gz\n");
+		assertEquals(robotsTxt.getCrawlDelay(), 2500);
+		assertEquals(robotsTxt.getRules(), rules("/a/", false));
+		assertEquals(robotsTxt.getSitemaps(), Arrays.asList("http://example.com/first.xml", "http://example.com/second.xml", "http://example.com/third.xml.gz"));
+		assertEquals(parse("User-agent: *\nCrawl-delay: -1\n").getCrawlDelay(), 0);
+	}
+
+	/**
+	 * Tests that only the first MAX_SIZE characters are parsed, ignoring a line cut off at that point.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testSizeLimit() throws IOException {
+		StringBuilder builder = new StringBuilder("User-agent: *\n");
+		while(builder.length() < RobotsTxtParser.MAX_SIZE - 11) {
+			builder.append("# Padding\n");
+		}
+		builder.setLength(RobotsTxtParser.MAX_SIZE - 11);
+		builder.append("\nAllow: /a\nDisallow: /b\n");
+		RobotsTxt robotsTxt = parse(builder.toString());
+		assertTrue(robotsTxt.isTruncated());
+		assertEquals(robotsTxt.getRules(), rules("/a", true));
+
+		builder.setLength(RobotsTxtParser.MAX_SIZE - 11);
+		builder.append("\nAllow: /a");
+		robotsTxt = parse(builder.toString());
+		assertFalse(robotsTxt.isTruncated());
+		assertEquals(robotsTxt.getRules(), rules("/a", true));
+	}
+
+	/**
+	 * Tests that a product token must be made of letters, '_' and '-'.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadProductToken() {
+		new RobotsTxtParser("MuCrawler/1.0");
+	}
+}
@@ -0,0 +1,197 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for SitemapParser.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestSitemapParser {
+
+	/**
+	 * Parses a sitemap file.
+	 *
+	 * @param bytes The bytes of the file.
+	 * @return What the file lists.
+	 * @throws IOException Should be impossible.
+	 */
+	private static Sitemap parse(byte[] bytes) throws IOException {
+		return new SitemapParser().parse(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Parses a sitemap file.
+	 *
+	 * @param contents The contents of the file.
+	 * @return What the file lists.
+	 * @throws IOException Should be impossible.
+	 */
+	private static Sitemap parse(String contents) throws IOException {
+		return parse(contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests that the URLs and lastmods of a urlset are read in order, and that other elements are skipped.
+	 *
+	 * @throws IOException Should be impossible.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testUrlset() throws IOException, MalformedURLException {
+		Sitemap sitemap = parse("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\" xmlns:image=\"http://www.google.com/schemas/sitemap-image/1.1\">\n"
+				+ "  <url>\n    <loc>\n      http://example.com/a.html\n    </loc>\n    <lastmod>2026-10-01T12:30:00+02:00</lastmod>\n"
+				+ "    <changefreq>daily</changefreq>\n    <image:image><image:loc>http://example.com/a.png</image:loc></image:image>\n  </url>\n"
+				+ "  <url><loc><![CDATA[http://example.com/b.html?x=1&y=2]]></loc></url>\n"
+				+ "  <url><loc>http://example.com/c.html?x=1&amp;y=2</loc><lastmod>not a date</lastmod></url>\n"
+				+ "</urlset>\n");
+		assertEquals(Arrays.asList(new SitemapEntry(new CrawlURL("http://example.com/a.html"), Instant.parse("2026-10-01T10:30:00Z")),
+				new SitemapEntry(new CrawlURL("http://example.com/b.html?x=1&y=2"), null),
+				new SitemapEntry(new CrawlURL("http://example.com/c.html?x=1&y=2"), null)), sitemap.getEntries());
+		assertTrue(sitemap.getSitemaps().isEmpty());
+		assertFalse(sitemap.isTruncated());
+	}
+
+	/**
+	 * Tests that the sitemaps of a sitemap index are read in order.
+	 *
+	 * @throws IOException Should be impossible.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testSitemapIndex() throws IOException, MalformedURLException {
+		Sitemap sitemap = parse("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+				+ "<sitemap><loc>http://example.com/sitemap1.xml.gz</loc><lastmod>2026-10-01</lastmod></sitemap>"
+				+ "<sitemap><loc>http://example.com/sitemap2.xml</loc></sitemap>"
+				+ "</sitemapindex>");
+		assertTrue(sitemap.getEntries().isEmpty());
+		assertEquals(Arrays.asList(new CrawlURL("http://example.com/sitemap1.xml.gz"), new CrawlURL("http://example.com/sitemap2.xml")), sitemap.getSitemaps());
+		assertFalse(sitemap.isTruncated());
+	}
+
+	/**
+	 * Tests that a gzipped sitemap is decompressed.
+	 *
+	 * @throws IOException Should be impossible.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testGzip() throws IOException, MalformedURLException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+			output.write("<urlset><url><loc>http://example.com/a.html</loc></url></urlset>".getBytes(StandardCharsets.UTF_8));
+		}
+		Sitemap sitemap = parse(bytes.toByteArray());
+		assertEquals(Collections.singletonList(new SitemapEntry(new CrawlURL("http://example.com/a.html"), null)), sitemap.getEntries());
+		assertFalse(sitemap.isTruncated());
+	}
+
+	/**
+	 * Tests that the URLs before the point at which a file is cut off are kept, even if it is gzipped.
+	 *
+	 * @throws IOException Should be impossible.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testTruncated() throws IOException, MalformedURLException {
+		String contents = "<urlset><url><loc>http://example.com/a.html</loc></url><url><loc>http://example.com/b.html</loc></url><url><loc>http://exam";
+		Sitemap sitemap = parse(contents);
+		assertEquals(Arrays.asList(new SitemapEntry(new CrawlURL("http://example.com/a.html"), null),
+				new SitemapEntry(new CrawlURL("http://example.com/b.html"), null)), sitemap.getEntries());
+		assertTrue(sitemap.isTruncated());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(GZIPOutputStream output = new GZIPOutputStream(bytes)) {
+			output.write((contents + "ple.com/c.html</loc></url></urlset>").getBytes(StandardCharsets.UTF_8));
+		}
+		byte[] compressed = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 20);
+		sitemap = parse(compressed);
+		assertTrue(sitemap.isTruncated());
+		assertTrue(sitemap.getEntries().size() <= 3);
+	}
+
+	/**
+	 * Tests that locs that are not absolute http or https URLs, are empty, or are missing are skipped.
+	 *
+	 * @throws IOException Should be impossible.
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testBadLocs() throws IOException, MalformedURLException {
+		Sitemap sitemap = parse("<urlset>"
+				+ "<url><loc>/relative.html</loc></url>"
+				+ "<url><loc>ftp://example.com/file.txt</loc></url>"
+				+ "<url><loc></loc></url>"
+				+ "<url><lastmod>2026-10-01</lastmod></url>"
+				+ "<url><loc>http://example.com:8080/port.html</loc></url>"
+				+ "<url><loc>https://example.com/good.html</loc></url>"
+				+ "</urlset>");
+		assertEquals(Collections.singletonList(new SitemapEntry(new CrawlURL("https://example.com/good.html"), null)), sitemap.getEntries());
+	}
+
+	/**
+	 * Tests that a DTD is not processed, so that an external entity is never fetched and an internal one is never expanded.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testNoEntities() throws IOException {
+		Sitemap sitemap = parse("<?xml version=\"1.0\"?>\n"
+				+ "<!DOCTYPE urlset [<!ENTITY secret SYSTEM \"file:///etc/passwd\"><!ENTITY site \"http://example.com\">]>\n"
+				+ "<urlset><url><loc>&site;/a.html</loc></url><url><loc>&secret;</loc></url></urlset>");
+		for(SitemapEntry entry : sitemap.getEntries()) {
+			assertFalse(entry.getURL().toString().contains("root"));
+			assertFalse(entry.getURL().getHost().equals("example.com"));
+		}
+	}
+
+	/**
+	 * Tests that no more than MAX_ENTRIES URLs are kept.
+	 *
+	 * @throws IOException Should be impossible.
+	 */
+	@Test
+	public void testMaxEntries() throws IOException {
+		StringBuilder builder = new StringBuilder("<urlset>");
+		for(int index = 0; index <= SitemapParser.MAX_ENTRIES; index++) {
+			builder.append("<url><loc>http://example.com/").append(index).append(".html</loc></url>");
+		}
+		builder.append("</urlset>");
+		Sitemap sitemap = parse(builder.toString());
+		assertEquals(SitemapParser.MAX_ENTRIES, sitemap.getEntries().size());
+		assertTrue(sitemap.isTruncated());
+	}
+
+	/**
+	 * Tests the W3C Datetime formats that a lastmod may take.
+	 */
+	@Test
+	public void testParseLastModified() {
+		assertEquals(Instant.parse("2026-10-17T00:00:00Z"), SitemapParser.parseLastModified("2026-10-17"));
+		assertEquals(Instant.parse("2026-10-01T00:00:00Z"), SitemapParser.parseLastModified("2026-10"));
+		assertEquals(Instant.parse("2026-01-01T00:00:00Z"), SitemapParser.parseLastModified("2026"));
+		assertEquals(Instant.parse("2026-10-17T12:30:00Z"), SitemapParser.parseLastModified("2026-10-17T12:30Z"));
+		assertEquals(Instant.parse("2026-10-17T17:30:45.500Z"), SitemapParser.parseLastModified("2026-10-17T12:30:45.5-05:00"));
+		assertEquals(Instant.parse("2026-10-17T12:30:45Z"), SitemapParser.parseLastModified("2026-10-17T12:30:45"));
+		assertNull(SitemapParser.parseLastModified("yesterday"));
+		assertNull(SitemapParser.parseLastModified("2026-13-01"));
+		assertNull(SitemapParser.parseLastModified(null));
+	}
+}
@@ -0,0 +1,130 @@
+package edu.millersville.csci406.spring2023;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.MalformedURLException;
+
+import org.junit.Test;
+
+/**
+ * A collection of unit tests for URLFingerprintSet.
+ *
+ * @author Christian Michel
+ * @version 2026-10-17
+ */
+public class TestURLFingerprintSet {
+
+	/**
+	 * Tests that URLs are found once they are added and not after they are removed, and that every part of a URL matters.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testAddAndRemove() throws MalformedURLException {
+		URLFingerprintSet set = new URLFingerprintSet();
+		CrawlURL url = new CrawlURL("http", "www.kings.edu", "/index.html");
+		assertFalse(set.contains(url));
+		assertTrue(set.add(url));
+		assertFalse(set.add(new CrawlURL("http://www.kings.edu/index.html")));
+		assertEquals(set.size(), 1);
+		assertTrue(set.contains(new CrawlURL("http://www.kings.edu/index.html")));
+		assertFalse(set.contains(new CrawlURL("https://www.kings.edu/index.html")));
+		assertFalse(set.contains(new CrawlURL("http://www.wilkes.edu/index.html")));
+		assertFalse(set.contains(new CrawlURL("http://www.kings.edu/index.htm")));
+		assertFalse(set.remove(new CrawlURL("http://www.kings.edu/")));
+		assertTrue(set.remove(url));
+		assertFalse(set.contains(url));
+		assertEquals(set.size(), 0);
+	}
+
+	/**
+	 * Tests that the fingerprint of a URL depends only on its text, and that different URLs have different fingerprints.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testFingerprint() throws MalformedURLException {
+		assertEquals(URLFingerprintSet.fingerprint(new CrawlURL("http://www.kings.edu/a?b=c")), URLFingerprintSet.fingerprint(new CrawlURL("http", "www.kings.edu", "/a?b=c")));
+		assertTrue(URLFingerprintSet.fingerprint(new CrawlURL("http://www.kings.edu/a")) != URLFingerprintSet.fingerprint(new CrawlURL("http://www.kings.edu/b")));
+		assertTrue(URLFingerprintSet.fingerprint(new CrawlURL("http://www.kings.edu/a")) != 0L);
+	}
+
+	/**
+	 * Tests that many URLs can be added, which makes the table grow, and that removing some of them leaves the rest findable.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testMany() throws MalformedURLException {
+		URLFingerprintSet set = new URLFingerprintSet();
+		int count = 200000;
+		for(int index = 0; index < count; index++) {
+			assertTrue(set.add(new CrawlURL("http", "host" + (index % 50) + ".kings.edu", "/page" + index + ".html")));
+		}
+		assertEquals(set.size(), count);
+		for(int index = 0; index < count; index += 3) {
+			assertTrue(set.remove(new CrawlURL("http", "host" + (index % 50) + ".kings.edu", "/page" + index + ".html")));
+		}
+		for(int index = 0; index < count; index++) {
+			CrawlURL url = new CrawlURL("http", "host" + (index % 50) + ".kings.edu", "/page" + index + ".html");
+			assertEquals(set.contains(url), index % 3 != 0);
+		}
+		assertFalse(set.contains(new CrawlURL("http", "host0.kings.edu", "/page" + count + ".html")));
+		assertEquals(set.size(), count - (count + 2) / 3);
+	}
+
+	/**
+	 * Tests that a table which has grown as large as it may is filled to three quarters, and then refuses new URLs without throwing, while still finding every URL it has and room is made again by removing one.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testFull() throws MalformedURLException {
+		URLFingerprintSet set = new URLFingerprintSet(4, 16);
+		for(int index = 0; index < 12; index++) {
+			assertFalse(set.isFull());
+			assertTrue(set.add(new CrawlURL("http", "www.kings.edu", "/page" + index + ".html")));
+		}
+		assertTrue(set.isFull());
+		assertFalse(set.add(new CrawlURL("http", "www.kings.edu", "/page0.html")));
+		for(int index = 12; index < 100; index++) {
+			assertFalse(set.add(new CrawlURL("http", "www.kings.edu", "/page" + index + ".html")));
+		}
+		assertEquals(set.size(), 12);
+		for(int index = 0; index < 100; index++) {
+			assertEquals(set.contains(new CrawlURL("http", "www.kings.edu", "/page" + index + ".html")), index < 12);
+		}
+		assertTrue(set.remove(new CrawlURL("http", "www.kings.edu", "/page0.html")));
+		assertFalse(set.isFull());
+		assertTrue(set.add(new CrawlURL("http", "www.kings.edu", "/page12.html")));
+		assertTrue(set.contains(new CrawlURL("http", "www.kings.edu", "/page12.html")));
+		assertTrue(set.isFull());
+	}
+
+	/**
+	 * Tests that a set can be limited to a small table, and that the default limit is within bounds.
+	 *
+	 * @throws MalformedURLException Should be impossible.
+	 */
+	@Test
+	public void testMaxCapacity() throws MalformedURLException {
+		URLFingerprintSet set = new URLFingerprintSet(8);
+		for(int index = 0; index < 6; index++) {
+			assertTrue(set.add(new CrawlURL("http", "www.kings.edu", "/page" + index + ".html")));
+		}
+		assertFalse(set.add(new CrawlURL("http", "www.kings.edu", "/page6.html")));
+		assertEquals(set.size(), 6);
+		assertTrue(URLFingerprintSet.DEFAULT_MAX_CAPACITY <= URLFingerprintSet.MAX_CAPACITY);
+		assertEquals(Integer.bitCount(URLFingerprintSet.DEFAULT_MAX_CAPACITY), 1);
+		try {
+			new URLFingerprintSet(12);
+			fail("A capacity that is not a power of two was accepted.");
+		}
+		catch(IllegalArgumentException exception) {
+			// Expected.
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
 import java.util.Set;
 
 
@@ -30,7 +29,12 @@ public class ThrowingDataSourceMock extends AbstractCrawlingDataSourceMock {
 	}
 
 	@Override
-	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<URL> newUrls, String content) throws DataSourceException {
+	public Set<CrawlJob> getURLsToCrawl(int afterId, int limit) throws DataSourceException {
+		return getPage(jobs, afterId, limit);
+	}
+
+	@Override
+	public Set<CrawlJob> finishCrawlingHtmlFile(CrawlJob job, Set<CrawlURL> newUrls, String content) throws DataSourceException {
 		throw new DataSourceException(new UnsupportedOperationException());
 	}
 }
@@ -1,8 +1,11 @@
 package edu.millersville.csci406.spring2023;
 
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.Scanner;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -16,29 +19,39 @@ import org.jsoup.nodes.Document;
 public class URLReaderMock implements URLReader {
 	
 	/** A Map of URL to a String containing what we will claim to be the contents of the file at that URL. */
-	private Map<URL, String> fileContents;
+	private Map<CrawlURL, String> fileContents;
 	
 	/**
 	 * Constructs a URLReaderMock.
 	 * 
 	 * @param fileContents A Map of URL to file contents.
 	 */
-	public URLReaderMock(Map<URL, String> fileContents) {
+	public URLReaderMock(Map<CrawlURL, String> fileContents) {
 		this.fileContents = fileContents;
 	}
 
 	@Override
-	public Scanner readRobotsTxtFile(URL url) {
+	public Reader readRobotsTxtFile(CrawlURL url) {
 		String contents = fileContents.get(url);
-		Scanner returnValue = null;
+		Reader returnValue = null;
 		if(contents != null) {
-			returnValue = new Scanner(contents);
+			returnValue = new StringReader(contents);
 		}
 		return returnValue;
 	}
 
 	@Override
-	public Document readHTMLFile(URL url) {
+	public InputStream readSitemapFile(CrawlURL url) {
+		String contents = fileContents.get(url);
+		InputStream returnValue = null;
+		if(contents != null) {
+			returnValue = new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+		}
+		return returnValue;
+	}
+
+	@Override
+	public Document readHTMLFile(CrawlURL url) {
 		String contents = fileContents.get(url);
 		Document returnValue = null;
 		if(contents != null) {
@@ -47,4 +60,23 @@ public class URLReaderMock implements URLReader {
 		return returnValue;
 	}
 
+	@Override
+	public HtmlFetch readHTMLFile(CrawlURL url, Validators validators) {
+		String contents = fileContents.get(url);
+		HtmlFetch returnValue;
+		if(contents == null) {
+			returnValue = new HtmlFetch(null, false, null);
+		}
+		else {
+			Validators newValidators = new Validators(null, null, Validators.hash(contents.getBytes(StandardCharsets.UTF_8)));
+			if(validators != null && validators.hasSameContent(newValidators)) {
+				returnValue = new HtmlFetch(null, true, newValidators);
+			}
+			else {
+				returnValue = new HtmlFetch(new HtmlLinkExtractor().extract(contents, url), false, newValidators);
+			}
+		}
+		return returnValue;
+	}
+
 }